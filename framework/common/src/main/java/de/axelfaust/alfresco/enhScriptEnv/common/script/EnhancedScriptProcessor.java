@@ -69,16 +69,34 @@ public interface EnhancedScriptProcessor<SL>
     List<ReferenceScript> getScriptCallChain();
 
     /**
-     * Inherits and initializes the call chain for the current context from the provided parent context. Clients may use this operation to
-     * initialize necessary call chain information in situations where execution is not performed linearly in the same thread / context.
+     * Retrieves the call chain of the current script execution context. Since call chains are immutable, clients may retain the result
+     * to {@link #inheritCallChain(Object) inherit} it in a different thread / context at a later time without accessing the current
+     * context from that thread.
+     *
+     * @return the call chain of the current context or {@code null} if no script is currently being executed
+     */
+    ScriptCallChain getCurrentCallChain();
+
+    /**
+     * Inherits and initializes the call chain for the current context from the provided parent context or call chain. Clients may use this
+     * operation to initialize necessary call chain information in situations where execution is not performed linearly in the same thread
+     * / context.
      *
      * @param parentContext
-     *            the context to inherit the call chain from
+     *            the context to inherit the call chain from or the call chain itself as previously retrieved via
+     *            {@link #getCurrentCallChain() getCurrentCallChain}
      * @throws IllegalStateException
      *             when the current context has already been initialized with a call chain
      */
     void inheritCallChain(Object parentContext);
 
+    /**
+     * Releases the call chain of the current context, i.e. one previously initialized via {@link #inheritCallChain(Object)
+     * inheritCallChain}. Clients need to use this operation before exiting a context of their own so that call chain information is not
+     * retained for contexts no longer in use, which is essential when contexts are entered on many short-lived threads.
+     */
+    void releaseCallChain();
+
     /**
      * Initializes a new execution scope for the provided script
      *
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script;
+
+/**
+ * Marks {@link ScopeContributor scope contributors} whose contributions are immutable in their entirety, i.e. all contributed objects are
+ * sealed (including any objects reachable from them) and hold no state specific to a scope or script execution. Contributions of such
+ * contributors may be made once to a scope template that is shared by all scopes forked from it, while all other contributors are invoked
+ * for each forked scope.
+ *
+ * @author Axel Faust
+ */
+public interface ImmutableScopeContributor extends ScopeContributor
+{
+    // NO-OP - marker interface
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.mozilla.javascript.NativeObject;
+import org.mozilla.javascript.Scriptable;
+
+import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueConverter;
+
+/**
+ * Top-level scope for the execution of a script with a model of Java objects. Instead of converting and inserting all model entries before
+ * the script is executed, entries are converted and inserted into the scope on first access. Scripts typically only use a fraction of the
+ * available model entries, so only the accessed entries need to be converted back into Java objects when the execution returns.
+ *
+ * @author Axel Faust
+ */
+public class LazyModelScope extends NativeObject
+{
+
+    private static final long serialVersionUID = 1L;
+
+    protected final transient Map<String, Object> model;
+
+    protected final transient ValueConverter valueConverter;
+
+    // model entries that have not yet been inserted into the scope
+    protected final transient Set<String> pendingKeys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    // model entries that have been inserted into the scope (and may have been modified by the script)
+    protected final transient Set<String> accessedKeys = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    public LazyModelScope(final Map<String, Object> model, final ValueConverter valueConverter)
+    {
+        super();
+        this.model = model;
+        this.valueConverter = valueConverter;
+        this.pendingKeys.addAll(model.keySet());
+    }
+
+    /**
+     * Retrieves the keys of all model entries that have been accessed by the script.
+     *
+     * @return the keys of the accessed model entries
+     */
+    public Set<String> getAccessedKeys()
+    {
+        return new HashSet<String>(this.accessedKeys);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(final String name, final Scriptable start)
+    {
+        this.materialize(name);
+        return super.get(name, start);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean has(final String name, final Scriptable start)
+    {
+        this.materialize(name);
+        return super.has(name, start);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(final String name, final Scriptable start, final Object value)
+    {
+        if (start == this)
+        {
+            // value set by the script takes precedence over the model entry
+            this.pendingKeys.remove(name);
+        }
+        super.put(name, start, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(final String name)
+    {
+        this.pendingKeys.remove(name);
+        super.delete(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object[] getIds()
+    {
+        this.materializeAll();
+        return super.getIds();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object[] getAllIds()
+    {
+        this.materializeAll();
+        return super.getAllIds();
+    }
+
+    /**
+     * Converts a model value into a script value before it is inserted into the scope.
+     *
+     * @param key
+     *            the key of the model entry
+     * @param value
+     *            the value of the model entry
+     * @return the script value
+     */
+    protected Object convertValueForScript(final String key, final Object value)
+    {
+        return this.valueConverter.convertValueForScript(value);
+    }
+
+    protected void materialize(final String name)
+    {
+        if (!this.pendingKeys.isEmpty() && this.pendingKeys.contains(name))
+        {
+            synchronized (this.pendingKeys)
+            {
+                // key is only removed after insertion so concurrent lookups either find the pending key or the inserted value
+                if (this.pendingKeys.contains(name))
+                {
+                    final Object jsObject = this.convertValueForScript(name, this.model.get(name));
+                    super.put(name, this, jsObject);
+                    this.accessedKeys.add(name);
+                    this.pendingKeys.remove(name);
+                }
+            }
+        }
+    }
+
+    protected void materializeAll()
+    {
+        if (!this.pendingKeys.isEmpty())
+        {
+            for (final String key : new HashSet<String>(this.pendingKeys))
+            {
+                this.materialize(key);
+            }
+        }
+    }
+}
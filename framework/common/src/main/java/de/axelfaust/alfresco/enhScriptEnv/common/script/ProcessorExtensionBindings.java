@@ -0,0 +1,138 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+/**
+ * Instances of this class track the processor extensions bound to a shared scope. Script processors convert and bind their processor
+ * extensions to a shared scope once instead of converting and inserting them into the scope of every single script execution. Since shared
+ * scopes are read concurrently by script executions without synchronisation, processor extensions are only bound before a shared scope is
+ * published - when new extensions have been registered, processors replace the shared scope instead of rebinding it. Instances are
+ * attached to the shared scope as an associated value, so scopes derived from the shared scope via their prototype chain can be identified
+ * without additional lookups of properties visible to scripts.
+ *
+ * @author Axel Faust
+ */
+public class ProcessorExtensionBindings
+{
+
+    private static final Object SCOPE_KEY = ProcessorExtensionBindings.class.getName();
+
+    protected final Scriptable scope;
+
+    protected volatile int version = -1;
+
+    protected volatile Map<String, Object> boundObjects = Collections.emptyMap();
+
+    protected volatile Map<String, Object> scopeableObjects = Collections.emptyMap();
+
+    protected ProcessorExtensionBindings(final Scriptable scope)
+    {
+        this.scope = scope;
+    }
+
+    /**
+     * Attaches a processor extension binding tracker to a shared scope.
+     *
+     * @param scope
+     *            the shared scope
+     * @return the binding tracker of the scope
+     */
+    public static ProcessorExtensionBindings attach(final ScriptableObject scope)
+    {
+        final Object bindings = scope.associateValue(SCOPE_KEY, new ProcessorExtensionBindings(scope));
+        return (ProcessorExtensionBindings) bindings;
+    }
+
+    /**
+     * Looks up the processor extension binding tracker of the shared scope a scope has been derived from.
+     *
+     * @param scope
+     *            the scope of a script execution
+     * @return the binding tracker or {@code null} if the scope has not been derived from a shared scope with bound processor extensions
+     */
+    public static ProcessorExtensionBindings lookup(final Scriptable scope)
+    {
+        final Object bindings = ScriptableObject.getTopScopeValue(scope, SCOPE_KEY);
+        return bindings instanceof ProcessorExtensionBindings ? (ProcessorExtensionBindings) bindings : null;
+    }
+
+    /**
+     * Binds converted processor extensions to the shared scope. This operation may only be called once and before the shared scope is
+     * published to any script execution.
+     *
+     * @param version
+     *            the version of the processor extension registrations the bound objects have been derived from
+     * @param boundObjects
+     *            the converted processor extensions mapped by their extension names
+     * @param scopeableObjects
+     *            the subset of converted processor extensions that need to be provided with the scope of each script execution
+     */
+    public synchronized void bind(final int version, final Map<String, Object> boundObjects, final Map<String, Object> scopeableObjects)
+    {
+        if (this.version != -1)
+        {
+            throw new IllegalStateException("Processor extensions have already been bound to the shared scope");
+        }
+
+        for (final Map.Entry<String, Object> boundObject : boundObjects.entrySet())
+        {
+            ScriptableObject.putProperty(this.scope, boundObject.getKey(), boundObject.getValue());
+        }
+
+        this.boundObjects = Collections.unmodifiableMap(new LinkedHashMap<String, Object>(boundObjects));
+        this.scopeableObjects = Collections.unmodifiableMap(new LinkedHashMap<String, Object>(scopeableObjects));
+        this.version = version;
+    }
+
+    /**
+     * @return the shared scope
+     */
+    public Scriptable getScope()
+    {
+        return this.scope;
+    }
+
+    /**
+     * @return the version of the processor extension registrations the bound objects have been derived from or {@code -1} if nothing has
+     *         been bound yet
+     */
+    public int getVersion()
+    {
+        return this.version;
+    }
+
+    /**
+     * @return the converted processor extensions mapped by their extension names
+     */
+    public Map<String, Object> getBoundObjects()
+    {
+        return this.boundObjects;
+    }
+
+    /**
+     * @return the converted processor extensions that need to be provided with the scope of each script execution mapped by their extension
+     *         names
+     */
+    public Map<String, Object> getScopeableObjects()
+    {
+        return this.scopeableObjects;
+    }
+}
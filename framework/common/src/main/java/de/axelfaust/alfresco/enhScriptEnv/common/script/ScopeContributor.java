@@ -15,6 +15,9 @@ package de.axelfaust.alfresco.enhScriptEnv.common.script;
 
 
 /**
+ * Contributors may implement {@link org.springframework.core.Ordered} to control the order in which they are invoked by a script
+ * processor.
+ *
  * @author Axel Faust
  */
 public interface ScopeContributor
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.core.OrderComparator;
+import org.springframework.core.Ordered;
+
+/**
+ * Registry of {@link ScopeContributor scope contributors} of a script processor. Contributors are typically only registered during startup
+ * while scopes are set up concurrently by many threads, so registrations publish an immutable snapshot of the registered contributors
+ * (copy-on-write) and scope setup iterates the current snapshot without any locking.
+ *
+ * Contributors are invoked in the order defined by {@link Ordered} (lowest values first) with contributors not implementing that
+ * interface invoked last. Contributors with the same order are invoked in the order of registration.
+ *
+ * @author Axel Faust
+ */
+public class ScopeContributorRegistry
+{
+
+    protected volatile List<ScopeContributor> contributors = Collections.emptyList();
+
+    /**
+     * Registers a scope contributor.
+     *
+     * @param contributor
+     *            the contributor to register
+     * @return {@code true} if the contributor has been registered, {@code false} if it had already been registered before
+     */
+    public synchronized boolean register(final ScopeContributor contributor)
+    {
+        final boolean registered;
+        if (contributor != null && !this.contributors.contains(contributor))
+        {
+            final List<ScopeContributor> contributors = new ArrayList<ScopeContributor>(this.contributors);
+            contributors.add(contributor);
+            // stable sort retains order of registration for contributors with the same order
+            OrderComparator.sort(contributors);
+
+            this.contributors = Collections.unmodifiableList(contributors);
+            registered = true;
+        }
+        else
+        {
+            registered = false;
+        }
+        return registered;
+    }
+
+    /**
+     * @return the immutable snapshot of the currently registered contributors in the order they are to be invoked
+     */
+    public List<ScopeContributor> getContributors()
+    {
+        return this.contributors;
+    }
+
+    /**
+     * Invokes all currently registered contributors to contribute to a scope.
+     *
+     * @param scope
+     *            the scope to contribute to
+     * @param trustworthyScript
+     *            {@code true} if the scope is made available to trustworthy scripts, {@code false} otherwise
+     * @param mutableScope
+     *            {@code true} if the scope should be considered mutable, {@code false} otherwise
+     */
+    public void contributeToScope(final Object scope, final boolean trustworthyScript, final boolean mutableScope)
+    {
+        final List<ScopeContributor> contributors = this.contributors;
+        for (final ScopeContributor contributor : contributors)
+        {
+            contributor.contributeToScope(scope, trustworthyScript, mutableScope);
+        }
+    }
+
+    /**
+     * Invokes all currently registered {@link ImmutableScopeContributor immutable contributors} to contribute to a scope template that will
+     * be shared by all scopes forked from it.
+     *
+     * @param template
+     *            the scope template to contribute to
+     * @param trustworthyScript
+     *            {@code true} if the scope template is made available to trustworthy scripts, {@code false} otherwise
+     */
+    public void contributeToTemplate(final Object template, final boolean trustworthyScript)
+    {
+        final List<ScopeContributor> contributors = this.contributors;
+        for (final ScopeContributor contributor : contributors)
+        {
+            if (contributor instanceof ImmutableScopeContributor)
+            {
+                contributor.contributeToScope(template, trustworthyScript, false);
+            }
+        }
+    }
+
+    /**
+     * Invokes all currently registered contributors that have not been {@link #contributeToTemplate(Object, boolean) contributed to the
+     * scope template} to contribute to a scope forked from the template for a single script execution.
+     *
+     * @param scope
+     *            the forked scope to contribute to
+     * @param trustworthyScript
+     *            {@code true} if the scope is made available to trustworthy scripts, {@code false} otherwise
+     */
+    public void contributeToFork(final Object scope, final boolean trustworthyScript)
+    {
+        final List<ScopeContributor> contributors = this.contributors;
+        for (final ScopeContributor contributor : contributors)
+        {
+            if (!(contributor instanceof ImmutableScopeContributor))
+            {
+                contributor.contributeToScope(scope, trustworthyScript, true);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Instances of this class represent an immutable call chain of scripts as a persistent linked stack. Pushing a script onto a chain creates a
+ * single new element sharing all previous elements, so chains can be attached to a context, restored and inherited by other contexts by
+ * simply passing the reference.
+ *
+ * Each chain belongs to a top-level script execution and keeps a reference to the chain of the execution it suspended, i.e. the chain
+ * that was active in the same context before a new top-level execution was started (recursive execution).
+ *
+ * @author Axel Faust
+ */
+public final class ScriptCallChain
+{
+
+    private final ReferenceScript script;
+
+    private final ScriptCallChain parent;
+
+    private final ScriptCallChain suspended;
+
+    private final int depth;
+
+    private ScriptCallChain(final ReferenceScript script, final ScriptCallChain parent, final ScriptCallChain suspended, final int depth)
+    {
+        this.script = script;
+        this.parent = parent;
+        this.suspended = suspended;
+        this.depth = depth;
+    }
+
+    /**
+     * Begins a new, empty call chain for a top-level script execution.
+     *
+     * @param suspended
+     *            the call chain of the execution suspended by the new top-level script execution - may be {@code null}
+     * @return the new call chain
+     */
+    public static ScriptCallChain begin(final ScriptCallChain suspended)
+    {
+        return new ScriptCallChain(null, null, suspended, 0);
+    }
+
+    /**
+     * Pushes a script onto this call chain.
+     *
+     * @param script
+     *            the script being called
+     * @return the call chain including the script
+     */
+    public ScriptCallChain push(final ReferenceScript script)
+    {
+        return new ScriptCallChain(script, this, this.suspended, this.depth + 1);
+    }
+
+    /**
+     * @return the currently executing script or {@code null} if the chain is empty
+     */
+    public ReferenceScript getCurrentScript()
+    {
+        return this.script;
+    }
+
+    /**
+     * @return the call chain of the execution suspended by the top-level script execution of this chain or {@code null} if no execution
+     *         was suspended
+     */
+    public ScriptCallChain getSuspended()
+    {
+        return this.suspended;
+    }
+
+    /**
+     * @return {@code true} if no script has been pushed onto this chain, {@code false} otherwise
+     */
+    public boolean isEmpty()
+    {
+        return this.depth == 0;
+    }
+
+    /**
+     * Retrieves the scripts of this call chain.
+     *
+     * @return the scripts of this call chain ordered from the top-level script to the currently executing script
+     */
+    public List<ReferenceScript> toList()
+    {
+        final List<ReferenceScript> scripts = new ArrayList<ReferenceScript>(this.depth);
+        ScriptCallChain element = this;
+        while (element.depth > 0)
+        {
+            scripts.add(element.script);
+            element = element.parent;
+        }
+        Collections.reverse(scripts);
+        return scripts;
+    }
+}
@@ -0,0 +1,450 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script.adapter;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.NativeJavaMethod;
+import org.mozilla.javascript.NativeJavaObject;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.Undefined;
+import org.mozilla.javascript.WrapFactory;
+
+import de.axelfaust.alfresco.enhScriptEnv.common.script.aop.AdapterObject;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.rhino.DelegatingWrapFactory;
+
+/**
+ * Adapter for a {@link NativeJavaMethod} handle that corrects the arguments of invocations, most importantly "this", by unwrapping any
+ * {@link AdapterObject adapter objects}, and wraps the results of invocations via the current {@link WrapFactory}. Wrapping is disabled
+ * for the actual invocation so any calls from Java code to native script objects are not polluted with adapter objects Java code may not
+ * be able to handle.
+ *
+ * @author Axel Faust
+ */
+public class NativeJavaMethodAdapter implements Function, AdapterObject
+{
+
+    private static final Map<Class<?>, Class<?>> WRAPPER_TO_PRIMITIVE;
+
+    private static final Scriptable DUMMY_SCOPE;
+    static
+    {
+        final Context cx = Context.enter();
+        try
+        {
+            DUMMY_SCOPE = cx.initStandardObjects(null, true);
+            DUMMY_SCOPE.delete("Packages");
+            DUMMY_SCOPE.delete("getClass");
+            DUMMY_SCOPE.delete("java");
+            ((ScriptableObject) DUMMY_SCOPE).sealObject();
+        }
+        finally
+        {
+            Context.exit();
+        }
+
+        // core classes are never redefined, so safe to reference in static map
+        final Map<Class<?>, Class<?>> wrapperToPrimitve = new IdentityHashMap<Class<?>, Class<?>>();
+        wrapperToPrimitve.put(Boolean.class, Boolean.TYPE);
+        wrapperToPrimitve.put(Short.class, Short.TYPE);
+        wrapperToPrimitve.put(Integer.class, Integer.TYPE);
+        wrapperToPrimitve.put(Long.class, Long.TYPE);
+        wrapperToPrimitve.put(Float.class, Float.TYPE);
+        wrapperToPrimitve.put(Double.class, Double.TYPE);
+        wrapperToPrimitve.put(Character.class, Character.TYPE);
+        wrapperToPrimitve.put(Byte.class, Byte.TYPE);
+        WRAPPER_TO_PRIMITIVE = Collections.unmodifiableMap(wrapperToPrimitve);
+    }
+
+    protected final NativeJavaMethod method;
+
+    protected final Object backingThis;
+
+    protected final NativeJavaObject nativeThis;
+
+    public NativeJavaMethodAdapter(final NativeJavaMethod method)
+    {
+        this(method, null, null);
+    }
+
+    /**
+     * Creates a new adapter for a method handle that was retrieved from a native Java object fallback of a facade.
+     *
+     * @param method
+     *            the method handle
+     * @param backingThis
+     *            the object backing the facade the method handle was retrieved from
+     * @param nativeThis
+     *            the native Java object to use as "this" in place of any adapter object for the backing object
+     */
+    public NativeJavaMethodAdapter(final NativeJavaMethod method, final Object backingThis, final NativeJavaObject nativeThis)
+    {
+        this.method = method;
+        this.backingThis = backingThis;
+        this.nativeThis = nativeThis;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getBackingObject()
+    {
+        return this.method;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object call(final Context cx, final Scriptable scope, final Scriptable thisObj, final Object[] args)
+    {
+        final Scriptable correctedThis = this.correctThis(thisObj);
+        final Object[] correctedArgs = this.correctArguments(args);
+        return this.callMethod(cx, scope, correctedThis, correctedArgs);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Scriptable construct(final Context cx, final Scriptable scope, final Object[] args)
+    {
+        final Object[] correctedArgs = this.correctArguments(args);
+        final WrapFactory wrapFactory = cx.getWrapFactory();
+
+        this.disableWrap(wrapFactory);
+        Object result;
+        try
+        {
+            result = this.method.construct(cx, scope, correctedArgs);
+        }
+        finally
+        {
+            this.enableWrap(wrapFactory);
+        }
+
+        result = this.wrapResult(cx, wrapFactory, scope, result);
+        return (Scriptable) result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getClassName()
+    {
+        return this.method.getClassName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(final String name, final Scriptable start)
+    {
+        final Context cx = Context.getCurrentContext();
+        final WrapFactory wrapFactory = cx.getWrapFactory();
+
+        this.disableWrap(wrapFactory);
+        Object result;
+        try
+        {
+            result = this.method.get(name, start);
+        }
+        finally
+        {
+            this.enableWrap(wrapFactory);
+        }
+
+        result = this.wrapResult(cx, wrapFactory, start, result);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(final int index, final Scriptable start)
+    {
+        final Context cx = Context.getCurrentContext();
+        final WrapFactory wrapFactory = cx.getWrapFactory();
+
+        this.disableWrap(wrapFactory);
+        Object result;
+        try
+        {
+            result = this.method.get(index, start);
+        }
+        finally
+        {
+            this.enableWrap(wrapFactory);
+        }
+
+        result = this.wrapResult(cx, wrapFactory, start, result);
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean has(final String name, final Scriptable start)
+    {
+        return this.method.has(name, start);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean has(final int index, final Scriptable start)
+    {
+        return this.method.has(index, start);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(final String name, final Scriptable start, final Object value)
+    {
+        this.method.put(name, start, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(final int index, final Scriptable start, final Object value)
+    {
+        this.method.put(index, start, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(final String name)
+    {
+        this.method.delete(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(final int index)
+    {
+        this.method.delete(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Scriptable getPrototype()
+    {
+        return this.method.getPrototype();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setPrototype(final Scriptable prototype)
+    {
+        this.method.setPrototype(prototype);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Scriptable getParentScope()
+    {
+        return this.method.getParentScope();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setParentScope(final Scriptable parent)
+    {
+        this.method.setParentScope(parent);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object[] getIds()
+    {
+        return this.method.getIds();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getDefaultValue(final Class<?> hint)
+    {
+        return this.method.getDefaultValue(hint);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasInstance(final Scriptable instance)
+    {
+        return this.method.hasInstance(instance);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return this.method.toString();
+    }
+
+    /**
+     * Invokes the adapted method handle with already corrected arguments.
+     *
+     * @param cx
+     *            the current context
+     * @param scope
+     *            the scope to execute the method in
+     * @param thisObj
+     *            the corrected "this" object
+     * @param args
+     *            the corrected arguments
+     * @return the wrapped result of the invocation
+     */
+    protected Object callMethod(final Context cx, final Scriptable scope, final Scriptable thisObj, final Object[] args)
+    {
+        final WrapFactory wrapFactory = cx.getWrapFactory();
+
+        // disabling before and enabling after invocation with manual wrapping "seems" pointless
+        // this pattern is actually not meant for "this" invocation, but for any calls from Java code to any native script object to avoid
+        // polluting Java scope with special script objects that Java code may not be able to handle
+        this.disableWrap(wrapFactory);
+        Object result;
+        try
+        {
+            result = this.method.call(cx, scope, thisObj, args);
+        }
+        finally
+        {
+            this.enableWrap(wrapFactory);
+        }
+
+        result = this.wrapResult(cx, wrapFactory, scope, result);
+        return result;
+    }
+
+    protected Scriptable correctThis(final Scriptable thisObj)
+    {
+        Scriptable result = thisObj;
+        if (thisObj instanceof AdapterObject)
+        {
+            final Object corrected = this.convertForNativeJavaMethod((AdapterObject) thisObj);
+            if (corrected instanceof Scriptable)
+            {
+                result = (Scriptable) corrected;
+            }
+        }
+        return result;
+    }
+
+    protected Object[] correctArguments(final Object[] args)
+    {
+        Object[] result = args;
+        if (args != null)
+        {
+            for (int idx = 0; idx < args.length; idx++)
+            {
+                if (args[idx] instanceof AdapterObject)
+                {
+                    if (result == args)
+                    {
+                        result = new Object[args.length];
+                        System.arraycopy(args, 0, result, 0, args.length);
+                    }
+                    result[idx] = this.convertForNativeJavaMethod((AdapterObject) args[idx]);
+                }
+            }
+        }
+        return result;
+    }
+
+    protected Object convertForNativeJavaMethod(final AdapterObject object)
+    {
+        final Object result;
+        final Object baseObject = object.getBackingObject();
+        if (this.nativeThis != null && baseObject == this.backingThis)
+        {
+            result = this.nativeThis;
+        }
+        else
+        {
+            result = baseObject;
+        }
+
+        return result;
+    }
+
+    protected Object wrapResult(final Context cx, final WrapFactory wrapFactory, final Scriptable scope, final Object result)
+    {
+        Object wrapped = result;
+        if (result != null && Undefined.instance != result && Scriptable.NOT_FOUND != result)
+        {
+            wrapped = Context.jsToJava(result, Object.class);
+
+            // even if signature may not use primitve, we prefer them (this also avoids wrapping them)
+            Class<?> staticType = wrapped.getClass();
+            if (WRAPPER_TO_PRIMITIVE.containsKey(staticType))
+            {
+                staticType = WRAPPER_TO_PRIMITIVE.get(staticType);
+            }
+
+            wrapped = wrapFactory.wrap(cx, scope != null ? scope : DUMMY_SCOPE, wrapped, staticType);
+        }
+        return wrapped;
+    }
+
+    protected void disableWrap(final WrapFactory wrapFactory)
+    {
+        if (wrapFactory instanceof DelegatingWrapFactory)
+        {
+            ((DelegatingWrapFactory) wrapFactory).disableWrap();
+        }
+    }
+
+    protected void enableWrap(final WrapFactory wrapFactory)
+    {
+        if (wrapFactory instanceof DelegatingWrapFactory)
+        {
+            ((DelegatingWrapFactory) wrapFactory).enableWrap();
+        }
+    }
+}
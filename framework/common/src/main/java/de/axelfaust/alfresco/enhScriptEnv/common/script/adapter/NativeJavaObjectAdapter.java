@@ -0,0 +1,58 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script.adapter;
+
+import org.mozilla.javascript.NativeJavaMethod;
+import org.mozilla.javascript.NativeJavaObject;
+import org.mozilla.javascript.Scriptable;
+
+import de.axelfaust.alfresco.enhScriptEnv.common.script.aop.AdapterObject;
+
+/**
+ * Native Java object that {@link NativeJavaMethodAdapter adapts} any method handles retrieved from it to correct the arguments of
+ * invocations and wrap the results.
+ *
+ * @author Axel Faust
+ */
+public class NativeJavaObjectAdapter extends NativeJavaObject implements AdapterObject
+{
+
+    public NativeJavaObjectAdapter(final Scriptable scope, final Object javaObject, final Class<?> staticType)
+    {
+        super(scope, javaObject, staticType);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getBackingObject()
+    {
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(final String name, final Scriptable start)
+    {
+        Object result = super.get(name, start);
+        if (result instanceof NativeJavaMethod)
+        {
+            result = new NativeJavaMethodAdapter((NativeJavaMethod) result);
+        }
+        return result;
+    }
+}
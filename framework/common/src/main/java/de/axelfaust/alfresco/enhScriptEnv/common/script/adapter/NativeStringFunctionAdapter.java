@@ -0,0 +1,253 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script.adapter;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.NativeJavaObject;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+import de.axelfaust.alfresco.enhScriptEnv.common.script.aop.AdapterObject;
+
+/**
+ * Adapter for a function of a native script string that is called on a Java string, converting "this" into a native script string before
+ * invoking the actual function.
+ *
+ * @author Axel Faust
+ */
+public class NativeStringFunctionAdapter implements Function, AdapterObject
+{
+
+    private static final Scriptable DUMMY_SCOPE;
+    static
+    {
+        final Context cx = Context.enter();
+        try
+        {
+            DUMMY_SCOPE = cx.initStandardObjects(null, true);
+            DUMMY_SCOPE.delete("Packages");
+            DUMMY_SCOPE.delete("getClass");
+            DUMMY_SCOPE.delete("java");
+            ((ScriptableObject) DUMMY_SCOPE).sealObject();
+        }
+        finally
+        {
+            Context.exit();
+        }
+    }
+
+    protected final Function function;
+
+    public NativeStringFunctionAdapter(final Function function)
+    {
+        this.function = function;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getBackingObject()
+    {
+        return this.function;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object call(final Context cx, final Scriptable scope, final Scriptable thisObj, final Object[] args)
+    {
+        Scriptable correctedThis = thisObj;
+        if (correctedThis instanceof AdapterObject && ((AdapterObject) correctedThis).getBackingObject() instanceof Scriptable)
+        {
+            correctedThis = (Scriptable) ((AdapterObject) correctedThis).getBackingObject();
+        }
+
+        if (correctedThis instanceof NativeJavaObject)
+        {
+            final Object unwrapped = ((NativeJavaObject) correctedThis).unwrap();
+            if (unwrapped instanceof String)
+            {
+                correctedThis = ScriptRuntime.toObject(scope != null ? scope : DUMMY_SCOPE, unwrapped);
+            }
+        }
+
+        return this.function.call(cx, scope, correctedThis, args);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Scriptable construct(final Context cx, final Scriptable scope, final Object[] args)
+    {
+        return this.function.construct(cx, scope, args);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getClassName()
+    {
+        return this.function.getClassName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(final String name, final Scriptable start)
+    {
+        return this.function.get(name, start);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(final int index, final Scriptable start)
+    {
+        return this.function.get(index, start);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean has(final String name, final Scriptable start)
+    {
+        return this.function.has(name, start);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean has(final int index, final Scriptable start)
+    {
+        return this.function.has(index, start);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(final String name, final Scriptable start, final Object value)
+    {
+        this.function.put(name, start, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(final int index, final Scriptable start, final Object value)
+    {
+        this.function.put(index, start, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(final String name)
+    {
+        this.function.delete(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(final int index)
+    {
+        this.function.delete(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Scriptable getPrototype()
+    {
+        return this.function.getPrototype();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setPrototype(final Scriptable prototype)
+    {
+        this.function.setPrototype(prototype);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Scriptable getParentScope()
+    {
+        return this.function.getParentScope();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setParentScope(final Scriptable parent)
+    {
+        this.function.setParentScope(parent);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object[] getIds()
+    {
+        return this.function.getIds();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getDefaultValue(final Class<?> hint)
+    {
+        return this.function.getDefaultValue(hint);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasInstance(final Scriptable instance)
+    {
+        return this.function.hasInstance(instance);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return this.function.toString();
+    }
+}
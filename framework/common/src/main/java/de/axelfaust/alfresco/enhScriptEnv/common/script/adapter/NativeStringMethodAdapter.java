@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script.adapter;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.NativeJavaMethod;
+import org.mozilla.javascript.NativeJavaObject;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.regexp.NativeRegExp;
+
+/**
+ * Adapter for a method handle of a Java string that switches to the function of the native script string for invocations the Java method
+ * can't handle, i.e. a replace / split using a regular expression object or a replace using a replacement function.
+ *
+ * @author Axel Faust
+ */
+public class NativeStringMethodAdapter extends NativeJavaMethodAdapter
+{
+
+    protected static final Collection<String> REGEX_FN_NAMES = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList("replace",
+            "split")));
+
+    protected static final Collection<String> REPLACER_FN_NAMES = Collections.unmodifiableSet(new HashSet<String>(Arrays.asList("replace")));
+
+    public NativeStringMethodAdapter(final NativeJavaMethod method)
+    {
+        super(method);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Object callMethod(final Context cx, final Scriptable scope, final Scriptable thisObj, final Object[] args)
+    {
+        final Object result;
+
+        String backingString = null;
+        if (thisObj instanceof NativeJavaObject)
+        {
+            final Object unwrapped = ((NativeJavaObject) thisObj).unwrap();
+            if (unwrapped instanceof String)
+            {
+                backingString = (String) unwrapped;
+            }
+        }
+
+        final String calledFnName = this.method.getFunctionName();
+        final boolean regexArgument = REGEX_FN_NAMES.contains(calledFnName) && args.length > 0 && args[0] instanceof NativeRegExp;
+        final boolean replacerArgument = REPLACER_FN_NAMES.contains(calledFnName) && args.length > 1 && args[1] instanceof Function;
+        if (backingString != null && (regexArgument || replacerArgument))
+        {
+            final Scriptable nativeString = ScriptRuntime.toObject(cx, scope, backingString);
+            result = ScriptableObject.callMethod(nativeString, calledFnName, args);
+        }
+        else
+        {
+            // any other arguments are either compatible with the Java method or rejected by it just as they would be without this adapter
+            result = super.callMethod(cx, scope, thisObj, args);
+        }
+
+        return result;
+    }
+}
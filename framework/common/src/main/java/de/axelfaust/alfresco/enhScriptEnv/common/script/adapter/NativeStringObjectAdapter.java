@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script.adapter;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.NativeJavaMethod;
+import org.mozilla.javascript.NativeJavaObject;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.Undefined;
+
+import de.axelfaust.alfresco.enhScriptEnv.common.script.aop.AdapterObject;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.functions.simulated.HybridValueFunction;
+
+/**
+ * Native Java object for a Java string that emulates the properties and functions of a native script string in addition to the methods of
+ * the Java string.
+ *
+ * @author Axel Faust
+ */
+public class NativeStringObjectAdapter extends NativeJavaObject implements AdapterObject
+{
+
+    public NativeStringObjectAdapter(final Scriptable scope, final Object javaObject, final Class<?> staticType)
+    {
+        super(scope, javaObject, staticType);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getBackingObject()
+    {
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(final String name, final Scriptable start)
+    {
+        final Object result = super.get(name, start);
+        return this.emulateNativeString(name, start, result);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(final int index, final Scriptable start)
+    {
+        final Object result = super.get(index, start);
+        return this.emulateNativeString(Integer.valueOf(index), start, result);
+    }
+
+    protected Object emulateNativeString(final Object propertyKey, final Scriptable scope, final Object javaResult)
+    {
+        Object result = javaResult;
+
+        final Object unwrapped = this.unwrap();
+        if (unwrapped instanceof String)
+        {
+            final String backingString = (String) unwrapped;
+
+            final Scriptable nativeString = ScriptRuntime.toObject(Context.getCurrentContext(), scope, backingString);
+            final Object nativeProperty;
+            if (propertyKey instanceof String)
+            {
+                nativeProperty = ScriptableObject.getProperty(nativeString, (String) propertyKey);
+            }
+            else
+            {
+                nativeProperty = null;
+            }
+
+            final boolean nativePropertyDefined = nativeProperty != null && nativeProperty != Undefined.instance
+                    && nativeProperty != Scriptable.NOT_FOUND;
+            if ((!nativePropertyDefined || nativeProperty instanceof Function) && result instanceof NativeJavaMethod)
+            {
+                result = new NativeStringMethodAdapter((NativeJavaMethod) result);
+            }
+            // prefer non-function, defined native property over a Java method handle (i.e. length vs length())
+            else if (result instanceof NativeJavaMethod && nativePropertyDefined)
+            {
+                final Object value = Context.jsToJava(nativeProperty, Object.class);
+                result = new HybridValueFunction(scope, value, Object.class, (Function) result);
+            }
+            // Handle native-only String functions
+            else if ((result == null || Undefined.instance == result || Scriptable.NOT_FOUND == result))
+            {
+                if (nativeProperty instanceof Function)
+                {
+                    result = new NativeStringFunctionAdapter((Function) nativeProperty);
+                }
+                else
+                {
+                    result = nativeProperty;
+                }
+            }
+        }
+
+        return result;
+    }
+}
@@ -0,0 +1,873 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script.adapter;
+
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.RandomAccess;
+import java.util.Set;
+
+import org.alfresco.util.ParameterCheck;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.NativeJavaMethod;
+import org.mozilla.javascript.NativeJavaObject;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.Undefined;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import de.axelfaust.alfresco.enhScriptEnv.common.script.aop.AdapterObject;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.aop.NativeArrayFunctionName;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueConverter;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.functions.simulated.ListPopFunction;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.functions.simulated.ListPushFunction;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.functions.simulated.ListShiftFunction;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.functions.simulated.ListSpliceFunction;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.functions.simulated.ListUnshiftFunction;
+import de.axelfaust.alfresco.enhScriptEnv.common.util.ClassUtils;
+
+/**
+ * Array-like script facade for a Java list. Elements are accessible via their index, a subset of the native array functions is simulated,
+ * values are converted between script and Java on any element access and all other properties / methods fall back to a native Java object
+ * for the list. Facades should be obtained via {@link #adapt(List, ValueConverter) adapt} so that they implement the same interfaces as
+ * the list.
+ *
+ * @author Axel Faust
+ */
+public class ScriptableListAdapter implements List<Object>, Scriptable, AdapterObject
+{
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScriptableListAdapter.class);
+
+    private static final List<Class<?>> ADAPTER_INTERFACES = Collections.unmodifiableList(Arrays.<Class<?>> asList(List.class,
+            Scriptable.class, AdapterObject.class));
+
+    private static final Scriptable DUMMY_SCOPE;
+    static
+    {
+        final Context cx = Context.enter();
+        try
+        {
+            DUMMY_SCOPE = cx.initStandardObjects(null, true);
+            DUMMY_SCOPE.delete("Packages");
+            DUMMY_SCOPE.delete("getClass");
+            DUMMY_SCOPE.delete("java");
+            ((ScriptableObject) DUMMY_SCOPE).sealObject();
+        }
+        finally
+        {
+            Context.exit();
+        }
+    }
+
+    protected final List<Object> list;
+
+    protected final ValueConverter valueConverter;
+
+    protected Scriptable parentScope;
+
+    protected Scriptable prototype;
+
+    protected NativeJavaObject nativeObject;
+
+    @SuppressWarnings("unchecked")
+    public ScriptableListAdapter(final List<?> list, final ValueConverter valueConverter)
+    {
+        ParameterCheck.mandatory("list", list);
+        ParameterCheck.mandatory("valueConverter", valueConverter);
+
+        this.list = (List<Object>) list;
+        this.valueConverter = valueConverter;
+    }
+
+    /**
+     * Creates a script facade for a Java list which implements the same interfaces as the list. The marker interfaces {@link RandomAccess}
+     * and {@link Serializable} are provided by specialized adapter classes, any other interface not already implemented by the adapter
+     * requires a JDK proxy which delegates the methods of that interface to the list. Since {@link Cloneable} only affects the protected
+     * {@link Object#clone() clone} method, it is never considered.
+     *
+     * @param list
+     *            the list to adapt
+     * @param valueConverter
+     *            the value converter to use for element access
+     * @return the script facade for the list
+     */
+    public static Object adapt(final List<?> list, final ValueConverter valueConverter)
+    {
+        ParameterCheck.mandatory("list", list);
+        ParameterCheck.mandatory("valueConverter", valueConverter);
+
+        final boolean randomAccess = list instanceof RandomAccess;
+        final boolean serializable = list instanceof Serializable;
+        final ScriptableListAdapter adapter;
+        if (randomAccess && serializable)
+        {
+            adapter = new SerializableRandomAccessListAdapter(list, valueConverter);
+        }
+        else if (randomAccess)
+        {
+            adapter = new RandomAccessListAdapter(list, valueConverter);
+        }
+        else if (serializable)
+        {
+            adapter = new SerializableListAdapter(list, valueConverter);
+        }
+        else
+        {
+            adapter = new ScriptableListAdapter(list, valueConverter);
+        }
+
+        // interfaces of the adapter need to come first so methods also declared by additional interfaces are handled by the adapter
+        final Set<Class<?>> interfaces = new LinkedHashSet<Class<?>>(ADAPTER_INTERFACES);
+        interfaces.addAll(Arrays.asList(ClassUtils.collectInterfaces(list, ADAPTER_INTERFACES)));
+        boolean additionalInterfaces = false;
+        for (final Class<?> iface : interfaces)
+        {
+            additionalInterfaces = additionalInterfaces || (!iface.isInstance(adapter) && !Cloneable.class.equals(iface));
+        }
+
+        Object result = adapter;
+        if (additionalInterfaces)
+        {
+            try
+            {
+                result = Proxy.newProxyInstance(ScriptableListAdapter.class.getClassLoader(), interfaces.toArray(new Class<?>[0]),
+                        new AdditionalInterfacesInvocationHandler(adapter));
+            }
+            catch (final IllegalArgumentException ex)
+            {
+                // interfaces may not be visible to our class loader
+                LOGGER.debug("Failed to create proxy for additional interfaces of {} - using plain adapter", list.getClass(), ex);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getBackingObject()
+    {
+        return this.list;
+    }
+
+    // Scriptable
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getClassName()
+    {
+        return this.getNativeObject().getClassName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(final String name, final Scriptable start)
+    {
+        Object result;
+        switch (NativeArrayFunctionName.functionLiteralOf(name))
+        {
+            case PUSH:
+                result = new ListPushFunction(start);
+                break;
+            case POP:
+                result = new ListPopFunction(start);
+                break;
+            case SHIFT:
+                result = new ListShiftFunction(start);
+                break;
+            case UNSHIFT:
+                result = new ListUnshiftFunction(start);
+                break;
+            case SPLICE:
+                result = new ListSpliceFunction(start);
+                break;
+            // only functions modifying the length need to be simulated - generic functions that just read elements (e.g. slice, join)
+            // can be applied via Array.prototype.fn.call(list) since the length and index-based access are supported
+            default:
+                if ("length".equals(name))
+                {
+                    result = Integer.valueOf(this.list.size());
+                }
+                else if (isIndex(name))
+                {
+                    result = this.get(Integer.parseInt(name), start);
+                }
+                else
+                {
+                    result = this.getNativeObject().get(name, start);
+                    // checking to avoid unnecessary "undefined" as result (callers of native Java objects only expect null)
+                    if (result == Undefined.instance || result == Scriptable.NOT_FOUND)
+                    {
+                        result = null;
+                    }
+                    else if (result instanceof NativeJavaMethod)
+                    {
+                        result = new NativeJavaMethodAdapter((NativeJavaMethod) result, this.list, this.getNativeObject());
+                    }
+                }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(final int index, final Scriptable start)
+    {
+        final Object result;
+        if (index >= 0 && index < this.list.size())
+        {
+            result = this.get(index);
+        }
+        else
+        {
+            result = null;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean has(final String name, final Scriptable start)
+    {
+        final boolean result;
+        if ("length".equals(name))
+        {
+            result = true;
+        }
+        else if (isIndex(name))
+        {
+            result = this.has(Integer.parseInt(name), start);
+        }
+        else
+        {
+            result = this.getNativeObject().has(name, start);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean has(final int index, final Scriptable start)
+    {
+        return index >= 0 && index < this.list.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(final String name, final Scriptable start, final Object value)
+    {
+        if (isIndex(name))
+        {
+            this.put(Integer.parseInt(name), start, value);
+        }
+        else
+        {
+            throw new IllegalArgumentException("List does not support string-keys");
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(final int index, final Scriptable start, final Object value)
+    {
+        this.set(index, value);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(final String name)
+    {
+        if (isIndex(name))
+        {
+            this.delete(Integer.parseInt(name));
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(final int index)
+    {
+        if (index >= 0 && index < this.list.size())
+        {
+            this.list.remove(index);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Scriptable getPrototype()
+    {
+        return this.prototype;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setPrototype(final Scriptable prototype)
+    {
+        this.prototype = prototype;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Scriptable getParentScope()
+    {
+        return this.parentScope;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setParentScope(final Scriptable parent)
+    {
+        this.parentScope = parent;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object[] getIds()
+    {
+        final Object[] ids = new Object[this.list.size()];
+        for (int idx = 0; idx < ids.length; idx++)
+        {
+            ids[idx] = Integer.valueOf(idx);
+        }
+        return ids;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getDefaultValue(final Class<?> hint)
+    {
+        final Object result;
+        if (hint == null || ScriptRuntime.StringClass == hint)
+        {
+            result = this.toString();
+        }
+        else
+        {
+            result = null;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasInstance(final Scriptable instance)
+    {
+        // adapters can never be used for hasInstance checks
+        return false;
+    }
+
+    // List
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size()
+    {
+        return this.list.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isEmpty()
+    {
+        return this.list.isEmpty();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean contains(final Object o)
+    {
+        return this.list.contains(this.valueConverter.convertValueForJava(o, Object.class));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<Object> iterator()
+    {
+        return this.listIterator();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object[] toArray()
+    {
+        return (Object[]) this.valueConverter.convertValueForScript(this.list.toArray(), Object[].class);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T[] toArray(final T[] a)
+    {
+        return (T[]) this.valueConverter.convertValueForScript(this.list.toArray(a), Object[].class);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean add(final Object e)
+    {
+        return this.list.add(this.valueConverter.convertValueForJava(e, Object.class));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean remove(final Object o)
+    {
+        return this.list.remove(this.valueConverter.convertValueForJava(o, Object.class));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean containsAll(final Collection<?> c)
+    {
+        return this.list.containsAll((Collection<?>) this.valueConverter.convertValueForJava(c, Collection.class));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean addAll(final Collection<? extends Object> c)
+    {
+        return this.list.addAll((Collection<? extends Object>) this.valueConverter.convertValueForJava(c, Collection.class));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean addAll(final int index, final Collection<? extends Object> c)
+    {
+        return this.list.addAll(index, (Collection<? extends Object>) this.valueConverter.convertValueForJava(c, Collection.class));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean removeAll(final Collection<?> c)
+    {
+        return this.list.removeAll((Collection<?>) this.valueConverter.convertValueForJava(c, Collection.class));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean retainAll(final Collection<?> c)
+    {
+        return this.list.retainAll((Collection<?>) this.valueConverter.convertValueForJava(c, Collection.class));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear()
+    {
+        this.list.clear();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(final int index)
+    {
+        return this.valueConverter.convertValueForScript(this.list.get(index), Object.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object set(final int index, final Object element)
+    {
+        final Object previous = this.list.set(index, this.valueConverter.convertValueForJava(element, Object.class));
+        return this.valueConverter.convertValueForScript(previous, Object.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void add(final int index, final Object element)
+    {
+        this.list.add(index, this.valueConverter.convertValueForJava(element, Object.class));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object remove(final int index)
+    {
+        return this.valueConverter.convertValueForScript(this.list.remove(index), Object.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int indexOf(final Object o)
+    {
+        return this.list.indexOf(this.valueConverter.convertValueForJava(o, Object.class));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int lastIndexOf(final Object o)
+    {
+        return this.list.lastIndexOf(this.valueConverter.convertValueForJava(o, Object.class));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ListIterator<Object> listIterator()
+    {
+        return this.listIterator(0);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ListIterator<Object> listIterator(final int index)
+    {
+        // elements are converted just like on index-based access
+        return new ValueConvertingListIterator(this.list.listIterator(index), this.valueConverter);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Object> subList(final int fromIndex, final int toIndex)
+    {
+        return (List<Object>) this.valueConverter.convertValueForScript(this.list.subList(fromIndex, toIndex), List.class);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean equals(final Object obj)
+    {
+        return this.list.equals(obj);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int hashCode()
+    {
+        return this.list.hashCode();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        return this.list.toString();
+    }
+
+    protected NativeJavaObject getNativeObject()
+    {
+        if (this.nativeObject == null)
+        {
+            this.nativeObject = new NativeJavaObject(DUMMY_SCOPE, this.list, this.list.getClass());
+        }
+        return this.nativeObject;
+    }
+
+    protected static boolean isIndex(final String name)
+    {
+        boolean result = name.length() > 0;
+        for (int idx = 0, max = name.length(); idx < max && result; idx++)
+        {
+            final char c = name.charAt(idx);
+            result = c >= '0' && c <= '9';
+        }
+        return result;
+    }
+
+    /**
+     * Adapter for lists that support fast random access.
+     *
+     * @author Axel Faust
+     */
+    protected static class RandomAccessListAdapter extends ScriptableListAdapter implements RandomAccess
+    {
+
+        protected RandomAccessListAdapter(final List<?> list, final ValueConverter valueConverter)
+        {
+            super(list, valueConverter);
+        }
+    }
+
+    /**
+     * Adapter for serializable lists. Since the adapter itself is only a facade, the list is serialized in its place.
+     *
+     * @author Axel Faust
+     */
+    protected static class SerializableListAdapter extends ScriptableListAdapter implements Serializable
+    {
+
+        private static final long serialVersionUID = -3316522733155734146L;
+
+        protected SerializableListAdapter(final List<?> list, final ValueConverter valueConverter)
+        {
+            super(list, valueConverter);
+        }
+
+        protected Object writeReplace()
+        {
+            return this.list;
+        }
+    }
+
+    /**
+     * Adapter for serializable lists that support fast random access.
+     *
+     * @author Axel Faust
+     */
+    protected static class SerializableRandomAccessListAdapter extends SerializableListAdapter implements RandomAccess
+    {
+
+        private static final long serialVersionUID = 2046958271440283811L;
+
+        protected SerializableRandomAccessListAdapter(final List<?> list, final ValueConverter valueConverter)
+        {
+            super(list, valueConverter);
+        }
+    }
+
+    /**
+     * Invocation handler for proxies of adapters for lists with interfaces not implemented by the adapter. Methods of these interfaces are
+     * delegated to the list while all other methods are handled by the adapter.
+     *
+     * @author Axel Faust
+     */
+    protected static class AdditionalInterfacesInvocationHandler implements InvocationHandler
+    {
+
+        protected final ScriptableListAdapter adapter;
+
+        protected AdditionalInterfacesInvocationHandler(final ScriptableListAdapter adapter)
+        {
+            this.adapter = adapter;
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable
+        {
+            final Object target = method.getDeclaringClass().isInstance(this.adapter) ? this.adapter : this.adapter.list;
+            try
+            {
+                return method.invoke(target, args);
+            }
+            catch (final InvocationTargetException ex)
+            {
+                throw ex.getTargetException();
+            }
+        }
+    }
+
+    /**
+     * List iterator converting elements between script and Java just like the index-based access of the adapter.
+     *
+     * @author Axel Faust
+     */
+    protected static class ValueConvertingListIterator implements ListIterator<Object>
+    {
+
+        protected final ListIterator<Object> iterator;
+
+        protected final ValueConverter valueConverter;
+
+        protected ValueConvertingListIterator(final ListIterator<Object> iterator, final ValueConverter valueConverter)
+        {
+            this.iterator = iterator;
+            this.valueConverter = valueConverter;
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean hasNext()
+        {
+            return this.iterator.hasNext();
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public Object next()
+        {
+            return this.valueConverter.convertValueForScript(this.iterator.next(), Object.class);
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean hasPrevious()
+        {
+            return this.iterator.hasPrevious();
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public Object previous()
+        {
+            return this.valueConverter.convertValueForScript(this.iterator.previous(), Object.class);
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public int nextIndex()
+        {
+            return this.iterator.nextIndex();
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public int previousIndex()
+        {
+            return this.iterator.previousIndex();
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public void remove()
+        {
+            this.iterator.remove();
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public void set(final Object e)
+        {
+            this.iterator.set(this.valueConverter.convertValueForJava(e, Object.class));
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public void add(final Object e)
+        {
+            this.iterator.add(this.valueConverter.convertValueForJava(e, Object.class));
+        }
+    }
+}
@@ -21,7 +21,7 @@ public enum NativeArrayFunctionName
 {
     PUSH, POP, SHIFT, UNSHIFT, SPLICE, UNKNOWN;
 
-    protected static NativeArrayFunctionName functionLiteralOf(final String methodName)
+    public static NativeArrayFunctionName functionLiteralOf(final String methodName)
     {
         NativeArrayFunctionName value = UNKNOWN;
 
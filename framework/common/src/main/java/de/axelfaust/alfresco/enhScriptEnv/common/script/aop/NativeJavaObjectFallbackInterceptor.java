@@ -14,7 +14,6 @@
 package de.axelfaust.alfresco.enhScriptEnv.common.script.aop;
 
 import java.lang.reflect.Method;
-import java.util.Arrays;
 import java.util.Map;
 import java.util.WeakHashMap;
 
@@ -27,9 +26,8 @@ import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
 import org.mozilla.javascript.Undefined;
 import org.springframework.aop.ProxyMethodInvocation;
-import org.springframework.aop.framework.ProxyFactory;
 
-import de.axelfaust.alfresco.enhScriptEnv.common.util.ClassUtils;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.adapter.NativeJavaMethodAdapter;
 
 /**
  * This interceptor is meant to provide a facade the ability to fallback access operations ({@link Scriptable#get(String, Scriptable) get}
@@ -112,18 +110,10 @@ public class NativeJavaObjectFallbackInterceptor implements MethodInterceptor
                         {
                             result = null;
                         }
-                        // encapsulate any NativeJavaMethod via AOP to correct arguments, most importantly "this"
-                        // can't use NativeJavaMethodWrappingInterceptor due to requirement to handle external-to-internal object cache
+                        // adapt any NativeJavaMethod to correct arguments, most importantly "this" (backing object to native object)
                         else if (result instanceof NativeJavaMethod)
                         {
-                            final ProxyFactory proxyFactory = new ProxyFactory();
-                            proxyFactory.addAdvice(AdapterObjectInterceptor.getInstance());
-                            proxyFactory.addAdvice(new NativeJavaMethodArgumentCorrectingInterceptor(NATIVE_OBJECT_CACHE));
-                            proxyFactory.addAdvice(NativeJavaMethodWrapFactoryInterceptor.getInstance());
-                            proxyFactory.setInterfaces(ClassUtils.collectInterfaces(NativeJavaMethod.class,
-                                    Arrays.<Class<?>> asList(AdapterObject.class)));
-                            proxyFactory.setTarget(result);
-                            result = proxyFactory.getProxy();
+                            result = new NativeJavaMethodAdapter((NativeJavaMethod) result, _this, nativeObject);
                         }
                     }
                     break;
@@ -15,14 +15,25 @@ package de.axelfaust.alfresco.enhScriptEnv.common.script.batch;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import org.alfresco.util.Pair;
 import org.alfresco.util.PropertyCheck;
+import org.mozilla.javascript.ClassCache;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.Function;
 import org.mozilla.javascript.IdFunctionCall;
 import org.mozilla.javascript.IdFunctionObject;
+import org.mozilla.javascript.NativeArray;
 import org.mozilla.javascript.NativeFunction;
 import org.mozilla.javascript.NativeObject;
 import org.mozilla.javascript.ScriptRuntime;
@@ -31,7 +42,8 @@ import org.mozilla.javascript.ScriptableObject;
 import org.mozilla.javascript.Undefined;
 import org.mozilla.javascript.WrappedException;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.EnhancedScriptProcessor;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.ScopeContributor;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.ImmutableScopeContributor;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.ScriptCallChain;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.functions.RhinoLogFunction;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -40,18 +52,147 @@ import org.springframework.beans.factory.InitializingBean;
 /**
  * @author Axel Faust
  */
-public abstract class AbstractExecuteBatchFunction implements IdFunctionCall, ScopeContributor, InitializingBean
+public abstract class AbstractExecuteBatchFunction implements IdFunctionCall, ImmutableScopeContributor, InitializingBean
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(AbstractExecuteBatchFunction.class);
 
     public static final int EXECUTE_BATCH_FUNC_ID = 0;
     public static final Object EXECUTE_BATCH_FUNC_TAG = new Object();
     public static final String EXECUTE_BATCH_FUNC_NAME = "executeBatch";
+    public static final int EXECUTE_BATCH_ASYNC_FUNC_ID = 1;
+    public static final String EXECUTE_BATCH_ASYNC_FUNC_NAME = "executeBatchAsync";
+    public static final int EXECUTE_MAP_REDUCE_FUNC_ID = 2;
+    public static final String EXECUTE_MAP_REDUCE_FUNC_NAME = "executeMapReduce";
     public static final int ARITY = 3;
 
+    private static final long DEFAULT_COMPLETED_JOB_RETENTION_SECONDS = 3600;
+
+    private static final int DEFAULT_LOGGING_INTERVAL = 10;
+
+    /**
+     * A single (synchronous or asynchronous) execution of a batch for one of the supported types of work sources.
+     *
+     * @author Axel Faust
+     */
+    protected static class BatchExecution implements Callable<ExecuteBatchReport>
+    {
+        protected final AbstractExecuteBatchFunction batchFunction;
+        protected final Scriptable scope;
+        protected final Scriptable thisObj;
+        protected final Pair<Scriptable, Function> processCallback;
+        protected final int threadCount;
+        protected final int batchSize;
+        protected final Pair<Scriptable, Function> beforeProcessCallback;
+        protected final Pair<Scriptable, Function> afterProcessCallback;
+        protected final ExecuteBatchOptions options;
+        protected final ExecuteBatchReport report;
+
+        // exactly one source of work
+        protected Collection<Object> workItems;
+        protected Iterator<?> workItemIterator;
+        protected Pair<Scriptable, Function> workProviderCallback;
+
+        // call chain of the caller as captured on its thread when submitting an asynchronous execution
+        protected ScriptCallChain callerCallChain;
+
+        protected BatchExecution(final AbstractExecuteBatchFunction batchFunction, final Scriptable scope, final Scriptable thisObj,
+                final Pair<Scriptable, Function> processCallback, final int threadCount, final int batchSize,
+                final Pair<Scriptable, Function> beforeProcessCallback, final Pair<Scriptable, Function> afterProcessCallback,
+                final ExecuteBatchOptions options)
+        {
+            this.batchFunction = batchFunction;
+            this.scope = scope;
+            this.thisObj = thisObj;
+            this.processCallback = processCallback;
+            this.threadCount = threadCount;
+            this.batchSize = batchSize;
+            this.beforeProcessCallback = beforeProcessCallback;
+            this.afterProcessCallback = afterProcessCallback;
+            this.options = options;
+            this.report = batchFunction.createReport();
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public ExecuteBatchReport call()
+        {
+            // asynchronous execution needs a context of its own (synchronous execution just re-enters the active context)
+            Context.enter();
+            try
+            {
+                if (this.callerCallChain != null)
+                {
+                    this.batchFunction.scriptProcessor.inheritCallChain(this.callerCallChain);
+                }
+
+                if (this.options.isReadOnly())
+                {
+                    this.batchFunction.facadeFactory.registerReadOnlyReferenceScope(this.scope);
+                }
+                else if (this.options.isCopyOnWrite())
+                {
+                    this.batchFunction.facadeFactory.registerCopyOnWriteReferenceScope(this.scope);
+                }
+                this.batchFunction.adaptFunctionScopes(this.scope, this.processCallback, this.beforeProcessCallback,
+                        this.afterProcessCallback);
+                try
+                {
+                    if (this.report.isCancelled())
+                    {
+                        LOGGER.debug("Batch execution has been cancelled before it was started");
+                    }
+                    else if (this.workItemIterator != null)
+                    {
+                        this.batchFunction.executeBatch(this.scope, this.thisObj, this.workItemIterator, this.processCallback,
+                                this.threadCount, this.batchSize, this.beforeProcessCallback, this.afterProcessCallback, this.options,
+                                this.report);
+                    }
+                    else if (this.workItems != null)
+                    {
+                        this.batchFunction.executeBatch(this.scope, this.thisObj, this.workItems, this.processCallback, this.threadCount,
+                                this.batchSize, this.beforeProcessCallback, this.afterProcessCallback, this.options, this.report);
+                    }
+                    else
+                    {
+                        this.batchFunction.executeBatch(this.scope, this.thisObj, this.workProviderCallback, this.processCallback,
+                                this.threadCount, this.batchSize, this.beforeProcessCallback, this.afterProcessCallback, this.options,
+                                this.report);
+                    }
+                }
+                finally
+                {
+                    this.batchFunction.restoreFunctionScopes(this.processCallback, this.beforeProcessCallback, this.afterProcessCallback);
+                    this.batchFunction.facadeFactory.clearReferenceScope(this.scope);
+                    this.report.complete();
+                }
+            }
+            finally
+            {
+                if (this.callerCallChain != null)
+                {
+                    this.batchFunction.scriptProcessor.releaseCallChain();
+                }
+                Context.exit();
+            }
+
+            return this.report;
+        }
+    }
+
     protected EnhancedScriptProcessor<?> scriptProcessor;
     protected List<ScriptValueToWorkItemCollectionConverter> converters = new ArrayList<ScriptValueToWorkItemCollectionConverter>();
+    protected List<ScriptValueToWorkItemIteratorConverter> iteratorConverters = new ArrayList<ScriptValueToWorkItemIteratorConverter>();
     protected ObjectFacadeFactory facadeFactory;
+    protected ExecutorService asyncExecutor;
+    protected long completedJobRetentionSeconds = DEFAULT_COMPLETED_JOB_RETENTION_SECONDS;
+    protected int defaultLoggingInterval = DEFAULT_LOGGING_INTERVAL;
+    protected long defaultProgressInterval = 0;
+    protected VirtualThreadTaskExecutor ioTaskExecutor;
+
+    protected final Map<String, ExecuteBatchJob> jobs = new ConcurrentHashMap<String, ExecuteBatchJob>();
 
     /**
      * {@inheritDoc}
@@ -61,6 +202,7 @@ public abstract class AbstractExecuteBatchFunction implements IdFunctionCall, Sc
     {
         PropertyCheck.mandatory(this, "scriptProcessor", this.scriptProcessor);
         PropertyCheck.mandatory(this, "converters", this.converters);
+        PropertyCheck.mandatory(this, "iteratorConverters", this.iteratorConverters);
         PropertyCheck.mandatory(this, "facadeFactory", this.facadeFactory);
 
         this.scriptProcessor.registerScopeContributor(this);
@@ -74,22 +216,37 @@ public abstract class AbstractExecuteBatchFunction implements IdFunctionCall, Sc
     public Object execIdCall(final IdFunctionObject f, final Context cx, final Scriptable scope, final Scriptable thisObj,
             final Object[] args)
     {
-        final NativeObject result = new NativeObject();
+        Object result = null;
         if (f.hasTag(EXECUTE_BATCH_FUNC_TAG))
         {
-            if (f.methodId() == EXECUTE_BATCH_FUNC_ID)
+            final int methodId = f.methodId();
+            if (methodId == EXECUTE_BATCH_FUNC_ID || methodId == EXECUTE_BATCH_ASYNC_FUNC_ID || methodId == EXECUTE_MAP_REDUCE_FUNC_ID)
             {
+                final boolean async = methodId == EXECUTE_BATCH_ASYNC_FUNC_ID;
+                final boolean mapReduce = methodId == EXECUTE_MAP_REDUCE_FUNC_ID;
 
-                // mandatory parameters
+                // mandatory parameters (map/reduce has the combine callback following the map / process callback)
                 final Pair<Scriptable, Function> workProviderCallback = this.readCallbackArgument(cx, thisObj, args, 0);
                 final Pair<Scriptable, Function> processCallback = this.readCallbackArgument(cx, thisObj, args, 1);
+                final Pair<Scriptable, Function> combineCallback = mapReduce ? this.readCallbackArgument(cx, thisObj, args, 2) : null;
+                final int argOffset = mapReduce ? 1 : 0;
 
-                final int threadCount = ScriptRuntime.toInt32(args, 2);
-                final int batchSize = ScriptRuntime.toInt32(args, 3);
+                final int threadCount = ScriptRuntime.toInt32(args, 2 + argOffset);
+                final int batchSize = ScriptRuntime.toInt32(args, 3 + argOffset);
 
-                // optional parameters
-                final Pair<Scriptable, Function> beforeProcessCallback = this.readCallbackArgument(cx, thisObj, args, 4);
-                final Pair<Scriptable, Function> afterProcessCallback = this.readCallbackArgument(cx, thisObj, args, 5);
+                // optional parameters (map/reduce does not support before / after callbacks)
+                final Pair<Scriptable, Function> beforeProcessCallback = mapReduce ? new Pair<Scriptable, Function>(thisObj, null) : this
+                        .readCallbackArgument(cx, thisObj, args, 4);
+                final Pair<Scriptable, Function> afterProcessCallback = mapReduce ? new Pair<Scriptable, Function>(thisObj, null) : this
+                        .readCallbackArgument(cx, thisObj, args, 5);
+                final ExecuteBatchOptions options = this.readOptionsArgument(cx, args, mapReduce ? 5 : 6);
+                options.setMapReduce(mapReduce);
+
+                if (mapReduce && combineCallback.getSecond() == null)
+                {
+                    LOGGER.error("Call to executeMapReduce did not provide a combine callback");
+                    throw new IllegalArgumentException("No combine callback has been provided");
+                }
 
                 if (processCallback.getSecond() == null)
                 {
@@ -97,41 +254,76 @@ public abstract class AbstractExecuteBatchFunction implements IdFunctionCall, Sc
                     throw new IllegalArgumentException("No process callback has been provided");
                 }
 
+                if (async && this.asyncExecutor == null)
+                {
+                    LOGGER.error("Call to executeBatchAsync without an executor for asynchronous batches being configured");
+                    throw new UnsupportedOperationException("Asynchronous batch execution has not been enabled");
+                }
+
+                if (options.isIoBound() && this.ioTaskExecutor == null)
+                {
+                    LOGGER.error("Call to executeBatch requested I/O-bound execution without an executor for I/O-bound batches");
+                    throw new UnsupportedOperationException("I/O-bound batch execution has not been enabled");
+                }
+
+                final BatchExecution batchExecution;
+                final Map<Scriptable, Scriptable> snapshots = async ? new IdentityHashMap<Scriptable, Scriptable>() : null;
+                if (async)
+                {
+                    // caller keeps running concurrently (and may even complete), so the asynchronous execution needs a snapshot
+                    final Scriptable scopeSnapshot = this.toScopeSnapshot(cx, scope, snapshots);
+                    final Scriptable thisObjSnapshot = (Scriptable) this.toValueSnapshot(cx, thisObj, snapshots);
+                    batchExecution = new BatchExecution(this, scopeSnapshot, thisObjSnapshot, this.toDetachedCallback(cx, processCallback,
+                            snapshots), threadCount, batchSize, this.toDetachedCallback(cx, beforeProcessCallback, snapshots),
+                            this.toDetachedCallback(cx, afterProcessCallback, snapshots), options);
+                }
+                else
+                {
+                    batchExecution = new BatchExecution(this, scope, thisObj, processCallback, threadCount, batchSize,
+                            beforeProcessCallback, afterProcessCallback, options);
+                }
+
                 // the first parameter can be of variable type - callback or collection of items
                 if (workProviderCallback.getSecond() == null)
                 {
-                    // no work provider callback function, try array
+                    // no work provider callback function, try iterator / array
                     final Object workValue = args[0];
                     if (workValue != null && workValue != Undefined.instance)
                     {
-                        final Collection<Object> workItems = new ArrayList<Object>();
+                        Iterator<?> workItemIterator = null;
+                        for (final ScriptValueToWorkItemIteratorConverter converter : this.iteratorConverters)
+                        {
+                            if (workItemIterator == null && converter.isSupported(workValue))
+                            {
+                                workItemIterator = converter.convert(workValue);
+                            }
+                        }
 
-                        for (final ScriptValueToWorkItemCollectionConverter converter : this.converters)
+                        // collections are used as-is since copying them would only double the memory footprint
+                        Collection<Object> workItems = Collections.emptySet();
+                        if (workItemIterator == null)
                         {
-                            if (converter.isSupported(workValue))
+                            for (final ScriptValueToWorkItemCollectionConverter converter : this.converters)
                             {
-                                final Collection<?> convertedCollection = converter.convert(workValue);
-                                if (convertedCollection != null)
+                                if (converter.isSupported(workValue))
                                 {
-                                    workItems.addAll(convertedCollection);
-                                    break;
+                                    final Collection<?> convertedCollection = converter.convert(workValue);
+                                    if (convertedCollection != null)
+                                    {
+                                        workItems = Collections.<Object> unmodifiableCollection(convertedCollection);
+                                        break;
+                                    }
                                 }
                             }
                         }
 
-                        if (!workItems.isEmpty())
+                        if (workItemIterator != null)
                         {
-                            this.adaptFunctionScopes(scope, processCallback, beforeProcessCallback, afterProcessCallback);
-                            try
-                            {
-                                this.executeBatch(scope, thisObj, workItems, processCallback, threadCount, batchSize,
-                                        beforeProcessCallback, afterProcessCallback);
-                            }
-                            finally
-                            {
-                                this.restoreFunctionScopes(processCallback, beforeProcessCallback, afterProcessCallback);
-                                this.facadeFactory.clearReferenceScope(scope);
-                            }
+                            batchExecution.workItemIterator = workItemIterator;
+                        }
+                        else if (!workItems.isEmpty())
+                        {
+                            batchExecution.workItems = workItems;
                         }
                         else
                         {
@@ -147,22 +339,40 @@ public abstract class AbstractExecuteBatchFunction implements IdFunctionCall, Sc
                 }
                 else
                 {
-                    this.adaptFunctionScopes(scope, processCallback, beforeProcessCallback, afterProcessCallback);
-                    try
-                    {
-                        this.executeBatch(scope, thisObj, workProviderCallback, processCallback, threadCount, batchSize,
-                                beforeProcessCallback, afterProcessCallback);
-                    }
-                    finally
+                    batchExecution.workProviderCallback = async ? this.toDetachedCallback(cx, workProviderCallback, snapshots)
+                            : workProviderCallback;
+                }
+
+                // report is exposed as-is so scripts can read its current state at any time
+                if (async)
+                {
+                    final ExecuteBatchJob job = this.submitBatch(batchExecution);
+                    result = Context.javaToJS(job, scope);
+                }
+                else if (mapReduce)
+                {
+                    final ExecuteBatchReport report = batchExecution.call();
+                    if (report.getFailed() > 0)
                     {
-                        this.restoreFunctionScopes(processCallback, beforeProcessCallback, afterProcessCallback);
-                        this.facadeFactory.clearReferenceScope(scope);
+                        LOGGER.warn("Call to executeMapReduce completed with {} failed items - result does not include these items",
+                                Long.valueOf(report.getFailed()));
                     }
+                    result = this.combinePartialResults(cx, scope, combineCallback, report.getPartialResults());
+                }
+                else
+                {
+                    final ExecuteBatchReport report = batchExecution.call();
+                    result = Context.javaToJS(report, scope);
                 }
             }
         }
 
-        result.sealObject();
+        if (result == null)
+        {
+            final NativeObject emptyResult = new NativeObject();
+            emptyResult.sealObject();
+            result = emptyResult;
+        }
 
         return result;
     }
@@ -182,9 +392,50 @@ public abstract class AbstractExecuteBatchFunction implements IdFunctionCall, Sc
             // export as read-only and undeleteable property of the scope
             ScriptableObject.defineProperty((Scriptable) scope, EXECUTE_BATCH_FUNC_NAME, func, ScriptableObject.PERMANENT
                     | ScriptableObject.READONLY);
+
+            final IdFunctionObject mapReduceFunc = new IdFunctionObject(this, EXECUTE_BATCH_FUNC_TAG, EXECUTE_MAP_REDUCE_FUNC_ID,
+                    EXECUTE_MAP_REDUCE_FUNC_NAME, ARITY + 1, (Scriptable) scope);
+            mapReduceFunc.sealObject();
+
+            ScriptableObject.defineProperty((Scriptable) scope, EXECUTE_MAP_REDUCE_FUNC_NAME, mapReduceFunc, ScriptableObject.PERMANENT
+                    | ScriptableObject.READONLY);
+
+            if (this.asyncExecutor != null)
+            {
+                final IdFunctionObject asyncFunc = new IdFunctionObject(this, EXECUTE_BATCH_FUNC_TAG, EXECUTE_BATCH_ASYNC_FUNC_ID,
+                        EXECUTE_BATCH_ASYNC_FUNC_NAME, ARITY, (Scriptable) scope);
+                asyncFunc.sealObject();
+
+                ScriptableObject.defineProperty((Scriptable) scope, EXECUTE_BATCH_ASYNC_FUNC_NAME, asyncFunc, ScriptableObject.PERMANENT
+                        | ScriptableObject.READONLY);
+            }
         }
     }
 
+    /**
+     * Retrieves an asynchronous batch execution job.
+     *
+     * @param jobId
+     *            the id of the job
+     * @return the job or {@code null} if no job with the provided id exists (anymore)
+     */
+    public ExecuteBatchJob getJob(final String jobId)
+    {
+        this.purgeCompletedJobs();
+        return this.jobs.get(jobId);
+    }
+
+    /**
+     * Retrieves all asynchronous batch execution jobs that are either still running or have been completed recently.
+     *
+     * @return the list of jobs
+     */
+    public List<ExecuteBatchJob> getJobs()
+    {
+        this.purgeCompletedJobs();
+        return new ArrayList<ExecuteBatchJob>(this.jobs.values());
+    }
+
     /**
      * Sets the scriptProcessor to given scriptProcessor.
      *
@@ -205,6 +456,60 @@ public abstract class AbstractExecuteBatchFunction implements IdFunctionCall, Sc
         this.converters = converters;
     }
 
+    /**
+     * @param asyncExecutor
+     *            the executor for asynchronous batch executions - if not set, asynchronous batch execution will not be available
+     */
+    public final void setAsyncExecutor(final ExecutorService asyncExecutor)
+    {
+        this.asyncExecutor = asyncExecutor;
+    }
+
+    /**
+     * @param ioTaskExecutor
+     *            the executor for I/O-bound batch executions - if not set, I/O-bound batch execution will not be available
+     */
+    public final void setIoTaskExecutor(final VirtualThreadTaskExecutor ioTaskExecutor)
+    {
+        this.ioTaskExecutor = ioTaskExecutor;
+    }
+
+    /**
+     * @param completedJobRetentionSeconds
+     *            the time completed asynchronous batch executions will be retained for status queries
+     */
+    public final void setCompletedJobRetentionSeconds(final long completedJobRetentionSeconds)
+    {
+        this.completedJobRetentionSeconds = completedJobRetentionSeconds;
+    }
+
+    /**
+     * @param defaultLoggingInterval
+     *            the number of processed entries after which progress is logged if a batch execution does not specify its own interval
+     */
+    public final void setDefaultLoggingInterval(final int defaultLoggingInterval)
+    {
+        this.defaultLoggingInterval = defaultLoggingInterval;
+    }
+
+    /**
+     * @param defaultProgressInterval
+     *            the minimum time in milliseconds between progress log entries if a batch execution does not specify its own interval
+     */
+    public final void setDefaultProgressInterval(final long defaultProgressInterval)
+    {
+        this.defaultProgressInterval = defaultProgressInterval;
+    }
+
+    /**
+     * @param iteratorConverters
+     *            the iteratorConverters to set
+     */
+    public final void setIteratorConverters(final List<ScriptValueToWorkItemIteratorConverter> iteratorConverters)
+    {
+        this.iteratorConverters = iteratorConverters;
+    }
+
     /**
      * @param facadeFactory
      *            the facadeFactory to set
@@ -214,6 +519,196 @@ public abstract class AbstractExecuteBatchFunction implements IdFunctionCall, Sc
         this.facadeFactory = facadeFactory;
     }
 
+    /**
+     * Creates a copy of a callback for an asynchronous batch execution. Since the caller of an asynchronous batch execution keeps running,
+     * the execution must neither {@link #adaptFunctionScopes(Scriptable, Pair, Pair, Pair) adapt} the callback functions of the caller nor
+     * access the scopes enclosing them while the caller may modify those. Script functions are therefore copied and bound to a
+     * {@link #toScopeSnapshot(Context, Scriptable, Map) snapshot} of their enclosing scopes which is taken while the caller is still
+     * blocked in the call to {@code executeBatchAsync}.
+     *
+     * @param cx
+     *            the context of the caller
+     * @param callback
+     *            the callback to copy
+     * @param snapshots
+     *            the snapshots already taken for other parts of the same batch execution
+     * @return the copy of the callback
+     */
+    protected Pair<Scriptable, Function> toDetachedCallback(final Context cx, final Pair<Scriptable, Function> callback,
+            final Map<Scriptable, Scriptable> snapshots)
+    {
+        final Pair<Scriptable, Function> detachedCallback;
+        if (callback != null)
+        {
+            final Function fn = callback.getSecond();
+            if (fn instanceof NativeFunction && ((NativeFunction) fn).getEncodedSource() == null)
+            {
+                final String functionName = ((NativeFunction) fn).getFunctionName();
+                LOGGER.error("Callback {} of executeBatchAsync has no source and can't be copied", functionName);
+                throw new IllegalArgumentException("Callback " + functionName + " can't be executed asynchronously");
+            }
+
+            final Scriptable thisObjSnapshot = (Scriptable) this.toValueSnapshot(cx, callback.getFirst(), snapshots);
+            final Function fnSnapshot = (Function) this.toValueSnapshot(cx, fn, snapshots);
+            detachedCallback = new Pair<Scriptable, Function>(thisObjSnapshot, fnSnapshot);
+        }
+        else
+        {
+            detachedCallback = null;
+        }
+        return detachedCallback;
+    }
+
+    /**
+     * Creates a snapshot of a scope and all its enclosing scopes. Each snapshot holds {@link #toValueSnapshot(Context, Object, Map)
+     * snapshots} of the variables of the scope while its prototype - for the top-level scope the (immutable) shared scope it is based on -
+     * is used as-is.
+     *
+     * @param cx
+     *            the context of the caller
+     * @param scope
+     *            the scope to snapshot
+     * @param snapshots
+     *            the snapshots already taken, mapped by their (identical) original object
+     * @return the snapshot of the scope
+     */
+    protected Scriptable toScopeSnapshot(final Context cx, final Scriptable scope, final Map<Scriptable, Scriptable> snapshots)
+    {
+        Scriptable snapshot = scope != null ? snapshots.get(scope) : null;
+        if (snapshot == null && scope != null)
+        {
+            if (scope instanceof ScriptableObject)
+            {
+                final NativeObject scopeCopy = new NativeObject();
+                // register before copying variables as those may reference the scope (e.g. a global "this")
+                snapshots.put(scope, scopeCopy);
+
+                scopeCopy.setPrototype(scope.getPrototype());
+                final Scriptable parentScope = scope.getParentScope();
+                if (parentScope == null)
+                {
+                    // the class cache for Java interop may be associated with the top-level scope itself instead of its prototype
+                    ClassCache.get(scope).associate(scopeCopy);
+                }
+                else
+                {
+                    scopeCopy.setParentScope(this.toScopeSnapshot(cx, parentScope, snapshots));
+                }
+
+                this.copyValueSnapshots(cx, (ScriptableObject) scope, scopeCopy, true, snapshots);
+                snapshot = scopeCopy;
+            }
+            else
+            {
+                // e.g. a facade when called from a batch callback - already protected against concurrent modifications
+                snapshot = scope;
+                snapshots.put(scope, snapshot);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Creates a snapshot of a value. Plain script objects and arrays are copied deeply, script functions are
+     * {@link #toFunctionSnapshot(Context, NativeFunction, Map) copied} and bound to snapshots of their enclosing scopes. Any other value
+     * (primitives, sealed objects, host / Java objects and built-in functions) is used as-is and needs to be safe for concurrent access on
+     * its own.
+     *
+     * @param cx
+     *            the context of the caller
+     * @param value
+     *            the value to snapshot
+     * @param snapshots
+     *            the snapshots already taken, mapped by their (identical) original object
+     * @return the snapshot of the value
+     */
+    protected Object toValueSnapshot(final Context cx, final Object value, final Map<Scriptable, Scriptable> snapshots)
+    {
+        Object snapshot = value;
+        if (value instanceof ScriptableObject && !((ScriptableObject) value).isSealed())
+        {
+            final ScriptableObject obj = (ScriptableObject) value;
+            if (snapshots.containsKey(obj))
+            {
+                snapshot = snapshots.get(obj);
+            }
+            else if (obj instanceof NativeFunction && ((NativeFunction) obj).getEncodedSource() != null)
+            {
+                snapshot = this.toFunctionSnapshot(cx, (NativeFunction) obj, snapshots);
+            }
+            else if (obj.getClass() == NativeObject.class || obj.getClass() == NativeArray.class)
+            {
+                final boolean isArray = obj instanceof NativeArray;
+                final ScriptableObject objCopy = isArray ? new NativeArray(((NativeArray) obj).getLength()) : new NativeObject();
+                // register before copying properties to preserve cyclic references
+                snapshots.put(obj, objCopy);
+
+                objCopy.setPrototype(obj.getPrototype());
+                objCopy.setParentScope(this.toScopeSnapshot(cx, obj.getParentScope(), snapshots));
+                this.copyValueSnapshots(cx, obj, objCopy, !isArray, snapshots);
+                snapshot = objCopy;
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Creates a snapshot of a script function by recompiling it bound to a {@link #toScopeSnapshot(Context, Scriptable, Map) snapshot} of
+     * its enclosing scope. The copy shares the {@code prototype} of the original function so that objects constructed by either of them
+     * behave the same with regards to {@code instanceof}.
+     *
+     * @param cx
+     *            the context of the caller
+     * @param fn
+     *            the function to snapshot
+     * @param snapshots
+     *            the snapshots already taken, mapped by their (identical) original object
+     * @return the snapshot of the function
+     */
+    protected Function toFunctionSnapshot(final Context cx, final NativeFunction fn, final Map<Scriptable, Scriptable> snapshots)
+    {
+        final Scriptable parentScopeSnapshot = this.toScopeSnapshot(cx, fn.getParentScope(), snapshots);
+
+        // function may already have been copied as a variable of its enclosing scope
+        Scriptable fnSnapshot = snapshots.get(fn);
+        if (fnSnapshot == null)
+        {
+            final Function fnCopy = cx.compileFunction(parentScopeSnapshot, cx.decompileFunction(fn, 0), EXECUTE_BATCH_ASYNC_FUNC_NAME
+                    + ":" + fn.getFunctionName(), 1, null);
+            fnCopy.put("prototype", fnCopy, fn.get("prototype", fn));
+            snapshots.put(fn, fnCopy);
+            fnSnapshot = fnCopy;
+        }
+        return (Function) fnSnapshot;
+    }
+
+    protected void copyValueSnapshots(final Context cx, final ScriptableObject source, final ScriptableObject target,
+            final boolean includeAttributes, final Map<Scriptable, Scriptable> snapshots)
+    {
+        final Object[] ids = includeAttributes ? source.getAllIds() : source.getIds();
+        for (final Object id : ids)
+        {
+            if (id instanceof String)
+            {
+                final String name = (String) id;
+                target.put(name, target, this.toValueSnapshot(cx, source.get(name, source), snapshots));
+                if (includeAttributes)
+                {
+                    target.setAttributes(name, source.getAttributes(name));
+                }
+            }
+            else if (id instanceof Integer)
+            {
+                final int index = ((Integer) id).intValue();
+                target.put(index, target, this.toValueSnapshot(cx, source.get(index, source), snapshots));
+                if (includeAttributes)
+                {
+                    target.setAttributes(index, source.getAttributes(index));
+                }
+            }
+        }
+    }
+
     protected void adaptFunctionScopes(final Scriptable globalScope, final Pair<Scriptable, Function> processCallback,
             final Pair<Scriptable, Function> beforeProcessCallback, final Pair<Scriptable, Function> afterProcessCallback)
     {
@@ -255,12 +750,79 @@ public abstract class AbstractExecuteBatchFunction implements IdFunctionCall, Sc
 
     protected abstract void executeBatch(final Scriptable scope, final Scriptable thisObj, final Collection<Object> workItems,
             final Pair<Scriptable, Function> processCallback, final int threadCount, final int batchSize,
-            final Pair<Scriptable, Function> beforeProcessCallback, final Pair<Scriptable, Function> afterProcessCallback);
+            final Pair<Scriptable, Function> beforeProcessCallback, final Pair<Scriptable, Function> afterProcessCallback,
+            final ExecuteBatchOptions options, final ExecuteBatchReport report);
+
+    /**
+     * Executes a batch for work items provided by a lazily evaluated iterator. Implementations must pull work items from the iterator in
+     * bounded pages and only in the thread calling this operation.
+     */
+    protected abstract void executeBatch(final Scriptable scope, final Scriptable thisObj, final Iterator<?> workItems,
+            final Pair<Scriptable, Function> processCallback, final int threadCount, final int batchSize,
+            final Pair<Scriptable, Function> beforeProcessCallback, final Pair<Scriptable, Function> afterProcessCallback,
+            final ExecuteBatchOptions options, final ExecuteBatchReport report);
 
     protected abstract void executeBatch(final Scriptable scope, final Scriptable thisObj,
             final Pair<Scriptable, Function> workProviderCallback, final Pair<Scriptable, Function> processCallback, final int threadCount,
             final int batchSize, final Pair<Scriptable, Function> beforeProcessCallback,
-            final Pair<Scriptable, Function> afterProcessCallback);
+            final Pair<Scriptable, Function> afterProcessCallback, final ExecuteBatchOptions options, final ExecuteBatchReport report);
+
+    /**
+     * Creates the report for a new batch execution.
+     *
+     * @return the new report
+     */
+    protected ExecuteBatchReport createReport()
+    {
+        return new ExecuteBatchReport();
+    }
+
+    /**
+     * Prepares a batch execution to be run asynchronously in a thread of the executor, e.g. by transferring environment specific thread
+     * state of the calling thread. Implementations are expected to capture such state before returning and to call this base
+     * implementation which captures the call chain of the calling script.
+     *
+     * @param batchExecution
+     *            the batch execution
+     * @return the callable to submit to the executor
+     */
+    protected Callable<ExecuteBatchReport> prepareAsyncExecution(final BatchExecution batchExecution)
+    {
+        // the context of the caller must not be accessed from the executing thread - call chains are immutable and can be captured as-is
+        batchExecution.callerCallChain = this.scriptProcessor.getCurrentCallChain();
+        return batchExecution;
+    }
+
+    protected ExecuteBatchJob submitBatch(final BatchExecution batchExecution)
+    {
+        this.purgeCompletedJobs();
+
+        final String jobId = UUID.randomUUID().toString();
+        final Future<ExecuteBatchReport> future = this.asyncExecutor.submit(this.prepareAsyncExecution(batchExecution));
+        final ExecuteBatchJob job = new ExecuteBatchJob(jobId, batchExecution.report, future);
+        this.jobs.put(jobId, job);
+
+        LOGGER.debug("Submitted asynchronous batch execution {}", jobId);
+        return job;
+    }
+
+    protected void purgeCompletedJobs()
+    {
+        final long retentionThreshold = System.currentTimeMillis() - this.completedJobRetentionSeconds * 1000;
+        final Iterator<ExecuteBatchJob> jobIterator = this.jobs.values().iterator();
+        while (jobIterator.hasNext())
+        {
+            final ExecuteBatchJob job = jobIterator.next();
+            if (job.isDone())
+            {
+                final long endTime = job.getReport().getEndTime();
+                if (endTime != -1 && endTime < retentionThreshold)
+                {
+                    jobIterator.remove();
+                }
+            }
+        }
+    }
 
     protected Collection<Object> doProvideNextWork(final Scriptable scope, final Pair<Scriptable, Function> workProviderCallback)
     {
@@ -305,29 +867,61 @@ public abstract class AbstractExecuteBatchFunction implements IdFunctionCall, Sc
         return workItems;
     }
 
-    protected Scriptable doBeforeProcess(final Context parentContext, final Scriptable parentScope, final Scriptable thisObj,
-            final Pair<Scriptable, Function> beforeProcessCallback)
+    /**
+     * Converts a callback into a callback with a facaded call scope. Since facades are shared between all threads of a batch execution,
+     * workers only need to do this once instead of for every batch / work item.
+     *
+     * @param callback
+     *            the callback to convert
+     * @param parentScope
+     *            the global scope of the batch execution
+     * @return the callback with the facaded call scope
+     */
+    protected Pair<Scriptable, Function> toFacadedCallback(final Pair<Scriptable, Function> callback, final Scriptable parentScope)
     {
-        final Context cx = Context.enter();
-        try
+        final Pair<Scriptable, Function> facadedCallback;
+        if (callback != null && callback.getFirst() != null)
         {
-            this.scriptProcessor.inheritCallChain(parentContext);
-
-            final Scriptable processScope = cx.newObject(parentScope);
-            processScope.setPrototype(null);
-            processScope.setParentScope(null);
+            facadedCallback = new Pair<Scriptable, Function>(this.facadeFactory.toFacadedObject(callback.getFirst(), parentScope),
+                    callback.getSecond());
+        }
+        else
+        {
+            facadedCallback = callback;
+        }
+        return facadedCallback;
+    }
 
-            // check for registerChildScope function on logger and register process scope if function is available
-            final Object loggerValue = ScriptableObject.getProperty(parentScope, RhinoLogFunction.LOGGER_OBJ_NAME);
-            if (loggerValue instanceof Scriptable)
+    protected Scriptable doBeforeProcess(final Context parentContext, final Scriptable parentScope, final Scriptable pooledProcessScope,
+            final Scriptable thisObj, final Pair<Scriptable, Function> beforeProcessCallback)
+    {
+        final Context cx = this.enterBatchContext(parentContext);
+        try
+        {
+            final Scriptable processScope;
+            if (pooledProcessScope != null && this.resetProcessScope(pooledProcessScope))
+            {
+                // pooled scope has already been registered with the logger
+                processScope = pooledProcessScope;
+            }
+            else
             {
-                final Scriptable loggerObj = (Scriptable) loggerValue;
-                final Object registerChildScopeFuncValue = ScriptableObject.getProperty(loggerObj,
-                        RhinoLogFunction.REGISTER_CHILD_SCOPE_FUNC_NAME);
-                if (registerChildScopeFuncValue instanceof Function)
+                processScope = cx.newObject(parentScope);
+                processScope.setPrototype(null);
+                processScope.setParentScope(null);
+
+                // check for registerChildScope function on logger and register process scope if function is available
+                final Object loggerValue = ScriptableObject.getProperty(parentScope, RhinoLogFunction.LOGGER_OBJ_NAME);
+                if (loggerValue instanceof Scriptable)
                 {
-                    final Function registerChildScopeFunc = (Function) registerChildScopeFuncValue;
-                    registerChildScopeFunc.call(cx, parentScope, thisObj, new Object[] { processScope });
+                    final Scriptable loggerObj = (Scriptable) loggerValue;
+                    final Object registerChildScopeFuncValue = ScriptableObject.getProperty(loggerObj,
+                            RhinoLogFunction.REGISTER_CHILD_SCOPE_FUNC_NAME);
+                    if (registerChildScopeFuncValue instanceof Function)
+                    {
+                        final Function registerChildScopeFunc = (Function) registerChildScopeFuncValue;
+                        registerChildScopeFunc.call(cx, parentScope, thisObj, new Object[] { processScope });
+                    }
                 }
             }
 
@@ -375,18 +969,133 @@ public abstract class AbstractExecuteBatchFunction implements IdFunctionCall, Sc
         }
         finally
         {
-            Context.exit();
+            this.exitBatchContext();
         }
     }
 
-    protected void doProcess(final Context parentContext, final Scriptable parentScope, final Scriptable processScope,
-            final Scriptable thisObj, final Pair<Scriptable, Function> processCallback, final Object element)
+    /**
+     * Enters a script context for the current (worker) thread and initializes its call chain from the context of the caller of the batch
+     * execution. Every call needs to be matched by a call to {@link #exitBatchContext() exitBatchContext}.
+     *
+     * @param parentContext
+     *            the context of the caller of the batch execution
+     * @return the entered context
+     */
+    protected Context enterBatchContext(final Context parentContext)
     {
         final Context cx = Context.enter();
         try
         {
             this.scriptProcessor.inheritCallChain(parentContext);
+        }
+        catch (final RuntimeException ex)
+        {
+            Context.exit();
+            throw ex;
+        }
+        return cx;
+    }
+
+    /**
+     * Releases the call chain of the current context and exits it. Since worker threads (especially virtual threads) may enter a new
+     * context for each batch / work item, call chains must not be retained beyond the lifetime of their context.
+     */
+    protected void exitBatchContext()
+    {
+        try
+        {
+            this.scriptProcessor.releaseCallChain();
+        }
+        finally
+        {
+            Context.exit();
+        }
+    }
+
+    /**
+     * Resets a pooled process scope of a previous batch so it can be reused for the next batch of the same thread.
+     *
+     * @param processScope
+     *            the process scope to reset
+     * @return {@code true} if the scope has been reset, {@code false} if it could not be reset (e.g. due to a permanent property) and
+     *         should be discarded
+     */
+    protected boolean resetProcessScope(final Scriptable processScope)
+    {
+        boolean reset = false;
+        if (processScope instanceof ScriptableObject && !((ScriptableObject) processScope).isSealed())
+        {
+            final ScriptableObject processScopeObj = (ScriptableObject) processScope;
+            for (final Object id : processScopeObj.getAllIds())
+            {
+                if (id instanceof Integer)
+                {
+                    processScopeObj.delete(((Integer) id).intValue());
+                }
+                else if (id instanceof String)
+                {
+                    processScopeObj.delete((String) id);
+                }
+            }
+            reset = processScopeObj.getAllIds().length == 0;
+        }
+        return reset;
+    }
+
+    protected void doProcess(final Context parentContext, final Scriptable parentScope, final Scriptable processScope,
+            final Scriptable thisObj, final Pair<Scriptable, Function> processCallback, final Object element)
+    {
+        this.invokeProcessCallback(parentContext, parentScope, processScope, processCallback, new Object[] { element });
+    }
+
+    /**
+     * Applies the map callback of a map/reduce execution to a work item.
+     *
+     * @param parentContext
+     *            the context of the caller of the map/reduce execution
+     * @param parentScope
+     *            the global scope of the map/reduce execution
+     * @param processScope
+     *            the process scope of the current batch
+     * @param mapCallback
+     *            the map callback
+     * @param element
+     *            the work item
+     * @param accumulator
+     *            the value accumulated from previously processed work items or {@code null} for the first work item of a worker - the map
+     *            callback must not modify this value in place as it is restored when the current batch is rolled back
+     * @return the value accumulated from the previously processed work items and the work item
+     */
+    protected Object doMap(final Context parentContext, final Scriptable parentScope, final Scriptable processScope,
+            final Pair<Scriptable, Function> mapCallback, final Object element, final Object accumulator)
+    {
+        final Object result = this.invokeProcessCallback(parentContext, parentScope, processScope, mapCallback, new Object[] { element,
+                accumulator != null ? accumulator : Undefined.instance });
+        return result;
+    }
 
+    /**
+     * Invokes a process callback for a work item within the process scope of the current batch.
+     *
+     * @param parentContext
+     *            the context of the caller of the batch execution
+     * @param parentScope
+     *            the global scope of the batch execution
+     * @param processScope
+     *            the process scope of the current batch
+     * @param processCallback
+     *            the process callback
+     * @param args
+     *            the arguments to the process callback
+     * @return the result of the process callback
+     */
+    protected Object invokeProcessCallback(final Context parentContext, final Scriptable parentScope, final Scriptable processScope,
+            final Pair<Scriptable, Function> processCallback, final Object[] args)
+    {
+        final Object result;
+        final Context cx = this.enterBatchContext(parentContext);
+        try
+        {
             final Scriptable processOriginalCallScope = processCallback.getFirst();
             final Scriptable processCallScope = this.facadeFactory.toFacadedObject(processOriginalCallScope, parentScope);
             final Function processFn = processCallback.getSecond();
@@ -402,7 +1111,7 @@ public abstract class AbstractExecuteBatchFunction implements IdFunctionCall, Sc
                 try
                 {
                     // execute with thread local parent scope
-                    nativeFn.call(cx, processScope, processCallScope, new Object[] { element });
+                    result = nativeFn.call(cx, processScope, processCallScope, args);
                 }
                 finally
                 {
@@ -412,7 +1121,7 @@ public abstract class AbstractExecuteBatchFunction implements IdFunctionCall, Sc
             else
             {
                 // not a native function, so has not associated scope - calling as-is
-                processFn.call(cx, processScope, processCallScope, new Object[] { element });
+                result = processFn.call(cx, processScope, processCallScope, args);
             }
         }
         catch (final WrappedException ex)
@@ -426,18 +1135,17 @@ public abstract class AbstractExecuteBatchFunction implements IdFunctionCall, Sc
         }
         finally
         {
-            Context.exit();
+            this.exitBatchContext();
         }
+        return result;
     }
 
     protected void doAfterProcess(final Context parentContext, final Scriptable parentScope, final Scriptable processScope,
             final Scriptable thisObj, final Pair<Scriptable, Function> afterProcessCallback)
     {
-        final Context cx = Context.enter();
+        final Context cx = this.enterBatchContext(parentContext);
         try
         {
-            this.scriptProcessor.inheritCallChain(parentContext);
-
             if (afterProcessCallback.getSecond() != null)
             {
                 final Scriptable afterProcessOriginalCallScope = afterProcessCallback.getFirst();
@@ -480,12 +1188,43 @@ public abstract class AbstractExecuteBatchFunction implements IdFunctionCall, Sc
         }
         finally
         {
-            Context.exit();
+            this.exitBatchContext();
             // clear thread-local facade mapping
             this.facadeFactory.clearThread();
         }
     }
 
+    /**
+     * Combines the partial results of a map/reduce execution into the final result. Partial results are combined in the calling thread, so
+     * the combine callback never needs to deal with concurrent access.
+     *
+     * @param cx
+     *            the current context
+     * @param scope
+     *            the scope of the map/reduce execution
+     * @param combineCallback
+     *            the combine callback
+     * @param partialResults
+     *            the partial results
+     * @return the combined result or {@link Undefined#instance undefined} if there are no partial results
+     */
+    protected Object combinePartialResults(final Context cx, final Scriptable scope, final Pair<Scriptable, Function> combineCallback,
+            final List<Object> partialResults)
+    {
+        Object result = Undefined.instance;
+        final Iterator<Object> partialResultIterator = partialResults.iterator();
+        if (partialResultIterator.hasNext())
+        {
+            result = partialResultIterator.next();
+            while (partialResultIterator.hasNext())
+            {
+                result = combineCallback.getSecond().call(cx, scope, combineCallback.getFirst(),
+                        new Object[] { result, partialResultIterator.next() });
+            }
+        }
+        return result;
+    }
+
     protected Pair<Scriptable, Function> readCallbackArgument(final Context cx, final Scriptable defaultScope, final Object[] arguments,
             final int idx)
     {
@@ -522,4 +1261,75 @@ public abstract class AbstractExecuteBatchFunction implements IdFunctionCall, Sc
         return callback;
     }
 
+    protected ExecuteBatchOptions readOptionsArgument(final Context cx, final Object[] arguments, final int idx)
+    {
+        final Scriptable param = ScriptRuntime.toObjectOrNull(cx, arguments.length > idx ? arguments[idx] : null);
+
+        final ExecuteBatchOptions options = new ExecuteBatchOptions(this.defaultLoggingInterval, this.defaultProgressInterval);
+        if (param != null)
+        {
+            final Object loggingIntervalValue = ScriptableObject.getProperty(param, ExecuteBatchOptions.LOGGING_INTERVAL);
+            if (loggingIntervalValue instanceof Number)
+            {
+                options.setLoggingInterval(((Number) loggingIntervalValue).intValue());
+            }
+            else if (loggingIntervalValue != Scriptable.NOT_FOUND)
+            {
+                LOGGER.debug("Value {} for {} is not a number", loggingIntervalValue, ExecuteBatchOptions.LOGGING_INTERVAL);
+            }
+
+            final Object progressIntervalValue = ScriptableObject.getProperty(param, ExecuteBatchOptions.PROGRESS_INTERVAL);
+            if (progressIntervalValue instanceof Number)
+            {
+                options.setProgressInterval(((Number) progressIntervalValue).longValue());
+            }
+            else if (progressIntervalValue != Scriptable.NOT_FOUND)
+            {
+                LOGGER.debug("Value {} for {} is not a number", progressIntervalValue, ExecuteBatchOptions.PROGRESS_INTERVAL);
+            }
+
+            final Object adaptiveValue = ScriptableObject.getProperty(param, ExecuteBatchOptions.ADAPTIVE);
+            if (adaptiveValue instanceof Boolean)
+            {
+                options.setAdaptive(((Boolean) adaptiveValue).booleanValue());
+            }
+            else if (adaptiveValue != Scriptable.NOT_FOUND)
+            {
+                LOGGER.debug("Value {} for {} is not a boolean", adaptiveValue, ExecuteBatchOptions.ADAPTIVE);
+            }
+
+            final Object ioBoundValue = ScriptableObject.getProperty(param, ExecuteBatchOptions.IO_BOUND);
+            if (ioBoundValue instanceof Boolean)
+            {
+                options.setIoBound(((Boolean) ioBoundValue).booleanValue());
+            }
+            else if (ioBoundValue != Scriptable.NOT_FOUND)
+            {
+                LOGGER.debug("Value {} for {} is not a boolean", ioBoundValue, ExecuteBatchOptions.IO_BOUND);
+            }
+
+            final Object readOnlyValue = ScriptableObject.getProperty(param, ExecuteBatchOptions.READ_ONLY);
+            if (readOnlyValue instanceof Boolean)
+            {
+                options.setReadOnly(((Boolean) readOnlyValue).booleanValue());
+            }
+            else if (readOnlyValue != Scriptable.NOT_FOUND)
+            {
+                LOGGER.debug("Value {} for {} is not a boolean", readOnlyValue, ExecuteBatchOptions.READ_ONLY);
+            }
+
+            final Object copyOnWriteValue = ScriptableObject.getProperty(param, ExecuteBatchOptions.COPY_ON_WRITE);
+            if (copyOnWriteValue instanceof Boolean)
+            {
+                options.setCopyOnWrite(((Boolean) copyOnWriteValue).booleanValue());
+            }
+            else if (copyOnWriteValue != Scriptable.NOT_FOUND)
+            {
+                LOGGER.debug("Value {} for {} is not a boolean", copyOnWriteValue, ExecuteBatchOptions.COPY_ON_WRITE);
+            }
+        }
+
+        return options;
+    }
+
 }
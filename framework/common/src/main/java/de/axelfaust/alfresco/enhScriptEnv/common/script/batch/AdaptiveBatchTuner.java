@@ -0,0 +1,275 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script.batch;
+
+/**
+ * Instances of this class tune the thread count and batch size of a single batch execution processed in consecutive rounds. After each
+ * round the measured throughput is compared against the previous round and the settings are adjusted by hill climbing, i.e. a change is
+ * kept up while it improves throughput and reverted as soon as it does not, probing the other setting next. Throughput is measured based
+ * on the time threads spent processing batches, so that thread startup and threads idling at the end of a round do not distort the
+ * measurement. Independent of throughput,
+ * settings are reduced when the round shows signs of overload - transaction retries, long-running batches or threads waiting on locks of
+ * shared script objects - since these typically indicate database or lock contention that additional concurrency would only aggravate.
+ *
+ * Instances of this class are not thread-safe and are expected to be used by the thread coordinating the rounds of a batch execution.
+ *
+ * @author Axel Faust
+ */
+public class AdaptiveBatchTuner
+{
+
+    public static final double DEFAULT_MAX_RETRY_RATE = 0.1d;
+
+    public static final double DEFAULT_MAX_LOCK_WAIT_RATIO = 0.25d;
+
+    public static final long DEFAULT_MAX_BATCH_DURATION = 10000;
+
+    // changes within measurement noise should not be mistaken for improvement
+    private static final double MIN_THROUGHPUT_GAIN = 0.05d;
+
+    protected final int minThreadCount;
+
+    protected final int maxThreadCount;
+
+    protected final int minBatchSize;
+
+    protected final int maxBatchSize;
+
+    protected double maxRetryRate = DEFAULT_MAX_RETRY_RATE;
+
+    protected double maxLockWaitRatio = DEFAULT_MAX_LOCK_WAIT_RATIO;
+
+    protected long maxBatchDuration = DEFAULT_MAX_BATCH_DURATION;
+
+    protected int threadCount;
+
+    protected int batchSize;
+
+    protected boolean tuneThreadCount = true;
+
+    protected boolean increase = true;
+
+    // number of consecutive steps that have been reverted
+    protected int revertedSteps = 0;
+
+    // settings before the last step so an unproductive step can be reverted
+    protected int previousThreadCount;
+
+    protected int previousBatchSize;
+
+    protected double lastThroughput = -1;
+
+    public AdaptiveBatchTuner(final int minThreadCount, final int maxThreadCount, final int minBatchSize, final int maxBatchSize,
+            final int threadCount, final int batchSize)
+    {
+        if (minThreadCount <= 0 || maxThreadCount < minThreadCount)
+        {
+            throw new IllegalArgumentException("Thread count bounds must be positive and minThreadCount must not exceed maxThreadCount");
+        }
+        if (minBatchSize <= 0 || maxBatchSize < minBatchSize)
+        {
+            throw new IllegalArgumentException("Batch size bounds must be positive and minBatchSize must not exceed maxBatchSize");
+        }
+
+        this.minThreadCount = minThreadCount;
+        this.maxThreadCount = maxThreadCount;
+        this.minBatchSize = minBatchSize;
+        this.maxBatchSize = maxBatchSize;
+
+        this.threadCount = this.boundThreadCount(threadCount);
+        this.batchSize = this.boundBatchSize(batchSize);
+        this.previousThreadCount = this.threadCount;
+        this.previousBatchSize = this.batchSize;
+    }
+
+    /**
+     * @param maxRetryRate
+     *            the ratio of transaction retries to processed batches above which a round is considered to overload the system
+     */
+    public void setMaxRetryRate(final double maxRetryRate)
+    {
+        this.maxRetryRate = maxRetryRate;
+    }
+
+    /**
+     * @param maxLockWaitRatio
+     *            the ratio of time threads spent waiting on locks of shared script objects to the total processing time of all threads
+     *            above which a round is considered to suffer from lock contention
+     */
+    public void setMaxLockWaitRatio(final double maxLockWaitRatio)
+    {
+        this.maxLockWaitRatio = maxLockWaitRatio;
+    }
+
+    /**
+     * @param maxBatchDuration
+     *            the average batch duration in milliseconds above which batches are considered to hold database resources for too long
+     */
+    public void setMaxBatchDuration(final long maxBatchDuration)
+    {
+        this.maxBatchDuration = maxBatchDuration;
+    }
+
+    /**
+     * @return the thread count to use for the next round
+     */
+    public int getThreadCount()
+    {
+        return this.threadCount;
+    }
+
+    /**
+     * @return the batch size to use for the next round
+     */
+    public int getBatchSize()
+    {
+        return this.batchSize;
+    }
+
+    /**
+     * Records the measurements of a completed round and adjusts the thread count and batch size for the next round.
+     *
+     * @param itemCount
+     *            the number of items processed in the round
+     * @param duration
+     *            the duration of the round in milliseconds
+     * @param batchCount
+     *            the number of batches processed in the round
+     * @param totalBatchDuration
+     *            the accumulated duration of all batches of the round in milliseconds
+     * @param retryCount
+     *            the number of transaction retries in the round
+     * @param lockWaitTime
+     *            the time in nanoseconds threads have been waiting on locks of shared script objects in the round
+     */
+    public void recordRound(final long itemCount, final long duration, final long batchCount, final long totalBatchDuration,
+            final long retryCount, final long lockWaitTime)
+    {
+        // rounds without measurable work (e.g. cancelled or sub-millisecond) provide no basis for tuning
+        if (itemCount > 0 && duration > 0)
+        {
+            // average time each thread spent processing batches excludes the barrier at the end of the round
+            final long busyDuration = batchCount > 0 && totalBatchDuration > 0 ? Math.max(1, totalBatchDuration / this.threadCount)
+                    : duration;
+            final double throughput = itemCount * 1000d / busyDuration;
+            final double retryRate = batchCount > 0 ? (double) retryCount / batchCount : 0;
+            final long averageBatchDuration = batchCount > 0 ? totalBatchDuration / batchCount : duration;
+            final double lockWaitRatio = lockWaitTime / (duration * 1000000d * this.threadCount);
+
+            if (retryRate > this.maxRetryRate)
+            {
+                // retries stem from conflicts / failures of concurrent transactions - fewer and smaller transactions reduce the chance
+                this.threadCount = this.boundThreadCount(this.threadCount - 1);
+                this.batchSize = this.boundBatchSize(this.batchSize / 2);
+                this.restartClimb(false);
+            }
+            else if (averageBatchDuration > this.maxBatchDuration)
+            {
+                this.batchSize = this.boundBatchSize(this.batchSize / 2);
+                this.restartClimb(false);
+            }
+            else if (lockWaitRatio > this.maxLockWaitRatio)
+            {
+                // additional threads would only wait on the same shared script objects
+                this.threadCount = this.boundThreadCount(this.threadCount - 1);
+                this.restartClimb(true);
+            }
+            else
+            {
+                if (this.lastThroughput >= 0 && throughput < this.lastThroughput * (1 + MIN_THROUGHPUT_GAIN))
+                {
+                    // previous step did not pay off - revert it and probe the other setting next
+                    // last throughput remains the reference as it has been measured with the reverted settings
+                    this.threadCount = this.previousThreadCount;
+                    this.batchSize = this.previousBatchSize;
+                    this.tuneThreadCount = !this.tuneThreadCount;
+
+                    this.revertedSteps++;
+                    if (this.revertedSteps % 2 == 0)
+                    {
+                        // neither setting improved in the current direction
+                        this.increase = !this.increase;
+                    }
+                }
+                else
+                {
+                    this.lastThroughput = throughput;
+                    this.revertedSteps = 0;
+                }
+
+                if (!this.step())
+                {
+                    // current setting is at its bound in the current direction
+                    this.tuneThreadCount = !this.tuneThreadCount;
+                    this.step();
+                }
+            }
+        }
+    }
+
+    protected void restartClimb(final boolean tuneThreadCount)
+    {
+        // throughput measured before backing off is no valid reference for future steps
+        this.lastThroughput = -1;
+        this.revertedSteps = 0;
+        this.tuneThreadCount = tuneThreadCount;
+        this.increase = false;
+    }
+
+    protected boolean step()
+    {
+        this.previousThreadCount = this.threadCount;
+        this.previousBatchSize = this.batchSize;
+
+        final boolean changed;
+        if (this.tuneThreadCount)
+        {
+            final int threadCount = this.boundThreadCount(this.increase ? this.threadCount + 1 : this.threadCount - 1);
+            changed = threadCount != this.threadCount;
+            this.threadCount = threadCount;
+        }
+        else
+        {
+            final int batchSize = this.boundBatchSize(this.increase ? this.batchSize * 2 : this.batchSize / 2);
+            changed = batchSize != this.batchSize;
+            this.batchSize = batchSize;
+        }
+        return changed;
+    }
+
+    protected int boundThreadCount(final int threadCount)
+    {
+        return Math.max(this.minThreadCount, Math.min(this.maxThreadCount, threadCount));
+    }
+
+    protected int boundBatchSize(final int batchSize)
+    {
+        return Math.max(this.minBatchSize, Math.min(this.maxBatchSize, batchSize));
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("AdaptiveBatchTuner [threadCount=").append(this.threadCount);
+        builder.append(", batchSize=").append(this.batchSize);
+        builder.append(", lastThroughput=").append(this.lastThroughput);
+        builder.append("]");
+        return builder.toString();
+    }
+}
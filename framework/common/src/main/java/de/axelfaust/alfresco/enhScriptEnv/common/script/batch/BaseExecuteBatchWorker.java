@@ -13,10 +13,17 @@
  */
 package de.axelfaust.alfresco.enhScriptEnv.common.script.batch;
 
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
 import org.alfresco.util.Pair;
+import org.apache.commons.logging.Log;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.Function;
 import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.Undefined;
 
 /**
  * Basic batch execution worker class which delegates callback invocations to the batch function. This mostly serves as a base class for
@@ -36,37 +43,203 @@ public class BaseExecuteBatchWorker<EBF extends AbstractExecuteBatchFunction>
     protected final Pair<Scriptable, Function> beforeProcessCallback;
     protected final Pair<Scriptable, Function> afterProcessCallback;
 
+    // process scopes are pooled per thread and reset between batches
     protected final ThreadLocal<Scriptable> processScope = new ThreadLocal<Scriptable>();
 
+    protected final ExecuteBatchReport report;
+
+    protected final ExecuteBatchOptions options;
+
+    protected final Log log;
+
+    // state of the current batch of a thread for reporting
+    protected final ThreadLocal<Long> batchStart = new ThreadLocal<Long>();
+    protected final ThreadLocal<List<Object>> batchEntries = new ThreadLocal<List<Object>>();
+    protected final ThreadLocal<Boolean> batchFailed = new ThreadLocal<Boolean>();
+    // identifiers of items that failed on a thread and may still succeed on a retry (of their batch or individually), bound by retries
+    protected final ThreadLocal<Set<String>> failedIdentifiers = new ThreadLocal<Set<String>>();
+    // partial result of a map/reduce execution borrowed from the report when the current batch of a thread started
+    protected final ThreadLocal<Object> batchBaseAccumulator = new ThreadLocal<Object>();
+    // partial result of a map/reduce execution extended by the items of the current batch of a thread
+    protected final ThreadLocal<Object> batchAccumulator = new ThreadLocal<Object>();
+
     public BaseExecuteBatchWorker(final EBF batchFunction, final Scriptable parentScope, final Scriptable thisObj,
             final Pair<Scriptable, Function> processCallback, final Pair<Scriptable, Function> beforeProcessCallback,
-            final Pair<Scriptable, Function> afterProcessCallback)
+            final Pair<Scriptable, Function> afterProcessCallback, final ExecuteBatchReport report, final ExecuteBatchOptions options,
+            final Log log)
     {
         this.batchFunction = batchFunction;
-        this.processCallback = processCallback;
-        this.beforeProcessCallback = beforeProcessCallback;
-        this.afterProcessCallback = afterProcessCallback;
+        this.report = report;
+        this.options = options;
+        this.log = log;
+        // facades of call scopes are shared between threads, so they only need to be resolved once
+        this.processCallback = batchFunction.toFacadedCallback(processCallback, parentScope);
+        this.beforeProcessCallback = batchFunction.toFacadedCallback(beforeProcessCallback, parentScope);
+        this.afterProcessCallback = batchFunction.toFacadedCallback(afterProcessCallback, parentScope);
 
         this.parentScope = parentScope;
         this.thisObj = thisObj;
     }
 
+    /**
+     * Determines the identifier of a work item to be used in reporting.
+     *
+     * @param entry
+     *            the work item
+     * @return the identifier of the work item
+     */
+    public String getIdentifier(final Object entry)
+    {
+        return String.valueOf(entry);
+    }
+
     protected void doBeforeProcess()
     {
-        final Scriptable processScope = this.batchFunction.doBeforeProcess(this.parentContext, this.parentScope, this.thisObj,
-                this.beforeProcessCallback);
+        this.batchStart.set(Long.valueOf(System.currentTimeMillis()));
+        this.batchEntries.set(new ArrayList<Object>());
+        this.batchFailed.set(Boolean.FALSE);
+        this.batchBaseAccumulator.remove();
+        this.batchAccumulator.remove();
+
+        final Scriptable processScope = this.batchFunction.doBeforeProcess(this.parentContext, this.parentScope,
+                this.processScope.get(), this.thisObj, this.beforeProcessCallback);
         this.processScope.set(processScope);
+
+        if (this.options.isMapReduce())
+        {
+            // continuing from a previous partial result keeps the number of partial results bound by the number of worker threads
+            final Object accumulator = this.report.borrowPartialResult();
+            this.batchBaseAccumulator.set(accumulator);
+            this.batchAccumulator.set(accumulator);
+        }
+    }
+
+    /**
+     * Determines if the current batch of the calling thread has been completed successfully and its results may be published to the
+     * report. This operation is called after the batch has been processed, including any transaction commit.
+     *
+     * @return {@code true} if the batch has been completed successfully, {@code false} otherwise
+     */
+    protected boolean isBatchCompleted()
+    {
+        return !Boolean.TRUE.equals(this.batchFailed.get());
     }
 
     protected void doAfterProcess()
     {
-        this.batchFunction.doAfterProcess(this.parentContext, this.parentScope, this.processScope.get(), this.thisObj,
-                this.afterProcessCallback);
+        try
+        {
+            final List<Object> batchEntries = this.batchEntries.get();
+            final boolean completed = batchEntries != null && !batchEntries.isEmpty() && this.isBatchCompleted();
+            if (!completed && batchEntries != null && batchEntries.size() == 1)
+            {
+                // failure of an individually processed item is final
+                this.forgetFailure(batchEntries.get(0));
+            }
+            try
+            {
+                this.batchFunction.doAfterProcess(this.parentContext, this.parentScope, this.processScope.get(), this.thisObj,
+                        this.afterProcessCallback);
+
+                if (completed)
+                {
+                    this.report.recordBatch(batchEntries.size(), System.currentTimeMillis() - this.batchStart.get().longValue());
+                }
+            }
+            finally
+            {
+                if (this.options.isMapReduce())
+                {
+                    // contribution of a batch is only published once committed, otherwise the borrowed partial result is returned as-is
+                    final Object accumulator = completed ? this.batchAccumulator.get() : this.batchBaseAccumulator.get();
+                    if (accumulator != null && accumulator != Undefined.instance)
+                    {
+                        this.report.recordPartialResult(accumulator);
+                    }
+                }
+            }
+
+            // time-based sampling keeps the log volume independent of the throughput
+            if (this.report.sampleProgress(this.options.getProgressInterval()) && this.log.isInfoEnabled())
+            {
+                this.log.info("Progress of batch execution: " + this.report);
+            }
+        }
+        finally
+        {
+            this.batchStart.remove();
+            this.batchEntries.remove();
+            this.batchFailed.remove();
+            this.batchBaseAccumulator.remove();
+            this.batchAccumulator.remove();
+        }
     }
 
     protected void doProcess(final Object element)
     {
-        this.batchFunction.doProcess(this.parentContext, this.parentScope, this.processScope.get(), this.thisObj, this.processCallback,
-                element);
+        if (this.report.isCancelled())
+        {
+            this.report.recordSkipped();
+        }
+        else
+        {
+            final List<Object> batchEntries = this.batchEntries.get();
+            if (!batchEntries.isEmpty() && batchEntries.get(0) == element)
+            {
+                // the transaction of the batch is being retried
+                this.report.recordRetry();
+                batchEntries.clear();
+                this.batchFailed.set(Boolean.FALSE);
+                this.batchAccumulator.set(this.batchBaseAccumulator.get());
+            }
+            batchEntries.add(element);
+
+            try
+            {
+                if (this.options.isMapReduce())
+                {
+                    final Object accumulator = this.batchFunction.doMap(this.parentContext, this.parentScope, this.processScope.get(),
+                            this.processCallback, element, this.batchAccumulator.get());
+                    this.batchAccumulator.set(accumulator);
+                }
+                else
+                {
+                    this.batchFunction.doProcess(this.parentContext, this.parentScope, this.processScope.get(), this.thisObj,
+                            this.processCallback, element);
+                }
+            }
+            catch (final RuntimeException ex)
+            {
+                this.batchFailed.set(Boolean.TRUE);
+
+                Set<String> failedIdentifiers = this.failedIdentifiers.get();
+                if (failedIdentifiers == null)
+                {
+                    failedIdentifiers = new HashSet<String>();
+                    this.failedIdentifiers.set(failedIdentifiers);
+                }
+                final String identifier = this.getIdentifier(element);
+                // item may have failed in a previous attempt already
+                if (failedIdentifiers.add(identifier))
+                {
+                    this.report.recordError(identifier, ex.getMessage());
+                }
+                throw ex;
+            }
+
+            // item may have failed in a previous attempt
+            if (this.forgetFailure(element))
+            {
+                this.report.clearError(this.getIdentifier(element));
+            }
+        }
+    }
+
+    protected boolean forgetFailure(final Object element)
+    {
+        final Set<String> failedIdentifiers = this.failedIdentifiers.get();
+        final boolean forgotten = failedIdentifiers != null && !failedIdentifiers.isEmpty()
+                && failedIdentifiers.remove(this.getIdentifier(element));
+        return forgotten;
     }
 }
\ No newline at end of file
@@ -0,0 +1,476 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script.batch;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.NativeArray;
+import org.mozilla.javascript.NativeFunction;
+import org.mozilla.javascript.NativeObject;
+import org.mozilla.javascript.Scriptable;
+
+/**
+ * Instances of this class are {@link Scriptable} and {@link Function} delegators that provide lock-free access to script objects shared
+ * between the threads of a batch execution. The shared object is treated as a frozen snapshot - all reads are performed without locking and
+ * the first write operation of a thread creates a thread-local shallow copy (the shadow object) of the shared object which subsequently
+ * serves as the mutable view of that thread. Shadow objects are discarded when the facade factory is
+ * {@link ObjectFacadeFactory#clearThread() cleared for the thread}, so modifications are never published to the shared object or other
+ * threads.
+ *
+ * Only plain script objects, arrays and scopes that have not been sealed can be shadowed - write operations on any other object (i.e. Java
+ * objects) are passed through to the shared object and need to be thread-safe by themselves. Script functions are called with their
+ * parent scope {@link ThreadLocalParentScope redirected} to its facade for the calling thread, so that assignments to variables of
+ * enclosing scopes are shadowed as well. Sealed script functions can't be redirected and are not {@link #isSupported(Scriptable)
+ * supported} by this delegator.
+ *
+ * In read-only mode, this delegator rejects any write operation on the shared object instead of creating a shadow object. Since redirected
+ * script functions only see facades of their enclosing scopes, assignments to variables of those scopes are rejected as well.
+ *
+ * @author Axel Faust
+ */
+public class CopyOnWriteDelegator extends ObjectFacadingDelegator
+{
+
+    protected final DefaultFacadeFactory shadowingFacadeFactory;
+
+    protected final boolean readOnly;
+
+    // redirectable parent scope of a script function delegee - lazily installed on first call
+    protected volatile ThreadLocalParentScope redirectableParentScope;
+
+    public CopyOnWriteDelegator(final Scriptable referenceScope, final Scriptable delegee, final DefaultFacadeFactory facadeFactory)
+    {
+        this(referenceScope, delegee, facadeFactory, false);
+    }
+
+    public CopyOnWriteDelegator(final Scriptable referenceScope, final Scriptable delegee, final DefaultFacadeFactory facadeFactory,
+            final boolean readOnly)
+    {
+        super(referenceScope, delegee, facadeFactory);
+        this.shadowingFacadeFactory = facadeFactory;
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Checks if a shared object can be accessed via a copy-on-write delegator.
+     *
+     * @param obj
+     *            the shared object
+     * @return {@code true} if the object can be facaded by this delegator, {@code false} if it needs to be facaded by a locking delegator
+     */
+    public static boolean isSupported(final Scriptable obj)
+    {
+        final boolean supported = !(obj instanceof NativeFunction) || !((NativeFunction) obj).isSealed();
+        return supported;
+    }
+
+    /**
+     * Retrieves the view of the shared object effective for the current thread.
+     *
+     * @return the thread-local shadow object if the current thread has modified the shared object, else the shared object itself
+     */
+    public Scriptable getView()
+    {
+        final Scriptable delegee = this.getDelegee();
+        final Scriptable shadow = this.shadowingFacadeFactory.getShadowObject(delegee);
+        final Scriptable view = shadow != null ? shadow : delegee;
+        return view;
+    }
+
+    /**
+     * Retrieves the view of the shared object for write operations of the current thread.
+     *
+     * @return the thread-local shadow object or the shared object itself if it can't be shadowed
+     * @throws org.mozilla.javascript.EvaluatorException
+     *             if this delegator is in read-only mode
+     */
+    public Scriptable getWritableView()
+    {
+        if (this.readOnly)
+        {
+            throw Context.reportRuntimeError("Objects of the calling script must not be modified in a read-only batch execution");
+        }
+
+        final Scriptable delegee = this.getDelegee();
+        final Scriptable shadow = this.shadowingFacadeFactory.getOrCreateShadowObject(delegee);
+        final Scriptable view = shadow != null ? shadow : delegee;
+        return view;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getClassName()
+    {
+        return this.getView().getClassName();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(final String name, final Scriptable start)
+    {
+        final Scriptable view = this.getView();
+        final Object result = view.get(name, start == this ? view : this.toRealObject(start));
+        final Object realResult;
+        if (result instanceof Scriptable)
+        {
+            realResult = this.toFacadedObject((Scriptable) result);
+        }
+        else
+        {
+            realResult = result;
+        }
+        return realResult;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object get(final int index, final Scriptable start)
+    {
+        final Scriptable view = this.getView();
+        final Object result = view.get(index, start == this ? view : this.toRealObject(start));
+        final Object realResult;
+        if (result instanceof Scriptable)
+        {
+            realResult = this.toFacadedObject((Scriptable) result);
+        }
+        else
+        {
+            realResult = result;
+        }
+        return realResult;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean has(final String name, final Scriptable start)
+    {
+        final Scriptable view = this.getView();
+        return view.has(name, start == this ? view : this.toRealObject(start));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean has(final int index, final Scriptable start)
+    {
+        final Scriptable view = this.getView();
+        return view.has(index, start == this ? view : this.toRealObject(start));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(final String name, final Scriptable start, final Object value)
+    {
+        final Object realValue;
+        if (value instanceof Scriptable)
+        {
+            realValue = this.toRealObject((Scriptable) value);
+        }
+        else
+        {
+            realValue = value;
+        }
+
+        if (start == this)
+        {
+            final Scriptable view = this.getWritableView();
+            view.put(name, view, realValue);
+        }
+        else if (start instanceof CopyOnWriteDelegator)
+        {
+            // we are the prototype of start that "has" the property being set on start
+            // start is shared as well so the property needs to be set on its writable view
+            this.getView().put(name, ((CopyOnWriteDelegator) start).getWritableView(), realValue);
+        }
+        else
+        {
+            this.getView().put(name, this.toRealObject(start), realValue);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(final int index, final Scriptable start, final Object value)
+    {
+        final Object realValue;
+        if (value instanceof Scriptable)
+        {
+            realValue = this.toRealObject((Scriptable) value);
+        }
+        else
+        {
+            realValue = value;
+        }
+
+        if (start == this)
+        {
+            final Scriptable view = this.getWritableView();
+            view.put(index, view, realValue);
+        }
+        else if (start instanceof CopyOnWriteDelegator)
+        {
+            // we are the prototype of start that "has" the property/index being set on start
+            // start is shared as well so the index needs to be set on its writable view
+            this.getView().put(index, ((CopyOnWriteDelegator) start).getWritableView(), realValue);
+        }
+        else
+        {
+            this.getView().put(index, this.toRealObject(start), realValue);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(final String name)
+    {
+        this.getWritableView().delete(name);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void delete(final int index)
+    {
+        this.getWritableView().delete(index);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Scriptable getPrototype()
+    {
+        final Scriptable realResult = this.toFacadedObject(this.getView().getPrototype());
+        return realResult;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setPrototype(final Scriptable prototype)
+    {
+        this.getWritableView().setPrototype(this.toRealObject(prototype));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Scriptable getParentScope()
+    {
+        final Scriptable realResult = this.toFacadedObject(this.getView().getParentScope());
+        return realResult;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setParentScope(final Scriptable parent)
+    {
+        this.getWritableView().setParentScope(this.toRealObject(parent));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object[] getIds()
+    {
+        return this.getView().getIds();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object getDefaultValue(@SuppressWarnings("rawtypes") final Class hint)
+    {
+        return this.getView().getDefaultValue(hint);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasInstance(final Scriptable instance)
+    {
+        final Scriptable realInstance = instance instanceof ObjectFacadingDelegator ? this.toRealObject(instance) : instance;
+        return this.getView().hasInstance(realInstance);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object call(final Context cx, final Scriptable scope, final Scriptable thisObj, final Object[] args)
+    {
+        final Scriptable delegee = this.getDelegee();
+
+        final Object[] realArgs = new Object[args.length];
+        System.arraycopy(args, 0, realArgs, 0, args.length);
+
+        final Scriptable realThisObj;
+        if (delegee instanceof NativeFunction)
+        {
+            // script functions only access objects via the Scriptable API so they can operate on facades
+            // any state change (incl. variables of enclosing scopes via the redirected parent scope) will then be written to the shadow
+            // objects
+            realThisObj = thisObj;
+        }
+        else
+        {
+            for (int idx = 0; idx < realArgs.length; idx++)
+            {
+                if (realArgs[idx] instanceof Scriptable)
+                {
+                    realArgs[idx] = this.toRealObject((Scriptable) realArgs[idx]);
+                }
+            }
+
+            if (thisObj instanceof CopyOnWriteDelegator)
+            {
+                final Scriptable thisView = ((CopyOnWriteDelegator) thisObj).getView();
+                // built-in functions of plain objects / arrays support generic "this" objects - modifications will be written to the
+                // shadow object of the current thread
+                realThisObj = thisView instanceof NativeObject || thisView instanceof NativeArray ? thisObj : thisView;
+            }
+            else
+            {
+                realThisObj = this.toRealObject(thisObj);
+            }
+        }
+
+        final Object realResult;
+        if (delegee instanceof NativeFunction)
+        {
+            final ThreadLocalParentScope redirectedParentScope = this.redirectParentScope((NativeFunction) delegee);
+            try
+            {
+                realResult = ((Function) delegee).call(cx, this.toRealObject(scope), realThisObj, realArgs);
+            }
+            finally
+            {
+                if (redirectedParentScope != null)
+                {
+                    redirectedParentScope.removeRedirectedParentScope();
+                }
+            }
+        }
+        else
+        {
+            realResult = ((Function) delegee).call(cx, this.toRealObject(scope), realThisObj, realArgs);
+        }
+
+        final Object result;
+        if (realResult instanceof Scriptable)
+        {
+            result = this.toFacadedObject((Scriptable) realResult);
+        }
+        else
+        {
+            result = realResult;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Scriptable construct(final Context cx, final Scriptable scope, final Object[] args)
+    {
+        final Scriptable delegee = this.getDelegee();
+
+        final Scriptable result;
+        if (delegee instanceof NativeFunction)
+        {
+            final ThreadLocalParentScope redirectedParentScope = this.redirectParentScope((NativeFunction) delegee);
+            try
+            {
+                result = super.construct(cx, scope, args);
+            }
+            finally
+            {
+                if (redirectedParentScope != null)
+                {
+                    redirectedParentScope.removeRedirectedParentScope();
+                }
+            }
+        }
+        else
+        {
+            result = super.construct(cx, scope, args);
+        }
+        return result;
+    }
+
+    /**
+     * Redirects the parent scope of a script function delegee to the facade of the actual (shared) parent scope for the current thread. The
+     * delegee itself is bound to the shared parent scope and would modify variables of any enclosing scope without locking when called.
+     *
+     * @param fn
+     *            the script function delegee
+     * @return the parent scope of the delegee if it has been redirected by this operation and needs to be
+     *         {@link ThreadLocalParentScope#removeRedirectedParentScope() reset} after the call, {@code null} if the current thread already
+     *         uses an effective parent scope
+     */
+    protected ThreadLocalParentScope redirectParentScope(final NativeFunction fn)
+    {
+        if (fn.isSealed())
+        {
+            // only reachable in read-only mode - any other mode uses a locking delegator instead
+            throw Context.reportRuntimeError("Function " + fn.getFunctionName()
+                    + " is sealed and can't be called in a read-only batch execution");
+        }
+
+        ThreadLocalParentScope parentScope = this.redirectableParentScope;
+        // parent scope may have been restored by the batch execution if it was used for a batch callback
+        if (parentScope == null || fn.getParentScope() != parentScope)
+        {
+            parentScope = this.shadowingFacadeFactory.redirectParentScope(fn, this.referenceScope);
+            this.redirectableParentScope = parentScope;
+        }
+
+        // re-entrant calls and batch callbacks already use an effective parent scope for the current thread
+        final ThreadLocalParentScope redirectedParentScope;
+        if (parentScope.isRedirected())
+        {
+            redirectedParentScope = null;
+        }
+        else
+        {
+            parentScope.setRedirectedParentScope(this.toFacadedObject(parentScope.getRealParentScope()));
+            redirectedParentScope = parentScope;
+        }
+        return redirectedParentScope;
+    }
+}
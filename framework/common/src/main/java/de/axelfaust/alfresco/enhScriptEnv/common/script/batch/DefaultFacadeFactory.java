@@ -14,12 +14,19 @@
 package de.axelfaust.alfresco.enhScriptEnv.common.script.batch;
 
 import java.lang.ref.WeakReference;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.WeakHashMap;
 
 import org.mozilla.javascript.Function;
+import org.mozilla.javascript.NativeArray;
+import org.mozilla.javascript.NativeFunction;
 import org.mozilla.javascript.NativeJavaObject;
+import org.mozilla.javascript.NativeObject;
 import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
 
 /**
  * @author Axel Faust
@@ -34,6 +41,17 @@ public class DefaultFacadeFactory implements ObjectFacadeFactory
 
     protected final Map<Scriptable, Map<Scriptable, WeakReference<Scriptable>>> facadeByRealObjectAndReferenceScope = new WeakHashMap<Scriptable, Map<Scriptable, WeakReference<Scriptable>>>();
 
+    // shadow objects are only used in copy-on-write mode and need to be looked up by identity (shadowed object may override equals)
+    protected final ThreadLocal<Map<Scriptable, Scriptable>> shadowByRealObject = new ThreadLocal<Map<Scriptable, Scriptable>>();
+
+    protected final ThreadLocal<Map<Scriptable, Scriptable>> realObjectByShadow = new ThreadLocal<Map<Scriptable, Scriptable>>();
+
+    // batch executions that opted into copy-on-write facades (value denotes read-only executions)
+    protected final Map<Scriptable, Boolean> copyOnWriteReferenceScopes = new WeakHashMap<Scriptable, Boolean>();
+
+    // shared script functions called via copy-on-write facades that have been redirected to a thread-local parent scope
+    protected final Map<Scriptable, Set<NativeFunction>> redirectedFunctionsByReferenceScope = new WeakHashMap<Scriptable, Set<NativeFunction>>();
+
     /**
      * 
      * {@inheritDoc}
@@ -41,7 +59,36 @@ public class DefaultFacadeFactory implements ObjectFacadeFactory
     @Override
     public void clearThread()
     {
-        this.facadeByRealObject.remove();
+        // maps are reset instead of removed so they can be reused for the next batch of the same thread
+        clearThreadLocalMap(this.facadeByRealObject);
+        clearThreadLocalMap(this.shadowByRealObject);
+        clearThreadLocalMap(this.realObjectByShadow);
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void registerReadOnlyReferenceScope(final Scriptable referenceScope)
+    {
+        synchronized (this.copyOnWriteReferenceScopes)
+        {
+            this.copyOnWriteReferenceScopes.put(referenceScope, Boolean.TRUE);
+        }
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void registerCopyOnWriteReferenceScope(final Scriptable referenceScope)
+    {
+        synchronized (this.copyOnWriteReferenceScopes)
+        {
+            this.copyOnWriteReferenceScopes.put(referenceScope, Boolean.FALSE);
+        }
     }
 
     /**
@@ -55,6 +102,23 @@ public class DefaultFacadeFactory implements ObjectFacadeFactory
         {
             this.facadeByRealObjectAndReferenceScope.remove(referenceScope);
         }
+        synchronized (this.copyOnWriteReferenceScopes)
+        {
+            this.copyOnWriteReferenceScopes.remove(referenceScope);
+        }
+
+        final Set<NativeFunction> redirectedFunctions;
+        synchronized (this.redirectedFunctionsByReferenceScope)
+        {
+            redirectedFunctions = this.redirectedFunctionsByReferenceScope.remove(referenceScope);
+        }
+        if (redirectedFunctions != null)
+        {
+            for (final NativeFunction fn : redirectedFunctions)
+            {
+                this.restoreParentScope(fn);
+            }
+        }
     }
 
     /**
@@ -71,10 +135,16 @@ public class DefaultFacadeFactory implements ObjectFacadeFactory
      * {@inheritDoc}
      */
     @Override
-    public Scriptable toFacadedObject(final Scriptable obj, final Scriptable referenceScope, final String accessName)
+    public Scriptable toFacadedObject(final Scriptable object, final Scriptable referenceScope, final String accessName)
     {
         final Scriptable facadedObject;
 
+        // a thread-local shadow object must never be facaded itself, only the original shared object
+        // (map only exists if shadows have been created by the current thread)
+        final Map<Scriptable, Scriptable> realObjectByShadow = this.realObjectByShadow.get();
+        final Scriptable shadowedObject = realObjectByShadow != null && object != null ? realObjectByShadow.get(object) : null;
+        final Scriptable obj = shadowedObject != null ? shadowedObject : object;
+
         if (obj != null && !(obj instanceof ObjectFacadingDelegator))
         {
             final Scriptable threadLocalFacadedObj;
@@ -140,10 +210,41 @@ public class DefaultFacadeFactory implements ObjectFacadeFactory
         return facadedObject;
     }
 
+    protected static void clearThreadLocalMap(final ThreadLocal<? extends Map<?, ?>> threadLocalMap)
+    {
+        final Map<?, ?> map = threadLocalMap.get();
+        if (map != null)
+        {
+            map.clear();
+        }
+    }
+
+    protected boolean isCopyOnWriteReferenceScope(final Scriptable referenceScope)
+    {
+        synchronized (this.copyOnWriteReferenceScopes)
+        {
+            return this.copyOnWriteReferenceScopes.containsKey(referenceScope);
+        }
+    }
+
+    protected boolean isReadOnlyReferenceScope(final Scriptable referenceScope)
+    {
+        synchronized (this.copyOnWriteReferenceScopes)
+        {
+            return Boolean.TRUE.equals(this.copyOnWriteReferenceScopes.get(referenceScope));
+        }
+    }
+
     protected Scriptable toFacadedObjectImpl(final Scriptable obj, final Scriptable referenceScope, final String accessName)
     {
         Scriptable globalFacadedObject;
-        if (obj instanceof NativeJavaObject)
+        final boolean readOnly = this.isReadOnlyReferenceScope(referenceScope);
+        // read-only executions must never fall back to a delegator that allows modifications
+        if (readOnly || (this.isCopyOnWriteReferenceScope(referenceScope) && CopyOnWriteDelegator.isSupported(obj)))
+        {
+            globalFacadedObject = new CopyOnWriteDelegator(referenceScope, obj, this, readOnly);
+        }
+        else if (obj instanceof NativeJavaObject)
         {
             final NativeJavaObject nativeJavaObj = (NativeJavaObject) obj;
             final Object javaObj = nativeJavaObj.unwrap();
@@ -179,9 +280,183 @@ public class DefaultFacadeFactory implements ObjectFacadeFactory
     @Override
     public Scriptable toRealObject(final Scriptable facadedObject, final Scriptable referenceScope)
     {
-        final Scriptable realObj = facadedObject instanceof ObjectFacadingDelegator ? ((ObjectFacadingDelegator) facadedObject)
-                .getDelegee() : facadedObject;
+        final Scriptable realObj;
+        if (facadedObject instanceof CopyOnWriteDelegator)
+        {
+            realObj = ((CopyOnWriteDelegator) facadedObject).getView();
+        }
+        else
+        {
+            realObj = facadedObject instanceof ObjectFacadingDelegator ? ((ObjectFacadingDelegator) facadedObject).getDelegee()
+                    : facadedObject;
+        }
         return realObj;
     }
 
+    /**
+     * Retrieves the thread-local shadow object of a shared object in copy-on-write mode.
+     *
+     * @param realObject
+     *            the shared object
+     * @return the shadow object or {@code null} if the current thread has not yet modified the shared object
+     */
+    protected Scriptable getShadowObject(final Scriptable realObject)
+    {
+        final Map<Scriptable, Scriptable> shadowByRealObject = this.shadowByRealObject.get();
+        final Scriptable shadow = shadowByRealObject != null ? shadowByRealObject.get(realObject) : null;
+        return shadow;
+    }
+
+    /**
+     * Retrieves or creates the thread-local shadow object of a shared object in copy-on-write mode.
+     *
+     * @param realObject
+     *            the shared object
+     * @return the shadow object or {@code null} if the shared object can't be shadowed
+     */
+    protected Scriptable getOrCreateShadowObject(final Scriptable realObject)
+    {
+        Map<Scriptable, Scriptable> shadowByRealObject = this.shadowByRealObject.get();
+        if (shadowByRealObject == null)
+        {
+            shadowByRealObject = new IdentityHashMap<Scriptable, Scriptable>();
+            this.shadowByRealObject.set(shadowByRealObject);
+            this.realObjectByShadow.set(new IdentityHashMap<Scriptable, Scriptable>());
+        }
+
+        Scriptable shadow = shadowByRealObject.get(realObject);
+        if (shadow == null && !shadowByRealObject.containsKey(realObject))
+        {
+            shadow = this.createShadowObject(realObject);
+            // also remember non-shadowable objects to avoid repeated checks
+            shadowByRealObject.put(realObject, shadow);
+            if (shadow != null)
+            {
+                this.realObjectByShadow.get().put(shadow, realObject);
+            }
+        }
+        return shadow;
+    }
+
+    /**
+     * Redirects the parent scope of a shared script function so that threads calling the function via a copy-on-write facade can access
+     * variables of enclosing scopes via facades as well. The function itself remains unchanged for any other thread and is restored when
+     * the last batch execution that redirected it is {@link #clearReferenceScope(Scriptable) cleared}.
+     *
+     * @param fn
+     *            the shared script function
+     * @param referenceScope
+     *            the reference scope of the batch execution
+     * @return the parent scope of the function that supports redirection for the current thread
+     */
+    protected ThreadLocalParentScope redirectParentScope(final NativeFunction fn, final Scriptable referenceScope)
+    {
+        final ThreadLocalParentScope parentScope;
+        synchronized (fn)
+        {
+            final Scriptable currentParentScope = fn.getParentScope();
+            if (currentParentScope instanceof ThreadLocalParentScope)
+            {
+                parentScope = (ThreadLocalParentScope) currentParentScope;
+            }
+            else
+            {
+                parentScope = new ThreadLocalParentScope(currentParentScope, referenceScope, this);
+                fn.setParentScope(parentScope);
+            }
+
+            // parent scopes of batch callbacks (no redirections) are managed by the batch execution
+            if (parentScope.getRedirections() > 0 || parentScope != currentParentScope)
+            {
+                final boolean registered;
+                synchronized (this.redirectedFunctionsByReferenceScope)
+                {
+                    Set<NativeFunction> redirectedFunctions = this.redirectedFunctionsByReferenceScope.get(referenceScope);
+                    if (redirectedFunctions == null)
+                    {
+                        redirectedFunctions = new HashSet<NativeFunction>();
+                        this.redirectedFunctionsByReferenceScope.put(referenceScope, redirectedFunctions);
+                    }
+                    registered = redirectedFunctions.add(fn);
+                }
+
+                if (registered)
+                {
+                    parentScope.setRedirections(parentScope.getRedirections() + 1);
+                }
+            }
+        }
+        return parentScope;
+    }
+
+    protected void restoreParentScope(final NativeFunction fn)
+    {
+        synchronized (fn)
+        {
+            final Scriptable currentParentScope = fn.getParentScope();
+            if (currentParentScope instanceof ThreadLocalParentScope && ((ThreadLocalParentScope) currentParentScope).getRedirections() > 0)
+            {
+                final ThreadLocalParentScope parentScope = (ThreadLocalParentScope) currentParentScope;
+                final int redirections = parentScope.getRedirections() - 1;
+                parentScope.setRedirections(redirections);
+                if (redirections == 0)
+                {
+                    fn.setParentScope(parentScope.getRealParentScope());
+                }
+            }
+        }
+    }
+
+    protected Scriptable createShadowObject(final Scriptable realObject)
+    {
+        final ScriptableObject shadow;
+        // functions can't be copied and sealed objects must remain unmodifiable
+        if (realObject instanceof ScriptableObject && !(realObject instanceof Function) && !((ScriptableObject) realObject).isSealed())
+        {
+            final ScriptableObject realScriptableObject = (ScriptableObject) realObject;
+            if (realObject instanceof NativeArray)
+            {
+                shadow = new NativeArray(((NativeArray) realObject).getLength());
+                for (final Object id : realScriptableObject.getIds())
+                {
+                    if (id instanceof Integer)
+                    {
+                        final int index = ((Integer) id).intValue();
+                        shadow.put(index, shadow, realScriptableObject.get(index, realScriptableObject));
+                    }
+                    else if (id instanceof String)
+                    {
+                        shadow.put((String) id, shadow, realScriptableObject.get((String) id, realScriptableObject));
+                    }
+                }
+            }
+            else
+            {
+                shadow = new NativeObject();
+                for (final Object id : realScriptableObject.getAllIds())
+                {
+                    if (id instanceof Integer)
+                    {
+                        final int index = ((Integer) id).intValue();
+                        shadow.put(index, shadow, realScriptableObject.get(index, realScriptableObject));
+                        shadow.setAttributes(index, realScriptableObject.getAttributes(index));
+                    }
+                    else if (id instanceof String)
+                    {
+                        shadow.put((String) id, shadow, realScriptableObject.get((String) id, realScriptableObject));
+                        shadow.setAttributes((String) id, realScriptableObject.getAttributes((String) id));
+                    }
+                }
+            }
+
+            shadow.setPrototype(realScriptableObject.getPrototype());
+            shadow.setParentScope(realScriptableObject.getParentScope());
+        }
+        else
+        {
+            shadow = null;
+        }
+        return shadow;
+    }
+
 }
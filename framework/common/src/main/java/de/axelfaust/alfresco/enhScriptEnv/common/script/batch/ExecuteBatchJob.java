@@ -0,0 +1,206 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script.batch;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Instances of this class are handles to batch executions running asynchronously in the background, providing access to the progress of
+ * the execution and allowing scripts to cancel or wait for the execution.
+ *
+ * @author Axel Faust
+ */
+public class ExecuteBatchJob
+{
+
+    protected final String id;
+
+    protected final ExecuteBatchReport report;
+
+    protected final Future<ExecuteBatchReport> future;
+
+    public ExecuteBatchJob(final String id, final ExecuteBatchReport report, final Future<ExecuteBatchReport> future)
+    {
+        this.id = id;
+        this.report = report;
+        this.future = future;
+    }
+
+    /**
+     * @return the id of the job
+     */
+    public String getId()
+    {
+        return this.id;
+    }
+
+    /**
+     * @return the live report of the batch execution
+     */
+    public ExecuteBatchReport getReport()
+    {
+        return this.report;
+    }
+
+    /**
+     * @return the percentage of items processed or {@code -1} if the total number of items can't be estimated
+     */
+    public double getProgress()
+    {
+        return this.report.getPercentComplete();
+    }
+
+    /**
+     * @return the estimated time until the batch execution will have completed in milliseconds or {@code -1} if no estimate is available
+     */
+    public long getEstimatedRemainingTime()
+    {
+        return this.report.getEstimatedRemainingTime();
+    }
+
+    /**
+     * @return {@code true} if the batch execution has completed, either regularly, with an error or due to cancellation
+     */
+    public boolean isDone()
+    {
+        return this.future.isDone();
+    }
+
+    /**
+     * @return {@code true} if the cancellation of the batch execution has been requested
+     */
+    public boolean isCancelled()
+    {
+        return this.report.isCancelled();
+    }
+
+    /**
+     * @return the message of the error that aborted the batch execution or {@code null} if the execution has not (yet) failed
+     */
+    public String getError()
+    {
+        String error = null;
+        if (this.future.isDone())
+        {
+            try
+            {
+                this.future.get();
+            }
+            catch (final ExecutionException ex)
+            {
+                error = ex.getCause() != null ? ex.getCause().getMessage() : ex.getMessage();
+            }
+            catch (final InterruptedException iex)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return error;
+    }
+
+    /**
+     * Requests the cancellation of the batch execution. Work items already being processed will be completed, but any other items will be
+     * skipped.
+     */
+    public void cancel()
+    {
+        // no interruption / cancellation of the future - execution needs to clean up the script state in any case
+        this.report.cancel();
+    }
+
+    /**
+     * Waits for the batch execution to complete.
+     *
+     * @return the report of the batch execution
+     */
+    public ExecuteBatchReport await()
+    {
+        try
+        {
+            return this.future.get();
+        }
+        catch (final ExecutionException ex)
+        {
+            throw this.toRuntimeException(ex);
+        }
+        catch (final InterruptedException iex)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for batch execution", iex);
+        }
+    }
+
+    /**
+     * Waits for the batch execution to complete.
+     *
+     * @param timeoutMillis
+     *            the maximum time to wait in milliseconds
+     * @return {@code true} if the batch execution completed within the timeout, {@code false} otherwise
+     */
+    public boolean await(final long timeoutMillis)
+    {
+        boolean completed;
+        try
+        {
+            this.future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+            completed = true;
+        }
+        catch (final TimeoutException tex)
+        {
+            completed = false;
+        }
+        catch (final ExecutionException ex)
+        {
+            throw this.toRuntimeException(ex);
+        }
+        catch (final InterruptedException iex)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for batch execution", iex);
+        }
+        return completed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("ExecuteBatchJob [id=").append(this.id);
+        builder.append(", done=").append(this.isDone());
+        builder.append(", report=").append(this.report);
+        builder.append("]");
+        return builder.toString();
+    }
+
+    protected RuntimeException toRuntimeException(final ExecutionException ex)
+    {
+        final Throwable cause = ex.getCause();
+        final RuntimeException result;
+        if (cause instanceof RuntimeException)
+        {
+            result = (RuntimeException) cause;
+        }
+        else
+        {
+            result = new IllegalStateException("Batch execution failed", cause);
+        }
+        return result;
+    }
+}
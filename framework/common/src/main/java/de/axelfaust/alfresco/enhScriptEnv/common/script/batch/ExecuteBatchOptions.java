@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script.batch;
+
+/**
+ * Instances of this class hold the optional settings of a single batch execution which scripts may provide as an object in the last
+ * parameter of {@code executeBatch} / {@code executeBatchAsync}.
+ *
+ * @author Axel Faust
+ */
+public class ExecuteBatchOptions
+{
+
+    public static final String LOGGING_INTERVAL = "loggingInterval";
+
+    public static final String PROGRESS_INTERVAL = "progressInterval";
+
+    public static final String ADAPTIVE = "adaptive";
+
+    public static final String IO_BOUND = "ioBound";
+
+    public static final String READ_ONLY = "readOnly";
+
+    public static final String COPY_ON_WRITE = "copyOnWrite";
+
+    protected int loggingInterval;
+
+    protected long progressInterval;
+
+    protected boolean adaptive;
+
+    protected boolean ioBound;
+
+    protected boolean readOnly;
+
+    protected boolean copyOnWrite;
+
+    // set by the map/reduce function itself - not a script option
+    protected boolean mapReduce;
+
+    public ExecuteBatchOptions(final int loggingInterval, final long progressInterval)
+    {
+        this.loggingInterval = loggingInterval;
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * @return the number of processed entries after which progress is logged - a value of {@code 0} or less disables entry-based progress
+     *         logging
+     */
+    public int getLoggingInterval()
+    {
+        return this.loggingInterval;
+    }
+
+    /**
+     * @param loggingInterval
+     *            the loggingInterval to set
+     */
+    public void setLoggingInterval(final int loggingInterval)
+    {
+        this.loggingInterval = loggingInterval;
+    }
+
+    /**
+     * @return the minimum time in milliseconds between two progress log entries - a value of {@code 0} or less disables time-based
+     *         progress sampling
+     */
+    public long getProgressInterval()
+    {
+        return this.progressInterval;
+    }
+
+    /**
+     * @param progressInterval
+     *            the progressInterval to set
+     */
+    public void setProgressInterval(final long progressInterval)
+    {
+        this.progressInterval = progressInterval;
+    }
+
+    /**
+     * @return {@code true} if the thread count and batch size should be adapted during the batch execution based on the measured
+     *         throughput, {@code false} if they should remain fixed
+     */
+    public boolean isAdaptive()
+    {
+        return this.adaptive;
+    }
+
+    /**
+     * @param adaptive
+     *            the adaptive to set
+     */
+    public void setAdaptive(final boolean adaptive)
+    {
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * @return {@code true} if the batch mostly waits on I/O and should be processed by the executor for I/O-bound batches (using virtual
+     *         threads if supported) instead of the regular, platform thread based batch processing
+     */
+    public boolean isIoBound()
+    {
+        return this.ioBound;
+    }
+
+    /**
+     * @param ioBound
+     *            the ioBound to set
+     */
+    public void setIoBound(final boolean ioBound)
+    {
+        this.ioBound = ioBound;
+    }
+
+    /**
+     * Determines whether the batch never writes. Read-only batches are processed in read-only transactions without the overhead of
+     * protecting against partial changes, and any modification of objects of the calling script is rejected.
+     *
+     * @return {@code true} if the batch never writes, {@code false} otherwise
+     */
+    public boolean isReadOnly()
+    {
+        return this.readOnly;
+    }
+
+    /**
+     * @param readOnly
+     *            the readOnly to set
+     */
+    public void setReadOnly(final boolean readOnly)
+    {
+        this.readOnly = readOnly;
+    }
+
+    /**
+     * Determines whether the batch accesses objects of the calling script without locking. In this mode, the first modification of a shared
+     * object by a worker thread creates a thread-local copy which is discarded after the current batch, so modifications are neither
+     * published to the calling script nor visible to other worker threads.
+     *
+     * @return {@code true} if shared objects should be accessed via copy-on-write facades, {@code false} if they should be locked
+     */
+    public boolean isCopyOnWrite()
+    {
+        return this.copyOnWrite;
+    }
+
+    /**
+     * @param copyOnWrite
+     *            the copyOnWrite to set
+     */
+    public void setCopyOnWrite(final boolean copyOnWrite)
+    {
+        this.copyOnWrite = copyOnWrite;
+    }
+
+    /**
+     * @return the mapReduce
+     */
+    public boolean isMapReduce()
+    {
+        return this.mapReduce;
+    }
+
+    /**
+     * @param mapReduce
+     *            the mapReduce to set
+     */
+    public void setMapReduce(final boolean mapReduce)
+    {
+        this.mapReduce = mapReduce;
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("ExecuteBatchOptions [");
+        builder.append("loggingInterval=").append(this.loggingInterval);
+        builder.append(", progressInterval=").append(this.progressInterval);
+        builder.append(", adaptive=").append(this.adaptive);
+        builder.append(", ioBound=").append(this.ioBound);
+        builder.append(", readOnly=").append(this.readOnly);
+        builder.append(", copyOnWrite=").append(this.copyOnWrite);
+        builder.append(", mapReduce=").append(this.mapReduce);
+        builder.append("]");
+        return builder.toString();
+    }
+}
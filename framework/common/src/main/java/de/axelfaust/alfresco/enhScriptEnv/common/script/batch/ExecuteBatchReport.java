@@ -0,0 +1,511 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script.batch;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Instances of this class collect the statistics of a single batch execution. Instances are updated while the batch is being processed and
+ * can be read by scripts at any time to monitor progress or to evaluate the effect of different thread counts / batch sizes after the batch
+ * has completed.
+ *
+ * @author Axel Faust
+ */
+public class ExecuteBatchReport
+{
+
+    public static final int DEFAULT_MAX_RECORDED_ERRORS = 1000;
+
+    protected final int maxRecordedErrors;
+
+    protected final long startTime = System.currentTimeMillis();
+
+    protected volatile long endTime = -1;
+
+    protected final AtomicLong succeeded = new AtomicLong();
+
+    protected final AtomicLong failed = new AtomicLong();
+
+    protected final AtomicLong retries = new AtomicLong();
+
+    protected final AtomicLong skipped = new AtomicLong();
+
+    protected final AtomicLong dispatched = new AtomicLong();
+
+    protected volatile boolean cancelled = false;
+
+    protected final AtomicLong batches = new AtomicLong();
+
+    protected final AtomicLong totalBatchDuration = new AtomicLong();
+
+    protected long minBatchDuration = -1;
+
+    protected long maxBatchDuration = -1;
+
+    protected volatile int threadCount = -1;
+
+    protected volatile int batchSize = -1;
+
+    protected final AtomicLong lastProgressSample = new AtomicLong(this.startTime);
+
+    // committed partial results of map/reduce executions, at most one per concurrently processed batch since batches borrow and extend them
+    protected final Queue<Object> partialResults = new ConcurrentLinkedQueue<Object>();
+
+    // identifier -> error message of failed items, in order of occurrence
+    // only a sample limited to maxRecordedErrors - the failed count is tracked independently
+    protected final Map<String, String> errors = new LinkedHashMap<String, String>();
+
+    public ExecuteBatchReport()
+    {
+        this(DEFAULT_MAX_RECORDED_ERRORS);
+    }
+
+    public ExecuteBatchReport(final int maxRecordedErrors)
+    {
+        this.maxRecordedErrors = maxRecordedErrors;
+    }
+
+    /**
+     * Records the partial result of a map/reduce execution after the batch that produced it has been committed, or returns a previously
+     * {@link #borrowPartialResult() borrowed} partial result unchanged if the batch failed.
+     *
+     * @param partialResult
+     *            the partial result accumulated over the items of the batch and the borrowed partial result it extends
+     */
+    public void recordPartialResult(final Object partialResult)
+    {
+        this.partialResults.add(partialResult);
+    }
+
+    /**
+     * Removes a partial result of a map/reduce execution for a batch to continue the accumulation from. The batch is responsible for
+     * {@link #recordPartialResult(Object) recording} either the extended or the unchanged partial result once it has completed.
+     *
+     * @return the partial result or {@code null} if there is currently no partial result available to be borrowed
+     */
+    public Object borrowPartialResult()
+    {
+        return this.partialResults.poll();
+    }
+
+    /**
+     * Records the successful completion of a batch.
+     *
+     * @param itemCount
+     *            the number of items processed in the batch
+     * @param duration
+     *            the duration of the batch in milliseconds
+     */
+    public void recordBatch(final int itemCount, final long duration)
+    {
+        this.batches.incrementAndGet();
+        this.succeeded.addAndGet(itemCount);
+        this.totalBatchDuration.addAndGet(duration);
+
+        synchronized (this)
+        {
+            if (this.minBatchDuration == -1 || duration < this.minBatchDuration)
+            {
+                this.minBatchDuration = duration;
+            }
+            if (duration > this.maxBatchDuration)
+            {
+                this.maxBatchDuration = duration;
+            }
+        }
+    }
+
+    /**
+     * Records the dispatch of work items by a batch execution that dispatches work on its own, i.e. an adaptively tuned or I/O-bound
+     * batch execution.
+     *
+     * @param itemCount
+     *            the number of items dispatched
+     */
+    public void recordDispatched(final int itemCount)
+    {
+        this.dispatched.addAndGet(itemCount);
+    }
+
+    /**
+     * Records the failure of an item. Repeated failures of the same item, i.e. on retries, must only be recorded once.
+     *
+     * @param identifier
+     *            the identifier of the failed item
+     * @param message
+     *            the error message
+     */
+    public void recordError(final String identifier, final String message)
+    {
+        synchronized (this.errors)
+        {
+            this.failed.incrementAndGet();
+            if (this.errors.size() < this.maxRecordedErrors)
+            {
+                this.errors.put(identifier, message);
+            }
+        }
+    }
+
+    /**
+     * Clears the previously {@link #recordError(String, String) recorded} failure of an item that has been processed successfully on a
+     * retry. The failure is cleared from the failed count even if the item was not included in the limited sample of recorded errors.
+     *
+     * @param identifier
+     *            the identifier of the item
+     */
+    public void clearError(final String identifier)
+    {
+        synchronized (this.errors)
+        {
+            this.failed.decrementAndGet();
+            this.errors.remove(identifier);
+        }
+    }
+
+    /**
+     * Records the thread count and batch size currently used to process the batch execution, which may change over time if the batch
+     * execution is tuned adaptively.
+     *
+     * @param threadCount
+     *            the number of threads
+     * @param batchSize
+     *            the number of items per batch
+     */
+    public void recordSettings(final int threadCount, final int batchSize)
+    {
+        this.threadCount = threadCount;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Records a retry of a batch.
+     */
+    public void recordRetry()
+    {
+        this.retries.incrementAndGet();
+    }
+
+    /**
+     * Records an item that has been skipped due to cancellation of the batch execution.
+     */
+    public void recordSkipped()
+    {
+        this.skipped.incrementAndGet();
+    }
+
+    /**
+     * Requests the cancellation of the batch execution. Items not yet processed will be skipped and no further items will be fetched.
+     */
+    public void cancel()
+    {
+        this.cancelled = true;
+    }
+
+    /**
+     * @return {@code true} if the cancellation of the batch execution has been requested
+     */
+    public boolean isCancelled()
+    {
+        return this.cancelled;
+    }
+
+    /**
+     * Marks the batch execution as completed.
+     */
+    public void complete()
+    {
+        this.endTime = System.currentTimeMillis();
+    }
+
+    /**
+     * Determines whether the progress of the batch execution should be sampled, i.e. logged, at the current time. Of concurrent calls by
+     * multiple threads only one will be granted a sample within the specified interval.
+     *
+     * @param intervalMillis
+     *            the minimum time in milliseconds between two progress samples
+     * @return {@code true} if the calling thread should sample the progress, {@code false} otherwise
+     */
+    public boolean sampleProgress(final long intervalMillis)
+    {
+        boolean sample = false;
+        if (intervalMillis > 0)
+        {
+            final long now = System.currentTimeMillis();
+            final long lastSample = this.lastProgressSample.get();
+            sample = now - lastSample >= intervalMillis && this.lastProgressSample.compareAndSet(lastSample, now);
+        }
+        return sample;
+    }
+
+    /**
+     * @return {@code true} if the batch execution has completed
+     */
+    public boolean isCompleted()
+    {
+        return this.endTime != -1;
+    }
+
+    /**
+     * @return {@code true} if any item failures have been recorded
+     */
+    public boolean hasErrors()
+    {
+        return this.failed.get() > 0;
+    }
+
+    /**
+     * @return the number of items processed either successfully or with an error
+     */
+    public long getProcessed()
+    {
+        return this.getSucceeded() + this.getFailed();
+    }
+
+    /**
+     * @return the number of items processed successfully
+     */
+    public long getSucceeded()
+    {
+        return this.succeeded.get();
+    }
+
+    /**
+     * @return the number of items that failed to be processed
+     */
+    public long getFailed()
+    {
+        return this.failed.get();
+    }
+
+    /**
+     * @return the number of retried batches / items
+     */
+    public long getRetries()
+    {
+        return this.retries.get();
+    }
+
+    /**
+     * @return the number of items skipped due to cancellation
+     */
+    public long getSkipped()
+    {
+        return this.skipped.get();
+    }
+
+    /**
+     * @return the estimated total number of items or {@code -1} if no estimate is available
+     */
+    public long getEstimatedTotal()
+    {
+        // only batch executions dispatching work on their own know about the number of items in the general case
+        final long dispatched = this.dispatched.get();
+        return dispatched > 0 ? dispatched : -1;
+    }
+
+    /**
+     * @return the percentage of items processed in relation to the estimated total number of items or {@code -1} if no estimate is
+     *         available
+     */
+    public double getPercentComplete()
+    {
+        final double percentComplete;
+        final long estimatedTotal = this.getEstimatedTotal();
+        if (this.isCompleted())
+        {
+            percentComplete = 100;
+        }
+        else if (estimatedTotal > 0)
+        {
+            percentComplete = Math.min(100, (this.getProcessed() + this.getSkipped()) * 100d / estimatedTotal);
+        }
+        else
+        {
+            percentComplete = -1;
+        }
+        return percentComplete;
+    }
+
+    /**
+     * @return the estimated time until the batch execution will have completed in milliseconds or {@code -1} if no estimate is available
+     */
+    public long getEstimatedRemainingTime()
+    {
+        final long estimatedRemainingTime;
+        final long estimatedTotal = this.getEstimatedTotal();
+        final double throughput = this.getThroughput();
+        if (this.isCompleted())
+        {
+            estimatedRemainingTime = 0;
+        }
+        else if (estimatedTotal > 0 && throughput > 0)
+        {
+            final long remaining = Math.max(0, estimatedTotal - this.getProcessed() - this.getSkipped());
+            estimatedRemainingTime = Math.round(remaining * 1000d / throughput);
+        }
+        else
+        {
+            estimatedRemainingTime = -1;
+        }
+        return estimatedRemainingTime;
+    }
+
+    /**
+     * @return the number of successfully completed batches
+     */
+    public long getBatches()
+    {
+        return this.batches.get();
+    }
+
+    /**
+     * @return the number of threads currently used to process the batch execution or {@code -1} if not yet known
+     */
+    public int getThreadCount()
+    {
+        return this.threadCount;
+    }
+
+    /**
+     * @return the number of items per batch currently used to process the batch execution or {@code -1} if not yet known
+     */
+    public int getBatchSize()
+    {
+        return this.batchSize;
+    }
+
+    /**
+     * @return the partial results of a map/reduce execution recorded so far
+     */
+    public List<Object> getPartialResults()
+    {
+        return new ArrayList<Object>(this.partialResults);
+    }
+
+    /**
+     * @return the identifiers of failed items (up to the maximum number of recorded errors)
+     */
+    public List<String> getErrorIdentifiers()
+    {
+        synchronized (this.errors)
+        {
+            return new ArrayList<String>(this.errors.keySet());
+        }
+    }
+
+    /**
+     * @return the error messages of failed items mapped by the item identifiers (up to the maximum number of recorded errors)
+     */
+    public Map<String, String> getErrors()
+    {
+        synchronized (this.errors)
+        {
+            return new LinkedHashMap<String, String>(this.errors);
+        }
+    }
+
+    /**
+     * @return the start time of the batch execution in milliseconds since the epoch
+     */
+    public long getStartTime()
+    {
+        return this.startTime;
+    }
+
+    /**
+     * @return the end time of the batch execution in milliseconds since the epoch or {@code -1} if the execution has not yet completed
+     */
+    public long getEndTime()
+    {
+        return this.endTime;
+    }
+
+    /**
+     * @return the total duration of the batch execution (up to now if it has not yet completed) in milliseconds
+     */
+    public long getTotalDuration()
+    {
+        final long endTime = this.endTime;
+        return (endTime != -1 ? endTime : System.currentTimeMillis()) - this.startTime;
+    }
+
+    /**
+     * @return the accumulated duration of all batches in milliseconds
+     */
+    public long getTotalBatchDuration()
+    {
+        return this.totalBatchDuration.get();
+    }
+
+    /**
+     * @return the average duration of a single batch in milliseconds
+     */
+    public long getAverageBatchDuration()
+    {
+        final long batches = this.batches.get();
+        return batches > 0 ? this.totalBatchDuration.get() / batches : 0;
+    }
+
+    /**
+     * @return the minimum duration of a single batch in milliseconds or {@code -1} if no batch has been completed yet
+     */
+    public synchronized long getMinBatchDuration()
+    {
+        return this.minBatchDuration;
+    }
+
+    /**
+     * @return the maximum duration of a single batch in milliseconds or {@code -1} if no batch has been completed yet
+     */
+    public synchronized long getMaxBatchDuration()
+    {
+        return this.maxBatchDuration;
+    }
+
+    /**
+     * @return the number of items processed per second
+     */
+    public double getThroughput()
+    {
+        final long totalDuration = this.getTotalDuration();
+        return totalDuration > 0 ? this.getProcessed() * 1000d / totalDuration : 0;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString()
+    {
+        final StringBuilder builder = new StringBuilder();
+        builder.append("ExecuteBatchReport [processed=").append(this.getProcessed());
+        builder.append(", succeeded=").append(this.getSucceeded());
+        builder.append(", failed=").append(this.getFailed());
+        builder.append(", retries=").append(this.getRetries());
+        builder.append(", skipped=").append(this.getSkipped());
+        builder.append(", batches=").append(this.getBatches());
+        builder.append(", totalDuration=").append(this.getTotalDuration());
+        builder.append(", averageBatchDuration=").append(this.getAverageBatchDuration());
+        builder.append(", throughput=").append(this.getThroughput());
+        builder.append("]");
+        return builder.toString();
+    }
+}
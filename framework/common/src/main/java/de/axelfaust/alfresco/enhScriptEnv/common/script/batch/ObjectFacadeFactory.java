@@ -27,7 +27,31 @@ public interface ObjectFacadeFactory
 
     Scriptable toRealObject(Scriptable facadedObject, Scriptable referenceScope);
 
+    /**
+     * Clears the thread-local state of facades (e.g. facades / copies of objects) of the current thread. Implementations may retain the
+     * (empty) data structures holding this state for reuse by subsequent batches of the same thread.
+     */
     void clearThread();
 
+    /**
+     * Registers the reference scope of a batch execution that only reads shared objects. Facades created for this scope do not need to
+     * lock shared objects and will reject any modification of shared objects or variables of their enclosing scopes (see
+     * {@link CopyOnWriteDelegator}), until the scope is {@link #clearReferenceScope(Scriptable) cleared}.
+     *
+     * @param referenceScope
+     *            the reference scope of the read-only batch execution
+     */
+    void registerReadOnlyReferenceScope(Scriptable referenceScope);
+
+    /**
+     * Registers the reference scope of a batch execution that opted into copy-on-write access to shared objects. Facades created for this
+     * scope do not lock shared objects and redirect any modification to thread-local copies (see {@link CopyOnWriteDelegator}), until the
+     * scope is {@link #clearReferenceScope(Scriptable) cleared}.
+     *
+     * @param referenceScope
+     *            the reference scope of the copy-on-write batch execution
+     */
+    void registerCopyOnWriteReferenceScope(Scriptable referenceScope);
+
     void clearReferenceScope(Scriptable referenceScope);
 }
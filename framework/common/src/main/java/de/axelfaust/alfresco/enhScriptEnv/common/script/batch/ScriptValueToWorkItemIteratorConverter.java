@@ -0,0 +1,45 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script.batch;
+
+import java.util.Iterator;
+
+/**
+ * Instances of this interface convert script values into lazily evaluated sources of work items which can be processed in a batch without
+ * materializing all items in memory at once.
+ *
+ * @author Axel Faust
+ */
+public interface ScriptValueToWorkItemIteratorConverter
+{
+    /**
+     * Determines if this converter supports the conversion of the provided value object to an iterator of work items to be processed in a
+     * batch
+     *
+     * @param workValue
+     *            the script value object representing a source of items to be processed in a batch
+     * @return {@code true} if this converter supports the value object, {@code false} otherwise
+     */
+    boolean isSupported(Object workValue);
+
+    /**
+     * Converts a value object to an iterator of work items to be processed in a batch. The iterator will only be used by the thread calling
+     * the batch function.
+     *
+     * @param workValue
+     *            the script value object representing a source of items to be processed in a batch
+     * @return the lazily evaluated iterator of items to be processed in a batch
+     */
+    Iterator<?> convert(Object workValue);
+}
@@ -19,6 +19,9 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.mozilla.javascript.Context;
@@ -44,6 +47,8 @@ public class StateLockingDelegator extends ObjectFacadingDelegator
 
     protected static final Map<Scriptable, Map<Scriptable, StateLockingDelegator>> DELEGATOR_MAP_BY_SCOPE_CONTEXT = new WeakHashMap<Scriptable, Map<Scriptable, StateLockingDelegator>>();
 
+    protected static final AtomicLong LOCK_WAIT_TIME = new AtomicLong();
+
     protected final ReentrantReadWriteLock stateLock = new ReentrantReadWriteLock(true);
 
     protected final ThreadLocal<String> mostRecentAccessName = new ThreadLocal<String>();
@@ -53,6 +58,17 @@ public class StateLockingDelegator extends ObjectFacadingDelegator
         super(refereneScope, delegee, facadeFactory);
     }
 
+    /**
+     * Retrieves the accumulated time threads have been blocked waiting to lock the state of any shared script object. Since the value is
+     * accumulated over all batch executions, callers interested in the contention of a specific time frame need to compare two samples.
+     *
+     * @return the accumulated wait time in nanoseconds
+     */
+    public static long getAccumulatedLockWaitTime()
+    {
+        return LOCK_WAIT_TIME.get();
+    }
+
     public void setMostRecentAccessName(final String accessName)
     {
         this.mostRecentAccessName.set(accessName);
@@ -441,7 +457,7 @@ public class StateLockingDelegator extends ObjectFacadingDelegator
 
     protected void writeLock()
     {
-        this.stateLock.writeLock().lock();
+        this.lock(this.stateLock.writeLock());
     }
 
     protected void writeUnlock()
@@ -451,11 +467,33 @@ public class StateLockingDelegator extends ObjectFacadingDelegator
 
     protected void readLock()
     {
-        this.stateLock.readLock().lock();
+        this.lock(this.stateLock.readLock());
     }
 
     protected void readUnlock()
     {
         this.stateLock.readLock().unlock();
     }
+
+    protected void lock(final Lock lock)
+    {
+        boolean locked;
+        try
+        {
+            // zero-timeout tryLock honors the fairness setting (in contrast to plain tryLock) and only avoids timing uncontended locks
+            locked = lock.tryLock(0, TimeUnit.NANOSECONDS);
+        }
+        catch (final InterruptedException iex)
+        {
+            Thread.currentThread().interrupt();
+            locked = false;
+        }
+
+        if (!locked)
+        {
+            final long waitStart = System.nanoTime();
+            lock.lock();
+            LOCK_WAIT_TIME.addAndGet(System.nanoTime() - waitStart);
+        }
+    }
 }
@@ -16,6 +16,10 @@ package de.axelfaust.alfresco.enhScriptEnv.common.script.batch;
 import org.mozilla.javascript.Scriptable;
 
 /**
+ * Instances of this class are installed as the parent scope of script functions shared between the threads of a batch execution in order
+ * to redirect any access to variables of enclosing scopes to a thread-specific scope. Threads without such an effective scope access the
+ * real parent scope of the function.
+ *
  * @author Axel Faust
  */
 public class ThreadLocalParentScope implements Scriptable
@@ -29,6 +33,10 @@ public class ThreadLocalParentScope implements Scriptable
 
     private final ThreadLocal<Scriptable> delegate = new ThreadLocal<Scriptable>();
 
+    // number of batch executions that redirected the function via this scope - only used for scopes installed by facade factories
+    // (guarded by the function)
+    private int redirections;
+
     public ThreadLocalParentScope(final Scriptable objectParentScope, final Scriptable globalScope, final ObjectFacadeFactory facadeFactory)
     {
         this.objectParentScope = objectParentScope;
@@ -51,6 +59,30 @@ public class ThreadLocalParentScope implements Scriptable
         this.delegate.remove();
     }
 
+    /**
+     * Redirects the parent scope for the current thread to the facade of the real parent scope without adapting the facade in any way.
+     *
+     * @param redirectedParentScope
+     *            the facade of the real parent scope
+     */
+    public void setRedirectedParentScope(final Scriptable redirectedParentScope)
+    {
+        this.delegate.set(redirectedParentScope);
+    }
+
+    public void removeRedirectedParentScope()
+    {
+        this.delegate.remove();
+    }
+
+    /**
+     * @return {@code true} if the parent scope has been redirected for the current thread, {@code false} otherwise
+     */
+    public boolean isRedirected()
+    {
+        return this.delegate.get() != null;
+    }
+
     /**
      * @return the realParentScope
      */
@@ -65,7 +97,7 @@ public class ThreadLocalParentScope implements Scriptable
     @Override
     public String getClassName()
     {
-        return this.delegate.get().getClassName();
+        return this.getDelegate().getClassName();
     }
 
     /**
@@ -74,7 +106,7 @@ public class ThreadLocalParentScope implements Scriptable
     @Override
     public Object get(final String name, final Scriptable start)
     {
-        return this.delegate.get().get(name, start == this ? this.delegate.get() : start);
+        return this.getDelegate().get(name, start == this ? this.getDelegate() : start);
     }
 
     /**
@@ -83,7 +115,7 @@ public class ThreadLocalParentScope implements Scriptable
     @Override
     public Object get(final int index, final Scriptable start)
     {
-        return this.delegate.get().get(index, start == this ? this.delegate.get() : start);
+        return this.getDelegate().get(index, start == this ? this.getDelegate() : start);
     }
 
     /**
@@ -92,7 +124,7 @@ public class ThreadLocalParentScope implements Scriptable
     @Override
     public boolean has(final String name, final Scriptable start)
     {
-        return this.delegate.get().has(name, start == this ? this.delegate.get() : start);
+        return this.getDelegate().has(name, start == this ? this.getDelegate() : start);
     }
 
     /**
@@ -101,7 +133,7 @@ public class ThreadLocalParentScope implements Scriptable
     @Override
     public boolean has(final int index, final Scriptable start)
     {
-        return this.delegate.get().has(index, start == this ? this.delegate.get() : start);
+        return this.getDelegate().has(index, start == this ? this.getDelegate() : start);
     }
 
     /**
@@ -110,7 +142,7 @@ public class ThreadLocalParentScope implements Scriptable
     @Override
     public void put(final String name, final Scriptable start, final Object value)
     {
-        this.delegate.get().put(name, start == this ? this.delegate.get() : start, value);
+        this.getDelegate().put(name, start == this ? this.getDelegate() : start, value);
     }
 
     /**
@@ -119,7 +151,7 @@ public class ThreadLocalParentScope implements Scriptable
     @Override
     public void put(final int index, final Scriptable start, final Object value)
     {
-        this.delegate.get().put(index, start == this ? this.delegate.get() : start, value);
+        this.getDelegate().put(index, start == this ? this.getDelegate() : start, value);
     }
 
     /**
@@ -128,7 +160,7 @@ public class ThreadLocalParentScope implements Scriptable
     @Override
     public void delete(final String name)
     {
-        this.delegate.get().delete(name);
+        this.getDelegate().delete(name);
     }
 
     /**
@@ -137,7 +169,7 @@ public class ThreadLocalParentScope implements Scriptable
     @Override
     public void delete(final int index)
     {
-        this.delegate.get().delete(index);
+        this.getDelegate().delete(index);
     }
 
     /**
@@ -146,7 +178,7 @@ public class ThreadLocalParentScope implements Scriptable
     @Override
     public Scriptable getPrototype()
     {
-        return this.delegate.get().getPrototype();
+        return this.getDelegate().getPrototype();
     }
 
     /**
@@ -155,7 +187,7 @@ public class ThreadLocalParentScope implements Scriptable
     @Override
     public void setPrototype(final Scriptable prototype)
     {
-        this.delegate.get().setPrototype(prototype);
+        this.getDelegate().setPrototype(prototype);
     }
 
     /**
@@ -164,7 +196,7 @@ public class ThreadLocalParentScope implements Scriptable
     @Override
     public Scriptable getParentScope()
     {
-        return this.delegate.get().getParentScope();
+        return this.getDelegate().getParentScope();
     }
 
     /**
@@ -173,7 +205,7 @@ public class ThreadLocalParentScope implements Scriptable
     @Override
     public void setParentScope(final Scriptable parent)
     {
-        this.delegate.get().setParentScope(parent);
+        this.getDelegate().setParentScope(parent);
     }
 
     /**
@@ -182,7 +214,7 @@ public class ThreadLocalParentScope implements Scriptable
     @Override
     public Object[] getIds()
     {
-        return this.delegate.get().getIds();
+        return this.getDelegate().getIds();
     }
 
     /**
@@ -191,7 +223,7 @@ public class ThreadLocalParentScope implements Scriptable
     @Override
     public Object getDefaultValue(@SuppressWarnings("rawtypes") final Class hint)
     {
-        return this.delegate.get().getDefaultValue(hint);
+        return this.getDelegate().getDefaultValue(hint);
     }
 
     /**
@@ -200,7 +232,22 @@ public class ThreadLocalParentScope implements Scriptable
     @Override
     public boolean hasInstance(final Scriptable instance)
     {
-        return this.delegate.get().hasInstance(instance);
+        return this.getDelegate().hasInstance(instance);
+    }
+
+    protected int getRedirections()
+    {
+        return this.redirections;
+    }
+
+    protected void setRedirections(final int redirections)
+    {
+        this.redirections = redirections;
     }
 
+    protected Scriptable getDelegate()
+    {
+        final Scriptable delegate = this.delegate.get();
+        return delegate != null ? delegate : this.objectParentScope;
+    }
 }
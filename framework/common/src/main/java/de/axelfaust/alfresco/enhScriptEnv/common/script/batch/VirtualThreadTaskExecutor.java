@@ -0,0 +1,289 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script.batch;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+
+import org.alfresco.util.TraceableThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Executor for batches of I/O-bound batch executions which runs each task on a virtual thread of its own if supported by the JVM, falling
+ * back to a fixed pool of platform threads otherwise. Since virtual threads are cheap to create and to block, the number of batches
+ * processed concurrently can be significantly higher than with the regular batch processor, and is only bounded by the
+ * {@link #getMaxConcurrency() maximum concurrency} to protect shared resources like the database connection pool. This bound applies to
+ * the tasks of all batch executions combined and is derived from the size of the database connection pool if configured.
+ *
+ * Virtual threads are created reflectively so this class remains compatible with JVMs that do not provide them.
+ *
+ * @author Axel Faust
+ */
+public class VirtualThreadTaskExecutor implements InitializingBean, DisposableBean
+{
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadTaskExecutor.class);
+
+    private static final int DEFAULT_PLATFORM_THREADS = 4;
+
+    private static final int DEFAULT_MAX_VIRTUAL_CONCURRENCY = 64;
+
+    private static final float DEFAULT_DATABASE_POOL_SHARE = 0.25f;
+
+    protected boolean preferVirtualThreads = true;
+
+    protected int platformThreads = DEFAULT_PLATFORM_THREADS;
+
+    protected int maxVirtualConcurrency = DEFAULT_MAX_VIRTUAL_CONCURRENCY;
+
+    protected int databasePoolSize = -1;
+
+    protected float databasePoolShare = DEFAULT_DATABASE_POOL_SHARE;
+
+    protected String threadNamePrefix = "ScriptBatchIO";
+
+    protected ExecutorService executor;
+
+    protected boolean virtual;
+
+    protected int maxConcurrency;
+
+    // shared by all batch executions - each task may hold a database connection
+    protected Semaphore concurrencyPermits;
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterPropertiesSet()
+    {
+        if (this.platformThreads <= 0)
+        {
+            throw new IllegalStateException("platformThreads must be positive");
+        }
+        if (this.maxVirtualConcurrency <= 0)
+        {
+            throw new IllegalStateException("maxVirtualConcurrency must be positive");
+        }
+        if (this.databasePoolShare <= 0 || this.databasePoolShare > 1)
+        {
+            throw new IllegalStateException("databasePoolShare must be in the range (0, 1]");
+        }
+
+        if (this.preferVirtualThreads)
+        {
+            this.executor = this.createVirtualThreadExecutor();
+            this.virtual = this.executor != null;
+        }
+
+        if (this.executor == null)
+        {
+            final TraceableThreadFactory threadFactory = new TraceableThreadFactory();
+            threadFactory.setNamePrefix(this.threadNamePrefix);
+            threadFactory.setThreadDaemon(true);
+            this.executor = Executors.newFixedThreadPool(this.platformThreads, threadFactory);
+        }
+
+        int maxConcurrency = this.virtual ? this.maxVirtualConcurrency : this.platformThreads;
+        if (this.databasePoolSize > 0)
+        {
+            maxConcurrency = Math.min(maxConcurrency, Math.max(1, (int) (this.databasePoolSize * this.databasePoolShare)));
+        }
+        this.maxConcurrency = maxConcurrency;
+        // fair so that concurrent batch executions take turns instead of one starving the others
+        this.concurrencyPermits = new Semaphore(maxConcurrency, true);
+
+        LOGGER.info("Using {} for I/O-bound batch executions with a maximum concurrency of {}", this.virtual ? "virtual threads"
+                : "platform threads", Integer.valueOf(this.maxConcurrency));
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void destroy()
+    {
+        if (this.executor != null)
+        {
+            this.executor.shutdownNow();
+        }
+    }
+
+    /**
+     * @param preferVirtualThreads
+     *            {@code true} if virtual threads should be used when supported by the JVM
+     */
+    public void setPreferVirtualThreads(final boolean preferVirtualThreads)
+    {
+        this.preferVirtualThreads = preferVirtualThreads;
+    }
+
+    /**
+     * @param platformThreads
+     *            the number of platform threads to use if virtual threads are not supported / preferred
+     */
+    public void setPlatformThreads(final int platformThreads)
+    {
+        this.platformThreads = platformThreads;
+    }
+
+    /**
+     * @param maxVirtualConcurrency
+     *            the maximum number of tasks of all batch executions to run concurrently on virtual threads
+     */
+    public void setMaxVirtualConcurrency(final int maxVirtualConcurrency)
+    {
+        this.maxVirtualConcurrency = maxVirtualConcurrency;
+    }
+
+    /**
+     * @param databasePoolSize
+     *            the maximum size of the database connection pool - if set, the maximum concurrency is limited to the
+     *            {@link #setDatabasePoolShare(float) share} of the pool available to I/O-bound batch executions
+     */
+    public void setDatabasePoolSize(final int databasePoolSize)
+    {
+        this.databasePoolSize = databasePoolSize;
+    }
+
+    /**
+     * @param databasePoolShare
+     *            the share of the database connection pool available to all I/O-bound batch executions combined
+     */
+    public void setDatabasePoolShare(final float databasePoolShare)
+    {
+        this.databasePoolShare = databasePoolShare;
+    }
+
+    /**
+     * @param threadNamePrefix
+     *            the threadNamePrefix to set
+     */
+    public void setThreadNamePrefix(final String threadNamePrefix)
+    {
+        this.threadNamePrefix = threadNamePrefix;
+    }
+
+    /**
+     * @return {@code true} if tasks are executed on virtual threads, {@code false} if they are executed on platform threads
+     */
+    public boolean isVirtual()
+    {
+        return this.virtual;
+    }
+
+    /**
+     * @return the maximum number of tasks of all batch executions that will be run concurrently
+     */
+    public int getMaxConcurrency()
+    {
+        return this.maxConcurrency;
+    }
+
+    /**
+     * Submits a task for execution, blocking until the number of tasks being run concurrently is below the
+     * {@link #getMaxConcurrency() maximum concurrency}.
+     *
+     * @param task
+     *            the task to execute
+     * @return the future of the task
+     */
+    public Future<?> submit(final Runnable task)
+    {
+        try
+        {
+            this.concurrencyPermits.acquire();
+        }
+        catch (final InterruptedException iex)
+        {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for tasks of I/O-bound batch executions to complete", iex);
+        }
+
+        try
+        {
+            final Future<?> future = this.executor.submit(new Runnable()
+            {
+
+                /**
+                 *
+                 * {@inheritDoc}
+                 */
+                @Override
+                public void run()
+                {
+                    try
+                    {
+                        task.run();
+                    }
+                    finally
+                    {
+                        VirtualThreadTaskExecutor.this.concurrencyPermits.release();
+                    }
+                }
+            });
+            return future;
+        }
+        catch (final RejectedExecutionException reex)
+        {
+            this.concurrencyPermits.release();
+            throw reex;
+        }
+    }
+
+    protected ExecutorService createVirtualThreadExecutor()
+    {
+        ExecutorService executor = null;
+        try
+        {
+            // equivalent of Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(prefix, 0).factory())
+            final Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            final Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builderClass.getMethod("name", String.class, long.class).invoke(builder, this.threadNamePrefix, Long.valueOf(0));
+            final ThreadFactory threadFactory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+
+            final Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            executor = (ExecutorService) newExecutor.invoke(null, threadFactory);
+        }
+        catch (final ClassNotFoundException cnfe)
+        {
+            LOGGER.debug("JVM does not support virtual threads");
+        }
+        catch (final NoSuchMethodException nsme)
+        {
+            LOGGER.debug("JVM does not support virtual threads");
+        }
+        catch (final IllegalAccessException iae)
+        {
+            LOGGER.warn("Virtual threads are not accessible - falling back to platform threads", iae);
+        }
+        catch (final InvocationTargetException ite)
+        {
+            // e.g. UnsupportedOperationException if virtual threads are a preview feature that has not been enabled
+            LOGGER.info("Virtual threads are not enabled - falling back to platform threads: {}", ite.getTargetException().getMessage());
+        }
+        return executor;
+    }
+}
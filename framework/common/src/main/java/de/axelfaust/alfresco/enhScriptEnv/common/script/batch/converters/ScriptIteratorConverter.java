@@ -0,0 +1,195 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script.batch.converters;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.JavaScriptException;
+import org.mozilla.javascript.NativeArray;
+import org.mozilla.javascript.NativeJavaObject;
+import org.mozilla.javascript.ScriptRuntime;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.Undefined;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.ScriptValueToWorkItemIteratorConverter;
+
+/**
+ * Converts a script iterator object into a lazily evaluated iterator of work items. Supported are JavaScript 1.7 iterators / generators
+ * which signal the end of iteration by throwing {@code StopIteration} as well as iterator objects that follow the iterator protocol of
+ * later language versions by returning results with {@code done} / {@code value} properties from their {@code next} function. As is the
+ * case for arrays, {@code null} and {@code undefined} elements are skipped.
+ *
+ * @author Axel Faust
+ */
+public class ScriptIteratorConverter implements ScriptValueToWorkItemIteratorConverter
+{
+
+    private static final String NEXT_FUNC_NAME = "next";
+
+    private static final String STOP_ITERATION_CLASS_NAME = "StopIteration";
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSupported(final Object workValue)
+    {
+        final boolean supported;
+        if (workValue instanceof Scriptable && !(workValue instanceof NativeArray) && !(workValue instanceof NativeJavaObject))
+        {
+            final Object nextFn = ScriptableObject.getProperty((Scriptable) workValue, NEXT_FUNC_NAME);
+            supported = nextFn instanceof Function;
+        }
+        else
+        {
+            supported = false;
+        }
+
+        return supported;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<?> convert(final Object workValue)
+    {
+        final Iterator<?> converted;
+        if (this.isSupported(workValue))
+        {
+            converted = new ScriptIterator((Scriptable) workValue);
+        }
+        else
+        {
+            converted = Collections.emptySet().iterator();
+        }
+        return converted;
+    }
+
+    protected static class ScriptIterator implements Iterator<Object>
+    {
+
+        private final Scriptable iterator;
+
+        private Object next;
+
+        private boolean exhausted = false;
+
+        protected ScriptIterator(final Scriptable iterator)
+        {
+            this.iterator = iterator;
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean hasNext()
+        {
+            if (this.next == null && !this.exhausted)
+            {
+                this.fetchNext();
+            }
+            return this.next != null;
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public Object next()
+        {
+            if (!this.hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+
+            final Object next = this.next;
+            this.next = null;
+            return next;
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public void remove()
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        protected void fetchNext()
+        {
+            final Context cx = Context.enter();
+            try
+            {
+                final Scriptable scope = ScriptableObject.getTopLevelScope(this.iterator);
+                while (this.next == null && !this.exhausted)
+                {
+                    final Object nextFn = ScriptableObject.getProperty(this.iterator, NEXT_FUNC_NAME);
+                    if (nextFn instanceof Function)
+                    {
+                        try
+                        {
+                            final Object result = ((Function) nextFn).call(cx, scope, this.iterator, new Object[0]);
+
+                            final Object element;
+                            if (result instanceof Scriptable && ScriptableObject.hasProperty((Scriptable) result, "done"))
+                            {
+                                this.exhausted = ScriptRuntime.toBoolean(ScriptableObject.getProperty((Scriptable) result, "done"));
+                                element = this.exhausted ? null : ScriptableObject.getProperty((Scriptable) result, "value");
+                            }
+                            else
+                            {
+                                element = result;
+                            }
+
+                            if (element != null && element != Undefined.instance && element != Scriptable.NOT_FOUND)
+                            {
+                                this.next = element;
+                            }
+                        }
+                        catch (final JavaScriptException ex)
+                        {
+                            final Object value = ex.getValue();
+                            if (value instanceof Scriptable && STOP_ITERATION_CLASS_NAME.equals(((Scriptable) value).getClassName()))
+                            {
+                                this.exhausted = true;
+                            }
+                            else
+                            {
+                                throw ex;
+                            }
+                        }
+                    }
+                    else
+                    {
+                        this.exhausted = true;
+                    }
+                }
+            }
+            finally
+            {
+                Context.exit();
+            }
+        }
+    }
+}
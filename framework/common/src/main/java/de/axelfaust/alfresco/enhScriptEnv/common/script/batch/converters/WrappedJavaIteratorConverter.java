@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script.batch.converters;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.mozilla.javascript.NativeJavaObject;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.ScriptValueToWorkItemIteratorConverter;
+
+/**
+ * Converts a Java iterator or (non-collection) iterable wrapped as a Rhino {@link NativeJavaObject} into a lazily evaluated iterator of
+ * work items. Collections are not supported as they are already fully materialized and can be handled by
+ * {@link WrappedJavaCollectionConverter}.
+ *
+ * @author Axel Faust
+ */
+public class WrappedJavaIteratorConverter implements ScriptValueToWorkItemIteratorConverter
+{
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isSupported(final Object workValue)
+    {
+        final boolean supported;
+        if (workValue instanceof NativeJavaObject)
+        {
+            final Object unwrapped = ((NativeJavaObject) workValue).unwrap();
+            supported = unwrapped instanceof Iterator<?> || (unwrapped instanceof Iterable<?> && !(unwrapped instanceof Collection<?>));
+        }
+        else
+        {
+            supported = false;
+        }
+
+        return supported;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Iterator<?> convert(final Object workValue)
+    {
+        final Iterator<?> converted;
+        if (workValue instanceof NativeJavaObject)
+        {
+            final Object unwrapped = ((NativeJavaObject) workValue).unwrap();
+            if (unwrapped instanceof Iterator<?>)
+            {
+                converted = (Iterator<?>) unwrapped;
+            }
+            else if (unwrapped instanceof Iterable<?>)
+            {
+                converted = ((Iterable<?>) unwrapped).iterator();
+            }
+            else
+            {
+                converted = Collections.emptySet().iterator();
+            }
+        }
+        else
+        {
+            converted = Collections.emptySet().iterator();
+        }
+        return converted;
+    }
+
+}
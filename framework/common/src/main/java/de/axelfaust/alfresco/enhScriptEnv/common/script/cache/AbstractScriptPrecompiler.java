@@ -0,0 +1,384 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script.cache;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.alfresco.util.PropertyCheck;
+import org.alfresco.util.TraceableThreadFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.ResourcePatternResolver;
+
+import de.axelfaust.alfresco.enhScriptEnv.common.script.registry.ScriptRegistry;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.registry.ScriptSelectionCondition;
+
+/**
+ * Base class for an optional warm-up phase that compiles all registered scripts as well as scripts located below a set of configured
+ * classpath roots on application context startup, so that the first execution of these scripts does not need to pay the cost of
+ * compilation. Compilation is performed in parallel on a bounded pool of threads and completes before handling of the context refresh
+ * completes.
+ *
+ * @author Axel Faust
+ */
+public abstract class AbstractScriptPrecompiler<BaseScript> implements InitializingBean, ApplicationListener<ContextRefreshedEvent>
+{
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AbstractScriptPrecompiler.class);
+
+    private static final int DEFAULT_MAX_THREADS = 2;
+
+    private static final int DEFAULT_TIMEOUT_SECONDS = 300;
+
+    protected boolean enabled = false;
+
+    protected ScriptRegistry<BaseScript> scriptRegistry;
+
+    protected ResourcePatternResolver resourcePatternResolver;
+
+    protected List<String> classpathRoots = Collections.emptyList();
+
+    protected int maxThreads = DEFAULT_MAX_THREADS;
+
+    protected int timeoutSeconds = DEFAULT_TIMEOUT_SECONDS;
+
+    // refresh events of child contexts are propagated to us as well
+    protected final AtomicBoolean precompiled = new AtomicBoolean(false);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterPropertiesSet()
+    {
+        PropertyCheck.mandatory(this, "scriptRegistry", this.scriptRegistry);
+        if (!this.classpathRoots.isEmpty())
+        {
+            PropertyCheck.mandatory(this, "resourcePatternResolver", this.resourcePatternResolver);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onApplicationEvent(final ContextRefreshedEvent event)
+    {
+        if (this.enabled && this.precompiled.compareAndSet(false, true))
+        {
+            this.precompileScripts();
+        }
+    }
+
+    /**
+     * @param enabled
+     *            the enabled to set
+     */
+    public final void setEnabled(final boolean enabled)
+    {
+        this.enabled = enabled;
+    }
+
+    /**
+     * @param scriptRegistry
+     *            the scriptRegistry to set
+     */
+    public final void setScriptRegistry(final ScriptRegistry<BaseScript> scriptRegistry)
+    {
+        this.scriptRegistry = scriptRegistry;
+    }
+
+    /**
+     * @param resourcePatternResolver
+     *            the resourcePatternResolver to set
+     */
+    public final void setResourcePatternResolver(final ResourcePatternResolver resourcePatternResolver)
+    {
+        this.resourcePatternResolver = resourcePatternResolver;
+    }
+
+    /**
+     * @param classpathRoots
+     *            the classpath roots below which all scripts should be compiled (without any classpath: prefix or wildcards)
+     */
+    public final void setClasspathRoots(final String[] classpathRoots)
+    {
+        final List<String> roots = new ArrayList<String>();
+        if (classpathRoots != null)
+        {
+            for (final String classpathRoot : Arrays.asList(classpathRoots))
+            {
+                final String root = classpathRoot.trim().replaceAll("^/+|/+$", "");
+                if (root.length() > 0)
+                {
+                    roots.add(root);
+                }
+            }
+        }
+        this.classpathRoots = roots;
+    }
+
+    /**
+     * @param maxThreads
+     *            the maxThreads to set
+     */
+    public final void setMaxThreads(final int maxThreads)
+    {
+        this.maxThreads = maxThreads;
+    }
+
+    /**
+     * @param timeoutSeconds
+     *            the timeoutSeconds to set
+     */
+    public final void setTimeoutSeconds(final int timeoutSeconds)
+    {
+        this.timeoutSeconds = timeoutSeconds;
+    }
+
+    /**
+     * Compiles all registered scripts and scripts below the configured classpath roots.
+     */
+    protected void precompileScripts()
+    {
+        final long startTime = System.currentTimeMillis();
+
+        final Map<String, Callable<Boolean>> compilations = new LinkedHashMap<String, Callable<Boolean>>();
+        this.collectRegisteredScriptCompilations(compilations);
+        this.collectClasspathScriptCompilations(compilations);
+
+        if (compilations.isEmpty())
+        {
+            LOGGER.info("No scripts found to precompile");
+        }
+        else
+        {
+            final int threadCount = Math.max(1, Math.min(this.maxThreads, compilations.size()));
+            final TraceableThreadFactory threadFactory = new TraceableThreadFactory();
+            threadFactory.setNamePrefix("ScriptPrecompiler");
+            threadFactory.setThreadDaemon(true);
+            final ExecutorService executor = Executors.newFixedThreadPool(threadCount, threadFactory);
+
+            final List<String> descriptions = new ArrayList<String>(compilations.keySet());
+            final List<Callable<Boolean>> tasks = new ArrayList<Callable<Boolean>>(compilations.values());
+
+            int compiled = 0;
+            int skipped = 0;
+            int failed = 0;
+            try
+            {
+                final List<Future<Boolean>> results = executor.invokeAll(tasks, this.timeoutSeconds, TimeUnit.SECONDS);
+                for (int idx = 0; idx < results.size(); idx++)
+                {
+                    try
+                    {
+                        if (Boolean.TRUE.equals(results.get(idx).get()))
+                        {
+                            compiled++;
+                        }
+                        else
+                        {
+                            skipped++;
+                        }
+                    }
+                    catch (final CancellationException ex)
+                    {
+                        LOGGER.warn("Precompilation of {} did not complete within {} seconds", descriptions.get(idx),
+                                Integer.valueOf(this.timeoutSeconds));
+                        failed++;
+                    }
+                    catch (final ExecutionException ex)
+                    {
+                        LOGGER.warn("Failed to precompile {}: {}", descriptions.get(idx), ex.getCause().getMessage());
+                        LOGGER.debug("Precompilation failure details", ex.getCause());
+                        failed++;
+                    }
+                }
+            }
+            catch (final InterruptedException ex)
+            {
+                Thread.currentThread().interrupt();
+                LOGGER.warn("Interrupted while precompiling scripts");
+            }
+            finally
+            {
+                executor.shutdownNow();
+            }
+
+            LOGGER.info("Precompiled {} scripts ({} skipped, {} failed) in {} ms using {} threads",
+                    new Object[] { Integer.valueOf(compiled), Integer.valueOf(skipped), Integer.valueOf(failed),
+                            Long.valueOf(System.currentTimeMillis() - startTime), Integer.valueOf(threadCount) });
+        }
+    }
+
+    protected void collectRegisteredScriptCompilations(final Map<String, Callable<Boolean>> compilations)
+    {
+        final ScriptSelectionCondition condition = this.getApplicableCondition();
+
+        for (final String scriptName : this.scriptRegistry.getScriptNames())
+        {
+            BaseScript script = condition != null ? this.scriptRegistry.getScript(scriptName, condition) : null;
+            if (script == null)
+            {
+                script = this.scriptRegistry.getScript(scriptName);
+            }
+
+            if (script != null)
+            {
+                compilations.put("registered script " + scriptName, this.createRegisteredScriptCompilation(scriptName, script));
+            }
+        }
+
+        for (final String subRegistry : this.scriptRegistry.getSubRegistryNames())
+        {
+            for (final String scriptName : this.scriptRegistry.getScriptNames(subRegistry))
+            {
+                BaseScript script = condition != null ? this.scriptRegistry.getScript(scriptName, subRegistry, condition) : null;
+                if (script == null)
+                {
+                    script = this.scriptRegistry.getScript(scriptName, subRegistry);
+                }
+
+                if (script != null)
+                {
+                    final String fullName = scriptName + "@" + subRegistry;
+                    compilations.put("registered script " + fullName, this.createRegisteredScriptCompilation(fullName, script));
+                }
+            }
+        }
+    }
+
+    protected void collectClasspathScriptCompilations(final Map<String, Callable<Boolean>> compilations)
+    {
+        for (final String classpathRoot : this.classpathRoots)
+        {
+            try
+            {
+                final Resource[] resources = this.resourcePatternResolver.getResources("classpath*:" + classpathRoot + "/**/*.js");
+                for (final Resource resource : resources)
+                {
+                    final String url = resource.getURL().toExternalForm();
+                    final int rootIndex = url.lastIndexOf("/" + classpathRoot + "/");
+                    if (rootIndex != -1)
+                    {
+                        final String classpath = url.substring(rootIndex + 1);
+                        // first resource on the classpath wins, just as during script execution
+                        final String description = "classpath script " + classpath;
+                        if (!compilations.containsKey(description))
+                        {
+                            compilations.put(description, this.createClasspathScriptCompilation(classpath));
+                        }
+                    }
+                    else
+                    {
+                        LOGGER.debug("Unable to determine classpath of {} below root {}", url, classpathRoot);
+                    }
+                }
+            }
+            catch (final IOException ex)
+            {
+                LOGGER.warn("Failed to resolve scripts below classpath root {}: {}", classpathRoot, ex.getMessage());
+            }
+        }
+    }
+
+    protected Callable<Boolean> createRegisteredScriptCompilation(final String scriptName, final BaseScript script)
+    {
+        return new Callable<Boolean>()
+        {
+
+            /**
+             *
+             * {@inheritDoc}
+             */
+            @Override
+            public Boolean call()
+            {
+                final long startTime = System.currentTimeMillis();
+                final boolean compiled = AbstractScriptPrecompiler.this.precompileRegisteredScript(script);
+                LOGGER.debug("Precompiled registered script {} in {} ms", scriptName,
+                        Long.valueOf(System.currentTimeMillis() - startTime));
+                return Boolean.valueOf(compiled);
+            }
+        };
+    }
+
+    protected Callable<Boolean> createClasspathScriptCompilation(final String classpath)
+    {
+        return new Callable<Boolean>()
+        {
+
+            /**
+             *
+             * {@inheritDoc}
+             */
+            @Override
+            public Boolean call()
+            {
+                final long startTime = System.currentTimeMillis();
+                final boolean compiled = AbstractScriptPrecompiler.this.precompileClasspathScript(classpath);
+                LOGGER.debug("Precompiled classpath script {} in {} ms", classpath, Long.valueOf(System.currentTimeMillis() - startTime));
+                return Boolean.valueOf(compiled);
+            }
+        };
+    }
+
+    /**
+     * Determines the condition to use for selecting the applicable version of a registered script.
+     *
+     * @return the selection condition or {@code null} if the default version of a registered script should be selected
+     */
+    protected ScriptSelectionCondition getApplicableCondition()
+    {
+        return null;
+    }
+
+    /**
+     * Compiles a registered script.
+     *
+     * @param script
+     *            the script to compile
+     * @return {@code true} if the script was compiled and cached, {@code false} if the script does not support being compiled ahead of
+     *         execution
+     */
+    protected abstract boolean precompileRegisteredScript(BaseScript script);
+
+    /**
+     * Compiles a script from the classpath.
+     *
+     * @param classpath
+     *            the classpath of the script to compile
+     * @return {@code true} if the script was compiled and cached, {@code false} if the script does not support being compiled ahead of
+     *         execution
+     */
+    protected abstract boolean precompileClasspathScript(String classpath);
+}
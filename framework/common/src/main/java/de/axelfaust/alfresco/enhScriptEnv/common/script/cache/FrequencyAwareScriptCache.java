@@ -0,0 +1,368 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script.cache;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.alfresco.util.ParameterCheck;
+import org.mozilla.javascript.Script;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Script cache implementation that does not require any locking for lookups and evicts scripts based on a sampled approximation of least
+ * frequently used. Each eviction only inspects a fixed number of candidates taken from the head of a queue of cached scripts and evicts
+ * the one with the lowest access frequency, using recency of access to decide between scripts of equal frequency. Candidates that survive
+ * are moved to the tail of the queue so that subsequent evictions inspect other scripts. Access frequencies are periodically halved so
+ * that scripts which were popular in the past but are no longer used eventually become candidates for eviction.
+ *
+ * @author Axel Faust
+ */
+public class FrequencyAwareScriptCache implements ScriptCache
+{
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(FrequencyAwareScriptCache.class);
+
+    private static final int DEFAULT_MAX_WEIGHT = 200;
+
+    private static final int MIN_AGING_INTERVAL = 64;
+
+    private static final int AGING_INTERVAL_FACTOR = 10;
+
+    private static final int EVICTION_SAMPLE_SIZE = 8;
+
+    protected static class CacheEntry
+    {
+
+        protected final String key;
+
+        protected final Script script;
+
+        protected final int weight;
+
+        protected final AtomicInteger frequency = new AtomicInteger(1);
+
+        protected volatile long lastAccess = System.nanoTime();
+
+        protected CacheEntry(final String key, final Script script, final int weight)
+        {
+            this.key = key;
+            this.script = script;
+            this.weight = weight;
+        }
+
+        protected void recordAccess()
+        {
+            this.frequency.incrementAndGet();
+            this.lastAccess = System.nanoTime();
+        }
+
+        protected boolean isLessValuableThan(final CacheEntry other)
+        {
+            final int frequency = this.frequency.get();
+            final int otherFrequency = other.frequency.get();
+            return frequency < otherFrequency || (frequency == otherFrequency && this.lastAccess < other.lastAccess);
+        }
+    }
+
+    protected final ConcurrentMap<String, CacheEntry> entries = new ConcurrentHashMap<String, CacheEntry>();
+
+    // may contain entries that have since been removed or replaced - these are skipped / purged lazily
+    protected final Queue<CacheEntry> evictionQueue = new ConcurrentLinkedQueue<CacheEntry>();
+
+    protected final AtomicInteger evictionQueueSize = new AtomicInteger();
+
+    protected final AtomicLong totalWeight = new AtomicLong();
+
+    protected final AtomicLong hitCount = new AtomicLong();
+
+    protected final AtomicLong missCount = new AtomicLong();
+
+    protected final AtomicLong evictionCount = new AtomicLong();
+
+    // only one thread needs to evict at a time - others simply continue
+    protected final Lock evictionLock = new ReentrantLock();
+
+    protected volatile long maxWeight = DEFAULT_MAX_WEIGHT;
+
+    protected volatile boolean weighBySourceSize = false;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Script get(final String key)
+    {
+        ParameterCheck.mandatoryString("key", key);
+
+        final CacheEntry entry = this.entries.get(key);
+        final Script script;
+        if (entry != null)
+        {
+            entry.recordAccess();
+            script = entry.script;
+
+            final long hits = this.hitCount.incrementAndGet();
+            if (hits % Math.max(MIN_AGING_INTERVAL, this.entries.size() * AGING_INTERVAL_FACTOR) == 0)
+            {
+                this.ageFrequencies();
+            }
+        }
+        else
+        {
+            this.missCount.incrementAndGet();
+            script = null;
+        }
+        return script;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Script peek(final String key)
+    {
+        ParameterCheck.mandatoryString("key", key);
+
+        final CacheEntry entry = this.entries.get(key);
+        final Script script = entry != null ? entry.script : null;
+        return script;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void put(final String key, final Script script, final int sourceSize)
+    {
+        ParameterCheck.mandatoryString("key", key);
+        ParameterCheck.mandatory("script", script);
+
+        final int weight = this.weighBySourceSize ? Math.max(1, sourceSize) : 1;
+        final CacheEntry entry = new CacheEntry(key, script, weight);
+        final CacheEntry replacedEntry = this.entries.put(key, entry);
+        this.evictionQueue.offer(entry);
+        this.evictionQueueSize.incrementAndGet();
+
+        this.totalWeight.addAndGet(replacedEntry != null ? weight - replacedEntry.weight : weight);
+        this.evictIfNecessary(entry);
+        this.purgeEvictionQueueIfNecessary();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void remove(final String key)
+    {
+        ParameterCheck.mandatoryString("key", key);
+
+        final CacheEntry removedEntry = this.entries.remove(key);
+        if (removedEntry != null)
+        {
+            this.totalWeight.addAndGet(-removedEntry.weight);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<String> getKeys()
+    {
+        return new ArrayList<String>(this.entries.keySet());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void clear()
+    {
+        // remove individually to keep weight consistent with concurrent modifications
+        for (final String key : this.entries.keySet())
+        {
+            this.remove(key);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getHitCount()
+    {
+        return this.hitCount.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMissCount()
+    {
+        return this.missCount.get();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getEvictionCount()
+    {
+        return this.evictionCount.get();
+    }
+
+    /**
+     * @return the current total weight of all cached scripts
+     */
+    public long getWeight()
+    {
+        return this.totalWeight.get();
+    }
+
+    /**
+     * @param maxWeight
+     *            the maxWeight to set
+     */
+    public void setMaxWeight(final long maxWeight)
+    {
+        if (maxWeight <= 0)
+        {
+            throw new IllegalArgumentException("maxWeight must be a positive value");
+        }
+        this.maxWeight = maxWeight;
+    }
+
+    /**
+     * @param weighBySourceSize
+     *            the weighBySourceSize to set
+     */
+    public void setWeighBySourceSize(final boolean weighBySourceSize)
+    {
+        this.weighBySourceSize = weighBySourceSize;
+    }
+
+    protected void evictIfNecessary(final CacheEntry addedEntry)
+    {
+        boolean evictable = true;
+        // re-check after unlocking - puts failing to obtain the lock while we were evicting rely on us to handle their excess weight
+        while (evictable && this.totalWeight.get() > this.maxWeight && this.evictionLock.tryLock())
+        {
+            try
+            {
+                while (evictable && this.totalWeight.get() > this.maxWeight)
+                {
+                    evictable = this.evictSampledEntry(addedEntry);
+                }
+            }
+            finally
+            {
+                this.evictionLock.unlock();
+            }
+        }
+    }
+
+    protected boolean evictSampledEntry(final CacheEntry addedEntry)
+    {
+        final List<CacheEntry> candidates = new ArrayList<CacheEntry>(EVICTION_SAMPLE_SIZE);
+        CacheEntry candidate;
+        while (candidates.size() < EVICTION_SAMPLE_SIZE && (candidate = this.evictionQueue.poll()) != null)
+        {
+            this.evictionQueueSize.decrementAndGet();
+            // drop entries that have since been removed or replaced
+            if (this.entries.get(candidate.key) == candidate)
+            {
+                candidates.add(candidate);
+            }
+        }
+
+        CacheEntry victim = null;
+        for (final CacheEntry entry : candidates)
+        {
+            // never evict the entry just added unless there is nothing else
+            if (entry != addedEntry && (victim == null || entry.isLessValuableThan(victim)))
+            {
+                victim = entry;
+            }
+        }
+
+        if (victim == null && !candidates.isEmpty())
+        {
+            victim = addedEntry;
+        }
+
+        for (final CacheEntry entry : candidates)
+        {
+            if (entry != victim)
+            {
+                this.evictionQueue.offer(entry);
+                this.evictionQueueSize.incrementAndGet();
+            }
+        }
+
+        if (victim != null && this.entries.remove(victim.key, victim))
+        {
+            this.totalWeight.addAndGet(-victim.weight);
+            this.evictionCount.incrementAndGet();
+            LOGGER.trace("Evicted script {} from cache", victim.key);
+        }
+
+        return victim != null;
+    }
+
+    protected void purgeEvictionQueueIfNecessary()
+    {
+        if (this.evictionQueueSize.get() > 2 * this.entries.size() + EVICTION_SAMPLE_SIZE && this.evictionLock.tryLock())
+        {
+            try
+            {
+                final Iterator<CacheEntry> queueIterator = this.evictionQueue.iterator();
+                while (queueIterator.hasNext())
+                {
+                    final CacheEntry entry = queueIterator.next();
+                    if (this.entries.get(entry.key) != entry)
+                    {
+                        queueIterator.remove();
+                        this.evictionQueueSize.decrementAndGet();
+                    }
+                }
+            }
+            finally
+            {
+                this.evictionLock.unlock();
+            }
+        }
+    }
+
+    protected void ageFrequencies()
+    {
+        for (final CacheEntry entry : this.entries.values())
+        {
+            // concurrent increments may be lost - frequencies are only approximate anyway
+            entry.frequency.set(entry.frequency.get() >> 1);
+        }
+    }
+}
@@ -0,0 +1,494 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.alfresco.util.MD5;
+import org.alfresco.util.ParameterCheck;
+import org.alfresco.util.PropertyCheck;
+import org.mozilla.javascript.CompilerEnvirons;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.GeneratedClassLoader;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.optimizer.ClassCompiler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Compiles scripts into Java classes via the Rhino class compiler and persists the generated class bytes in a local directory, so that
+ * scripts compiled in previous runs of the JVM can simply be defined from their bytecode instead of being compiled again. Entries are keyed
+ * by a digest of the script source, its path, the optimization settings and the Rhino implementation version, so changes to any of these
+ * never result in stale bytecode being used. If no directory has been configured, this cache is disabled and scripts are compiled as usual.
+ * Dynamic scripts (identified by their {@code string://} path) are never persisted since their sources are rarely executed more than once.
+ * The number of persisted entries is limited, evicting the least recently used entries once the limit is exceeded.
+ *
+ * Since the persisted bytecode is defined as classes within the JVM, each entry is authenticated with a HMAC over its cache key and
+ * content, using a secret that is required whenever a directory has been configured. Entries failing verification are never defined but
+ * recompiled, so that write access to the directory alone does not allow anyone to inject code. The secret must not be stored in the
+ * directory itself.
+ *
+ * @author Axel Faust
+ */
+public class PersistentBytecodeCache implements InitializingBean
+{
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(PersistentBytecodeCache.class);
+
+    // changed with the addition of a MAC to each entry
+    private static final int FILE_MAGIC = 0x45534544;
+
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+
+    private static final int MIN_SECRET_LENGTH = 16;
+
+    private static final String FILE_SUFFIX = ".jsclass";
+
+    private static final String CLASS_NAME_PREFIX = "de.axelfaust.alfresco.enhScriptEnv.compiled.Script";
+
+    private static final String DYNAMIC_SCRIPT_PATH_PREFIX = "string://";
+
+    private static final int DEFAULT_MAX_ENTRIES = 1000;
+
+    private static final FileFilter CACHE_FILE_FILTER = new FileFilter()
+    {
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean accept(final File file)
+        {
+            return file.isFile() && file.getName().endsWith(FILE_SUFFIX);
+        }
+    };
+
+    protected File directory;
+
+    protected SecretKeySpec macKey;
+
+    protected int maxEntries = DEFAULT_MAX_ENTRIES;
+
+    // used to avoid concurrent eviction runs
+    protected final Object evictionLock = new Object();
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterPropertiesSet()
+    {
+        if (this.directory != null)
+        {
+            PropertyCheck.mandatory(this, "secret", this.macKey);
+        }
+    }
+
+    /**
+     * Compiles a script using the optimization level and debug settings of the provided context, using previously persisted bytecode if
+     * available.
+     *
+     * @param cx
+     *            the context to use for compilation
+     * @param source
+     *            the source of the script
+     * @param path
+     *            the path of the script
+     * @return the compiled script
+     */
+    public Script compileScript(final Context cx, final String source, final String path)
+    {
+        ParameterCheck.mandatory("cx", cx);
+        ParameterCheck.mandatory("source", source);
+        ParameterCheck.mandatoryString("path", path);
+
+        final Script script;
+        // interpreted scripts have no bytecode to persist
+        if (this.directory == null || this.macKey == null || cx.getOptimizationLevel() < 0 || path.startsWith(DYNAMIC_SCRIPT_PATH_PREFIX))
+        {
+            script = cx.compileString(source, path, 1, null);
+        }
+        else
+        {
+            final String digest = this.digest(cx, source, path);
+            final File cacheFile = new File(this.directory, digest + FILE_SUFFIX);
+
+            Object[] classFiles = null;
+            if (cacheFile.exists())
+            {
+                classFiles = this.readClassFiles(cacheFile, digest);
+            }
+
+            if (classFiles == null)
+            {
+                final CompilerEnvirons environs = new CompilerEnvirons();
+                environs.initFromContext(cx);
+                final ClassCompiler compiler = new ClassCompiler(environs);
+                classFiles = compiler.compileToClassFiles(source, path, 1, CLASS_NAME_PREFIX + digest);
+
+                this.writeClassFiles(cacheFile, digest, classFiles);
+                LOGGER.debug("Compiled and persisted bytecode of {}", path);
+                this.evictEntries();
+            }
+            else
+            {
+                LOGGER.debug("Using persisted bytecode of {}", path);
+                // last modification doubles as last use for eviction
+                if (!cacheFile.setLastModified(System.currentTimeMillis()))
+                {
+                    LOGGER.trace("Failed to update last use of {}", cacheFile);
+                }
+            }
+
+            script = this.defineScript(cx, classFiles);
+        }
+        return script;
+    }
+
+    /**
+     * @param directory
+     *            the directory to set - if {@code null} or empty, the cache will be disabled
+     */
+    public void setDirectory(final String directory)
+    {
+        if (directory != null && directory.trim().length() > 0)
+        {
+            final File dir = new File(directory.trim());
+            if (!dir.exists() && !dir.mkdirs())
+            {
+                throw new IllegalArgumentException("Directory " + directory + " does not exist and could not be created");
+            }
+            if (!dir.isDirectory() || !dir.canWrite())
+            {
+                throw new IllegalArgumentException(directory + " is not a writable directory");
+            }
+            this.directory = dir;
+        }
+        else
+        {
+            this.directory = null;
+        }
+    }
+
+    /**
+     * @param secret
+     *            the secret used to authenticate persisted bytecode - must be set if a directory has been configured and have at least 16
+     *            characters
+     */
+    public void setSecret(final String secret)
+    {
+        if (secret != null && secret.length() > 0)
+        {
+            if (secret.length() < MIN_SECRET_LENGTH)
+            {
+                throw new IllegalArgumentException("secret must have at least " + MIN_SECRET_LENGTH + " characters");
+            }
+
+            try
+            {
+                this.macKey = new SecretKeySpec(secret.getBytes("UTF-8"), MAC_ALGORITHM);
+            }
+            catch (final UnsupportedEncodingException ex)
+            {
+                throw new IllegalStateException("UTF-8 not supported", ex);
+            }
+        }
+        else
+        {
+            this.macKey = null;
+        }
+    }
+
+    /**
+     * @param maxEntries
+     *            the maximum number of scripts to persist the bytecode for - must be positive
+     */
+    public void setMaxEntries(final int maxEntries)
+    {
+        if (maxEntries <= 0)
+        {
+            throw new IllegalArgumentException("maxEntries must be a positive integer");
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    protected String digest(final Context cx, final String source, final String path)
+    {
+        final StringBuilder keyBuilder = new StringBuilder(source.length() + path.length() + 64);
+        keyBuilder.append(cx.getImplementationVersion()).append('\n');
+        keyBuilder.append(cx.getOptimizationLevel()).append('\n');
+        keyBuilder.append(cx.isGeneratingDebug()).append(cx.isGeneratingSource()).append('\n');
+        keyBuilder.append(path).append('\n');
+        keyBuilder.append(source);
+
+        try
+        {
+            final MD5 md5 = new MD5();
+            return md5.digest(keyBuilder.toString().getBytes("UTF-8"));
+        }
+        catch (final UnsupportedEncodingException ex)
+        {
+            throw new IllegalStateException("UTF-8 not supported", ex);
+        }
+    }
+
+    protected Script defineScript(final Context cx, final Object[] classFiles)
+    {
+        final GeneratedClassLoader loader = cx.createClassLoader(cx.getApplicationClassLoader());
+        Class<?> scriptClass = null;
+        for (int idx = 0; idx < classFiles.length; idx += 2)
+        {
+            final Class<?> cls = loader.defineClass((String) classFiles[idx], (byte[]) classFiles[idx + 1]);
+            if (scriptClass == null)
+            {
+                // main script class is always the first
+                scriptClass = cls;
+            }
+        }
+        loader.linkClass(scriptClass);
+
+        try
+        {
+            final Script script = (Script) scriptClass.newInstance();
+            return script;
+        }
+        catch (final InstantiationException ex)
+        {
+            throw new IllegalStateException("Failed to instantiate compiled script class", ex);
+        }
+        catch (final IllegalAccessException ex)
+        {
+            throw new IllegalStateException("Failed to instantiate compiled script class", ex);
+        }
+    }
+
+    protected Object[] readClassFiles(final File cacheFile, final String digest)
+    {
+        Object[] classFiles;
+        try
+        {
+            final RandomAccessFile raf = new RandomAccessFile(cacheFile, "r");
+            try
+            {
+                // files are small and read once, so a heap buffer is preferable to a memory mapping which would pin the file until GC
+                final FileChannel channel = raf.getChannel();
+                final ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+                while (buffer.hasRemaining())
+                {
+                    if (channel.read(buffer) < 0)
+                    {
+                        throw new IOException("Unexpected end of file");
+                    }
+                }
+                buffer.flip();
+
+                if (buffer.getInt() != FILE_MAGIC)
+                {
+                    throw new IOException("Invalid file header");
+                }
+
+                final byte[] mac = new byte[buffer.getInt()];
+                buffer.get(mac);
+                final byte[] content = new byte[buffer.remaining()];
+                buffer.get(content);
+
+                // never even parse unauthenticated content
+                if (!MessageDigest.isEqual(mac, this.computeMac(digest, content)))
+                {
+                    throw new SecurityException("MAC verification failed");
+                }
+
+                final ByteBuffer contentBuffer = ByteBuffer.wrap(content);
+                final int count = contentBuffer.getInt();
+                classFiles = new Object[count * 2];
+                for (int idx = 0; idx < count; idx++)
+                {
+                    final byte[] nameBytes = new byte[contentBuffer.getInt()];
+                    contentBuffer.get(nameBytes);
+                    final byte[] classBytes = new byte[contentBuffer.getInt()];
+                    contentBuffer.get(classBytes);
+
+                    final String className = new String(nameBytes, "UTF-8");
+                    if (!className.startsWith(CLASS_NAME_PREFIX + digest))
+                    {
+                        throw new IOException("Unexpected class name " + className);
+                    }
+
+                    classFiles[idx * 2] = className;
+                    classFiles[idx * 2 + 1] = classBytes;
+                }
+            }
+            finally
+            {
+                raf.close();
+            }
+        }
+        catch (final IOException ex)
+        {
+            LOGGER.warn("Failed to read persisted bytecode from {} - script will be recompiled: {}", cacheFile, ex.getMessage());
+            classFiles = null;
+        }
+        catch (final SecurityException ex)
+        {
+            LOGGER.error("Persisted bytecode in {} failed the integrity check and may have been tampered with - script will be recompiled",
+                    cacheFile);
+            classFiles = null;
+        }
+        catch (final RuntimeException ex)
+        {
+            // buffer underflow etc. from corrupted / truncated files
+            LOGGER.warn("Persisted bytecode in {} is corrupted - script will be recompiled: {}", cacheFile, ex.getMessage());
+            classFiles = null;
+        }
+        return classFiles;
+    }
+
+    protected void writeClassFiles(final File cacheFile, final String digest, final Object[] classFiles)
+    {
+        try
+        {
+            final ByteArrayOutputStream contentBos = new ByteArrayOutputStream();
+            final DataOutputStream contentDos = new DataOutputStream(contentBos);
+            contentDos.writeInt(classFiles.length / 2);
+            for (int idx = 0; idx < classFiles.length; idx += 2)
+            {
+                final byte[] nameBytes = ((String) classFiles[idx]).getBytes("UTF-8");
+                final byte[] classBytes = (byte[]) classFiles[idx + 1];
+                contentDos.writeInt(nameBytes.length);
+                contentDos.write(nameBytes);
+                contentDos.writeInt(classBytes.length);
+                contentDos.write(classBytes);
+            }
+            contentDos.flush();
+            final byte[] content = contentBos.toByteArray();
+            final byte[] mac = this.computeMac(digest, content);
+
+            final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            final DataOutputStream dos = new DataOutputStream(bos);
+            dos.writeInt(FILE_MAGIC);
+            dos.writeInt(mac.length);
+            dos.write(mac);
+            dos.write(content);
+            dos.flush();
+
+            // write to temporary file first so concurrent readers never see a partial file
+            final File tempFile = File.createTempFile(cacheFile.getName(), ".tmp", cacheFile.getParentFile());
+            final FileOutputStream fos = new FileOutputStream(tempFile);
+            try
+            {
+                bos.writeTo(fos);
+            }
+            finally
+            {
+                fos.close();
+            }
+
+            // replace any existing (e.g. tampered) entry
+            if (!tempFile.renameTo(cacheFile) && !(cacheFile.delete() && tempFile.renameTo(cacheFile)))
+            {
+                // may already have been written by another thread / node sharing the directory
+                if (!tempFile.delete())
+                {
+                    tempFile.deleteOnExit();
+                }
+            }
+        }
+        catch (final IOException ex)
+        {
+            LOGGER.warn("Failed to persist bytecode to {}: {}", cacheFile, ex.getMessage());
+        }
+    }
+
+    protected byte[] computeMac(final String digest, final byte[] content)
+    {
+        try
+        {
+            // Mac instances are not thread-safe
+            final Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(this.macKey);
+            // include the cache key so valid entries cannot be swapped between scripts
+            mac.update(digest.getBytes("UTF-8"));
+            mac.update(content);
+            return mac.doFinal();
+        }
+        catch (final GeneralSecurityException ex)
+        {
+            throw new IllegalStateException("Failed to compute MAC of persisted bytecode", ex);
+        }
+        catch (final UnsupportedEncodingException ex)
+        {
+            throw new IllegalStateException("UTF-8 not supported", ex);
+        }
+    }
+
+    protected void evictEntries()
+    {
+        synchronized (this.evictionLock)
+        {
+            final File[] cacheFiles = this.directory.listFiles(CACHE_FILE_FILTER);
+            if (cacheFiles != null && cacheFiles.length > this.maxEntries)
+            {
+                // last use may be updated concurrently, so it needs to be fixed for sorting
+                final Map<File, Long> lastUsed = new HashMap<File, Long>();
+                for (final File cacheFile : cacheFiles)
+                {
+                    lastUsed.put(cacheFile, Long.valueOf(cacheFile.lastModified()));
+                }
+                Arrays.sort(cacheFiles, new Comparator<File>()
+                {
+
+                    /**
+                     *
+                     * {@inheritDoc}
+                     */
+                    @Override
+                    public int compare(final File fileA, final File fileB)
+                    {
+                        return lastUsed.get(fileA).compareTo(lastUsed.get(fileB));
+                    }
+                });
+                final int excessEntries = cacheFiles.length - this.maxEntries;
+                for (int idx = 0; idx < excessEntries; idx++)
+                {
+                    // may fail if the entry is removed concurrently by another node sharing the directory
+                    if (cacheFiles[idx].delete())
+                    {
+                        LOGGER.debug("Evicted persisted bytecode {}", cacheFiles[idx]);
+                    }
+                }
+            }
+        }
+    }
+}
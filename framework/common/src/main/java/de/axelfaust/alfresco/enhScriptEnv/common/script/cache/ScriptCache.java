@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script.cache;
+
+import java.util.Collection;
+
+import org.mozilla.javascript.Script;
+
+/**
+ * Instances of this interface cache compiled scripts for reuse by script processors. Implementations are required to be thread-safe and
+ * should not require callers to synchronize access.
+ *
+ * @author Axel Faust
+ */
+public interface ScriptCache
+{
+
+    /**
+     * Retrieves a cached script.
+     *
+     * @param key
+     *            the key of the script
+     * @return the cached script or {@code null} if no script is cached for the key
+     */
+    Script get(String key);
+
+    /**
+     * Retrieves a cached script without recording an access to it or affecting the hit / miss statistics of the cache. This is meant for
+     * re-checks of the cache after a preceding {@link #get(String) lookup}, e.g. to detect a script compiled concurrently by another
+     * thread.
+     *
+     * @param key
+     *            the key of the script
+     * @return the cached script or {@code null} if no script is cached for the key
+     */
+    Script peek(String key);
+
+    /**
+     * Puts a script into the cache, potentially evicting other scripts in the process.
+     *
+     * @param key
+     *            the key of the script
+     * @param script
+     *            the compiled script
+     * @param sourceSize
+     *            the size of the script source - implementations may use this to weigh the script against the capacity of the cache
+     */
+    void put(String key, Script script, int sourceSize);
+
+    /**
+     * Removes a script from the cache.
+     *
+     * @param key
+     *            the key of the script
+     */
+    void remove(String key);
+
+    /**
+     * Retrieves the keys of all scripts currently cached. The result is a snapshot and does not reflect later modifications of the cache.
+     *
+     * @return the keys of the cached scripts
+     */
+    Collection<String> getKeys();
+
+    /**
+     * Removes all scripts from the cache.
+     */
+    void clear();
+
+    /**
+     * @return the number of cache lookups that resulted in a cached script
+     */
+    long getHitCount();
+
+    /**
+     * @return the number of cache lookups that did not result in a cached script
+     */
+    long getMissCount();
+
+    /**
+     * @return the number of scripts that have been evicted to stay within the capacity of the cache
+     */
+    long getEvictionCount();
+}
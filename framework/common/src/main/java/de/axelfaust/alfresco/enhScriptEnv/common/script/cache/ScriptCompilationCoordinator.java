@@ -0,0 +1,135 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import org.alfresco.error.AlfrescoRuntimeException;
+import org.alfresco.util.ParameterCheck;
+import org.mozilla.javascript.Script;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Coordinates concurrent compilations of the same script so that only one thread performs the compilation while all other threads
+ * requiring the same script wait for and share its result.
+ *
+ * @author Axel Faust
+ */
+public class ScriptCompilationCoordinator
+{
+
+    /**
+     * Instances of this interface encapsulate the actual compilation of a script.
+     *
+     * @author Axel Faust
+     */
+    public interface ScriptCompilation
+    {
+
+        /**
+         * Compiles the script. Since a previous compilation of the same script may have completed between a failed cache lookup of the
+         * caller and the start of this compilation, implementations should re-check the cache before actually compiling. The re-check
+         * should use {@link ScriptCache#peek(String) peek} so that the failed lookup is not counted as a miss a second time.
+         *
+         * @return the compiled script
+         */
+        Script compile();
+    }
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(ScriptCompilationCoordinator.class);
+
+    protected final ConcurrentMap<String, FutureTask<Script>> activeCompilations = new ConcurrentHashMap<String, FutureTask<Script>>();
+
+    /**
+     * Compiles a script unless a compilation for the same key is already in progress, in which case the result of that compilation is
+     * awaited and returned.
+     *
+     * @param key
+     *            the key of the script to compile
+     * @param compilation
+     *            the compilation to perform if no compilation for the same key is already in progress
+     * @return the compiled script
+     */
+    public Script compile(final String key, final ScriptCompilation compilation)
+    {
+        ParameterCheck.mandatoryString("key", key);
+        ParameterCheck.mandatory("compilation", compilation);
+
+        final FutureTask<Script> task = new FutureTask<Script>(new Callable<Script>()
+        {
+
+            /**
+             *
+             * {@inheritDoc}
+             */
+            @Override
+            public Script call()
+            {
+                return compilation.compile();
+            }
+        });
+
+        FutureTask<Script> activeTask = this.activeCompilations.putIfAbsent(key, task);
+        if (activeTask == null)
+        {
+            activeTask = task;
+            try
+            {
+                task.run();
+            }
+            finally
+            {
+                this.activeCompilations.remove(key, task);
+            }
+        }
+        else
+        {
+            LOGGER.debug("Awaiting compilation of {} in progress by another thread", key);
+        }
+
+        return this.awaitCompilation(key, activeTask);
+    }
+
+    protected Script awaitCompilation(final String key, final FutureTask<Script> task)
+    {
+        try
+        {
+            final Script script = task.get();
+            return script;
+        }
+        catch (final InterruptedException ex)
+        {
+            Thread.currentThread().interrupt();
+            throw new AlfrescoRuntimeException("Interrupted while waiting on compilation of " + key, ex);
+        }
+        catch (final ExecutionException ex)
+        {
+            final Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException)
+            {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error)
+            {
+                throw (Error) cause;
+            }
+            throw new AlfrescoRuntimeException("Failed to compile " + key, cause);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script.converter;
+
+import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry.SinglePassValueInstanceConverter;
+
+/**
+ * Base class for single-pass value instance converters which provides both single-pass conversion operations on top of the separate check
+ * and conversion operations, so that converters only need to override the operation(s) they can actually perform in a single traversal of
+ * the value.
+ *
+ * @author Axel Faust
+ */
+public abstract class AbstractValueInstanceConverter implements SinglePassValueInstanceConverter
+{
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object tryConvertValueForScript(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+    {
+        final Object result;
+        if (this.canConvertValueForScript(value, globalDelegate, expectedClass))
+        {
+            result = this.convertValueForScript(value, globalDelegate, expectedClass);
+        }
+        else
+        {
+            result = ValueConverter.UNCONVERTIBLE;
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object tryConvertValueForJava(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+    {
+        final Object result;
+        if (this.canConvertValueForJava(value, globalDelegate, expectedClass))
+        {
+            result = this.convertValueForJava(value, globalDelegate, expectedClass);
+        }
+        else
+        {
+            result = ValueConverter.UNCONVERTIBLE;
+        }
+        return result;
+    }
+}
@@ -22,6 +22,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.alfresco.util.ParameterCheck;
 import de.axelfaust.alfresco.enhScriptEnv.common.util.ClassUtils;
@@ -32,8 +33,60 @@ import de.axelfaust.alfresco.enhScriptEnv.common.util.ClassUtils;
 public class GenericGlobalValueConverter implements ValueConverter, ValueInstanceConverterRegistry
 {
 
+    private static final ValueInstanceConverter[] NO_CONVERTERS = new ValueInstanceConverter[0];
+
+    /**
+     * Caches the prioritized converters per conversion, i.e. per combination of value class, expected class and conversion direction.
+     * Classes are only weakly held since value classes may be generated per compiled script and must not outlive the eviction of that
+     * script from the script cache, e.g. by pinning its class loader.
+     *
+     * @author Axel Faust
+     */
+    protected static class ConverterDispatchTable
+    {
+
+        protected final Map<Class<?>, Map<Class<?>, ValueInstanceConverter[]>> forScriptConverters =
+                new WeakHashMap<Class<?>, Map<Class<?>, ValueInstanceConverter[]>>();
+
+        protected final Map<Class<?>, Map<Class<?>, ValueInstanceConverter[]>> forJavaConverters =
+                new WeakHashMap<Class<?>, Map<Class<?>, ValueInstanceConverter[]>>();
+
+        protected ValueInstanceConverter[] get(final Class<?> valueClass, final Class<?> expectedClass, final boolean javaToScript)
+        {
+            final Map<Class<?>, Map<Class<?>, ValueInstanceConverter[]>> convertersByValueClass = javaToScript ? this.forScriptConverters
+                    : this.forJavaConverters;
+            final ValueInstanceConverter[] converters;
+            // WeakHashMap even modifies its state on reads
+            synchronized (convertersByValueClass)
+            {
+                final Map<Class<?>, ValueInstanceConverter[]> convertersByExpectedClass = convertersByValueClass.get(valueClass);
+                converters = convertersByExpectedClass != null ? convertersByExpectedClass.get(expectedClass) : null;
+            }
+            return converters;
+        }
+
+        protected void put(final Class<?> valueClass, final Class<?> expectedClass, final boolean javaToScript,
+                final ValueInstanceConverter[] converters)
+        {
+            final Map<Class<?>, Map<Class<?>, ValueInstanceConverter[]>> convertersByValueClass = javaToScript ? this.forScriptConverters
+                    : this.forJavaConverters;
+            synchronized (convertersByValueClass)
+            {
+                Map<Class<?>, ValueInstanceConverter[]> convertersByExpectedClass = convertersByValueClass.get(valueClass);
+                if (convertersByExpectedClass == null)
+                {
+                    convertersByExpectedClass = new WeakHashMap<Class<?>, ValueInstanceConverter[]>();
+                    convertersByValueClass.put(valueClass, convertersByExpectedClass);
+                }
+                convertersByExpectedClass.put(expectedClass, converters);
+            }
+        }
+    }
+
     protected final Map<Class<?>, Collection<ValueInstanceConverter>> valueInstanceConvertersByClass = new HashMap<Class<?>, Collection<ValueInstanceConverter>>();
 
+    protected volatile ConverterDispatchTable dispatchTable = new ConverterDispatchTable();
+
     /**
      * {@inheritDoc}
      */
@@ -50,6 +103,9 @@ public class GenericGlobalValueConverter implements ValueConverter, ValueInstanc
             this.valueInstanceConvertersByClass.put(instanceClass, converters);
         }
         converters.add(converter);
+
+        // prioritized converters need to be re-determined
+        this.dispatchTable = new ConverterDispatchTable();
     }
 
     /**
@@ -97,26 +153,45 @@ public class GenericGlobalValueConverter implements ValueConverter, ValueInstanc
      */
     @Override
     public Object convertValueForJava(final Object value, final Class<?> expectedClass)
+    {
+        final Object result = this.tryConvertValueForJava(value, expectedClass);
+        if (result == UNCONVERTIBLE)
+        {
+            throw new UnsupportedOperationException("Can't convert " + value + " to " + expectedClass);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object tryConvertValueForJava(final Object value, final Class<?> expectedClass)
     {
         ParameterCheck.mandatory("expectedClass", expectedClass);
 
-        final Object result;
+        Object result = UNCONVERTIBLE;
         if (value != null)
         {
-            final ValueInstanceConverter bestFittingConverter = this.lookupBestFittingConverter(value, expectedClass,
-                    false);
-            if (bestFittingConverter != null)
+            final ValueInstanceConverter[] converters = this.lookupDispatchableConverters(value.getClass(), expectedClass, false);
+            // indexed iteration to avoid iterator allocation on this hot path
+            for (int idx = 0; idx < converters.length && result == UNCONVERTIBLE; idx++)
             {
-                result = bestFittingConverter.convertValueForJava(value, this, expectedClass);
+                final ValueInstanceConverter converter = converters[idx];
+                if (converter instanceof SinglePassValueInstanceConverter)
+                {
+                    result = ((SinglePassValueInstanceConverter) converter).tryConvertValueForJava(value, this, expectedClass);
+                }
+                else if (converter.canConvertValueForJava(value, this, expectedClass))
+                {
+                    result = converter.convertValueForJava(value, this, expectedClass);
+                }
             }
-            else if (ClassUtils.isInstance(value, expectedClass))
+
+            if (result == UNCONVERTIBLE && ClassUtils.isInstance(value, expectedClass))
             {
                 result = value;
             }
-            else
-            {
-                throw new UnsupportedOperationException("Can't convert " + value + " to " + expectedClass);
-            }
         }
         else
         {
@@ -170,26 +245,45 @@ public class GenericGlobalValueConverter implements ValueConverter, ValueInstanc
      */
     @Override
     public Object convertValueForScript(final Object value, final Class<?> expectedClass)
+    {
+        final Object result = this.tryConvertValueForScript(value, expectedClass);
+        if (result == UNCONVERTIBLE)
+        {
+            throw new UnsupportedOperationException("Can't convert " + value + " to " + expectedClass);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object tryConvertValueForScript(final Object value, final Class<?> expectedClass)
     {
         ParameterCheck.mandatory("expectedClass", expectedClass);
 
-        final Object result;
+        Object result = UNCONVERTIBLE;
         if (value != null)
         {
-            final ValueInstanceConverter bestFittingConverter = this.lookupBestFittingConverter(value, expectedClass,
-                    true);
-            if (bestFittingConverter != null)
+            final ValueInstanceConverter[] converters = this.lookupDispatchableConverters(value.getClass(), expectedClass, true);
+            // indexed iteration to avoid iterator allocation on this hot path
+            for (int idx = 0; idx < converters.length && result == UNCONVERTIBLE; idx++)
             {
-                result = bestFittingConverter.convertValueForScript(value, this, expectedClass);
+                final ValueInstanceConverter converter = converters[idx];
+                if (converter instanceof SinglePassValueInstanceConverter)
+                {
+                    result = ((SinglePassValueInstanceConverter) converter).tryConvertValueForScript(value, this, expectedClass);
+                }
+                else if (converter.canConvertValueForScript(value, this, expectedClass))
+                {
+                    result = converter.convertValueForScript(value, this, expectedClass);
+                }
             }
-            else if (ClassUtils.isInstance(value, expectedClass))
+
+            if (result == UNCONVERTIBLE && ClassUtils.isInstance(value, expectedClass))
             {
                 result = value;
             }
-            else
-            {
-                throw new UnsupportedOperationException("Can't convert " + value + " to " + expectedClass);
-            }
         }
         else
         {
@@ -198,66 +292,93 @@ public class GenericGlobalValueConverter implements ValueConverter, ValueInstanc
         return result;
     }
 
-    protected ValueInstanceConverter lookupBestFittingConverter(final Object valueInstance,
-            final Class<?> expectedClass,
+    protected ValueInstanceConverter lookupBestFittingConverter(final Object valueInstance, final Class<?> expectedClass,
             final boolean javaToScript)
     {
-        final Collection<ValueInstanceConverter> converters = this.lookupPrioritizedConverters(valueInstance,
-                expectedClass, javaToScript);
+        final ValueInstanceConverter[] converters = this.lookupDispatchableConverters(valueInstance.getClass(), expectedClass,
+                javaToScript);
 
         ValueInstanceConverter bestFittingConverter = null;
-        for (final ValueInstanceConverter converter : converters)
+        // indexed iteration to avoid iterator allocation on this hot path
+        for (int idx = 0; idx < converters.length && bestFittingConverter == null; idx++)
         {
-            final boolean canConvert = javaToScript ? converter.canConvertValueForScript(valueInstance, this,
-                    expectedClass) : converter
+            final ValueInstanceConverter converter = converters[idx];
+            final boolean canConvert = javaToScript ? converter.canConvertValueForScript(valueInstance, this, expectedClass) : converter
                     .canConvertValueForJava(valueInstance, this, expectedClass);
             if (canConvert)
             {
                 bestFittingConverter = converter;
-                break;
             }
         }
 
         return bestFittingConverter;
     }
 
-    protected Collection<ValueInstanceConverter> lookupPrioritizedConverters(final Object valueInstance,
-            final Class<?> expectedClass,
+    /**
+     * Looks up the prioritized converters for a specific conversion from the dispatch table, determining and storing them in the table on
+     * the first lookup. Lookups for known conversions do not allocate any objects.
+     *
+     * @param valueClass
+     *            the class of the value to convert
+     * @param expectedClass
+     *            the class the converted value is required to be an instance of
+     * @param javaToScript
+     *            {@code true} if a value is to be converted for use in a script, {@code false} if it is to be converted for use in Java
+     * @return the converters potentially capable of handling the conversion, ordered by descending confidence - the array must not be
+     *         modified by the caller
+     */
+    protected ValueInstanceConverter[] lookupDispatchableConverters(final Class<?> valueClass, final Class<?> expectedClass,
+            final boolean javaToScript)
+    {
+        // read table once - registration of converters replaces it, so determined converters are never stored into a current table
+        // unless they were determined based on the current registrations
+        final ConverterDispatchTable dispatchTable = this.dispatchTable;
+        ValueInstanceConverter[] converters = dispatchTable.get(valueClass, expectedClass, javaToScript);
+        if (converters == null)
+        {
+            converters = this.determinePrioritizedConverters(valueClass, expectedClass, javaToScript);
+            dispatchTable.put(valueClass, expectedClass, javaToScript, converters);
+        }
+        return converters;
+    }
+
+    protected ValueInstanceConverter[] determinePrioritizedConverters(final Class<?> valueClass, final Class<?> expectedClass,
             final boolean javaToScript)
     {
-        Collection<ValueInstanceConverter> converters = new HashSet<ValueInstanceConverter>();
+        final Collection<ValueInstanceConverter> converters = new HashSet<ValueInstanceConverter>();
 
-        if (valueInstance != null)
+        final Set<Class<?>> classesToCheck = new HashSet<Class<?>>();
+        Class<?> currentClass = valueClass;
+        while (currentClass != null && !Object.class.equals(currentClass))
         {
-            final Set<Class<?>> classesToCheck = new HashSet<Class<?>>();
-            Class<? extends Object> currentClass = valueInstance.getClass();
-            while (!Object.class.equals(currentClass))
-            {
-                classesToCheck.add(currentClass);
-                classesToCheck.addAll(Arrays.asList(currentClass.getInterfaces()));
+            classesToCheck.add(currentClass);
+            classesToCheck.addAll(Arrays.asList(currentClass.getInterfaces()));
 
-                currentClass = currentClass.getSuperclass();
-            }
-            classesToCheck.add(Object.class);
+            currentClass = currentClass.getSuperclass();
+        }
+        classesToCheck.add(Object.class);
 
-            for (final Class<?> cls : classesToCheck)
+        for (final Class<?> cls : classesToCheck)
+        {
+            final Collection<ValueInstanceConverter> clsConverters = this.valueInstanceConvertersByClass.get(cls);
+            if (clsConverters != null)
             {
-                final Collection<ValueInstanceConverter> clsConverters = this.valueInstanceConvertersByClass.get(cls);
-                if (clsConverters != null)
-                {
-                    converters.addAll(clsConverters);
-                }
+                converters.addAll(clsConverters);
             }
+        }
 
-            if (!converters.isEmpty())
-            {
-                converters = new ArrayList<ValueInstanceConverter>(converters);
-                Collections.sort((List<ValueInstanceConverter>) converters,
-                        new ValueInstanceConverterConfidenceComparator(valueInstance.getClass(), expectedClass,
-                                javaToScript));
-            }
+        final ValueInstanceConverter[] result;
+        if (!converters.isEmpty())
+        {
+            final List<ValueInstanceConverter> sortedConverters = new ArrayList<ValueInstanceConverter>(converters);
+            Collections.sort(sortedConverters, new ValueInstanceConverterConfidenceComparator(valueClass, expectedClass, javaToScript));
+            result = sortedConverters.toArray(new ValueInstanceConverter[sortedConverters.size()]);
+        }
+        else
+        {
+            result = NO_CONVERTERS;
         }
 
-        return converters;
+        return result;
     }
 }
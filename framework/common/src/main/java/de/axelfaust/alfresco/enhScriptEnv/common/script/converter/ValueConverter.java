@@ -29,6 +29,24 @@ public interface ValueConverter
      */
     public static ThreadLocal<ValueConverter> GLOBAL_CONVERTER = new ThreadLocal<ValueConverter>();
 
+    /**
+     * The marker result of the {@link #tryConvertValueForJava(Object, Class) tryConvertValueForJava} and
+     * {@link #tryConvertValueForScript(Object, Class) tryConvertValueForScript} operations signaling that a value could not be converted.
+     */
+    public static final Object UNCONVERTIBLE = new Object()
+    {
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public String toString()
+        {
+            return "UNCONVERTIBLE";
+        }
+    };
+
     /**
      * Checks if a specific value from the script environment can be converted to a value that can be used in regular Java components. This
      * operation provides a way to pre-emptively check the support without incurring the actual conversion overhead.
@@ -76,6 +94,20 @@ public interface ValueConverter
      */
     Object convertValueForJava(Object value, Class<?> expectedClass);
 
+    /**
+     * Attempts to convert a value from the script environment to a value that can be used in regular Java components in a single pass, i.e.
+     * without a separate check for the possibility of a conversion. This operation should be preferred over a combination of
+     * {@link #canConvertValueForJava(Object, Class) canConvertValueForJava} and {@link #convertValueForJava(Object, Class)
+     * convertValueForJava} to avoid repeated traversal of complex values.
+     *
+     * @param value
+     *            the value to convert
+     * @param expectedClass
+     *            the interface / class expectation the result object has to fulfill
+     * @return the converted value or {@link #UNCONVERTIBLE} if the value cannot be converted
+     */
+    Object tryConvertValueForJava(Object value, Class<?> expectedClass);
+
     /**
      * Checks if a specific object can be converted to a script-compatible value. This operation provides a way to pre-emptively check the
      * support without incurring the actual conversion overhead.
@@ -119,4 +151,18 @@ public interface ValueConverter
      * @return the converted value
      */
     Object convertValueForScript(Object value, Class<?> expectedClass);
+
+    /**
+     * Attempts to convert the provided object into a script-compatible value in a single pass, i.e. without a separate check for the
+     * possibility of a conversion. This operation should be preferred over a combination of
+     * {@link #canConvertValueForScript(Object, Class) canConvertValueForScript} and {@link #convertValueForScript(Object, Class)
+     * convertValueForScript} to avoid repeated traversal of complex values.
+     *
+     * @param value
+     *            the object to convert
+     * @param expectedClass
+     *            the interface / class expectation the result object has to fulfill
+     * @return the converted value or {@link #UNCONVERTIBLE} if the value cannot be converted
+     */
+    Object tryConvertValueForScript(Object value, Class<?> expectedClass);
 }
@@ -127,6 +127,51 @@ public interface ValueInstanceConverterRegistry
 
     }
 
+    /**
+     * The extended interface for a specific converter capable of converting values in a single pass, i.e. without a separate check for
+     * the possibility of the conversion. Implementing this interface is optional - {@link ValueInstanceConverter converters} not
+     * implementing it are used via their separate check and conversion operations.
+     *
+     * @author Axel Faust
+     */
+    public interface SinglePassValueInstanceConverter extends ValueInstanceConverter
+    {
+
+        /**
+         * Attempts to convert the provided object into a script-compatible value without a separate check for the possibility of the
+         * conversion. Converters handling complex values should perform any checks as part of a single traversal of the value and
+         * delegate sub-instance conversions to {@link ValueConverter#tryConvertValueForScript(Object, Class)
+         * tryConvertValueForScript}. Converters must not modify the value if the conversion is not possible, though nested values may
+         * already have been converted in place by their respective converters.
+         *
+         * @param value
+         *            the object to convert
+         * @param globalDelegate
+         *            the global value instance converter to delegate any sub-instance conversions to
+         * @param expectedClass
+         *            the class object the converted value instance is required to be an instance of
+         * @return the converted value instance or {@link ValueConverter#UNCONVERTIBLE} if the value cannot be converted
+         */
+        Object tryConvertValueForScript(Object value, ValueConverter globalDelegate, Class<?> expectedClass);
+
+        /**
+         * Attempts to convert the provided object into a Java-compatible value without a separate check for the possibility of the
+         * conversion. Converters handling complex values should perform any checks as part of a single traversal of the value and
+         * delegate sub-instance conversions to {@link ValueConverter#tryConvertValueForJava(Object, Class) tryConvertValueForJava}.
+         * Converters must not modify the value if the conversion is not possible, though nested values may already have been converted
+         * in place by their respective converters.
+         *
+         * @param value
+         *            the object to convert
+         * @param globalDelegate
+         *            the global value instance converter to delegate any sub-instance conversions to
+         * @param expectedClass
+         *            the class object the converted value instance is required to be an instance of
+         * @return the converted value instance or {@link ValueConverter#UNCONVERTIBLE} if the value cannot be converted
+         */
+        Object tryConvertValueForJava(Object value, ValueConverter globalDelegate, Class<?> expectedClass);
+    }
+
     public static class ValueInstanceConverterConfidenceComparator implements Comparator<ValueInstanceConverter>
     {
 
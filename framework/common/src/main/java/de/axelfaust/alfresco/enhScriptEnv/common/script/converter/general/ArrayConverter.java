@@ -20,9 +20,9 @@ import java.util.Iterator;
 import java.util.List;
 
 import org.alfresco.util.PropertyCheck;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.AbstractValueInstanceConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry.ValueInstanceConverter;
 import org.springframework.beans.factory.InitializingBean;
 
 /**
@@ -31,7 +31,7 @@ import org.springframework.beans.factory.InitializingBean;
  *
  * @author Axel Faust
  */
-public class ArrayConverter implements ValueInstanceConverter, InitializingBean
+public class ArrayConverter extends AbstractValueInstanceConverter implements InitializingBean
 {
     protected ValueInstanceConverterRegistry registry;
 
@@ -135,7 +135,30 @@ public class ArrayConverter implements ValueInstanceConverter, InitializingBean
     @Override
     public Object convertValueForScript(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
     {
-        final Object result = this.convertToArray(value, globalDelegate, expectedClass, true);
+        final Object result = this.tryConvertValueForScript(value, globalDelegate, expectedClass);
+        if (result == ValueConverter.UNCONVERTIBLE)
+        {
+            throw new UnsupportedOperationException("Can't convert " + value + " to " + expectedClass);
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object tryConvertValueForScript(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+    {
+        final Object result;
+        if (expectedClass.isArray() && (value instanceof Iterable<?> || value.getClass().isArray()))
+        {
+            result = this.convertToArray(value, globalDelegate, expectedClass, true);
+        }
+        else
+        {
+            result = ValueConverter.UNCONVERTIBLE;
+        }
 
         return result;
     }
@@ -208,7 +231,30 @@ public class ArrayConverter implements ValueInstanceConverter, InitializingBean
     @Override
     public Object convertValueForJava(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
     {
-        final Object result = this.convertToArray(value, globalDelegate, expectedClass, false);
+        final Object result = this.tryConvertValueForJava(value, globalDelegate, expectedClass);
+        if (result == ValueConverter.UNCONVERTIBLE)
+        {
+            throw new UnsupportedOperationException("Can't convert " + value + " to " + expectedClass);
+        }
+
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object tryConvertValueForJava(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+    {
+        final Object result;
+        if (expectedClass.isArray() && (value instanceof Iterable<?> || value.getClass().isArray()))
+        {
+            result = this.convertToArray(value, globalDelegate, expectedClass, false);
+        }
+        else
+        {
+            result = ValueConverter.UNCONVERTIBLE;
+        }
 
         return result;
     }
@@ -216,20 +262,26 @@ public class ArrayConverter implements ValueInstanceConverter, InitializingBean
     protected Object convertToArray(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass,
             final boolean toScript)
     {
-        final Object result;
-        final Class<?> valueClass = value.getClass();
-        if (valueClass.isArray())
+        final Class<?> componentClass = expectedClass.getComponentType();
+
+        final Object arr;
+        boolean convertible = true;
+        if (value.getClass().isArray())
         {
-            final Object arr = Array.newInstance(expectedClass.getComponentType(), Array.getLength(value));
+            final int length = Array.getLength(value);
+            arr = Array.newInstance(componentClass, length);
 
-            for (int idx = 0; idx < Array.getLength(value); idx++)
+            for (int idx = 0; idx < length && convertible; idx++)
             {
-                final Object converted = toScript ? globalDelegate.convertValueForScript(Array.get(value, idx),
-                        expectedClass.getComponentType()) : globalDelegate.convertValueForJava(Array.get(value, idx),
-                        expectedClass.getComponentType());
-                Array.set(arr, idx, converted);
+                final Object element = Array.get(value, idx);
+                final Object converted = toScript ? globalDelegate.tryConvertValueForScript(element, componentClass) : globalDelegate
+                        .tryConvertValueForJava(element, componentClass);
+                convertible = converted != ValueConverter.UNCONVERTIBLE;
+                if (convertible)
+                {
+                    Array.set(arr, idx, converted);
+                }
             }
-            result = arr;
         }
         else
         {
@@ -241,7 +293,7 @@ public class ArrayConverter implements ValueInstanceConverter, InitializingBean
             else
             {
                 final List<Object> list = new ArrayList<Object>();
-                final Iterator<?> it = (Iterator<?>) value;
+                final Iterator<?> it = ((Iterable<?>) value).iterator();
                 while (it.hasNext())
                 {
                     list.add(it.next());
@@ -249,16 +301,22 @@ public class ArrayConverter implements ValueInstanceConverter, InitializingBean
                 coll = list;
             }
 
-            final Object arr = Array.newInstance(expectedClass.getComponentType(), coll.size());
+            arr = Array.newInstance(componentClass, coll.size());
             final Iterator<?> it = coll.iterator();
-            for (int idx = 0; it.hasNext(); idx++)
+            for (int idx = 0; it.hasNext() && convertible; idx++)
             {
-                final Object converted = toScript ? globalDelegate.convertValueForScript(it.next(), expectedClass.getComponentType())
-                        : globalDelegate.convertValueForJava(it.next(), expectedClass.getComponentType());
-                Array.set(arr, idx, converted);
+                final Object element = it.next();
+                final Object converted = toScript ? globalDelegate.tryConvertValueForScript(element, componentClass) : globalDelegate
+                        .tryConvertValueForJava(element, componentClass);
+                convertible = converted != ValueConverter.UNCONVERTIBLE;
+                if (convertible)
+                {
+                    Array.set(arr, idx, converted);
+                }
             }
-            result = arr;
         }
+
+        final Object result = convertible ? arr : ValueConverter.UNCONVERTIBLE;
         return result;
     }
 
@@ -21,17 +21,19 @@ import org.mozilla.javascript.NativeArray;
 import org.mozilla.javascript.NativeObject;
 import org.springframework.beans.factory.InitializingBean;
 
+import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.AbstractValueInstanceConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry.ValueInstanceConverter;
 
 /**
- * A simple convert to handle List-to-List conversion where the original List instance is retained but values are recursively put through
- * conversions.
+ * A simple convert to handle List-to-List conversion where values are recursively put through conversions. Converted values are written
+ * back into the original List instance, so any references to it held by Java or script code observe the conversion. Values are only
+ * written back once all of them could be converted in a single traversal, so the List itself remains untouched if any of them cannot be
+ * converted.
  *
  * @author Axel Faust
  */
-public class ListConverter implements ValueInstanceConverter, InitializingBean
+public class ListConverter extends AbstractValueInstanceConverter implements InitializingBean
 {
 
     protected ValueInstanceConverterRegistry registry;
@@ -114,19 +116,35 @@ public class ListConverter implements ValueInstanceConverter, InitializingBean
         @SuppressWarnings({ "unchecked", "rawtypes" })
         final List<Object> list = (List) value;
 
-        for (int idx = 0, size = list.size(); idx < size; idx++)
+        final Object result = this.tryConvertElements(list, globalDelegate, expectedClass, false);
+        if (result == ValueConverter.UNCONVERTIBLE)
         {
-            final Object valueForKey = list.get(idx);
+            throw new UnsupportedOperationException("Can't convert elements of " + list);
+        }
 
-            final Object convertedValue = globalDelegate.convertValueForJava(valueForKey);
+        return result;
+    }
 
-            if (valueForKey != convertedValue)
-            {
-                list.set(idx, convertedValue);
-            }
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object tryConvertValueForJava(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+    {
+        final Object result;
+        // in Rhino 1.7, NativeArray implements List which makes things difficult
+        if (value instanceof List<?> && !(value instanceof NativeArray)
+                && (expectedClass.isAssignableFrom(List.class) || expectedClass.equals(value.getClass())))
+        {
+            @SuppressWarnings({ "unchecked", "rawtypes" })
+            final List<Object> list = (List) value;
+            result = this.tryConvertElements(list, globalDelegate, expectedClass, false);
         }
-
-        return list;
+        else
+        {
+            result = ValueConverter.UNCONVERTIBLE;
+        }
+        return result;
     }
 
     /**
@@ -183,18 +201,81 @@ public class ListConverter implements ValueInstanceConverter, InitializingBean
         @SuppressWarnings({ "unchecked", "rawtypes" })
         final List<Object> list = (List) value;
 
-        for (int idx = 0, size = list.size(); idx < size; idx++)
+        final Object result = this.tryConvertElements(list, globalDelegate, expectedClass, true);
+        if (result == ValueConverter.UNCONVERTIBLE)
         {
-            final Object valueForKey = list.get(idx);
+            throw new UnsupportedOperationException("Can't convert elements of " + list);
+        }
 
-            final Object convertedValue = globalDelegate.convertValueForScript(valueForKey);
+        return result;
+    }
 
-            if (valueForKey != convertedValue)
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object tryConvertValueForScript(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+    {
+        final Object result;
+        if (value instanceof List<?>
+                && (expectedClass.isAssignableFrom(List.class) || expectedClass.equals(value.getClass())))
+        {
+            @SuppressWarnings({ "unchecked", "rawtypes" })
+            final List<Object> list = (List) value;
+            result = this.tryConvertElements(list, globalDelegate, expectedClass, true);
+        }
+        else
+        {
+            result = ValueConverter.UNCONVERTIBLE;
+        }
+        return result;
+    }
+
+    protected Object tryConvertElements(final List<Object> list, final ValueConverter globalDelegate, final Class<?> expectedClass,
+            final boolean toScript)
+    {
+        // converted elements are only collected in this single traversal and written back once all elements could be converted
+        Object[] convertedElements = null;
+        boolean convertible = true;
+        for (int idx = 0, size = list.size(); idx < size && convertible; idx++)
+        {
+            final Object element = list.get(idx);
+            final Object convertedElement = toScript ? globalDelegate.tryConvertValueForScript(element, Object.class) : globalDelegate
+                    .tryConvertValueForJava(element, Object.class);
+
+            if (convertedElement == ValueConverter.UNCONVERTIBLE)
+            {
+                convertible = false;
+            }
+            else if (element != convertedElement)
             {
-                list.set(idx, convertedValue);
+                if (convertedElements == null)
+                {
+                    convertedElements = list.toArray();
+                }
+                convertedElements[idx] = convertedElement;
             }
         }
 
-        return list;
+        final Object result;
+        if (convertible)
+        {
+            if (convertedElements != null)
+            {
+                for (int idx = 0; idx < convertedElements.length; idx++)
+                {
+                    if (list.get(idx) != convertedElements[idx])
+                    {
+                        list.set(idx, convertedElements[idx]);
+                    }
+                }
+            }
+            result = list;
+        }
+        else
+        {
+            result = ValueConverter.UNCONVERTIBLE;
+        }
+        return result;
     }
 }
@@ -13,25 +13,29 @@
  */
 package de.axelfaust.alfresco.enhScriptEnv.common.script.converter.general;
 
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 
 import org.alfresco.util.PropertyCheck;
 import org.mozilla.javascript.NativeObject;
 import org.springframework.beans.factory.InitializingBean;
 
+import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.AbstractValueInstanceConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry.ValueInstanceConverter;
 
 /**
- * A simple convert to handle Map-to-Map conversion where the original Map instance is retained but keys and values are recursively put
- * through conversions.
+ * A simple convert to handle Map-to-Map conversion where keys and values are recursively put through conversions. Converted keys / values
+ * are written back into the original Map instance, so any references to it held by Java or script code observe the conversion. Keys /
+ * values are only written back once all of them could be converted in a single traversal, so the Map itself remains untouched if any of
+ * them cannot be converted.
  *
  * @author Axel Faust
  */
-public class MapConverter implements ValueInstanceConverter, InitializingBean
+public class MapConverter extends AbstractValueInstanceConverter implements InitializingBean
 {
 
     protected ValueInstanceConverterRegistry registry;
@@ -115,23 +119,35 @@ public class MapConverter implements ValueInstanceConverter, InitializingBean
         @SuppressWarnings({ "unchecked", "rawtypes" })
         final Map<Object, Object> map = (Map) value;
 
-        final Collection<Object> keys = new HashSet<Object>(map.keySet());
-        for (final Object key : keys)
+        final Object result = this.tryConvertEntries(map, globalDelegate, expectedClass, false);
+        if (result == ValueConverter.UNCONVERTIBLE)
         {
-            final Object valueForKey = map.get(key);
-
-            final Object convertedKey = globalDelegate.convertValueForJava(key);
-            final Object convertedValue = globalDelegate.convertValueForJava(valueForKey);
+            throw new UnsupportedOperationException("Can't convert keys / values of " + map);
+        }
 
-            if (key != convertedKey || valueForKey != convertedValue)
-            {
-                map.remove(key);
-                map.put(convertedKey, convertedValue);
-            }
+        return result;
+    }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object tryConvertValueForJava(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+    {
+        final Object result;
+        // in Rhino 1.7, NativeObject implements Map which makes things difficult
+        if (value instanceof Map<?, ?> && !(value instanceof NativeObject)
+                && (expectedClass.isAssignableFrom(Map.class) || expectedClass.equals(value.getClass())))
+        {
+            @SuppressWarnings({ "unchecked", "rawtypes" })
+            final Map<Object, Object> map = (Map) value;
+            result = this.tryConvertEntries(map, globalDelegate, expectedClass, false);
         }
-
-        return map;
+        else
+        {
+            result = ValueConverter.UNCONVERTIBLE;
+        }
+        return result;
     }
 
     /**
@@ -189,22 +205,91 @@ public class MapConverter implements ValueInstanceConverter, InitializingBean
         @SuppressWarnings({ "unchecked", "rawtypes" })
         final Map<Object, Object> map = (Map) value;
 
-        final Collection<Object> keys = new HashSet<Object>(map.keySet());
-        for (final Object key : keys)
+        final Object result = this.tryConvertEntries(map, globalDelegate, expectedClass, true);
+        if (result == ValueConverter.UNCONVERTIBLE)
         {
-            final Object valueForKey = map.get(key);
+            throw new UnsupportedOperationException("Can't convert keys / values of " + map);
+        }
 
-            final Object convertedKey = globalDelegate.convertValueForScript(key);
-            final Object convertedValue = globalDelegate.convertValueForScript(valueForKey);
+        return result;
+    }
 
-            if (key != convertedKey || valueForKey != convertedValue)
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object tryConvertValueForScript(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+    {
+        final Object result;
+        if (value instanceof Map<?, ?> && (expectedClass.isAssignableFrom(Map.class) || expectedClass.equals(value.getClass())))
+        {
+            @SuppressWarnings({ "unchecked", "rawtypes" })
+            final Map<Object, Object> map = (Map) value;
+            result = this.tryConvertEntries(map, globalDelegate, expectedClass, true);
+        }
+        else
+        {
+            result = ValueConverter.UNCONVERTIBLE;
+        }
+        return result;
+    }
+
+    protected Object tryConvertEntries(final Map<Object, Object> map, final ValueConverter globalDelegate, final Class<?> expectedClass,
+            final boolean toScript)
+    {
+        // changed entries are only collected in this single traversal and written back once all keys / values could be converted
+        List<Object[]> changedEntries = null;
+        boolean convertible = true;
+        for (final Iterator<Entry<Object, Object>> entryIterator = map.entrySet().iterator(); entryIterator.hasNext() && convertible;)
+        {
+            final Entry<Object, Object> entry = entryIterator.next();
+            final Object key = entry.getKey();
+            final Object valueForKey = entry.getValue();
+
+            final Object convertedKey = toScript ? globalDelegate.tryConvertValueForScript(key, Object.class) : globalDelegate
+                    .tryConvertValueForJava(key, Object.class);
+            final Object convertedValue;
+            if (convertedKey != ValueConverter.UNCONVERTIBLE)
+            {
+                convertedValue = toScript ? globalDelegate.tryConvertValueForScript(valueForKey, Object.class) : globalDelegate
+                        .tryConvertValueForJava(valueForKey, Object.class);
+            }
+            else
             {
-                map.remove(key);
-                map.put(convertedKey, convertedValue);
+                convertedValue = ValueConverter.UNCONVERTIBLE;
             }
 
+            if (convertedValue == ValueConverter.UNCONVERTIBLE)
+            {
+                convertible = false;
+            }
+            else if (key != convertedKey || valueForKey != convertedValue)
+            {
+                if (changedEntries == null)
+                {
+                    changedEntries = new ArrayList<Object[]>();
+                }
+                changedEntries.add(new Object[] { key, convertedKey, convertedValue });
+            }
         }
 
-        return map;
+        final Object result;
+        if (convertible)
+        {
+            if (changedEntries != null)
+            {
+                for (final Object[] changedEntry : changedEntries)
+                {
+                    map.remove(changedEntry[0]);
+                    map.put(changedEntry[1], changedEntry[2]);
+                }
+            }
+            result = map;
+        }
+        else
+        {
+            result = ValueConverter.UNCONVERTIBLE;
+        }
+        return result;
     }
 }
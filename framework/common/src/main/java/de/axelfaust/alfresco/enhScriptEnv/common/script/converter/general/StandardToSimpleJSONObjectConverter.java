@@ -15,19 +15,18 @@ package de.axelfaust.alfresco.enhScriptEnv.common.script.converter.general;
 
 import java.util.Iterator;
 
-import org.alfresco.scripts.ScriptException;
 import org.alfresco.util.PropertyCheck;
 import org.json.JSONException;
 import org.json.JSONObject;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.AbstractValueInstanceConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry.ValueInstanceConverter;
 import org.springframework.beans.factory.InitializingBean;
 
 /**
  * @author Axel Faust
  */
-public class StandardToSimpleJSONObjectConverter implements ValueInstanceConverter, InitializingBean
+public class StandardToSimpleJSONObjectConverter extends AbstractValueInstanceConverter implements InitializingBean
 {
 
     protected ValueInstanceConverterRegistry registry;
@@ -87,14 +86,23 @@ public class StandardToSimpleJSONObjectConverter implements ValueInstanceConvert
     @Override
     public Object convertValueForScript(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
     {
-        if (!(value instanceof String))
+        if (!(value instanceof JSONObject))
         {
-            throw new IllegalArgumentException("value must be a " + String.class);
+            throw new IllegalArgumentException("value must be a " + JSONObject.class);
         }
 
         return this.convertImpl(value, globalDelegate, expectedClass, true);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object tryConvertValueForScript(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+    {
+        return this.tryConvertImpl(value, globalDelegate, expectedClass, true);
+    }
+
     /**
      *
      * {@inheritDoc}
@@ -128,6 +136,15 @@ public class StandardToSimpleJSONObjectConverter implements ValueInstanceConvert
         return this.convertImpl(value, globalDelegate, expectedClass, false);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object tryConvertValueForJava(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+    {
+        return this.tryConvertImpl(value, globalDelegate, expectedClass, false);
+    }
+
     protected boolean canConvertImpl(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass,
             final boolean forScript)
     {
@@ -157,28 +174,52 @@ public class StandardToSimpleJSONObjectConverter implements ValueInstanceConvert
         return canConvert;
     }
 
-    protected org.json.simple.JSONObject convertImpl(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass,
+    protected Object convertImpl(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass,
             final boolean forScript)
     {
-        final JSONObject jsonObj = (JSONObject) value;
+        final Object result = this.tryConvertImpl(value, globalDelegate, expectedClass, forScript);
+        if (result == ValueConverter.UNCONVERTIBLE)
+        {
+            throw new UnsupportedOperationException("Can't convert " + value + " to " + expectedClass);
+        }
+        return result;
+    }
 
-        final org.json.simple.JSONObject result = new org.json.simple.JSONObject();
-        try
+    protected Object tryConvertImpl(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass,
+            final boolean forScript)
+    {
+        Object result = ValueConverter.UNCONVERTIBLE;
+        if (value instanceof JSONObject && org.json.simple.JSONObject.class.equals(expectedClass))
         {
-            final Iterator<?> keys = jsonObj.keys();
-            for (Object key = keys.next(); keys.hasNext(); key = keys.next())
+            final JSONObject jsonObj = (JSONObject) value;
+            final org.json.simple.JSONObject simpleJsonObj = new org.json.simple.JSONObject();
+            try
             {
-                final Object subValue = jsonObj.get(String.valueOf(key));
+                boolean convertible = true;
+                final Iterator<?> keys = jsonObj.keys();
+                while (keys.hasNext() && convertible)
+                {
+                    final Object key = keys.next();
+                    final Object subValue = jsonObj.get(String.valueOf(key));
+                    final Object convertedSubValue = forScript ? globalDelegate.tryConvertValueForScript(subValue, Object.class)
+                            : globalDelegate.tryConvertValueForJava(subValue, Object.class);
+                    convertible = convertedSubValue != ValueConverter.UNCONVERTIBLE;
+                    if (convertible)
+                    {
+                        simpleJsonObj.put(key, convertedSubValue);
+                    }
+                }
 
-                result.put(key,
-                        (forScript ? globalDelegate.canConvertValueForScript(subValue) : globalDelegate.canConvertValueForJava(subValue)));
+                if (convertible)
+                {
+                    result = simpleJsonObj;
+                }
+            }
+            catch (final JSONException ex)
+            {
+                result = ValueConverter.UNCONVERTIBLE;
             }
         }
-        catch (final JSONException ex)
-        {
-            throw new ScriptException("Error converting JSONObject", ex);
-        }
-
         return result;
     }
 }
@@ -19,15 +19,15 @@ import java.util.HashSet;
 import java.util.Set;
 
 import org.alfresco.util.PropertyCheck;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.AbstractValueInstanceConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry.ValueInstanceConverter;
 import org.springframework.beans.factory.InitializingBean;
 
 /**
  * @author Axel Faust
  */
-public class StringToNumberConverter implements ValueInstanceConverter, InitializingBean
+public class StringToNumberConverter extends AbstractValueInstanceConverter implements InitializingBean
 {
 
     private static final Set<Class<? extends Number>> SIMPLE_NUMBER_CLASSES = Collections
@@ -115,6 +115,28 @@ public class StringToNumberConverter implements ValueInstanceConverter, Initiali
         return globalDelegate.convertValueForScript(Double.valueOf((String) value), expectedClass);
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object tryConvertValueForScript(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+    {
+        Object result = ValueConverter.UNCONVERTIBLE;
+        if (value instanceof String
+                && (expectedClass.isAssignableFrom(Number.class) || SIMPLE_NUMBER_CLASSES.contains(expectedClass)))
+        {
+            try
+            {
+                result = globalDelegate.tryConvertValueForScript(Double.valueOf((String) value), expectedClass);
+            }
+            catch (final NumberFormatException ex)
+            {
+                result = ValueConverter.UNCONVERTIBLE;
+            }
+        }
+        return result;
+    }
+
     /**
      *
      * {@inheritDoc}
@@ -162,4 +184,26 @@ public class StringToNumberConverter implements ValueInstanceConverter, Initiali
 
         return globalDelegate.convertValueForJava(Double.valueOf((String) value), expectedClass);
     }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object tryConvertValueForJava(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+    {
+        Object result = ValueConverter.UNCONVERTIBLE;
+        if (value instanceof String
+                && (expectedClass.isAssignableFrom(Number.class) || SIMPLE_NUMBER_CLASSES.contains(expectedClass)))
+        {
+            try
+            {
+                result = globalDelegate.tryConvertValueForJava(Double.valueOf((String) value), expectedClass);
+            }
+            catch (final NumberFormatException ex)
+            {
+                result = ValueConverter.UNCONVERTIBLE;
+            }
+        }
+        return result;
+    }
 }
@@ -13,21 +13,13 @@
  */
 package de.axelfaust.alfresco.enhScriptEnv.common.script.converter.rhino;
 
-import java.util.Arrays;
-
 import org.mozilla.javascript.Context;
-import org.mozilla.javascript.NativeJavaObject;
 import org.mozilla.javascript.ScriptRuntime;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.WrapFactory;
-import org.springframework.aop.framework.ConstructorArgumentAwareProxyFactory;
-import org.springframework.aop.framework.ProxyFactory;
 
-import de.axelfaust.alfresco.enhScriptEnv.common.script.aop.AdapterObject;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.aop.AdapterObjectInterceptor;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.aop.NativeJavaMethodWrappingInterceptor;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.adapter.NativeJavaObjectAdapter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueConverter;
-import de.axelfaust.alfresco.enhScriptEnv.common.util.ClassUtils;
 
 /**
  * @author Axel Faust
@@ -104,8 +96,21 @@ public class DelegatingWrapFactory extends WrapFactory
         else
         {
             final Boolean guardValue = this.recursionGuard.get();
-            if (Boolean.TRUE.equals(guardValue)
-                    || !ValueConverter.GLOBAL_CONVERTER.get().canConvertValueForScript(javaObject, Scriptable.class))
+            Object converted = ValueConverter.UNCONVERTIBLE;
+            if (!Boolean.TRUE.equals(guardValue))
+            {
+                this.recursionGuard.set(Boolean.TRUE);
+                try
+                {
+                    converted = ValueConverter.GLOBAL_CONVERTER.get().tryConvertValueForScript(javaObject, Scriptable.class);
+                }
+                finally
+                {
+                    this.recursionGuard.set(guardValue);
+                }
+            }
+
+            if (converted == ValueConverter.UNCONVERTIBLE)
             {
                 if (javaObject instanceof Scriptable)
                 {
@@ -120,39 +125,17 @@ public class DelegatingWrapFactory extends WrapFactory
                 }
                 else
                 {
-                    // default
-                    result = super.wrapAsJavaObject(cx, scope == null ? this.scope : scope, javaObject, staticType);
-
-                    if (result instanceof NativeJavaObject)
-                    {
-                        final ProxyFactory proxyFactory = new ConstructorArgumentAwareProxyFactory(new Object[] {
-                                scope == null ? this.scope : scope, javaObject, staticType }, new Class<?>[] { Scriptable.class,
-                                Object.class, Class.class });
-                        proxyFactory.addAdvice(AdapterObjectInterceptor.getInstance());
-                        proxyFactory.addAdvice(NativeJavaMethodWrappingInterceptor.getInstance());
-                        proxyFactory.setInterfaces(ClassUtils.collectInterfaces(NativeJavaObject.class,
-                                Arrays.<Class<?>> asList(AdapterObject.class)));
-                        proxyFactory.setTarget(result);
-                        proxyFactory.setProxyTargetClass(true);
-                        result = (Scriptable) proxyFactory.getProxy();
-                    }
+                    // default (with adapted method handles)
+                    result = new NativeJavaObjectAdapter(scope == null ? this.scope : scope, javaObject, staticType);
                 }
             }
             else
             {
-                this.recursionGuard.set(Boolean.TRUE);
-                try
-                {
-                    result = (Scriptable) ValueConverter.GLOBAL_CONVERTER.get().convertValueForScript(javaObject, Scriptable.class);
+                result = (Scriptable) converted;
 
-                    if (!(javaObject instanceof Scriptable) && result.getParentScope() == null)
-                    {
-                        result.setParentScope(scope == null ? this.scope : scope);
-                    }
-                }
-                finally
+                if (!(javaObject instanceof Scriptable) && result.getParentScope() == null)
                 {
-                    this.recursionGuard.set(guardValue);
+                    result.setParentScope(scope == null ? this.scope : scope);
                 }
             }
         }
@@ -13,27 +13,19 @@
  */
 package de.axelfaust.alfresco.enhScriptEnv.common.script.converter.rhino;
 
-import java.util.Arrays;
-
 import org.alfresco.util.PropertyCheck;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.IdScriptableObject;
-import org.mozilla.javascript.NativeJavaObject;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.aop.framework.ConstructorArgumentAwareProxyFactory;
-import org.springframework.aop.framework.ProxyFactory;
 import org.springframework.beans.factory.InitializingBean;
 
-import de.axelfaust.alfresco.enhScriptEnv.common.script.aop.AdapterObject;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.aop.AdapterObjectInterceptor;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.aop.NativeStringEmulatingInterceptor;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.adapter.NativeStringObjectAdapter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry.ValueInstanceConverter;
-import de.axelfaust.alfresco.enhScriptEnv.common.util.ClassUtils;
 
 /**
  * @author Axel Faust
@@ -197,17 +189,7 @@ public class NativeAndConsStringConverter implements ValueInstanceConverter, Ini
             throw new IllegalArgumentException("value must be a CharSequence");
         }
 
-        final NativeJavaObject nativeJavaObject = new NativeJavaObject(DUMMY_SCOPE, value, value.getClass());
-
-        final ProxyFactory proxyFactory = new ConstructorArgumentAwareProxyFactory(new Object[] { DUMMY_SCOPE, value, value.getClass() },
-                new Class<?>[] { Scriptable.class, Object.class, Class.class });
-        proxyFactory.addAdvice(AdapterObjectInterceptor.getInstance());
-        proxyFactory.addAdvice(NativeStringEmulatingInterceptor.getInstance());
-        proxyFactory.setInterfaces(ClassUtils.collectInterfaces(nativeJavaObject, Arrays.<Class<?>> asList(AdapterObject.class)));
-        proxyFactory.setTarget(nativeJavaObject);
-        proxyFactory.setProxyTargetClass(true);
-
-        final Object result = proxyFactory.getProxy();
+        final Object result = new NativeStringObjectAdapter(DUMMY_SCOPE, value, value.getClass());
         return result;
     }
 }
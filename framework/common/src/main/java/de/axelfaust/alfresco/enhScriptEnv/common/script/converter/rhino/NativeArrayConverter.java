@@ -25,15 +25,15 @@ import org.mozilla.javascript.Context;
 import org.mozilla.javascript.NativeArray;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.AbstractValueInstanceConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry.ValueInstanceConverter;
 import org.springframework.beans.factory.InitializingBean;
 
 /**
  * @author Axel Faust
  */
-public class NativeArrayConverter implements ValueInstanceConverter, InitializingBean
+public class NativeArrayConverter extends AbstractValueInstanceConverter implements InitializingBean
 {
 
     private static final Scriptable DUMMY_SCOPE;
@@ -154,40 +154,77 @@ public class NativeArrayConverter implements ValueInstanceConverter, Initializin
     @Override
     public Object convertValueForScript(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
     {
-        final Object[] arr;
-        int arrIdx = 0;
-        if (value instanceof Collection<?>)
+        if (!(value instanceof Collection<?>) && !value.getClass().isArray())
         {
-            final Collection<?> coll = (Collection<?>) value;
-            arr = new Object[coll.size()];
-            for (final Object element : coll)
-            {
-                arr[arrIdx++] = globalDelegate.convertValueForScript(element);
-            }
+            throw new IllegalArgumentException("value must be either collection or array");
         }
-        else if (value.getClass().isArray())
+
+        final Object result = this.tryConvertValueForScript(value, globalDelegate, expectedClass);
+        if (result == ValueConverter.UNCONVERTIBLE)
         {
-            final int length = Array.getLength(value);
-            arr = new Object[length];
-            for (int idx = 0; idx < length; idx++)
-            {
-                arr[arrIdx++] = globalDelegate.convertValueForScript(Array.get(value, idx));
-            }
+            throw new UnsupportedOperationException("Can't convert elements of " + value);
         }
-        else
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object tryConvertValueForScript(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+    {
+        Object[] arr = null;
+        if (expectedClass.isAssignableFrom(NativeArray.class))
         {
-            throw new IllegalArgumentException("value must be either collection or array");
+            if (value instanceof Collection<?>)
+            {
+                final Collection<?> coll = (Collection<?>) value;
+                arr = new Object[coll.size()];
+                int arrIdx = 0;
+                for (final Object element : coll)
+                {
+                    final Object converted = globalDelegate.tryConvertValueForScript(element, Object.class);
+                    if (converted == ValueConverter.UNCONVERTIBLE)
+                    {
+                        arr = null;
+                        break;
+                    }
+                    arr[arrIdx++] = converted;
+                }
+            }
+            else if (value.getClass().isArray())
+            {
+                final int length = Array.getLength(value);
+                arr = new Object[length];
+                for (int idx = 0; idx < length; idx++)
+                {
+                    final Object converted = globalDelegate.tryConvertValueForScript(Array.get(value, idx), Object.class);
+                    if (converted == ValueConverter.UNCONVERTIBLE)
+                    {
+                        arr = null;
+                        break;
+                    }
+                    arr[idx] = converted;
+                }
+            }
         }
 
         final Object result;
-        final Context cx = Context.enter();
-        try
+        if (arr != null)
         {
-            result = cx.newArray(DUMMY_SCOPE, arr);
+            final Context cx = Context.enter();
+            try
+            {
+                result = cx.newArray(DUMMY_SCOPE, arr);
+            }
+            finally
+            {
+                Context.exit();
+            }
         }
-        finally
+        else
         {
-            Context.exit();
+            result = ValueConverter.UNCONVERTIBLE;
         }
 
         return result;
@@ -280,54 +317,92 @@ public class NativeArrayConverter implements ValueInstanceConverter, Initializin
             throw new IllegalArgumentException("value must be a NativeArray");
         }
 
-        final NativeArray arr = (NativeArray) value;
-        final Object[] ids = arr.getIds();
+        final Object result = this.tryConvertValueForJava(value, globalDelegate, expectedClass);
+        if (result == ValueConverter.UNCONVERTIBLE)
+        {
+            throw new UnsupportedOperationException("Can't convert elements of " + value);
+        }
+        return result;
+    }
 
-        final Object result;
-        if (expectedClass.isAssignableFrom(List.class) || expectedClass.isArray())
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object tryConvertValueForJava(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+    {
+        Object result = ValueConverter.UNCONVERTIBLE;
+        if (value instanceof NativeArray)
         {
-            final Class<?> expectedComponentClass = expectedClass.isArray() ? expectedClass.getComponentType() : Object.class;
-            final List<Object> list = new ArrayList<Object>();
-            for (int idx = 0; idx < ids.length; idx++)
-            {
-                if (ids[idx] instanceof Integer)
-                {
-                    final Object element = arr.get(((Integer) ids[idx]).intValue(), arr);
-                    final Object converted = globalDelegate.convertValueForJava(element, expectedComponentClass);
-                    list.add(converted);
-                }
-            }
+            final NativeArray arr = (NativeArray) value;
+            final Object[] ids = arr.getIds();
 
-            if (expectedClass.isArray())
+            if (expectedClass.isAssignableFrom(List.class) || expectedClass.isArray())
             {
-                final Object newArr = Array.newInstance(expectedComponentClass, list.size());
-                for (int idx = 0; idx < list.size(); idx++)
+                if (this.isArray(ids))
                 {
-                    Array.set(newArr, idx, list.get(idx));
+                    result = this.tryConvertElements(arr, ids, globalDelegate, expectedClass);
                 }
-                result = newArr;
             }
-            else
+            else if (expectedClass.isAssignableFrom(Map.class))
             {
-                result = list;
+                result = this.tryConvertProperties(arr, ids, globalDelegate);
             }
         }
-        else
+        return result;
+    }
+
+    protected Object tryConvertElements(final NativeArray arr, final Object[] ids, final ValueConverter globalDelegate,
+            final Class<?> expectedClass)
+    {
+        final Class<?> expectedComponentClass = expectedClass.isArray() ? expectedClass.getComponentType() : Object.class;
+        final List<Object> list = new ArrayList<Object>(ids.length);
+        boolean convertible = true;
+        for (int idx = 0; idx < ids.length && convertible; idx++)
+        {
+            final Object element = arr.get(((Integer) ids[idx]).intValue(), arr);
+            final Object converted = globalDelegate.tryConvertValueForJava(element, expectedComponentClass);
+            convertible = converted != ValueConverter.UNCONVERTIBLE;
+            list.add(converted);
+        }
+
+        final Object result;
+        if (!convertible)
+        {
+            result = ValueConverter.UNCONVERTIBLE;
+        }
+        else if (expectedClass.isArray())
         {
-            final Map<Object, Object> propValues = new HashMap<Object, Object>(ids.length);
-            for (final Object propId : ids)
+            final Object newArr = Array.newInstance(expectedComponentClass, list.size());
+            for (int idx = 0; idx < list.size(); idx++)
             {
-                final Object val = arr.get(propId.toString(), arr);
-                final Object convertedKey = globalDelegate.convertValueForJava(propId);
-                final Object convertedValue = globalDelegate.convertValueForJava(val);
-                propValues.put(convertedKey, convertedValue);
+                Array.set(newArr, idx, list.get(idx));
             }
-            result = propValues;
+            result = newArr;
+        }
+        else
+        {
+            result = list;
         }
-
         return result;
     }
 
+    protected Object tryConvertProperties(final NativeArray arr, final Object[] ids, final ValueConverter globalDelegate)
+    {
+        final Map<Object, Object> propValues = new HashMap<Object, Object>(ids.length);
+        boolean convertible = true;
+        for (int idx = 0; idx < ids.length && convertible; idx++)
+        {
+            final Object propId = ids[idx];
+            final Object val = arr.get(propId.toString(), arr);
+            final Object convertedKey = globalDelegate.tryConvertValueForJava(propId, Object.class);
+            final Object convertedValue = globalDelegate.tryConvertValueForJava(val, Object.class);
+            convertible = convertedKey != ValueConverter.UNCONVERTIBLE && convertedValue != ValueConverter.UNCONVERTIBLE;
+            propValues.put(convertedKey, convertedValue);
+        }
+        return convertible ? propValues : ValueConverter.UNCONVERTIBLE;
+    }
+
     protected boolean isArray(final Object[] ids)
     {
         boolean result = true;
@@ -13,28 +13,17 @@
  */
 package de.axelfaust.alfresco.enhScriptEnv.common.script.converter.rhino;
 
-import java.util.Arrays;
 import java.util.List;
 
 import org.alfresco.util.PropertyCheck;
 import org.mozilla.javascript.NativeArray;
 import org.mozilla.javascript.Scriptable;
-import org.mozilla.javascript.Undefined;
-import org.springframework.aop.framework.ProxyFactory;
 import org.springframework.beans.factory.InitializingBean;
 
-import de.axelfaust.alfresco.enhScriptEnv.common.script.aop.AdapterObject;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.aop.AdapterObjectInterceptor;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.aop.LengthFacadeInterceptor;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.aop.NativeArrayFunctionSimulatingInterceptor;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.aop.NativeJavaObjectFallbackInterceptor;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.aop.ScriptableArrayLikeListAdapterInterceptor;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.aop.ScriptableBaseAdapterInterceptor;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.aop.ValueConvertingListInterceptor;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.adapter.ScriptableListAdapter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry.ValueInstanceConverter;
-import de.axelfaust.alfresco.enhScriptEnv.common.util.ClassUtils;
 
 /**
  * A converter to handle conversion for {@link List lists} that should be exposed via the {@link Scriptable} interface much like a
@@ -140,25 +129,7 @@ public class ScriptableFacadeListConverter implements ValueInstanceConverter, In
             throw new IllegalArgumentException("value must be a List");
         }
 
-        final Object result;
-
-        final ProxyFactory proxyFactory = new ProxyFactory();
-
-        proxyFactory.addAdvice(AdapterObjectInterceptor.getInstance());
-        proxyFactory.addAdvice(new ScriptableBaseAdapterInterceptor());
-        proxyFactory.addAdvice(NativeJavaObjectFallbackInterceptor.getInstance());
-        proxyFactory.addAdvice(new LengthFacadeInterceptor(Undefined.instance, false));
-        proxyFactory.addAdvice(NativeArrayFunctionSimulatingInterceptor.getInstance());
-        // TODO getIds
-        proxyFactory.addAdvice(ScriptableArrayLikeListAdapterInterceptor.getInstance());
-        // MAYBE we could also provide transparent array functions like push?
-        proxyFactory.addAdvice(new ValueConvertingListInterceptor(globalDelegate));
-
-        proxyFactory.setInterfaces(ClassUtils.collectInterfaces(value, Arrays.<Class<?>> asList(Scriptable.class, AdapterObject.class)));
-
-        proxyFactory.setTarget(value);
-
-        result = proxyFactory.getProxy();
+        final Object result = ScriptableListAdapter.adapt((List<?>) value, globalDelegate);
         return result;
     }
 }
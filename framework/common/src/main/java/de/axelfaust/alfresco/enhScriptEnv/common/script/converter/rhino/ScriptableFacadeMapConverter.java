@@ -13,8 +13,12 @@
  */
 package de.axelfaust.alfresco.enhScriptEnv.common.script.converter.rhino;
 
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.alfresco.util.PropertyCheck;
 import org.mozilla.javascript.Scriptable;
@@ -34,6 +38,7 @@ import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceC
 import de.axelfaust.alfresco.enhScriptEnv.common.util.ClassUtils;
 
 import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.aop.framework.ProxyShape;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.extensions.webscripts.NativeMap;
 
@@ -46,6 +51,13 @@ import org.springframework.extensions.webscripts.NativeMap;
 public class ScriptableFacadeMapConverter implements ValueInstanceConverter, InitializingBean
 {
 
+    private static final LengthFacadeInterceptor LENGTH_FACADE_INTERCEPTOR = new LengthFacadeInterceptor(Undefined.instance, false);
+
+    private static final ProxyShape.InstanceInterceptorSlot BASE_ADAPTER_INTERCEPTOR_SLOT = new ProxyShape.InstanceInterceptorSlot(0);
+
+    // shapes reference their class, so they are only softly held to not pin the class loader of any map class
+    protected final Map<Class<?>, Reference<ProxyShape>> proxyShapes = new WeakHashMap<Class<?>, Reference<ProxyShape>>();
+
     protected ValueInstanceConverterRegistry registry;
 
     /**
@@ -141,14 +153,57 @@ public class ScriptableFacadeMapConverter implements ValueInstanceConverter, Ini
             throw new IllegalArgumentException("value must be a Map");
         }
 
-        final Object result;
+        final ProxyShape proxyShape = this.getProxyShape(value.getClass(), globalDelegate);
+        final Object result = proxyShape.getProxy(value, Collections.singletonList(new ScriptableBaseAdapterInterceptor()));
+        return result;
+    }
+
+    protected ProxyShape getProxyShape(final Class<?> valueClass, final ValueConverter globalDelegate)
+    {
+        ProxyShape proxyShape;
+        // shapes bind the value converter, so we only cache the shapes for the registry (the global delegate in all default setups)
+        if (globalDelegate == this.registry)
+        {
+            synchronized (this.proxyShapes)
+            {
+                final Reference<ProxyShape> proxyShapeRef = this.proxyShapes.get(valueClass);
+                proxyShape = proxyShapeRef != null ? proxyShapeRef.get() : null;
+            }
+
+            if (proxyShape == null)
+            {
+                proxyShape = this.createProxyShape(valueClass, globalDelegate);
+                synchronized (this.proxyShapes)
+                {
+                    final Reference<ProxyShape> existingProxyShapeRef = this.proxyShapes.get(valueClass);
+                    final ProxyShape existingProxyShape = existingProxyShapeRef != null ? existingProxyShapeRef.get() : null;
+                    if (existingProxyShape != null)
+                    {
+                        proxyShape = existingProxyShape;
+                    }
+                    else
+                    {
+                        this.proxyShapes.put(valueClass, new SoftReference<ProxyShape>(proxyShape));
+                    }
+                }
+            }
+        }
+        else
+        {
+            proxyShape = this.createProxyShape(valueClass, globalDelegate);
+        }
+        return proxyShape;
+    }
 
+    protected ProxyShape createProxyShape(final Class<?> valueClass, final ValueConverter globalDelegate)
+    {
         final ProxyFactory proxyFactory = new ProxyFactory();
 
         proxyFactory.addAdvice(AdapterObjectInterceptor.getInstance());
-        proxyFactory.addAdvice(new ScriptableBaseAdapterInterceptor());
+        // base adapter interceptor holds parent scope / prototype and must be specific to the proxy
+        proxyFactory.addAdvice(BASE_ADAPTER_INTERCEPTOR_SLOT);
         proxyFactory.addAdvice(NativeJavaObjectFallbackInterceptor.getInstance());
-        proxyFactory.addAdvice(new LengthFacadeInterceptor(Undefined.instance, false));
+        proxyFactory.addAdvice(LENGTH_FACADE_INTERCEPTOR);
         // TODO getIds
         proxyFactory.addAdvice(ScriptableArrayLikeMapAdapterInterceptor.getInstance());
         proxyFactory.addAdvice(ScriptableMapListAdapterInterceptor.getInstance());
@@ -156,13 +211,12 @@ public class ScriptableFacadeMapConverter implements ValueInstanceConverter, Ini
         proxyFactory.addAdvice(new ValueConvertingMapInterceptor(globalDelegate));
 
         // this somehow worked in Java 8 Nashorn PoC, but return types of remove(Object) differ between Map and List
-        // proxyFactory.setInterfaces(ClassUtils.collectInterfaces(value, Arrays.<Class<?>> asList(Scriptable.class, List.class,
+        // proxyFactory.setInterfaces(ClassUtils.collectInterfaces(valueClass, Arrays.<Class<?>> asList(Scriptable.class, List.class,
         // AdapterObject.class)));
-        proxyFactory.setInterfaces(ClassUtils.collectInterfaces(value, Arrays.<Class<?>> asList(Scriptable.class, AdapterObject.class)));
+        proxyFactory.setInterfaces(ClassUtils.collectInterfaces(valueClass,
+                Arrays.<Class<?>> asList(Scriptable.class, AdapterObject.class)));
 
-        proxyFactory.setTarget(value);
-
-        result = proxyFactory.getProxy();
-        return result;
+        final ProxyShape proxyShape = new ProxyShape(proxyFactory, valueClass);
+        return proxyShape;
     }
 }
@@ -18,9 +18,9 @@ import java.util.Map;
 
 import org.alfresco.util.PropertyCheck;
 import org.mozilla.javascript.IdScriptableObject;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.AbstractValueInstanceConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry.ValueInstanceConverter;
 import org.springframework.beans.factory.InitializingBean;
 
 /**
@@ -28,7 +28,7 @@ import org.springframework.beans.factory.InitializingBean;
  *
  * @author Axel Faust
  */
-public class ScriptableObjectConverter implements ValueInstanceConverter, InitializingBean
+public class ScriptableObjectConverter extends AbstractValueInstanceConverter implements InitializingBean
 {
 
     protected ValueInstanceConverterRegistry registry;
@@ -82,6 +82,16 @@ public class ScriptableObjectConverter implements ValueInstanceConverter, Initia
         throw new UnsupportedOperationException("This operation is not supported and should not have been called");
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object tryConvertValueForScript(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+    {
+        // can't convert anything
+        return ValueConverter.UNCONVERTIBLE;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -143,11 +153,40 @@ public class ScriptableObjectConverter implements ValueInstanceConverter, Initia
             throw new IllegalArgumentException("value must be a IdScriptableObject");
         }
 
-        final IdScriptableObject object = (IdScriptableObject) value;
+        final Object result = this.tryConvertProperties((IdScriptableObject) value, globalDelegate);
+        if (result == ValueConverter.UNCONVERTIBLE)
+        {
+            throw new UnsupportedOperationException("Can't convert property values of " + value);
+        }
+
+        return result;
+    }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object tryConvertValueForJava(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+    {
+        final Object result;
+        if (value instanceof IdScriptableObject && expectedClass.isAssignableFrom(Map.class))
+        {
+            result = this.tryConvertProperties((IdScriptableObject) value, globalDelegate);
+        }
+        else
+        {
+            result = ValueConverter.UNCONVERTIBLE;
+        }
+        return result;
+    }
+
+    protected Object tryConvertProperties(final IdScriptableObject object, final ValueConverter globalDelegate)
+    {
         final Object[] propIds = object.getIds();
         final Map<String, Object> propValues = new HashMap<String, Object>(propIds.length);
-        for (int i = 0; i < propIds.length; i++)
+
+        boolean convertible = true;
+        for (int i = 0; i < propIds.length && convertible; i++)
         {
             // work on each key in turn
             final Object propId = propIds[i];
@@ -158,11 +197,17 @@ public class ScriptableObjectConverter implements ValueInstanceConverter, Initia
                 // get the value out for the specified key
                 final Object val = object.get((String) propId, object);
                 // recursively call this method to convert the value
-                propValues.put((String) propId, globalDelegate.convertValueForJava(val));
+                final Object convertedVal = globalDelegate.tryConvertValueForJava(val, Object.class);
+                convertible = convertedVal != ValueConverter.UNCONVERTIBLE;
+                if (convertible)
+                {
+                    propValues.put((String) propId, convertedVal);
+                }
             }
         }
 
-        return propValues;
+        final Object result = convertible ? propValues : ValueConverter.UNCONVERTIBLE;
+        return result;
     }
 
 }
@@ -18,9 +18,9 @@ import org.springframework.beans.factory.InitializingBean;
 import org.springframework.extensions.webscripts.ScriptValueConverter;
 import org.springframework.extensions.webscripts.ScriptableWrappedMap;
 
+import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.AbstractValueInstanceConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry.ValueInstanceConverter;
 
 /**
  * This converter is primarily used to remove any instances of {@link ScriptableWrappedMap} - when possible - in favor of AOP-based
@@ -30,7 +30,7 @@ import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceC
  *
  * @author Axel Faust
  */
-public class ScriptableWrappedMapConverter implements ValueInstanceConverter, InitializingBean
+public class ScriptableWrappedMapConverter extends AbstractValueInstanceConverter implements InitializingBean
 {
 
     protected ValueInstanceConverterRegistry registry;
@@ -112,6 +112,26 @@ public class ScriptableWrappedMapConverter implements ValueInstanceConverter, In
         return result;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object tryConvertValueForScript(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+    {
+        final Object result;
+        if (ScriptableWrappedMap.class.isInstance(value) && !ScriptableWrappedMap.class.isAssignableFrom(expectedClass))
+        {
+            // Unless we have a very specific Map instance, ScriptableFacadeMapConverter should ensure we keep list-like access
+            // functionality of ScriptableWrappedMap
+            result = globalDelegate.tryConvertValueForScript(((ScriptableWrappedMap) value).unwrap(), expectedClass);
+        }
+        else
+        {
+            result = ValueConverter.UNCONVERTIBLE;
+        }
+        return result;
+    }
+
     /**
      *
      * {@inheritDoc}
@@ -14,9 +14,9 @@
 package de.axelfaust.alfresco.enhScriptEnv.common.script.converter.rhino;
 
 import org.alfresco.util.PropertyCheck;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.AbstractValueInstanceConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry.ValueInstanceConverter;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.extensions.webscripts.NativeMap;
 
@@ -25,7 +25,7 @@ import org.springframework.extensions.webscripts.NativeMap;
  *
  * @author Axel Faust
  */
-public class SurfNativeMapConverter implements ValueInstanceConverter, InitializingBean
+public class SurfNativeMapConverter extends AbstractValueInstanceConverter implements InitializingBean
 {
     protected ValueInstanceConverterRegistry registry;
 
@@ -105,6 +105,26 @@ public class SurfNativeMapConverter implements ValueInstanceConverter, Initializ
         return result;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object tryConvertValueForScript(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+    {
+        final Object result;
+        if (NativeMap.class.isInstance(value) && !NativeMap.class.isAssignableFrom(expectedClass))
+        {
+            // Unless we have a very specific Map instance, ScriptableFacadeMapConverter should ensure we keep list-like access
+            // functionality of NativeMap
+            result = globalDelegate.tryConvertValueForScript(((NativeMap) value).unwrap(), expectedClass);
+        }
+        else
+        {
+            result = ValueConverter.UNCONVERTIBLE;
+        }
+        return result;
+    }
+
     /**
      *
      * {@inheritDoc}
@@ -25,9 +25,9 @@ import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.WrapFactory;
 import org.mozilla.javascript.Wrapper;
 
+import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.AbstractValueInstanceConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry;
-import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry.ValueInstanceConverter;
 
 import org.springframework.beans.factory.InitializingBean;
 
@@ -36,7 +36,7 @@ import org.springframework.beans.factory.InitializingBean;
  *
  * @author Axel Faust
  */
-public class WrapFactoryConverter implements ValueInstanceConverter, InitializingBean
+public class WrapFactoryConverter extends AbstractValueInstanceConverter implements InitializingBean
 {
 
     private static final Map<Class<?>, Class<?>> WRAPPER_TO_PRIMITIVE;
@@ -197,4 +197,30 @@ public class WrapFactoryConverter implements ValueInstanceConverter, Initializin
         return result;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Object tryConvertValueForJava(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+    {
+        final Object result;
+        if (value instanceof Wrapper)
+        {
+            final Object unwrapped = ((Wrapper) value).unwrap();
+            if (!expectedClass.isInstance(unwrapped))
+            {
+                result = globalDelegate.tryConvertValueForJava(unwrapped, expectedClass);
+            }
+            else
+            {
+                result = unwrapped;
+            }
+        }
+        else
+        {
+            result = ValueConverter.UNCONVERTIBLE;
+        }
+        return result;
+    }
+
 }
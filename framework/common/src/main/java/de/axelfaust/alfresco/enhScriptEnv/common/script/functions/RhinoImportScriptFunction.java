@@ -22,6 +22,7 @@ import org.mozilla.javascript.ScriptRuntime;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
 import org.mozilla.javascript.Undefined;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.ImmutableScopeContributor;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.ReferenceScript;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.ScriptImportException;
 import org.slf4j.Logger;
@@ -35,7 +36,7 @@ import org.slf4j.LoggerFactory;
  * @author Axel Faust
  */
 public class RhinoImportScriptFunction<Script extends ReferenceScript> extends AbstractImportScriptFunction<Script, Scriptable> implements
-        IdFunctionCall
+        IdFunctionCall, ImmutableScopeContributor
 {
     private static final Logger LOGGER = LoggerFactory.getLogger(RhinoImportScriptFunction.class);
 
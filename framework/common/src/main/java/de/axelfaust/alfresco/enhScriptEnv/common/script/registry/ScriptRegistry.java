@@ -13,6 +13,8 @@
  */
 package de.axelfaust.alfresco.enhScriptEnv.common.script.registry;
 
+import java.util.Collection;
+
 /**
  * @author Axel Faust
  */
@@ -30,4 +32,29 @@ public interface ScriptRegistry<Script>
     void registerScript(String scriptName, RegisterableScript<Script> script);
 
     void registerScript(String scriptName, String subRegistry, RegisterableScript<Script> script);
+
+    /**
+     * Retrieves the names of all scripts registered in the global registry. The result is a snapshot and does not reflect later
+     * registrations.
+     *
+     * @return the names of the globally registered scripts
+     */
+    Collection<String> getScriptNames();
+
+    /**
+     * Retrieves the names of all sub-registries. The result is a snapshot and does not reflect later registrations.
+     *
+     * @return the names of the sub-registries
+     */
+    Collection<String> getSubRegistryNames();
+
+    /**
+     * Retrieves the names of all scripts registered in a specific sub-registry. The result is a snapshot and does not reflect later
+     * registrations.
+     *
+     * @param subRegistry
+     *            the name of the sub-registry
+     * @return the names of the scripts registered in the sub-registry
+     */
+    Collection<String> getScriptNames(String subRegistry);
 }
@@ -206,6 +206,67 @@ public class SimpleScriptRegistry<Script> implements ScriptRegistry<Script>
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<String> getScriptNames()
+    {
+        final Collection<String> scriptNames;
+        this.globalScriptsLock.readLock().lock();
+        try
+        {
+            scriptNames = new ArrayList<String>(this.globalScripts.keySet());
+        }
+        finally
+        {
+            this.globalScriptsLock.readLock().unlock();
+        }
+        return scriptNames;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<String> getSubRegistryNames()
+    {
+        final Collection<String> subRegistryNames;
+        this.subRegistriesLock.readLock().lock();
+        try
+        {
+            subRegistryNames = new ArrayList<String>(this.subRegistries.keySet());
+        }
+        finally
+        {
+            this.subRegistriesLock.readLock().unlock();
+        }
+        return subRegistryNames;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Collection<String> getScriptNames(final String subRegistry)
+    {
+        ParameterCheck.mandatoryString("subRegistry", subRegistry);
+
+        final Collection<String> scriptNames;
+        this.subRegistriesLock.readLock().lock();
+        try
+        {
+            final Map<String, Collection<RegisterableScript<Script>>> subRegistryScripts = this.subRegistries.get(subRegistry);
+            scriptNames = subRegistryScripts != null ? new ArrayList<String>(subRegistryScripts.keySet()) : Collections
+                    .<String> emptyList();
+        }
+        finally
+        {
+            this.subRegistriesLock.readLock().unlock();
+        }
+        return scriptNames;
+    }
+
     protected List<RegisterableScript<Script>> getScriptsByName(final String scriptName)
     {
         final List<RegisterableScript<Script>> scripts;
@@ -13,10 +13,14 @@
  */
 package de.axelfaust.alfresco.enhScriptEnv.common.util;
 
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.alfresco.util.ParameterCheck;
 
@@ -26,6 +30,10 @@ import org.alfresco.util.ParameterCheck;
 public final class ClassUtils
 {
 
+    // interfaces may stem from the class loader of the key, so they are only softly held to not pin the class loader
+    private static final Map<Class<?>, Reference<Set<Class<?>>>> IMPLEMENTED_INTERFACES =
+            new WeakHashMap<Class<?>, Reference<Set<Class<?>>>>();
+
     private ClassUtils()
     {
         // NO-OP - prevent instantiation
@@ -74,15 +82,32 @@ public final class ClassUtils
         ParameterCheck.mandatory("baseType", baseType);
         ParameterCheck.mandatoryCollection("predefinedInterfaces", predefinedInterfaces);
 
-        final Set<Class<?>> interfaces = new HashSet<Class<?>>(predefinedInterfaces);
-        Class<?> implClass = baseType;
-        while (!Object.class.equals(implClass))
+        Set<Class<?>> implementedInterfaces;
+        synchronized (IMPLEMENTED_INTERFACES)
         {
-            interfaces.addAll(Arrays.asList(implClass.getInterfaces()));
+            final Reference<Set<Class<?>>> implementedInterfacesRef = IMPLEMENTED_INTERFACES.get(baseType);
+            implementedInterfaces = implementedInterfacesRef != null ? implementedInterfacesRef.get() : null;
+        }
 
-            implClass = implClass.getSuperclass();
+        if (implementedInterfaces == null)
+        {
+            implementedInterfaces = new HashSet<Class<?>>();
+            Class<?> implClass = baseType;
+            while (implClass != null && !Object.class.equals(implClass))
+            {
+                implementedInterfaces.addAll(Arrays.asList(implClass.getInterfaces()));
+
+                implClass = implClass.getSuperclass();
+            }
+            synchronized (IMPLEMENTED_INTERFACES)
+            {
+                IMPLEMENTED_INTERFACES.put(baseType, new SoftReference<Set<Class<?>>>(implementedInterfaces));
+            }
         }
 
+        final Set<Class<?>> interfaces = new HashSet<Class<?>>(predefinedInterfaces);
+        interfaces.addAll(implementedInterfaces);
+
         final Class<?>[] interfacesArr = interfaces.toArray(new Class<?>[0]);
         return interfacesArr;
     }
@@ -13,8 +13,12 @@
  */
 package de.axelfaust.alfresco.enhScriptEnv.common.util;
 
+import java.util.EnumMap;
+import java.util.Map;
+
 import org.apache.commons.logging.Log;
 import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.EnhancedScriptProcessor;
@@ -68,6 +72,11 @@ public class ScriptLoggerLog implements Log
 
     private final Context parentContext = Context.getCurrentContext();
 
+    // resolved enablement / log functions (both null until resolveEnabledLevels has been called)
+    private volatile Map<Level, Boolean> enabledLevels;
+
+    private volatile Map<Level, Function> logFunctions;
+
     public ScriptLoggerLog(final Scriptable scriptLogger, final EnhancedScriptProcessor scriptProcessor)
     {
         this.scriptLogger = scriptLogger;
@@ -279,7 +288,12 @@ public class ScriptLoggerLog implements Log
         }
     }
 
-    protected void doLog(final Level level, final String message)
+    /**
+     * Resolves the enabled log levels and the log functions of the script logger once so that subsequent enablement checks are answered
+     * without calling into the script logger and messages for disabled levels are discarded without entering a script context. This should
+     * only be used if the log levels are not expected to change during the lifetime of this instance, e.g. for the duration of a batch.
+     */
+    public void resolveEnabledLevels()
     {
         final Context currentContext = Context.getCurrentContext();
         if (currentContext == null)
@@ -293,83 +307,134 @@ public class ScriptLoggerLog implements Log
                 this.scriptProcessor.inheritCallChain(this.parentContext);
             }
 
-            if (ScriptableObject.hasProperty(this.scriptLogger, level.getLogMethod()))
+            final Map<Level, Boolean> enabledLevels = new EnumMap<Level, Boolean>(Level.class);
+            final Map<Level, Function> logFunctions = new EnumMap<Level, Function>(Level.class);
+            for (final Level level : Level.values())
             {
-                ScriptableObject.callMethod(this.scriptLogger, level.getLogMethod(), new Object[] { message });
+                enabledLevels.put(level, Boolean.valueOf(this.lookupLevelEnabled(level)));
+
+                final Object logFn = ScriptableObject.getProperty(this.scriptLogger, level.getLogMethod());
+                if (logFn instanceof Function)
+                {
+                    logFunctions.put(level, (Function) logFn);
+                }
             }
+
+            this.logFunctions = logFunctions;
+            // set last as a marker of completed resolution
+            this.enabledLevels = enabledLevels;
         }
         finally
         {
             if (currentContext == null)
             {
+                this.scriptProcessor.releaseCallChain();
                 Context.exit();
             }
         }
     }
 
+    protected void doLog(final Level level, final String message)
+    {
+        this.doLog(level, new Object[] { message });
+    }
+
     protected void doLog(final Level level, final String message, final Throwable t)
     {
-        final Context currentContext = Context.getCurrentContext();
-        if (currentContext == null)
-        {
-            Context.enter();
-        }
-        try
-        {
-            if (currentContext == null)
-            {
-                this.scriptProcessor.inheritCallChain(this.parentContext);
-            }
+        this.doLog(level, new Object[] { message, t });
+    }
 
-            if (ScriptableObject.hasProperty(this.scriptLogger, level.getLogMethod()))
+    protected void doLog(final Level level, final Object[] args)
+    {
+        final Map<Level, Boolean> enabledLevels = this.enabledLevels;
+        if (enabledLevels == null || Boolean.TRUE.equals(enabledLevels.get(level)))
+        {
+            final Context currentContext = Context.getCurrentContext();
+            final Context cx = currentContext == null ? Context.enter() : currentContext;
+            try
             {
-                ScriptableObject.callMethod(this.scriptLogger, level.getLogMethod(), new Object[] { message, t });
+                if (currentContext == null)
+                {
+                    this.scriptProcessor.inheritCallChain(this.parentContext);
+                }
+
+                if (enabledLevels != null)
+                {
+                    final Function logFn = this.logFunctions.get(level);
+                    if (logFn != null)
+                    {
+                        logFn.call(cx, ScriptableObject.getTopLevelScope(this.scriptLogger), this.scriptLogger, args);
+                    }
+                }
+                else if (ScriptableObject.hasProperty(this.scriptLogger, level.getLogMethod()))
+                {
+                    ScriptableObject.callMethod(this.scriptLogger, level.getLogMethod(), args);
+                }
             }
-        }
-        finally
-        {
-            if (currentContext == null)
+            finally
             {
-                Context.exit();
+                if (currentContext == null)
+                {
+                    this.scriptProcessor.releaseCallChain();
+                    Context.exit();
+                }
             }
         }
     }
 
     protected boolean checkLevelEnabled(final Level level)
     {
-        final Context currentContext = Context.getCurrentContext();
-        if (currentContext == null)
+        final boolean isEnabled;
+
+        final Map<Level, Boolean> enabledLevels = this.enabledLevels;
+        if (enabledLevels != null)
         {
-            Context.enter();
+            isEnabled = Boolean.TRUE.equals(enabledLevels.get(level));
         }
-        try
+        else
         {
+            final Context currentContext = Context.getCurrentContext();
             if (currentContext == null)
             {
-                this.scriptProcessor.inheritCallChain(this.parentContext);
+                Context.enter();
             }
-
-            final Boolean isEnabled;
-
-            if (ScriptableObject.hasProperty(this.scriptLogger, level.getEnablementCheckMethod()))
+            try
             {
-                final Object result = ScriptableObject.callMethod(this.scriptLogger, level.getEnablementCheckMethod(), new Object[0]);
-                isEnabled = (Boolean) Context.jsToJava(result, Boolean.class);
+                if (currentContext == null)
+                {
+                    this.scriptProcessor.inheritCallChain(this.parentContext);
+                }
+
+                isEnabled = this.lookupLevelEnabled(level);
             }
-            else
+            finally
             {
-                isEnabled = Boolean.FALSE;
+                if (currentContext == null)
+                {
+                    this.scriptProcessor.releaseCallChain();
+                    Context.exit();
+                }
             }
+        }
+
+        return isEnabled;
+    }
 
-            return Boolean.TRUE.equals(isEnabled);
+    protected boolean lookupLevelEnabled(final Level level)
+    {
+        final Boolean isEnabled;
+
+        if (ScriptableObject.hasProperty(this.scriptLogger, level.getEnablementCheckMethod()))
+        {
+            final Object result = ScriptableObject.callMethod(this.scriptLogger, level.getEnablementCheckMethod(), new Object[0]);
+            isEnabled = (Boolean) Context.jsToJava(result, Boolean.class);
         }
-        finally
+        else
         {
-            if (currentContext == null)
-            {
-                Context.exit();
-            }
+            isEnabled = Boolean.FALSE;
         }
+
+        return Boolean.TRUE.equals(isEnabled);
     }
 
 }
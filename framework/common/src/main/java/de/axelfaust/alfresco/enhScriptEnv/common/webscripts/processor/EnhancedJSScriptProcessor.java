@@ -19,20 +19,14 @@ import java.io.UnsupportedEncodingException;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.text.MessageFormat;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.scripts.ScriptException;
@@ -45,13 +39,24 @@ import org.mozilla.javascript.NativeJavaObject;
 import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.WrapFactory;
 import org.mozilla.javascript.WrappedException;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.EnhancedScriptProcessor;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.ImmutableScopeContributor;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.LazyModelScope;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.ProcessorExtensionBindings;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.ReferenceScript;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.ReferenceScript.CommonReferencePath;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.ReferenceScript.DynamicScript;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.ReferenceScript.ReferencePathType;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.ScopeContributor;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.ScopeContributorRegistry;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.ScriptCallChain;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.cache.FrequencyAwareScriptCache;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.cache.PersistentBytecodeCache;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.cache.ScriptCache;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.cache.ScriptCompilationCoordinator;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.cache.ScriptCompilationCoordinator.ScriptCompilation;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.rhino.DelegatingWrapFactory;
 import org.slf4j.Logger;
@@ -85,16 +90,22 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
     private static final List<ReferencePathType> REAL_PATH_SUCCESSION = Collections.<ReferencePathType> unmodifiableList(Arrays
             .<ReferencePathType> asList(CommonReferencePath.FILE, SurfReferencePath.STORE));
 
-    private static final int DEFAULT_MAX_SCRIPT_CACHE_SIZE = 200;
-
-    // used WeakHashMap here before to avoid accidental leaks but measures for proper cleanup have proven themselves during tests
-    protected final Map<Context, List<ReferenceScript>> activeScriptContentChain = new ConcurrentHashMap<Context, List<ReferenceScript>>();
-    protected final Map<Context, List<List<ReferenceScript>>> recursionScriptContentChains = new ConcurrentHashMap<Context, List<List<ReferenceScript>>>();
+    // key of the immutable script call chain attached to each context (as a context-local value)
+    protected final Object callChainKey = new Object();
 
     protected boolean shareScopes = true;
 
-    protected Scriptable unrestrictedShareableScope;
-    protected Scriptable restrictedShareableScope;
+    // incremented on every registration of a processor extension so bindings on shared scopes can detect they are outdated
+    protected final AtomicInteger processorExtensionsVersion = new AtomicInteger();
+
+    // shared scopes are replaced (not modified) when processor extensions are registered after they have been set up
+    protected volatile Scriptable unrestrictedShareableScope;
+
+    // templates for isolated scopes (when scopes are not shared or imports need to be isolated) - built once per variant on demand
+    protected volatile Scriptable restrictedScopeTemplate;
+
+    protected volatile Scriptable unrestrictedScopeTemplate;
+    protected volatile Scriptable restrictedShareableScope;
 
     protected boolean compileScripts = true;
     protected volatile boolean debuggerActive = false;
@@ -104,17 +115,20 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
     protected ScriptLoader standardScriptLoader;
     protected ValueConverter valueConverter;
 
-    protected final Map<String, Script> scriptCache = new LinkedHashMap<String, Script>(256);
-    protected final ReadWriteLock scriptCacheLock = new ReentrantReadWriteLock(true);
+    protected ScriptCache scriptCache = new FrequencyAwareScriptCache();
 
     protected final AtomicLong dynamicScriptCounter = new AtomicLong();
 
-    protected final Map<String, Script> dynamicScriptCache = new LinkedHashMap<String, Script>();
-    protected final ReadWriteLock dynamicScriptCacheLock = new ReentrantReadWriteLock(true);
+    protected ScriptCache dynamicScriptCache = new FrequencyAwareScriptCache();
 
-    protected int maxScriptCacheSize = DEFAULT_MAX_SCRIPT_CACHE_SIZE;
+    protected final ScriptCompilationCoordinator compilationCoordinator = new ScriptCompilationCoordinator();
 
-    protected final Collection<ScopeContributor> registeredContributors = new HashSet<ScopeContributor>();
+    protected PersistentBytecodeCache bytecodeCache = new PersistentBytecodeCache();
+
+    protected final ScopeContributorRegistry registeredContributors = new ScopeContributorRegistry();
+
+    // guards (re-)building of scope templates and shared scopes against concurrent registration of contributors / processor extensions
+    protected final Object scopeTemplateLock = new Object();
 
     /**
      * {@inheritDoc}
@@ -172,16 +186,15 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
             final DelegatingWrapFactory wrapFactory = new DelegatingWrapFactory();
             cx.setWrapFactory(wrapFactory);
 
-            List<ReferenceScript> currentChain = this.activeScriptContentChain.get(cx);
             boolean newChain = false;
-            if (currentChain == null)
+            if (this.getCallChain(cx) == null)
             {
                 this.updateContentChainsBeforeExceution(cx);
-                currentChain = this.activeScriptContentChain.get(cx);
                 newChain = true;
             }
             // else: assume the original script chain is continued
-            currentChain.add(new ReferenceScript.DynamicScript(debugScriptName, source));
+            final ScriptCallChain currentChain = this.getCallChain(cx);
+            this.setCallChain(cx, currentChain.push(new ReferenceScript.DynamicScript(debugScriptName, source)));
 
             try
             {
@@ -198,7 +211,7 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
                     }
                     else
                     {
-                        realScope = this.setupScope(cx, false, false);
+                        realScope = this.forkScope(cx, false);
                     }
                 }
                 else if (!(scope instanceof Scriptable))
@@ -211,7 +224,7 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
                     }
                     else
                     {
-                        final Scriptable baseScope = this.setupScope(cx, false, false);
+                        final Scriptable baseScope = this.forkScope(cx, false);
                         realScope.setPrototype(baseScope);
                     }
                 }
@@ -227,7 +240,7 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
             }
             finally
             {
-                currentChain.remove(currentChain.size() - 1);
+                this.setCallChain(cx, currentChain);
                 if (newChain)
                 {
                     this.updateContentChainsAfterReturning(cx);
@@ -277,16 +290,15 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
             final DelegatingWrapFactory wrapFactory = new DelegatingWrapFactory();
             cx.setWrapFactory(wrapFactory);
 
-            List<ReferenceScript> currentChain = this.activeScriptContentChain.get(cx);
             boolean newChain = false;
-            if (currentChain == null)
+            if (this.getCallChain(cx) == null)
             {
                 this.updateContentChainsBeforeExceution(cx);
-                currentChain = this.activeScriptContentChain.get(cx);
                 newChain = true;
             }
             // else: assume the original script chain is continued
-            currentChain.add(contentAdapter);
+            final ScriptCallChain currentChain = this.getCallChain(cx);
+            this.setCallChain(cx, currentChain.push(contentAdapter));
 
             try
             {
@@ -303,7 +315,7 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
                     }
                     else
                     {
-                        realScope = this.setupScope(cx, content.isSecure(), false);
+                        realScope = this.forkScope(cx, content.isSecure());
                     }
                 }
                 else if (!(scope instanceof Scriptable))
@@ -316,7 +328,7 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
                     }
                     else
                     {
-                        final Scriptable baseScope = this.setupScope(cx, content.isSecure(), false);
+                        final Scriptable baseScope = this.forkScope(cx, content.isSecure());
                         realScope.setPrototype(baseScope);
                     }
                 }
@@ -332,7 +344,7 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
             }
             finally
             {
-                currentChain.remove(currentChain.size() - 1);
+                this.setCallChain(cx, currentChain);
                 if (newChain)
                 {
                     this.updateContentChainsAfterReturning(cx);
@@ -384,7 +396,7 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
             }
             else
             {
-                scope = this.setupScope(cx, secureScript, false);
+                scope = this.forkScope(cx, secureScript);
             }
         }
         finally
@@ -404,11 +416,11 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
     @Override
     public ReferenceScript getContextScriptLocation()
     {
-        final List<ReferenceScript> currentChain = this.activeScriptContentChain.get(Context.getCurrentContext());
+        final ScriptCallChain currentChain = this.getCallChain(Context.getCurrentContext());
         final ReferenceScript result;
-        if (currentChain != null && !currentChain.isEmpty())
+        if (currentChain != null)
         {
-            result = currentChain.get(currentChain.size() - 1);
+            result = currentChain.getCurrentScript();
         }
         else
         {
@@ -424,11 +436,11 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
     @Override
     public List<ReferenceScript> getScriptCallChain()
     {
-        final List<ReferenceScript> currentChain = this.activeScriptContentChain.get(Context.getCurrentContext());
+        final ScriptCallChain currentChain = this.getCallChain(Context.getCurrentContext());
         final List<ReferenceScript> result;
         if (currentChain != null)
         {
-            result = new ArrayList<ReferenceScript>(currentChain);
+            result = currentChain.toList();
         }
         else
         {
@@ -437,6 +449,16 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
         return result;
     }
 
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public ScriptCallChain getCurrentCallChain()
+    {
+        return this.getCallChain(Context.getCurrentContext());
+    }
+
     /**
      *
      * {@inheritDoc}
@@ -447,20 +469,42 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
         ParameterCheck.mandatory("parentContext", parentContext);
 
         final Context currentContext = Context.getCurrentContext();
-        List<ReferenceScript> activeChain = this.activeScriptContentChain.get(currentContext);
-        if (activeChain != null)
+        if (this.getCallChain(currentContext) != null)
         {
             throw new IllegalStateException("Context call chain has already been initialized");
         }
 
-        final List<ReferenceScript> parentChain = this.activeScriptContentChain.get(parentContext);
+        final ScriptCallChain parentChain;
+        if (parentContext instanceof ScriptCallChain)
+        {
+            parentChain = (ScriptCallChain) parentContext;
+        }
+        else
+        {
+            parentChain = parentContext instanceof Context ? this.getCallChain((Context) parentContext) : null;
+        }
+
         if (parentChain == null)
         {
             throw new IllegalArgumentException("Parent context has no call chain associated with it");
         }
 
-        activeChain = new ArrayList<ReferenceScript>(parentChain);
-        this.activeScriptContentChain.put(currentContext, activeChain);
+        // call chains are immutable so the chain of the parent context can simply be shared
+        this.setCallChain(currentContext, parentChain);
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void releaseCallChain()
+    {
+        final Context currentContext = Context.getCurrentContext();
+        if (currentContext != null)
+        {
+            currentContext.removeThreadLocal(this.callChainKey);
+        }
     }
 
     /**
@@ -474,26 +518,10 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
         ValueConverter.GLOBAL_CONVERTER.set(this.valueConverter);
         try
         {
-            Context cx = Context.enter();
-            try
-            {
-                cx.setWrapFactory(new DelegatingWrapFactory());
-                this.unrestrictedShareableScope = this.setupScope(cx, true, false);
-            }
-            finally
-            {
-                Context.exit();
-            }
-
-            cx = Context.enter();
-            try
-            {
-                cx.setWrapFactory(new DelegatingWrapFactory());
-                this.restrictedShareableScope = this.setupScope(cx, false, false);
-            }
-            finally
+            synchronized (this.scopeTemplateLock)
             {
-                Context.exit();
+                this.unrestrictedShareableScope = this.setupShareableScope(true);
+                this.restrictedShareableScope = this.setupShareableScope(false);
             }
         }
         finally
@@ -502,6 +530,17 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
         }
     }
 
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void registerProcessorExtension(final ProcessorExtension processorExtension)
+    {
+        super.registerProcessorExtension(processorExtension);
+        this.processorExtensionsVersion.incrementAndGet();
+    }
+
     /**
      *
      * {@inheritDoc}
@@ -557,7 +596,7 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
         try
         {
             this.updateContentChainsBeforeExceution(cx);
-            this.activeScriptContentChain.get(cx).add(contentAdapter);
+            this.setCallChain(cx, this.getCallChain(cx).push(contentAdapter));
             try
             {
                 return this.executeScriptImpl(script, model, contentAdapter.isSecure(), debugScriptName);
@@ -590,24 +629,8 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
     @Override
     public void reset()
     {
-        this.scriptCacheLock.writeLock().lock();
-        try
-        {
-            this.scriptCache.clear();
-        }
-        finally
-        {
-            this.scriptCacheLock.writeLock().unlock();
-        }
-        this.dynamicScriptCacheLock.writeLock().lock();
-        try
-        {
-            this.dynamicScriptCache.clear();
-        }
-        finally
-        {
-            this.dynamicScriptCacheLock.writeLock().unlock();
-        }
+        this.scriptCache.clear();
+        this.dynamicScriptCache.clear();
     }
 
     /**
@@ -639,11 +662,13 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
     {
         if (contributor != null)
         {
-            // can use synchronized here since scope creation / registration should not occur that often in a relevant production scenario
-            // (when immutable scopes are shared)
-            synchronized (this.registeredContributors)
+            synchronized (this.scopeTemplateLock)
             {
-                this.registeredContributors.add(contributor);
+                this.registeredContributors.register(contributor);
+
+                // templates need to be rebuilt to include the new contributor
+                this.restrictedScopeTemplate = null;
+                this.unrestrictedScopeTemplate = null;
             }
         }
     }
@@ -667,6 +692,66 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
     protected Script getCompiledScript(final ReferenceScript content)
     {
         Script script = null;
+        final String realPath = this.determineRealPath(content);
+
+        // store since it may be reset between cache-check and cache-put, and we don't want debug-enabled scripts cached
+        final boolean debuggerActive = this.debuggerActive;
+        final boolean dynamicScript = content instanceof DynamicScript;
+        final ScriptCache cache;
+        // test the cache for a pre-compiled script matching our path
+        if (this.compileScripts && !debuggerActive && (dynamicScript || content.isCachable()))
+        {
+            cache = dynamicScript ? this.dynamicScriptCache : this.scriptCache;
+            script = this.lookupScriptCache(cache, realPath);
+        }
+        else
+        {
+            cache = null;
+        }
+
+        if (script == null)
+        {
+            if (cache != null)
+            {
+                // only one thread should compile a specific script - all others wait and share the result
+                script = this.compilationCoordinator.compile(realPath, new ScriptCompilation()
+                {
+
+                    /**
+                     *
+                     * {@inheritDoc}
+                     */
+                    @Override
+                    public Script compile()
+                    {
+                        // another thread may have completed compilation between our cache lookup and obtaining the compilation slot
+                        // (peek to avoid counting the same miss twice)
+                        final Script cachedScript = cache.peek(realPath);
+                        if (cachedScript != null)
+                        {
+                            LOGGER.debug("Using script for {} compiled concurrently by another thread", realPath);
+                            return cachedScript;
+                        }
+
+                        return EnhancedJSScriptProcessor.this.compileAndCacheScript(content, realPath, cache);
+                    }
+                });
+            }
+            else
+            {
+                script = this.compileAndCacheScript(content, realPath, null);
+            }
+        }
+        else
+        {
+            LOGGER.debug("Using previously compiled script for {}", realPath);
+        }
+
+        return script;
+    }
+
+    protected String determineRealPath(final ReferenceScript content)
+    {
         String realPath = null;
 
         final Collection<ReferencePathType> supportedReferencePathTypes = content.getSupportedReferencePathTypes();
@@ -722,47 +807,37 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
             }
         }
 
-        // store since it may be reset between cache-check and cache-put, and we don't want debug-enabled scripts cached
-        final boolean debuggerActive = this.debuggerActive;
-        final boolean dynamicScript = content instanceof DynamicScript;
-        // test the cache for a pre-compiled script matching our path
-        if (this.compileScripts && !debuggerActive && (dynamicScript || content.isCachable()))
+        return realPath;
+    }
+
+    protected Script compileAndCacheScript(final ReferenceScript content, final String realPath, final ScriptCache cache)
+    {
+        LOGGER.debug("Resolving and compiling script path: {}", realPath);
+
+        final Script script;
+        final int sourceSize;
+        try
         {
-            script = this.lookupScriptCache(dynamicScript ? this.dynamicScriptCache : this.scriptCache,
-                    dynamicScript ? this.dynamicScriptCacheLock : this.scriptCacheLock, realPath);
+            final ByteArrayOutputStream os = new ByteArrayOutputStream();
+            FileCopyUtils.copy(content.getInputStream(), os); // both streams are closed
+            final byte[] bytes = os.toByteArray();
+            final String source = new String(bytes, "UTF-8");
+            sourceSize = source.length();
+            script = this.getCompiledScript(source, realPath);
         }
-
-        if (script == null)
+        catch (final IOException ex)
         {
-            LOGGER.debug("Resolving and compiling script path: {}", realPath);
-
-            try
-            {
-                final ByteArrayOutputStream os = new ByteArrayOutputStream();
-                FileCopyUtils.copy(content.getInputStream(), os); // both streams are closed
-                final byte[] bytes = os.toByteArray();
-                final String source = new String(bytes, "UTF-8");
-                script = this.getCompiledScript(source, realPath);
-            }
-            catch (final IOException ex)
-            {
-                LOGGER.error("Failed to compile supplied script", ex);
-                throw new WebScriptException(MessageFormat.format("Failed to load supplied script: {0}", ex.getMessage()), ex);
-            }
-
-            if (this.compileScripts && !debuggerActive && (dynamicScript || content.isCachable()))
-            {
-                this.updateScriptCache(dynamicScript ? this.dynamicScriptCache : this.scriptCache,
-                        dynamicScript ? this.dynamicScriptCacheLock : this.scriptCacheLock, realPath, script);
-            }
-
-            LOGGER.debug("Compiled script for {}", realPath);
+            LOGGER.error("Failed to compile supplied script", ex);
+            throw new WebScriptException(MessageFormat.format("Failed to load supplied script: {0}", ex.getMessage()), ex);
         }
-        else
+
+        if (cache != null)
         {
-            LOGGER.debug("Using previously compiled script for {}", realPath);
+            this.updateScriptCache(cache, realPath, script, sourceSize);
         }
 
+        LOGGER.debug("Compiled script for {}", realPath);
+
         return script;
     }
 
@@ -791,7 +866,7 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
                         try
                         {
                             cx.setOptimizationLevel(optimizationLevel--);
-                            bestEffortOptimizedScript = cx.compileString(resolvedSource, path, 1, null);
+                            bestEffortOptimizedScript = this.bytecodeCache.compileScript(cx, resolvedSource, path);
                         }
                         catch (final RuntimeException ex)
                         {
@@ -849,45 +924,76 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
         return storePathResolvedScript;
     }
 
-    protected Script lookupScriptCache(final Map<String, Script> cache, final ReadWriteLock lock, final String key)
+    protected Script lookupScriptCache(final ScriptCache cache, final String key)
     {
-        Script script;
-        lock.readLock().lock();
-        try
-        {
-            script = cache.get(key);
-        }
-        finally
-        {
-            lock.readLock().unlock();
-        }
+        final Script script = cache.get(key);
         return script;
     }
 
-    protected void updateScriptCache(final Map<String, Script> cache, final ReadWriteLock lock, final String key, final Script script)
+    protected void updateScriptCache(final ScriptCache cache, final String key, final Script script, final int sourceSize)
     {
-        lock.writeLock().lock();
-        try
-        {
-            cache.put(key, script);
+        cache.put(key, script, sourceSize);
+    }
 
-            if (cache.size() > this.maxScriptCacheSize)
+    /**
+     * Creates an isolated scope for a single script execution by forking the scope template of the specific variant. A forked scope
+     * inherits the standard objects and the contributions of {@link ImmutableScopeContributor immutable contributors} from the template,
+     * which are sealed in their entirety. All other contributions as well as processor extensions may hold mutable or scope-specific
+     * state, so they are added to each forked scope just like they were added to each individually set up scope before. Any modification
+     * by a script only affects its forked scope.
+     *
+     * @param executionContext
+     *            the current context
+     * @param trustworthyScript
+     *            {@code true} if the scope is created for a trustworthy script, {@code false} otherwise
+     * @return the forked scope
+     */
+    protected Scriptable forkScope(final Context executionContext, final boolean trustworthyScript)
+    {
+        Scriptable template = trustworthyScript ? this.unrestrictedScopeTemplate : this.restrictedScopeTemplate;
+        if (template == null)
+        {
+            synchronized (this.scopeTemplateLock)
             {
-                final Iterator<String> keyIterator = cache.keySet().iterator();
-                while (cache.size() > this.maxScriptCacheSize)
+                template = trustworthyScript ? this.unrestrictedScopeTemplate : this.restrictedScopeTemplate;
+                if (template == null)
                 {
-                    final String keyToRemove = keyIterator.next();
-                    cache.remove(keyToRemove);
+                    template = this.setupStandardScope(executionContext, trustworthyScript, false);
+                    this.registeredContributors.contributeToTemplate(template, trustworthyScript);
+
+                    if (trustworthyScript)
+                    {
+                        this.unrestrictedScopeTemplate = template;
+                    }
+                    else
+                    {
+                        this.restrictedScopeTemplate = template;
+                    }
+                    LOGGER.debug("Built scope template for {} scripts", trustworthyScript ? "trustworthy" : "untrusted");
                 }
             }
         }
-        finally
-        {
-            lock.writeLock().unlock();
-        }
+
+        final Scriptable scope = executionContext.newObject(template);
+        scope.setPrototype(template);
+        scope.setParentScope(null);
+
+        this.registeredContributors.contributeToFork(scope, trustworthyScript);
+
+        return scope;
     }
 
     protected Scriptable setupScope(final Context executionContext, final boolean trustworthyScript, final boolean mutableScope)
+    {
+        final Scriptable scope = this.setupStandardScope(executionContext, trustworthyScript, mutableScope);
+
+        // contributors are a copy-on-write snapshot so scope setup does not need to lock
+        this.registeredContributors.contributeToScope(scope, trustworthyScript, mutableScope);
+
+        return scope;
+    }
+
+    protected Scriptable setupStandardScope(final Context executionContext, final boolean trustworthyScript, final boolean mutableScope)
     {
         final Scriptable scope;
         if (trustworthyScript)
@@ -917,14 +1023,6 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
             // NO-OP - earlier versions simply don't support it
         }
 
-        synchronized (this.registeredContributors)
-        {
-            for (final ScopeContributor contributor : this.registeredContributors)
-            {
-                contributor.contributeToScope(scope, trustworthyScript, mutableScope);
-            }
-        }
-
         return scope;
     }
 
@@ -944,8 +1042,19 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
             cx.setWrapFactory(wrapFactory);
 
             final Scriptable scope;
-            if (this.shareScopes)
+            final LazyModelScope modelScope;
+            if (model != null)
+            {
+                // supplied object model is only converted / inserted into the root scope when accessed by the script
+                modelScope = new LazyModelScope(model, this.valueConverter);
+                modelScope.setPrototype(this.shareScopes ? (trustworthyScript ? this.unrestrictedShareableScope
+                        : this.restrictedShareableScope) : this.forkScope(cx, trustworthyScript));
+                modelScope.setParentScope(null);
+                scope = modelScope;
+            }
+            else if (this.shareScopes)
             {
+                modelScope = null;
                 final Scriptable sharedScope = trustworthyScript ? this.unrestrictedShareableScope : this.restrictedShareableScope;
                 scope = cx.newObject(sharedScope);
                 scope.setPrototype(sharedScope);
@@ -953,32 +1062,19 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
             }
             else
             {
-                scope = this.setupScope(cx, trustworthyScript, false);
+                modelScope = null;
+                scope = this.forkScope(cx, trustworthyScript);
             }
 
             wrapFactory.setScope(scope);
 
-            if (model != null)
-            {
-                // insert supplied object model into root of the default scope
-                for (final String key : model.keySet())
-                {
-                    final Object obj = model.get(key);
-                    // convert/wrap each object to JavaScript compatible
-                    final Object jsObject = this.valueConverter.convertValueForScript(obj);
-
-                    // insert into the root scope ready for access by the script
-                    ScriptableObject.putProperty(scope, key, jsObject);
-                }
-            }
-
             // execute the script and return the result
             final Object scriptResult = this.executeScriptInScopeImpl(script, scope);
 
-            if (model != null)
+            if (modelScope != null)
             {
-                // convert/wrap each object to Java compatible (in case script objects leaked into model objects)
-                for (final String key : model.keySet())
+                // convert/wrap each accessed object to Java compatible (in case script objects leaked into model objects)
+                for (final String key : modelScope.getAccessedKeys())
                 {
                     final Object obj = model.get(key);
                     final Object javaObject = this.valueConverter.convertValueForJava(obj);
@@ -1019,15 +1115,27 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
             cx.setLocale(I18NUtil.getLocale());
 
             // make sure scripts always have the relevant processor extensions available
-            for (final ProcessorExtension ex : this.processorExtensions.values())
+            final ProcessorExtensionBindings bindings = ProcessorExtensionBindings.lookup(scope);
+            final boolean outdatedBindings = bindings != null && bindings.getVersion() != this.processorExtensionsVersion.get();
+            if (outdatedBindings)
+            {
+                // shared scopes may be in use by concurrent executions, so they are replaced for any subsequent executions
+                this.refreshProcessorExtensionBindings();
+            }
+
+            // extensions are bound to the shared scope - only need to bind extensions registered since into the scope of the execution
+            if (bindings == null || outdatedBindings)
             {
-                if (!ScriptableObject.hasProperty(scope, ex.getExtensionName()))
+                for (final ProcessorExtension ex : this.processorExtensions.values())
                 {
-                    // convert/wrap each to JavaScript compatible
-                    final Object jsObject = Context.javaToJS(ex, scope);
+                    if (!ScriptableObject.hasProperty(scope, ex.getExtensionName()))
+                    {
+                        // convert/wrap each to JavaScript compatible
+                        final Object jsObject = Context.javaToJS(ex, scope);
 
-                    // insert into the scope ready for access by the script
-                    ScriptableObject.putProperty(scope, ex.getExtensionName(), jsObject);
+                        // insert into the scope ready for access by the script
+                        ScriptableObject.putProperty(scope, ex.getExtensionName(), jsObject);
+                    }
                 }
             }
 
@@ -1040,38 +1148,111 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
         }
     }
 
-    protected void updateContentChainsBeforeExceution(final Context currentContext)
+    /**
+     * Sets up a new shared scope with the currently registered processor extensions bound to it.
+     *
+     * @param trustworthyScript
+     *            {@code true} if the scope is set up for trustworthy scripts, {@code false} otherwise
+     * @return the shared scope
+     */
+    protected Scriptable setupShareableScope(final boolean trustworthyScript)
     {
-        final List<ReferenceScript> activeChain = this.activeScriptContentChain.get(currentContext);
-        if (activeChain != null)
+        // may be called during script execution, so the wrap factory of the context must be restored
+        final Context cx = Context.enter();
+        final WrapFactory previousWrapFactory = cx.getWrapFactory();
+        try
+        {
+            cx.setWrapFactory(new DelegatingWrapFactory());
+            final Scriptable scope = this.setupScope(cx, trustworthyScript, false);
+            this.bindProcessorExtensions(ProcessorExtensionBindings.attach((ScriptableObject) scope));
+            return scope;
+        }
+        finally
         {
-            List<List<ReferenceScript>> recursionChains = this.recursionScriptContentChains.get(currentContext);
-            if (recursionChains == null)
+            cx.setWrapFactory(previousWrapFactory);
+            Context.exit();
+        }
+    }
+
+    /**
+     * Replaces the shared scopes that have been bound to processor extensions before the registration of additional processor extensions.
+     * Shared scopes may be in use by concurrent script executions, so they are never modified once they have been published. Scope
+     * templates are not affected as processor extensions are added to each scope forked from them.
+     */
+    protected void refreshProcessorExtensionBindings()
+    {
+        synchronized (this.scopeTemplateLock)
+        {
+            final int version = this.processorExtensionsVersion.get();
+            if (this.isBoundToOutdatedProcessorExtensions(this.unrestrictedShareableScope, version))
             {
-                recursionChains = new LinkedList<List<ReferenceScript>>();
-                this.recursionScriptContentChains.put(currentContext, recursionChains);
+                this.unrestrictedShareableScope = this.setupShareableScope(true);
+            }
+            if (this.isBoundToOutdatedProcessorExtensions(this.restrictedShareableScope, version))
+            {
+                this.restrictedShareableScope = this.setupShareableScope(false);
             }
-
-            recursionChains.add(0, activeChain);
         }
-        this.activeScriptContentChain.put(currentContext, new LinkedList<ReferenceScript>());
     }
 
-    protected void updateContentChainsAfterReturning(final Context currentContext)
+    protected boolean isBoundToOutdatedProcessorExtensions(final Scriptable scope, final int version)
     {
-        this.activeScriptContentChain.remove(currentContext);
-        final List<List<ReferenceScript>> recursionChains = this.recursionScriptContentChains.get(currentContext);
-        if (recursionChains != null)
+        final ProcessorExtensionBindings bindings = scope != null ? ProcessorExtensionBindings.lookup(scope) : null;
+        final boolean outdated = bindings != null && bindings.getVersion() != version;
+        return outdated;
+    }
+
+    /**
+     * Converts the currently registered processor extensions and binds them to a new shared scope before it is published.
+     *
+     * @param bindings
+     *            the processor extension binding tracker of the shared scope
+     */
+    protected void bindProcessorExtensions(final ProcessorExtensionBindings bindings)
+    {
+        synchronized (bindings)
         {
-            final List<ReferenceScript> previousChain = recursionChains.remove(0);
-            if (recursionChains.isEmpty())
+            final int version = this.processorExtensionsVersion.get();
+            if (bindings.getVersion() != version)
             {
-                this.recursionScriptContentChains.remove(currentContext);
+                final Map<String, Object> boundObjects = new LinkedHashMap<String, Object>();
+                for (final ProcessorExtension ex : this.processorExtensions.values())
+                {
+                    // convert/wrap each to JavaScript compatible
+                    final Object jsObject = Context.javaToJS(ex, bindings.getScope());
+                    boundObjects.put(ex.getExtensionName(), jsObject);
+                }
+
+                bindings.bind(version, boundObjects, Collections.<String, Object> emptyMap());
+                LOGGER.debug("Bound {} processor extensions to shared scope {}", Integer.valueOf(boundObjects.size()), bindings.getScope());
             }
-            this.activeScriptContentChain.put(currentContext, previousChain);
         }
     }
 
+    protected void updateContentChainsBeforeExceution(final Context currentContext)
+    {
+        // start a new chain, suspending any currently active chain (recursive execution)
+        this.setCallChain(currentContext, ScriptCallChain.begin(this.getCallChain(currentContext)));
+    }
+
+    protected void updateContentChainsAfterReturning(final Context currentContext)
+    {
+        final ScriptCallChain activeChain = this.getCallChain(currentContext);
+        // entry is kept (instead of removed) so concurrent lookups by batch worker threads never see a structural modification
+        this.setCallChain(currentContext, activeChain != null ? activeChain.getSuspended() : null);
+    }
+
+    protected ScriptCallChain getCallChain(final Context currentContext)
+    {
+        final ScriptCallChain chain = currentContext != null ? (ScriptCallChain) currentContext.getThreadLocal(this.callChainKey) : null;
+        return chain;
+    }
+
+    protected void setCallChain(final Context currentContext, final ScriptCallChain chain)
+    {
+        currentContext.putThreadLocal(this.callChainKey, chain);
+    }
+
     /**
      * @param shareScopes
      *            the shareScopes to set
@@ -1130,4 +1311,34 @@ public class EnhancedJSScriptProcessor extends BaseRegisterableScriptProcessor i
         this.valueConverter = valueConverter;
     }
 
+    /**
+     * @param scriptCache
+     *            the scriptCache to set
+     */
+    public final void setScriptCache(final ScriptCache scriptCache)
+    {
+        ParameterCheck.mandatory("scriptCache", scriptCache);
+        this.scriptCache = scriptCache;
+    }
+
+    /**
+     * @param dynamicScriptCache
+     *            the dynamicScriptCache to set
+     */
+    public final void setDynamicScriptCache(final ScriptCache dynamicScriptCache)
+    {
+        ParameterCheck.mandatory("dynamicScriptCache", dynamicScriptCache);
+        this.dynamicScriptCache = dynamicScriptCache;
+    }
+
+    /**
+     * @param bytecodeCache
+     *            the bytecodeCache to set
+     */
+    public final void setBytecodeCache(final PersistentBytecodeCache bytecodeCache)
+    {
+        ParameterCheck.mandatory("bytecodeCache", bytecodeCache);
+        this.bytecodeCache = bytecodeCache;
+    }
+
 }
@@ -13,8 +13,12 @@
  */
 package org.springframework.aop.framework;
 
+import java.lang.ref.Reference;
+import java.lang.ref.SoftReference;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.WeakHashMap;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,6 +34,10 @@ public class ConstructorArgumentAwareProxyFactory extends ProxyFactory
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ConstructorArgumentAwareProxyFactory.class);
 
+    // generated proxy classes are already cached by CGLIB, but the setter used to be looked up reflectively for every single proxy
+    // (setters reference their class, so they are only softly held to not pin the class loader)
+    private static final Map<Class<?>, Reference<Method>> CTOR_ARGUMENT_SETTERS = new WeakHashMap<Class<?>, Reference<Method>>();
+
     private final Object[] ctorArguments;
 
     private final Class[] ctorArgumentTypes;
@@ -87,7 +95,22 @@ public class ConstructorArgumentAwareProxyFactory extends ProxyFactory
         {
             try
             {
-                final Method ctorArgSetter = aopProxy.getClass().getMethod("setConstructorArguments", Object[].class, Class[].class);
+                final Class<?> aopProxyClass = aopProxy.getClass();
+                Method ctorArgSetter;
+                synchronized (CTOR_ARGUMENT_SETTERS)
+                {
+                    final Reference<Method> ctorArgSetterRef = CTOR_ARGUMENT_SETTERS.get(aopProxyClass);
+                    ctorArgSetter = ctorArgSetterRef != null ? ctorArgSetterRef.get() : null;
+                }
+
+                if (ctorArgSetter == null)
+                {
+                    ctorArgSetter = aopProxyClass.getMethod("setConstructorArguments", Object[].class, Class[].class);
+                    synchronized (CTOR_ARGUMENT_SETTERS)
+                    {
+                        CTOR_ARGUMENT_SETTERS.put(aopProxyClass, new SoftReference<Method>(ctorArgSetter));
+                    }
+                }
                 ctorArgSetter.invoke(aopProxy, this.ctorArguments, this.ctorArgumentTypes);
             }
             catch (final NoSuchMethodException nsme)
@@ -0,0 +1,334 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package org.springframework.aop.framework;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.aop.Advisor;
+import org.springframework.aop.AopInvocationException;
+import org.springframework.aop.support.AopUtils;
+import org.springframework.util.ClassUtils;
+
+/**
+ * The memoised shape of JDK dynamic proxies for a specific target class, consisting of the set of proxied interfaces, the generated proxy
+ * class and the advisor chain of the proxy configuration as well as the interceptor chain resolved for each method. Creating a proxy from a
+ * shape only instantiates the proxy class and binds the target, instead of rebuilding the proxy configuration, looking up the proxy class
+ * and resolving the interceptor chains for each proxied object as the regular {@link ProxyFactory} does.
+ *
+ * Interceptors that hold state specific to a proxy instance can not be part of the shared advisor chain. The template needs to contain an
+ * {@link InstanceInterceptorSlot} advice at the position of each such interceptor instead, so that the order of advices is the same as for
+ * a proxy created by a regular {@link ProxyFactory}.
+ *
+ * This class needs to reside in the Spring AOP package in order to be able to use {@link ReflectiveMethodInvocation} so that interceptors
+ * shared with regular proxies behave identically.
+ *
+ * @author Axel Faust
+ */
+public class ProxyShape
+{
+
+    protected final AdvisedSupport config;
+
+    protected final Class<?> targetClass;
+
+    protected final Constructor<?> proxyConstructor;
+
+    protected final boolean equalsDefined;
+
+    protected final boolean hashCodeDefined;
+
+    protected final int instanceInterceptorSlots;
+
+    protected final ConcurrentMap<Method, List<Object>> interceptorChains = new ConcurrentHashMap<Method, List<Object>>();
+
+    /**
+     * Creates a new proxy shape from a proxy configuration template.
+     *
+     * @param template
+     *            the proxy configuration defining the interfaces and advices of proxies - any target of the template will be ignored
+     * @param targetClass
+     *            the class of targets to be proxied by the shape
+     */
+    public ProxyShape(final AdvisedSupport template, final Class<?> targetClass)
+    {
+        if (template == null)
+        {
+            throw new IllegalArgumentException("template must not be null");
+        }
+        if (targetClass == null)
+        {
+            throw new IllegalArgumentException("targetClass must not be null");
+        }
+
+        this.config = new AdvisedSupport();
+        this.config.copyConfigurationFrom(template);
+        this.targetClass = targetClass;
+
+        final Class<?>[] interfaces = this.config.getProxiedInterfaces();
+        final Class<?> proxyClass = Proxy.getProxyClass(ClassUtils.getDefaultClassLoader(), interfaces);
+        try
+        {
+            this.proxyConstructor = proxyClass.getConstructor(InvocationHandler.class);
+        }
+        catch (final NoSuchMethodException nsme)
+        {
+            throw new AopConfigException("Proxy class does not provide the expected constructor", nsme);
+        }
+
+        boolean equalsDefined = false;
+        boolean hashCodeDefined = false;
+        for (final Class<?> proxiedInterface : interfaces)
+        {
+            for (final Method method : proxiedInterface.getDeclaredMethods())
+            {
+                equalsDefined = equalsDefined || AopUtils.isEqualsMethod(method);
+                hashCodeDefined = hashCodeDefined || AopUtils.isHashCodeMethod(method);
+            }
+        }
+        this.equalsDefined = equalsDefined;
+        this.hashCodeDefined = hashCodeDefined;
+
+        int instanceInterceptorSlots = 0;
+        for (final Advisor advisor : this.config.getAdvisors())
+        {
+            if (advisor.getAdvice() instanceof InstanceInterceptorSlot)
+            {
+                instanceInterceptorSlots = Math.max(instanceInterceptorSlots, ((InstanceInterceptorSlot) advisor.getAdvice()).index + 1);
+            }
+        }
+        this.instanceInterceptorSlots = instanceInterceptorSlots;
+    }
+
+    /**
+     * Creates a proxy for a specific target.
+     *
+     * @param target
+     *            the target to proxy
+     * @return the proxy
+     */
+    public Object getProxy(final Object target)
+    {
+        return this.getProxy(target, Collections.<MethodInterceptor> emptyList());
+    }
+
+    /**
+     * Creates a proxy for a specific target using additional interceptors specific to the proxy instance, i.e. to hold state. These
+     * interceptors will be invoked for all methods at the position of the {@link InstanceInterceptorSlot slot} matching their index.
+     *
+     * @param target
+     *            the target to proxy
+     * @param instanceInterceptors
+     *            the interceptors specific to the proxy instance
+     * @return the proxy
+     */
+    public Object getProxy(final Object target, final List<? extends MethodInterceptor> instanceInterceptors)
+    {
+        if (!this.targetClass.isInstance(target))
+        {
+            throw new IllegalArgumentException("target is not an instance of " + this.targetClass);
+        }
+        if (instanceInterceptors.size() > this.instanceInterceptorSlots)
+        {
+            throw new IllegalArgumentException("Shape only provides " + this.instanceInterceptorSlots
+                    + " slot(s) for instance interceptors");
+        }
+
+        try
+        {
+            final Object proxy = this.proxyConstructor.newInstance(new ShapeInvocationHandler(this, target, instanceInterceptors));
+            return proxy;
+        }
+        catch (final InstantiationException ie)
+        {
+            throw new AopConfigException("Failed to instantiate proxy class", ie);
+        }
+        catch (final IllegalAccessException iae)
+        {
+            throw new AopConfigException("Failed to instantiate proxy class", iae);
+        }
+        catch (final InvocationTargetException ite)
+        {
+            throw new AopConfigException("Failed to instantiate proxy class", ite.getTargetException());
+        }
+    }
+
+    /**
+     * Retrieves the (cached) interceptor chain of the shape for a specific method.
+     *
+     * @param method
+     *            the invoked method
+     * @return the interceptor chain
+     */
+    protected List<Object> getInterceptorChain(final Method method)
+    {
+        // the advisor configuration caches too, but it allocates a cache key for every lookup
+        List<Object> chain = this.interceptorChains.get(method);
+        if (chain == null)
+        {
+            chain = this.config.getInterceptorsAndDynamicInterceptionAdvice(method, this.targetClass);
+            final List<Object> existingChain = this.interceptorChains.putIfAbsent(method, chain);
+            if (existingChain != null)
+            {
+                chain = existingChain;
+            }
+        }
+        return chain;
+    }
+
+    /**
+     * A placeholder advice marking the position of an interceptor specific to the proxy instance in the advisor chain of a shape.
+     *
+     * @author Axel Faust
+     */
+    public static class InstanceInterceptorSlot implements MethodInterceptor
+    {
+
+        protected final int index;
+
+        /**
+         * Creates a new slot for an instance interceptor.
+         *
+         * @param index
+         *            the index of the instance interceptor as provided to {@link ProxyShape#getProxy(Object, List) getProxy}
+         */
+        public InstanceInterceptorSlot(final int index)
+        {
+            if (index < 0)
+            {
+                throw new IllegalArgumentException("index must not be negative");
+            }
+            this.index = index;
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public Object invoke(final MethodInvocation invocation) throws Throwable
+        {
+            final Object result;
+
+            if (invocation instanceof ShapeMethodInvocation
+                    && this.index < ((ShapeMethodInvocation) invocation).handler.instanceInterceptors.length)
+            {
+                result = ((ShapeMethodInvocation) invocation).handler.instanceInterceptors[this.index].invoke(invocation);
+            }
+            else
+            {
+                result = invocation.proceed();
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * The invocation handler binding a proxy instance to its target.
+     *
+     * @author Axel Faust
+     */
+    protected static class ShapeInvocationHandler implements InvocationHandler
+    {
+
+        protected final ProxyShape shape;
+
+        protected final Object target;
+
+        protected final MethodInterceptor[] instanceInterceptors;
+
+        protected ShapeInvocationHandler(final ProxyShape shape, final Object target,
+                final List<? extends MethodInterceptor> instanceInterceptors)
+        {
+            this.shape = shape;
+            this.target = target;
+            this.instanceInterceptors = instanceInterceptors.toArray(new MethodInterceptor[instanceInterceptors.size()]);
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable
+        {
+            Object result;
+
+            if (!this.shape.equalsDefined && AopUtils.isEqualsMethod(method))
+            {
+                result = Boolean.valueOf(args[0] == proxy);
+            }
+            else if (!this.shape.hashCodeDefined && AopUtils.isHashCodeMethod(method))
+            {
+                result = Integer.valueOf(System.identityHashCode(proxy));
+            }
+            else
+            {
+                final List<Object> chain = this.shape.getInterceptorChain(method);
+
+                if (chain.isEmpty())
+                {
+                    result = AopUtils.invokeJoinpointUsingReflection(this.target, method, args);
+                }
+                else
+                {
+                    final ReflectiveMethodInvocation invocation = new ShapeMethodInvocation(this, proxy, method, args, chain);
+                    result = invocation.proceed();
+                }
+
+                final Class<?> returnType = method.getReturnType();
+                if (result != null && result == this.target && returnType.isInstance(proxy))
+                {
+                    // special case: method returned "this"
+                    result = proxy;
+                }
+                else if (result == null && returnType != Void.TYPE && returnType.isPrimitive())
+                {
+                    throw new AopInvocationException("Null return value from advice does not match primitive return type for: " + method);
+                }
+            }
+
+            return result;
+        }
+    }
+
+    /**
+     * The method invocation of a shape proxy, providing {@link InstanceInterceptorSlot slots} access to the interceptors of the proxy
+     * instance.
+     *
+     * @author Axel Faust
+     */
+    protected static class ShapeMethodInvocation extends ReflectiveMethodInvocation
+    {
+
+        protected final ShapeInvocationHandler handler;
+
+        protected ShapeMethodInvocation(final ShapeInvocationHandler handler, final Object proxy, final Method method,
+                final Object[] arguments, final List<Object> interceptorsAndDynamicMethodMatchers)
+        {
+            super(proxy, handler.target, method, arguments, handler.shape.targetClass, interceptorsAndDynamicMethodMatchers);
+            this.handler = handler;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.batch;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.AdaptiveBatchTuner;
+
+/**
+ * @author Axel Faust
+ */
+public class AdaptiveBatchTunerTest
+{
+
+    @Test
+    public void initialSettingsBounded()
+    {
+        final AdaptiveBatchTuner tuner = new AdaptiveBatchTuner(1, 4, 5, 100, 8, 1);
+
+        Assert.assertEquals("Initial thread count not bounded", 4, tuner.getThreadCount());
+        Assert.assertEquals("Initial batch size not bounded", 5, tuner.getBatchSize());
+    }
+
+    @Test
+    public void climbWhileThroughputImproves()
+    {
+        final AdaptiveBatchTuner tuner = new AdaptiveBatchTuner(1, 4, 1, 100, 1, 10);
+
+        tuner.recordRound(100, 1000, 10, 1000, 0, 0);
+        Assert.assertEquals("Thread count not increased after first round", 2, tuner.getThreadCount());
+
+        tuner.recordRound(180, 1000, 18, 2000, 0, 0);
+        Assert.assertEquals("Thread count not increased after improved throughput", 3, tuner.getThreadCount());
+
+        tuner.recordRound(181, 1000, 18, 3000, 0, 0);
+        Assert.assertEquals("Unproductive thread count increase not reverted", 2, tuner.getThreadCount());
+        Assert.assertEquals("Batch size not probed after stagnating throughput", 20, tuner.getBatchSize());
+
+        tuner.recordRound(150, 1000, 8, 2000, 0, 0);
+        Assert.assertEquals("Unproductive batch size increase not reverted", 10, tuner.getBatchSize());
+        Assert.assertEquals("Thread count not reduced after both settings failed to improve", 1, tuner.getThreadCount());
+    }
+
+    @Test
+    public void throughputBasedOnBusyTime()
+    {
+        final AdaptiveBatchTuner tuner = new AdaptiveBatchTuner(1, 4, 1, 100, 1, 10);
+
+        tuner.recordRound(100, 1000, 10, 1000, 0, 0);
+        Assert.assertEquals("Thread count not increased after first round", 2, tuner.getThreadCount());
+
+        // round took longer due to threads idling at the end, but threads were busy for less time per item
+        tuner.recordRound(200, 2000, 20, 1600, 0, 0);
+        Assert.assertEquals("Thread count not increased after improved throughput", 3, tuner.getThreadCount());
+    }
+
+    @Test
+    public void backOffOnRetries()
+    {
+        final AdaptiveBatchTuner tuner = new AdaptiveBatchTuner(1, 4, 1, 100, 3, 20);
+
+        tuner.recordRound(100, 1000, 10, 3000, 5, 0);
+
+        Assert.assertEquals("Thread count not reduced after retries", 2, tuner.getThreadCount());
+        Assert.assertEquals("Batch size not reduced after retries", 10, tuner.getBatchSize());
+    }
+
+    @Test
+    public void backOffOnLockContention()
+    {
+        final AdaptiveBatchTuner tuner = new AdaptiveBatchTuner(1, 4, 1, 100, 2, 20);
+
+        // both threads waited half of the round
+        tuner.recordRound(100, 1000, 10, 2000, 0, 1000000000L);
+
+        Assert.assertEquals("Thread count not reduced after lock contention", 1, tuner.getThreadCount());
+        Assert.assertEquals("Batch size changed after lock contention", 20, tuner.getBatchSize());
+    }
+}
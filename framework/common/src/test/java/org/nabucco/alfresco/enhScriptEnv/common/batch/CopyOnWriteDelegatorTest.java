@@ -0,0 +1,221 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.batch;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.EvaluatorException;
+import org.mozilla.javascript.NativeFunction;
+import org.mozilla.javascript.NativeObject;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.CopyOnWriteDelegator;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.DefaultFacadeFactory;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.StateLockingDelegator;
+
+/**
+ * @author Axel Faust
+ */
+public class CopyOnWriteDelegatorTest
+{
+
+    private static final String SHARED_SCRIPT = "var counter = 0; var shared = { count : 1 }; function Item() { counter++; } "
+            + "function increment() { counter++; shared.count++; return counter; } function describe() { return 'count: ' + shared.count; }"
+            + "function create() { return new Item(); }";
+
+    private final DefaultFacadeFactory facadeFactory = new DefaultFacadeFactory();
+
+    private ExecutorService executor;
+
+    private ScriptableObject sharedScope;
+
+    @Before
+    public void setUp()
+    {
+        this.executor = Executors.newSingleThreadExecutor();
+
+        final Context cx = Context.enter();
+        try
+        {
+            this.sharedScope = cx.initStandardObjects();
+            cx.evaluateString(this.sharedScope, SHARED_SCRIPT, "shared", 1, null);
+        }
+        finally
+        {
+            Context.exit();
+        }
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void writesShadowedPerThread() throws Exception
+    {
+        this.facadeFactory.registerCopyOnWriteReferenceScope(this.sharedScope);
+
+        Assert.assertEquals("Unexpected result of first call", 1, this.evaluateInThread("increment()"), 0);
+        Assert.assertEquals("Unexpected result of second call", 2, this.evaluateInThread("increment()"), 0);
+        Assert.assertEquals("Shadowed object not modified for thread", 3, this.evaluateInThread("shared.count"), 0);
+
+        this.clearThread();
+
+        Assert.assertEquals("Modifications of previous batch visible", 1, this.evaluateInThread("increment()"), 0);
+        Assert.assertEquals("Modifications of previous batch visible", 2, this.evaluateInThread("shared.count"), 0);
+
+        this.facadeFactory.clearReferenceScope(this.sharedScope);
+
+        Assert.assertEquals("Shared variable modified", 0, Context.toNumber(this.sharedScope.get("counter", this.sharedScope)), 0);
+        final Scriptable shared = (Scriptable) this.sharedScope.get("shared", this.sharedScope);
+        Assert.assertEquals("Shared object modified", 1, Context.toNumber(shared.get("count", shared)), 0);
+    }
+
+    @Test
+    public void readOnlyRejectsWrites() throws Exception
+    {
+        this.facadeFactory.registerReadOnlyReferenceScope(this.sharedScope);
+
+        Assert.assertEquals("Unexpected result of read-only call", "count: 1", this.evaluateInThread("describe()", String.class));
+
+        try
+        {
+            this.evaluateInThread("shared.count = 5");
+            Assert.fail("Modification of shared object not rejected");
+        }
+        catch (final ExecutionException ex)
+        {
+            Assert.assertTrue("Unexpected error", ex.getCause() instanceof EvaluatorException);
+        }
+
+        try
+        {
+            this.evaluateInThread("increment()");
+            Assert.fail("Modification of enclosing scope not rejected");
+        }
+        catch (final ExecutionException ex)
+        {
+            Assert.assertTrue("Unexpected error", ex.getCause() instanceof EvaluatorException);
+        }
+
+        this.facadeFactory.clearReferenceScope(this.sharedScope);
+
+        Assert.assertEquals("Shared variable modified", 0, Context.toNumber(this.sharedScope.get("counter", this.sharedScope)), 0);
+    }
+
+    @Test
+    public void sharedFunctionsCalledWithoutCopy() throws Exception
+    {
+        this.facadeFactory.registerCopyOnWriteReferenceScope(this.sharedScope);
+
+        final Object increment = this.sharedScope.get("increment", this.sharedScope);
+        final Object facadedIncrement = this.evaluateInThread("increment", Object.class);
+        Assert.assertTrue("Function not facaded", facadedIncrement instanceof CopyOnWriteDelegator);
+        Assert.assertSame("Function not called via original", increment,
+                this.facadeFactory.toRealObject((Scriptable) facadedIncrement, this.sharedScope));
+
+        Assert.assertEquals("Constructor not called via facade", Boolean.TRUE,
+                this.evaluateInThread("create() instanceof Item && increment.prototype === increment.prototype", Boolean.class));
+        Assert.assertEquals("Constructor did not use shadowed variable", 2, this.evaluateInThread("increment()"), 0);
+
+        this.clearThread();
+        this.facadeFactory.clearReferenceScope(this.sharedScope);
+
+        Assert.assertSame("Parent scope of function not restored", this.sharedScope, ((NativeFunction) increment).getParentScope());
+        Assert.assertEquals("Shared variable modified", 0, Context.toNumber(this.sharedScope.get("counter", this.sharedScope)), 0);
+    }
+
+    @Test
+    public void sealedFunctionsFacadedWithLocking()
+    {
+        this.facadeFactory.registerCopyOnWriteReferenceScope(this.sharedScope);
+
+        final NativeFunction describe = (NativeFunction) this.sharedScope.get("describe", this.sharedScope);
+        describe.sealObject();
+
+        Assert.assertFalse("Sealed function supported", CopyOnWriteDelegator.isSupported(describe));
+        Assert.assertTrue("Sealed function not facaded with locking",
+                this.facadeFactory.toFacadedObject(describe, this.sharedScope) instanceof StateLockingDelegator);
+
+        final Scriptable increment = (Scriptable) this.sharedScope.get("increment", this.sharedScope);
+        Assert.assertTrue("Function not facaded with copy-on-write",
+                this.facadeFactory.toFacadedObject(increment, this.sharedScope) instanceof CopyOnWriteDelegator);
+
+        this.facadeFactory.clearReferenceScope(this.sharedScope);
+    }
+
+    protected double evaluateInThread(final String source) throws Exception
+    {
+        final Object result = this.evaluateInThread(source, Object.class);
+        return Context.toNumber(result);
+    }
+
+    protected <T> T evaluateInThread(final String source, final Class<T> expectedClass) throws Exception
+    {
+        final Object result = this.executor.submit(new Callable<Object>()
+        {
+
+            /**
+             *
+             * {@inheritDoc}
+             */
+            @Override
+            public Object call()
+            {
+                final Context cx = Context.enter();
+                try
+                {
+                    // mimics the effective scope of a batch callback
+                    final Scriptable threadScope = new NativeObject();
+                    threadScope.setPrototype(CopyOnWriteDelegatorTest.this.facadeFactory.toFacadedObject(
+                            CopyOnWriteDelegatorTest.this.sharedScope, CopyOnWriteDelegatorTest.this.sharedScope));
+                    return cx.evaluateString(threadScope, source, "thread", 1, null);
+                }
+                finally
+                {
+                    Context.exit();
+                }
+            }
+        }).get();
+        return expectedClass.cast(result);
+    }
+
+    protected void clearThread() throws Exception
+    {
+        this.executor.submit(new Runnable()
+        {
+
+            /**
+             *
+             * {@inheritDoc}
+             */
+            @Override
+            public void run()
+            {
+                CopyOnWriteDelegatorTest.this.facadeFactory.clearThread();
+            }
+        }).get();
+    }
+}
@@ -0,0 +1,354 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.batch;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.alfresco.util.Pair;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Function;
+import org.mozilla.javascript.Scriptable;
+import org.mozilla.javascript.ScriptableObject;
+
+import de.axelfaust.alfresco.enhScriptEnv.common.script.EnhancedScriptProcessor;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.ReferenceScript;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.ScopeContributor;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.ScriptCallChain;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.AbstractExecuteBatchFunction;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.DefaultFacadeFactory;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.ExecuteBatchJob;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.ExecuteBatchOptions;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.ExecuteBatchReport;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.ScriptValueToWorkItemCollectionConverter;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.converters.NativeArrayConverter;
+
+/**
+ * @author Axel Faust
+ */
+public class ExecuteBatchAsyncTest
+{
+
+    private static final String CALLER_SCRIPT = "var config = { factor : 2 }; var total = 0; "
+            + "function scale(value) { return value * config.factor; }"
+            + "var job = executeBatchAsync([ 1, 2, 3 ], function(item) { total += scale(item); "
+            + "return typeof lateValue === 'undefined' ? total : -1; }, 1, 1);" + "config.factor = 100; total = -1000; lateValue = true;";
+
+    private final TestScriptProcessor scriptProcessor = new TestScriptProcessor();
+
+    private final TestExecuteBatchFunction batchFunction = new TestExecuteBatchFunction();
+
+    private final CountDownLatch callerReturned = new CountDownLatch(1);
+
+    private ExecutorService executor;
+
+    private ScriptableObject template;
+
+    @Before
+    public void setUp()
+    {
+        this.executor = Executors.newSingleThreadExecutor();
+        // asynchronous executions may only start once the caller has returned
+        this.executor.submit(new Runnable()
+        {
+
+            /**
+             *
+             * {@inheritDoc}
+             */
+            @Override
+            public void run()
+            {
+                try
+                {
+                    ExecuteBatchAsyncTest.this.callerReturned.await();
+                }
+                catch (final InterruptedException ex)
+                {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        this.batchFunction.setScriptProcessor(this.scriptProcessor);
+        this.batchFunction.setFacadeFactory(new DefaultFacadeFactory());
+        this.batchFunction.setAsyncExecutor(this.executor);
+        this.batchFunction.setConverters(Collections.<ScriptValueToWorkItemCollectionConverter> singletonList(new NativeArrayConverter()));
+
+        final Context cx = Context.enter();
+        try
+        {
+            this.template = cx.initStandardObjects();
+            this.batchFunction.contributeToScope(this.template, true, false);
+        }
+        finally
+        {
+            Context.exit();
+        }
+    }
+
+    @After
+    public void tearDown()
+    {
+        this.callerReturned.countDown();
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    public void jobRunsAfterCallerReturned() throws Exception
+    {
+        final ScriptCallChain callerChain = ScriptCallChain.begin(null);
+        final Scriptable callerScope;
+
+        final Context cx = Context.enter();
+        try
+        {
+            // mimics the execution scope of a script based on a shared scope template
+            callerScope = cx.newObject(this.template);
+            callerScope.setPrototype(this.template);
+            callerScope.setParentScope(null);
+
+            this.scriptProcessor.callChain.set(callerChain);
+            try
+            {
+                cx.evaluateString(callerScope, CALLER_SCRIPT, "caller", 1, null);
+            }
+            finally
+            {
+                this.scriptProcessor.callChain.remove();
+            }
+        }
+        finally
+        {
+            Context.exit();
+        }
+
+        this.callerReturned.countDown();
+
+        final ExecuteBatchJob job = (ExecuteBatchJob) Context.jsToJava(callerScope.get("job", callerScope), ExecuteBatchJob.class);
+        final ExecuteBatchReport report = job.await();
+        Assert.assertNull("Job failed", job.getError());
+        Assert.assertFalse("Job was cancelled", report.isCancelled());
+
+        Assert.assertEquals("Job did not use snapshot of caller state", Arrays.<Object> asList(Double.valueOf(2), Double.valueOf(6),
+                Double.valueOf(12)), this.batchFunction.results);
+        Assert.assertEquals("Job did not inherit call chain of caller", Arrays.asList(callerChain, callerChain, callerChain),
+                this.batchFunction.callChains);
+
+        Assert.assertEquals("Job modified variable of caller", -1000, Context.toNumber(callerScope.get("total", callerScope)), 0);
+        final Scriptable config = (Scriptable) callerScope.get("config", callerScope);
+        Assert.assertEquals("Job modified object of caller", 100, Context.toNumber(config.get("factor", config)), 0);
+    }
+
+    /**
+     * Processes all work items sequentially in the executing thread.
+     *
+     * @author Axel Faust
+     */
+    protected static class TestExecuteBatchFunction extends AbstractExecuteBatchFunction
+    {
+
+        protected final List<Object> results = new CopyOnWriteArrayList<Object>();
+
+        protected final List<ScriptCallChain> callChains = new CopyOnWriteArrayList<ScriptCallChain>();
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        protected void executeBatch(final Scriptable scope, final Scriptable thisObj, final Collection<Object> workItems,
+                final Pair<Scriptable, Function> processCallback, final int threadCount, final int batchSize,
+                final Pair<Scriptable, Function> beforeProcessCallback, final Pair<Scriptable, Function> afterProcessCallback,
+                final ExecuteBatchOptions options, final ExecuteBatchReport report)
+        {
+            final Context cx = Context.getCurrentContext();
+            for (final Object workItem : workItems)
+            {
+                final Object result = processCallback.getSecond().call(cx, scope, processCallback.getFirst(), new Object[] { workItem });
+                this.results.add(Double.valueOf(Context.toNumber(result)));
+                this.callChains.add(this.scriptProcessor.getCurrentCallChain());
+            }
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        protected void executeBatch(final Scriptable scope, final Scriptable thisObj, final Iterator<?> workItems,
+                final Pair<Scriptable, Function> processCallback, final int threadCount, final int batchSize,
+                final Pair<Scriptable, Function> beforeProcessCallback, final Pair<Scriptable, Function> afterProcessCallback,
+                final ExecuteBatchOptions options, final ExecuteBatchReport report)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        protected void executeBatch(final Scriptable scope, final Scriptable thisObj,
+                final Pair<Scriptable, Function> workProviderCallback, final Pair<Scriptable, Function> processCallback,
+                final int threadCount, final int batchSize, final Pair<Scriptable, Function> beforeProcessCallback,
+                final Pair<Scriptable, Function> afterProcessCallback, final ExecuteBatchOptions options, final ExecuteBatchReport report)
+        {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * Tracks call chains per thread like the actual script processors do per context.
+     *
+     * @author Axel Faust
+     */
+    protected static class TestScriptProcessor implements EnhancedScriptProcessor<Object>
+    {
+
+        protected final ThreadLocal<ScriptCallChain> callChain = new ThreadLocal<ScriptCallChain>();
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public Object executeInScope(final Object location, final Object scope)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public Object executeInScope(final String source, final Object scope)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public ReferenceScript getContextScriptLocation()
+        {
+            final ScriptCallChain currentChain = this.callChain.get();
+            return currentChain != null ? currentChain.getCurrentScript() : null;
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public List<ReferenceScript> getScriptCallChain()
+        {
+            final ScriptCallChain currentChain = this.callChain.get();
+            return currentChain != null ? currentChain.toList() : null;
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public ScriptCallChain getCurrentCallChain()
+        {
+            return this.callChain.get();
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public void inheritCallChain(final Object parentContext)
+        {
+            if (this.callChain.get() != null)
+            {
+                throw new IllegalStateException("Context call chain has already been initialized");
+            }
+
+            if (!(parentContext instanceof ScriptCallChain))
+            {
+                throw new IllegalArgumentException("Parent context has no call chain associated with it");
+            }
+            this.callChain.set((ScriptCallChain) parentContext);
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public void releaseCallChain()
+        {
+            this.callChain.remove();
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public Object initializeScope(final Object location)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public void registerScopeContributor(final ScopeContributor contributor)
+        {
+            // NO-OP
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public void debuggerAttached()
+        {
+            // NO-OP
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public void debuggerDetached()
+        {
+            // NO-OP
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.batch;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.ExecuteBatchReport;
+
+/**
+ * @author Axel Faust
+ */
+public class ExecuteBatchReportTest
+{
+
+    @Test
+    public void testClearErrorBeyondRecordedErrors()
+    {
+        final ExecuteBatchReport report = new ExecuteBatchReport(2);
+        report.recordError("a", "Failed on purpose");
+        report.recordError("b", "Failed on purpose");
+        report.recordError("c", "Failed on purpose");
+
+        Assert.assertEquals("Failed items beyond the recorded errors were not counted", 3, report.getFailed());
+        Assert.assertEquals("Recorded errors were not limited", Arrays.asList("a", "b"), report.getErrorIdentifiers());
+
+        report.clearError("c");
+        Assert.assertEquals("Failed item beyond the recorded errors was not cleared", 2, report.getFailed());
+
+        report.clearError("a");
+        report.clearError("b");
+        Assert.assertEquals("Recorded failed items were not cleared", 0, report.getFailed());
+        Assert.assertFalse("Report still has errors", report.hasErrors());
+        Assert.assertTrue("Recorded errors were not cleared", report.getErrorIdentifiers().isEmpty());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.cache;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
+
+import de.axelfaust.alfresco.enhScriptEnv.common.script.cache.FrequencyAwareScriptCache;
+
+/**
+ * @author Axel Faust
+ */
+public class FrequencyAwareScriptCacheTest
+{
+
+    private static final Script DUMMY_SCRIPT = new Script()
+    {
+
+        @Override
+        public Object exec(final Context cx, final Scriptable scope)
+        {
+            return null;
+        }
+    };
+
+    @Test
+    public void testEvictsLeastFrequentlyUsed()
+    {
+        final FrequencyAwareScriptCache cache = new FrequencyAwareScriptCache();
+        cache.setMaxWeight(3);
+
+        cache.put("a", DUMMY_SCRIPT, 1);
+        cache.put("b", DUMMY_SCRIPT, 1);
+        cache.put("c", DUMMY_SCRIPT, 1);
+
+        cache.get("a");
+        cache.get("a");
+        cache.get("c");
+
+        cache.put("d", DUMMY_SCRIPT, 1);
+
+        Assert.assertNull("Least frequently used script was not evicted", cache.get("b"));
+        Assert.assertNotNull("Frequently used script was evicted", cache.get("a"));
+        Assert.assertNotNull("Recently added script was evicted", cache.get("d"));
+        Assert.assertEquals("Eviction was not counted", 1, cache.getEvictionCount());
+        Assert.assertEquals("Weight does not match number of cached scripts", 3, cache.getWeight());
+    }
+
+    @Test
+    public void testWeighBySourceSize()
+    {
+        final FrequencyAwareScriptCache cache = new FrequencyAwareScriptCache();
+        cache.setMaxWeight(100);
+        cache.setWeighBySourceSize(true);
+
+        cache.put("a", DUMMY_SCRIPT, 60);
+        cache.put("b", DUMMY_SCRIPT, 30);
+        Assert.assertEquals("Weight does not reflect source sizes", 90, cache.getWeight());
+
+        cache.put("c", DUMMY_SCRIPT, 40);
+        Assert.assertTrue("Weight exceeds maximum", cache.getWeight() <= 100);
+        Assert.assertNotNull("Recently added script was evicted", cache.get("c"));
+    }
+
+    @Test
+    public void testStaysWithinMaxWeight()
+    {
+        final FrequencyAwareScriptCache cache = new FrequencyAwareScriptCache();
+        cache.setMaxWeight(10);
+
+        for (int idx = 0; idx < 1000; idx++)
+        {
+            cache.put("script" + idx, DUMMY_SCRIPT, 1);
+            // replacements must not leave stale eviction candidates behind
+            cache.put("script" + idx, DUMMY_SCRIPT, 1);
+            cache.get("script" + (idx / 2));
+        }
+
+        Assert.assertEquals("Weight does not match maximum", 10, cache.getWeight());
+        Assert.assertEquals("Number of cached scripts does not match maximum", 10, cache.getKeys().size());
+        Assert.assertEquals("Evictions not counted correctly", 990, cache.getEvictionCount());
+        Assert.assertNotNull("Recently added script was evicted", cache.get("script999"));
+    }
+
+    @Test
+    public void testStatistics()
+    {
+        final FrequencyAwareScriptCache cache = new FrequencyAwareScriptCache();
+
+        cache.put("a", DUMMY_SCRIPT, 1);
+        cache.get("a");
+        cache.get("b");
+        cache.get("a");
+        // peeking must not affect statistics
+        Assert.assertNotNull("Cached script not found by peek", cache.peek("a"));
+        Assert.assertNull("Uncached script found by peek", cache.peek("b"));
+
+        Assert.assertEquals("Hits not counted correctly", 2, cache.getHitCount());
+        Assert.assertEquals("Misses not counted correctly", 1, cache.getMissCount());
+
+        cache.clear();
+        Assert.assertEquals("Weight not reset by clear", 0, cache.getWeight());
+        Assert.assertTrue("Keys not reset by clear", cache.getKeys().isEmpty());
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.axelfaust.alfresco.enhScriptEnv.common.script.cache.PersistentBytecodeCache;
+
+/**
+ * @author Axel Faust
+ */
+public class PersistentBytecodeCacheTest
+{
+
+    private static final String DIGEST = "0123456789abcdef0123456789abcdef";
+
+    private static final String CLASS_NAME = "de.axelfaust.alfresco.enhScriptEnv.compiled.Script" + DIGEST;
+
+    private File directory;
+
+    private TestablePersistentBytecodeCache cache;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        this.directory = File.createTempFile("bytecodeCache", "");
+        Assert.assertTrue("Failed to prepare cache directory", this.directory.delete() && this.directory.mkdir());
+
+        this.cache = new TestablePersistentBytecodeCache();
+        this.cache.setDirectory(this.directory.getAbsolutePath());
+        this.cache.setSecret("test-secret-of-sufficient-length");
+        this.cache.afterPropertiesSet();
+    }
+
+    @After
+    public void tearDown()
+    {
+        final File[] files = this.directory.listFiles();
+        if (files != null)
+        {
+            for (final File file : files)
+            {
+                file.delete();
+            }
+        }
+        this.directory.delete();
+    }
+
+    @Test
+    public void testReadsAuthenticEntry()
+    {
+        final File cacheFile = this.writeEntry(DIGEST);
+
+        final Object[] classFiles = this.cache.read(cacheFile, DIGEST);
+        Assert.assertNotNull("Authentic entry was rejected", classFiles);
+        Assert.assertEquals("Class name not read correctly", CLASS_NAME, classFiles[0]);
+        Assert.assertEquals("Class bytes not read correctly", 3, ((byte[]) classFiles[1]).length);
+    }
+
+    @Test
+    public void testRejectsTamperedEntry() throws IOException
+    {
+        final File cacheFile = this.writeEntry(DIGEST);
+
+        final RandomAccessFile raf = new RandomAccessFile(cacheFile, "rw");
+        try
+        {
+            // flip the last byte of the class bytes
+            raf.seek(raf.length() - 1);
+            final int lastByte = raf.read();
+            raf.seek(raf.length() - 1);
+            raf.write(lastByte ^ 0xff);
+        }
+        finally
+        {
+            raf.close();
+        }
+
+        Assert.assertNull("Tampered entry was not rejected", this.cache.read(cacheFile, DIGEST));
+    }
+
+    @Test
+    public void testRejectsEntryOfOtherScript()
+    {
+        final File cacheFile = this.writeEntry(DIGEST);
+
+        Assert.assertNull("Entry was accepted for a different cache key", this.cache.read(cacheFile, "fedcba9876543210fedcba9876543210"));
+    }
+
+    @Test
+    public void testRejectsEntryWrittenWithOtherSecret()
+    {
+        final File cacheFile = this.writeEntry(DIGEST);
+
+        this.cache.setSecret("another-secret-of-sufficient-length");
+        Assert.assertNull("Entry was accepted with a different secret", this.cache.read(cacheFile, DIGEST));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsShortSecret()
+    {
+        this.cache.setSecret("too-short");
+    }
+
+    private File writeEntry(final String digest)
+    {
+        final File cacheFile = new File(this.directory, digest + ".jsclass");
+        this.cache.write(cacheFile, digest, new Object[] { CLASS_NAME, new byte[] { 1, 2, 3 } });
+        Assert.assertTrue("Entry was not written", cacheFile.exists());
+        return cacheFile;
+    }
+
+    private static class TestablePersistentBytecodeCache extends PersistentBytecodeCache
+    {
+
+        protected Object[] read(final File cacheFile, final String digest)
+        {
+            return this.readClassFiles(cacheFile, digest);
+        }
+
+        protected void write(final File cacheFile, final String digest, final Object[] classFiles)
+        {
+            this.writeClassFiles(cacheFile, digest, classFiles);
+        }
+    }
+}
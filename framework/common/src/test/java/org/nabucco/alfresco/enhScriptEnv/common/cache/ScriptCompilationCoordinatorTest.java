@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mozilla.javascript.Context;
+import org.mozilla.javascript.Script;
+import org.mozilla.javascript.Scriptable;
+
+import de.axelfaust.alfresco.enhScriptEnv.common.script.cache.FrequencyAwareScriptCache;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.cache.ScriptCache;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.cache.ScriptCompilationCoordinator;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.cache.ScriptCompilationCoordinator.ScriptCompilation;
+
+/**
+ * @author Axel Faust
+ */
+public class ScriptCompilationCoordinatorTest
+{
+
+    private static final int THREAD_COUNT = 16;
+
+    private static final String SCRIPT_KEY = "classpath:alfresco/test.js";
+
+    @Test
+    public void testConcurrentRequestsCompileOnlyOnce() throws Exception
+    {
+        final ScriptCache cache = new FrequencyAwareScriptCache();
+        final ScriptCompilationCoordinator coordinator = new ScriptCompilationCoordinator();
+        final AtomicInteger compilations = new AtomicInteger();
+        final CountDownLatch startSignal = new CountDownLatch(1);
+
+        final ExecutorService executor = Executors.newFixedThreadPool(THREAD_COUNT);
+        try
+        {
+            final List<Future<Script>> results = new ArrayList<Future<Script>>();
+            for (int idx = 0; idx < THREAD_COUNT; idx++)
+            {
+                results.add(executor.submit(new Callable<Script>()
+                {
+
+                    /**
+                     *
+                     * {@inheritDoc}
+                     */
+                    @Override
+                    public Script call() throws Exception
+                    {
+                        startSignal.await();
+                        // mirrors the lookup of the script processors
+                        Script script = cache.get(SCRIPT_KEY);
+                        if (script == null)
+                        {
+                            script = coordinator.compile(SCRIPT_KEY, new ScriptCompilation()
+                            {
+
+                                /**
+                                 *
+                                 * {@inheritDoc}
+                                 */
+                                @Override
+                                public Script compile()
+                                {
+                                    final Script cachedScript = cache.peek(SCRIPT_KEY);
+                                    if (cachedScript != null)
+                                    {
+                                        return cachedScript;
+                                    }
+
+                                    compilations.incrementAndGet();
+                                    try
+                                    {
+                                        // give concurrent requests time to queue up behind this compilation
+                                        Thread.sleep(200);
+                                    }
+                                    catch (final InterruptedException ex)
+                                    {
+                                        Thread.currentThread().interrupt();
+                                    }
+                                    final Script compiledScript = new DummyScript();
+                                    cache.put(SCRIPT_KEY, compiledScript, 1);
+                                    return compiledScript;
+                                }
+                            });
+                        }
+                        return script;
+                    }
+                }));
+            }
+
+            startSignal.countDown();
+
+            final Script expectedScript = results.get(0).get(10, TimeUnit.SECONDS);
+            for (final Future<Script> result : results)
+            {
+                Assert.assertSame("Threads did not share the same compiled script", expectedScript, result.get(10, TimeUnit.SECONDS));
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        Assert.assertEquals("Script was not compiled exactly once", 1, compilations.get());
+        Assert.assertEquals("Lookups were not counted exactly once", THREAD_COUNT, cache.getHitCount() + cache.getMissCount());
+    }
+
+    private static class DummyScript implements Script
+    {
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public Object exec(final Context cx, final Scriptable scope)
+        {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.converter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.GenericGlobalValueConverter;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueConverter;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueInstanceConverterRegistry.ValueInstanceConverter;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.general.ListConverter;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.general.MapConverter;
+
+/**
+ * @author Axel Faust
+ */
+public class CollectionConverterTest
+{
+
+    private GenericGlobalValueConverter valueConverter;
+
+    @Before
+    public void setUp()
+    {
+        this.valueConverter = new GenericGlobalValueConverter();
+
+        final MapConverter mapConverter = new MapConverter();
+        mapConverter.setRegistry(this.valueConverter);
+        mapConverter.afterPropertiesSet();
+
+        final ListConverter listConverter = new ListConverter();
+        listConverter.setRegistry(this.valueConverter);
+        listConverter.afterPropertiesSet();
+
+        // deliberately not a single-pass converter
+        this.valueConverter.registerValueInstanceConverter(StringBuilder.class, new StringBuilderConverter());
+    }
+
+    @Test
+    public void testMapConvertedInPlace()
+    {
+        final SortedMap<Object, Object> map = new TreeMap<Object, Object>(Collections.reverseOrder());
+        map.put("a", new StringBuilder("valueA"));
+        map.put("b", "valueB");
+
+        final Object result = this.valueConverter.convertValueForJava(map, Map.class);
+
+        Assert.assertSame("Map was not converted in place", map, result);
+        Assert.assertSame("Comparator of map was lost", Collections.reverseOrder(), map.comparator());
+        Assert.assertEquals("Value was not converted", "valueA", map.get("a"));
+        Assert.assertEquals("Unconverted value was changed", "valueB", map.get("b"));
+        Assert.assertEquals("Order of map was not retained", "b", map.firstKey());
+    }
+
+    @Test
+    public void testListConvertedInPlace()
+    {
+        final List<Object> backingList = new ArrayList<Object>();
+        backingList.add("element0");
+        backingList.add(new StringBuilder("element1"));
+        final List<Object> list = Collections.synchronizedList(backingList);
+
+        final Object result = this.valueConverter.convertValueForJava(list, List.class);
+
+        Assert.assertSame("List was not converted in place", list, result);
+        Assert.assertEquals("Element was not converted", "element1", backingList.get(1));
+        Assert.assertEquals("Unconverted element was changed", "element0", backingList.get(0));
+    }
+
+    @Test
+    public void testNestedCollectionsConvertedInPlace()
+    {
+        final List<Object> list = new ArrayList<Object>();
+        list.add(new StringBuilder("element0"));
+        final Map<Object, Object> map = new TreeMap<Object, Object>();
+        map.put("list", list);
+
+        Assert.assertTrue("Map reported as not convertible", this.valueConverter.canConvertValueForJava(map, Map.class));
+        final Object result = this.valueConverter.tryConvertValueForJava(map, Map.class);
+
+        Assert.assertSame("Map was not converted in place", map, result);
+        Assert.assertSame("Nested list was not converted in place", list, map.get("list"));
+        Assert.assertEquals("Nested element was not converted", "element0", list.get(0));
+    }
+
+    private static class StringBuilderConverter implements ValueInstanceConverter
+    {
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public int getForScriptConversionConfidence(final Class<?> valueInstanceClass, final Class<?> expectedClass)
+        {
+            return LOWEST_CONFIDENCE;
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean canConvertValueForScript(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+        {
+            return false;
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public Object convertValueForScript(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+        {
+            throw new UnsupportedOperationException();
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public int getForJavaConversionConfidence(final Class<?> valueInstanceClass, final Class<?> expectedClass)
+        {
+            return HIGHEST_CONFIDENCE;
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean canConvertValueForJava(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+        {
+            return value instanceof StringBuilder && expectedClass.isAssignableFrom(String.class);
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public Object convertValueForJava(final Object value, final ValueConverter globalDelegate, final Class<?> expectedClass)
+        {
+            return value.toString();
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.common.script;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.core.Ordered;
+
+/**
+ * @author Axel Faust
+ */
+public class ScopeContributorRegistryTest
+{
+
+    @Test
+    public void contributorsInvokedByOrderThenRegistration()
+    {
+        final List<String> invoked = new ArrayList<String>();
+        final ScopeContributorRegistry registry = new ScopeContributorRegistry();
+
+        registry.register(new DummyContributor("unordered1", invoked));
+        registry.register(new DummyOrderedContributor("late", 10, invoked));
+        registry.register(new DummyContributor("unordered2", invoked));
+        registry.register(new DummyOrderedContributor("early", -10, invoked));
+
+        registry.contributeToScope(new Object(), true, false);
+
+        Assert.assertEquals("Contributors not invoked in expected order", Arrays.asList("early", "late", "unordered1", "unordered2"),
+                invoked);
+    }
+
+    @Test
+    public void duplicateRegistrationIgnored()
+    {
+        final ScopeContributorRegistry registry = new ScopeContributorRegistry();
+        final ScopeContributor contributor = new DummyContributor("dummy", new ArrayList<String>());
+
+        Assert.assertTrue("First registration not accepted", registry.register(contributor));
+        Assert.assertFalse("Duplicate registration accepted", registry.register(contributor));
+        Assert.assertEquals("Unexpected number of contributors", 1, registry.getContributors().size());
+    }
+
+    @Test
+    public void snapshotUnaffectedByRegistration()
+    {
+        final ScopeContributorRegistry registry = new ScopeContributorRegistry();
+        registry.register(new DummyContributor("first", new ArrayList<String>()));
+
+        final List<ScopeContributor> snapshot = registry.getContributors();
+        registry.register(new DummyContributor("second", new ArrayList<String>()));
+
+        Assert.assertEquals("Snapshot modified by registration", 1, snapshot.size());
+        Assert.assertEquals("Registration not published", 2, registry.getContributors().size());
+    }
+
+    @Test
+    public void immutableContributorsOnlyContributedToTemplate()
+    {
+        final List<String> invoked = new ArrayList<String>();
+        final ScopeContributorRegistry registry = new ScopeContributorRegistry();
+
+        registry.register(new DummyContributor("mutable", invoked));
+        registry.register(new DummyImmutableContributor("immutable", invoked));
+
+        registry.contributeToTemplate(new Object(), true);
+        Assert.assertEquals("Unexpected contributors invoked for template", Collections.singletonList("immutable"), invoked);
+
+        invoked.clear();
+        registry.contributeToFork(new Object(), true);
+        Assert.assertEquals("Unexpected contributors invoked for forked scope", Collections.singletonList("mutable"), invoked);
+    }
+
+    private static class DummyContributor implements ScopeContributor
+    {
+
+        private final String name;
+
+        private final List<String> invoked;
+
+        private DummyContributor(final String name, final List<String> invoked)
+        {
+            this.name = name;
+            this.invoked = invoked;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public void contributeToScope(final Object scope, final boolean trustworthyScript, final boolean mutableScope)
+        {
+            this.invoked.add(this.name);
+        }
+    }
+
+    private static class DummyOrderedContributor extends DummyContributor implements Ordered
+    {
+
+        private final int order;
+
+        private DummyOrderedContributor(final String name, final int order, final List<String> invoked)
+        {
+            super(name, invoked);
+            this.order = order;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int getOrder()
+        {
+            return this.order;
+        }
+    }
+
+    private static class DummyImmutableContributor extends DummyContributor implements ImmutableScopeContributor
+    {
+
+        private DummyImmutableContributor(final String name, final List<String> invoked)
+        {
+            super(name, invoked);
+        }
+    }
+}
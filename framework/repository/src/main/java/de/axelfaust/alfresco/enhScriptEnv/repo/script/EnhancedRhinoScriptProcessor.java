@@ -18,20 +18,16 @@ import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URL;
 import java.text.MessageFormat;
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.Iterator;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.processor.ProcessorExtension;
@@ -53,14 +49,25 @@ import org.mozilla.javascript.NativeJavaObject;
 import org.mozilla.javascript.Script;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
+import org.mozilla.javascript.WrapFactory;
 import org.mozilla.javascript.WrappedException;
 
 import de.axelfaust.alfresco.enhScriptEnv.common.script.EnhancedScriptProcessor;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.ImmutableScopeContributor;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.LazyModelScope;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.ProcessorExtensionBindings;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.ReferenceScript;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.ReferenceScript.CommonReferencePath;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.ReferenceScript.DynamicScript;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.ReferenceScript.ReferencePathType;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.ScopeContributor;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.ScopeContributorRegistry;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.ScriptCallChain;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.cache.FrequencyAwareScriptCache;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.cache.PersistentBytecodeCache;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.cache.ScriptCache;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.cache.ScriptCompilationCoordinator;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.cache.ScriptCompilationCoordinator.ScriptCompilation;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.ValueConverter;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.converter.rhino.DelegatingWrapFactory;
 import de.axelfaust.alfresco.enhScriptEnv.common.webscripts.processor.SurfReferencePath;
@@ -99,19 +106,20 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
     private static final List<ReferencePathType> REAL_PATH_SUCCESSION = Collections.<ReferencePathType> unmodifiableList(Arrays
             .<ReferencePathType> asList(CommonReferencePath.FILE, RepositoryReferencePath.FILE_FOLDER_PATH, SurfReferencePath.STORE));
 
-    private static final int DEFAULT_MAX_SCRIPT_CACHE_SIZE = 200;
+    // key of the immutable script call chain attached to each context (as a context-local value)
+    protected final Object callChainKey = new Object();
 
-    // used WeakHashMap here before to avoid accidental leaks but measures for proper cleanup have proven themselves
-    // during tests
-    protected final Map<Context, List<ReferenceScript>> activeScriptLocationChain = new ConcurrentHashMap<Context, List<ReferenceScript>>();
+    protected boolean shareScopes = true;
 
-    protected final Map<Context, List<List<ReferenceScript>>> recursionScriptLocationChains = new ConcurrentHashMap<Context, List<List<ReferenceScript>>>();
+    // shared scopes are replaced (not modified) when processor extensions are registered after they have been set up
+    protected volatile Scriptable restrictedShareableScope;
 
-    protected boolean shareScopes = true;
+    protected volatile Scriptable unrestrictedShareableScope;
 
-    protected Scriptable restrictedShareableScope;
+    // templates for isolated scopes (when scopes are not shared or imports need to be isolated) - built once per variant on demand
+    protected volatile Scriptable restrictedScopeTemplate;
 
-    protected Scriptable unrestrictedShareableScope;
+    protected volatile Scriptable unrestrictedScopeTemplate;
 
     protected boolean compileScripts = true;
 
@@ -125,19 +133,28 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
 
     protected ValueConverter valueConverter;
 
-    protected final Map<String, Script> scriptCache = new LinkedHashMap<String, Script>(256);
-
-    protected final ReadWriteLock scriptCacheLock = new ReentrantReadWriteLock(true);
+    protected ScriptCache scriptCache = new FrequencyAwareScriptCache();
 
     protected final AtomicLong dynamicScriptCounter = new AtomicLong();
 
-    protected final Map<String, Script> dynamicScriptCache = new LinkedHashMap<String, Script>();
+    protected ScriptCache dynamicScriptCache = new FrequencyAwareScriptCache();
+
+    protected final ScriptCompilationCoordinator compilationCoordinator = new ScriptCompilationCoordinator();
+
+    protected PersistentBytecodeCache bytecodeCache = new PersistentBytecodeCache();
+
+    protected boolean cacheNodeScripts = true;
 
-    protected final ReadWriteLock dynamicScriptCacheLock = new ReentrantReadWriteLock(true);
+    // tracks the nodes for which content-versioned scripts are currently cached (for cheap invalidation checks)
+    protected final Set<String> cachedNodeScripts = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
 
-    protected int maxScriptCacheSize = DEFAULT_MAX_SCRIPT_CACHE_SIZE;
+    protected final ScopeContributorRegistry registeredContributors = new ScopeContributorRegistry();
 
-    protected final Collection<ScopeContributor> registeredContributors = new HashSet<ScopeContributor>();
+    // guards (re-)building of scope templates and shared scopes against concurrent registration of contributors / processor extensions
+    protected final Object scopeTemplateLock = new Object();
+
+    // incremented on every registration of a processor extension so bindings on shared scopes can detect they are outdated
+    protected final AtomicInteger processorExtensionsVersion = new AtomicInteger();
 
     /**
      *
@@ -161,26 +178,10 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
         ValueConverter.GLOBAL_CONVERTER.set(this.valueConverter);
         try
         {
-            Context cx = Context.enter();
-            try
+            synchronized (this.scopeTemplateLock)
             {
-                cx.setWrapFactory(new DelegatingWrapFactory());
-                this.restrictedShareableScope = this.setupScope(cx, false, true);
-            }
-            finally
-            {
-                Context.exit();
-            }
-
-            cx = Context.enter();
-            try
-            {
-                cx.setWrapFactory(new DelegatingWrapFactory());
-                this.unrestrictedShareableScope = this.setupScope(cx, true, true);
-            }
-            finally
-            {
-                Context.exit();
+                this.restrictedShareableScope = this.setupShareableScope(false);
+                this.unrestrictedShareableScope = this.setupShareableScope(true);
             }
         }
         finally
@@ -189,6 +190,16 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void registerProcessorExtension(final ProcessorExtension processorExtension)
+    {
+        super.registerProcessorExtension(processorExtension);
+        this.processorExtensionsVersion.incrementAndGet();
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -210,7 +221,7 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
         try
         {
             this.updateLocationChainsBeforeExceution(cx);
-            this.activeScriptLocationChain.get(cx).add(actualScript);
+            this.setCallChain(cx, this.getCallChain(cx).push(actualScript));
             try
             {
                 return this.executeScriptImpl(script, model, location.isSecure(), debugScriptName);
@@ -262,7 +273,7 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
         try
         {
             this.updateLocationChainsBeforeExceution(cx);
-            this.activeScriptLocationChain.get(cx).add(new ReferenceScript.DynamicScript(debugScriptName, source));
+            this.setCallChain(cx, this.getCallChain(cx).push(new ReferenceScript.DynamicScript(debugScriptName, source)));
             try
             {
                 return this.executeScriptImpl(script, model, this.executeArbitraryScriptStringsAsSecure, debugScriptName);
@@ -306,16 +317,15 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
 
             cx.setWrapFactory(wrapFactory);
 
-            List<ReferenceScript> currentChain = this.activeScriptLocationChain.get(cx);
             boolean newChain = false;
-            if (currentChain == null)
+            if (this.getCallChain(cx) == null)
             {
                 this.updateLocationChainsBeforeExceution(cx);
-                currentChain = this.activeScriptLocationChain.get(cx);
                 newChain = true;
             }
             // else: assume the original script chain is continued
-            currentChain.add(new ReferenceScript.DynamicScript(debugScriptName, source));
+            final ScriptCallChain currentChain = this.getCallChain(cx);
+            this.setCallChain(cx, currentChain.push(new ReferenceScript.DynamicScript(debugScriptName, source)));
 
             try
             {
@@ -331,7 +341,7 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
                     }
                     else
                     {
-                        realScope = this.setupScope(cx, this.executeArbitraryScriptStringsAsSecure, false);
+                        realScope = this.forkScope(cx, this.executeArbitraryScriptStringsAsSecure);
                     }
                 }
                 else if (!(scope instanceof Scriptable))
@@ -344,7 +354,7 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
                     }
                     else
                     {
-                        final Scriptable baseScope = this.setupScope(cx, this.executeArbitraryScriptStringsAsSecure, false);
+                        final Scriptable baseScope = this.forkScope(cx, this.executeArbitraryScriptStringsAsSecure);
                         realScope.setPrototype(baseScope);
                     }
                 }
@@ -360,7 +370,7 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
             }
             finally
             {
-                currentChain.remove(currentChain.size() - 1);
+                this.setCallChain(cx, currentChain);
                 if (newChain)
                 {
                     this.updateLocationChainsAfterReturning(cx);
@@ -417,16 +427,15 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
             final DelegatingWrapFactory wrapFactory = new DelegatingWrapFactory();
             cx.setWrapFactory(wrapFactory);
 
-            List<ReferenceScript> currentChain = this.activeScriptLocationChain.get(cx);
             boolean newChain = false;
-            if (currentChain == null)
+            if (this.getCallChain(cx) == null)
             {
                 this.updateLocationChainsBeforeExceution(cx);
-                currentChain = this.activeScriptLocationChain.get(cx);
                 newChain = true;
             }
             // else: assume the original script chain is continued
-            currentChain.add(actualScript);
+            final ScriptCallChain currentChain = this.getCallChain(cx);
+            this.setCallChain(cx, currentChain.push(actualScript));
             try
             {
 
@@ -443,7 +452,7 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
                     }
                     else
                     {
-                        realScope = this.setupScope(cx, actualScript.isSecure(), false);
+                        realScope = this.forkScope(cx, actualScript.isSecure());
                     }
                 }
                 else if (!(scope instanceof Scriptable))
@@ -457,7 +466,7 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
                     }
                     else
                     {
-                        final Scriptable baseScope = this.setupScope(cx, actualScript.isSecure(), false);
+                        final Scriptable baseScope = this.forkScope(cx, actualScript.isSecure());
                         realScope.setPrototype(baseScope);
                     }
                 }
@@ -473,7 +482,7 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
             }
             finally
             {
-                currentChain.remove(currentChain.size() - 1);
+                this.setCallChain(cx, currentChain);
                 if (newChain)
                 {
                     this.updateLocationChainsAfterReturning(cx);
@@ -527,7 +536,7 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
             }
             else
             {
-                scope = this.setupScope(cx, secureScript, false);
+                scope = this.forkScope(cx, secureScript);
             }
         }
         finally
@@ -546,11 +555,11 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
     @Override
     public ReferenceScript getContextScriptLocation()
     {
-        final List<ReferenceScript> currentChain = this.activeScriptLocationChain.get(Context.getCurrentContext());
+        final ScriptCallChain currentChain = this.getCallChain(Context.getCurrentContext());
         final ReferenceScript result;
-        if (currentChain != null && !currentChain.isEmpty())
+        if (currentChain != null)
         {
-            result = currentChain.get(currentChain.size() - 1);
+            result = currentChain.getCurrentScript();
         }
         else
         {
@@ -566,11 +575,11 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
     @Override
     public List<ReferenceScript> getScriptCallChain()
     {
-        final List<ReferenceScript> currentChain = this.activeScriptLocationChain.get(Context.getCurrentContext());
+        final ScriptCallChain currentChain = this.getCallChain(Context.getCurrentContext());
         final List<ReferenceScript> result;
         if (currentChain != null)
         {
-            result = new ArrayList<ReferenceScript>(currentChain);
+            result = currentChain.toList();
         }
         else
         {
@@ -579,6 +588,16 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
         return result;
     }
 
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public ScriptCallChain getCurrentCallChain()
+    {
+        return this.getCallChain(Context.getCurrentContext());
+    }
+
     /**
      *
      * {@inheritDoc}
@@ -589,20 +608,42 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
         ParameterCheck.mandatory("parentContext", parentContext);
 
         final Context currentContext = Context.getCurrentContext();
-        List<ReferenceScript> activeChain = this.activeScriptLocationChain.get(currentContext);
-        if (activeChain != null)
+        if (this.getCallChain(currentContext) != null)
         {
             throw new IllegalStateException("Context call chain has already been initialized");
         }
 
-        final List<ReferenceScript> parentChain = this.activeScriptLocationChain.get(parentContext);
+        final ScriptCallChain parentChain;
+        if (parentContext instanceof ScriptCallChain)
+        {
+            parentChain = (ScriptCallChain) parentContext;
+        }
+        else
+        {
+            parentChain = parentContext instanceof Context ? this.getCallChain((Context) parentContext) : null;
+        }
+
         if (parentChain == null)
         {
             throw new IllegalArgumentException("Parent context has no call chain associated with it");
         }
 
-        activeChain = new ArrayList<ReferenceScript>(parentChain);
-        this.activeScriptLocationChain.put(currentContext, activeChain);
+        // call chains are immutable so the chain of the parent context can simply be shared
+        this.setCallChain(currentContext, parentChain);
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void releaseCallChain()
+    {
+        final Context currentContext = Context.getCurrentContext();
+        if (currentContext != null)
+        {
+            currentContext.removeThreadLocal(this.callChainKey);
+        }
     }
 
     /**
@@ -634,12 +675,13 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
     {
         if (contributor != null)
         {
-            // can use synchronized here since scope creation / registration should not occur that often in a relevant
-            // production scenario
-            // (when immutable scopes are shared)
-            synchronized (this.registeredContributors)
+            synchronized (this.scopeTemplateLock)
             {
-                this.registeredContributors.add(contributor);
+                this.registeredContributors.register(contributor);
+
+                // templates need to be rebuilt to include the new contributor
+                this.restrictedScopeTemplate = null;
+                this.unrestrictedScopeTemplate = null;
             }
         }
     }
@@ -650,23 +692,63 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
     @Override
     public void reset()
     {
-        this.scriptCacheLock.writeLock().lock();
-        try
-        {
-            this.scriptCache.clear();
-        }
-        finally
+        this.scriptCache.clear();
+        this.dynamicScriptCache.clear();
+        this.cachedNodeScripts.clear();
+    }
+
+    /**
+     * Compiles a script and caches the result without executing the script, so that subsequent executions do not have to compile it.
+     *
+     * @param location
+     *            the location of the script to compile
+     * @return {@code true} if the script has been compiled and cached, {@code false} if compilation / caching is not enabled or the script
+     *         is not cachable
+     */
+    public boolean precompile(final ScriptLocation location)
+    {
+        ParameterCheck.mandatory("location", location);
+
+        final boolean precompiled;
+        final ScriptLocationAdapter script = new ScriptLocationAdapter(location);
+        if (this.compileScripts && !this.debuggerActive && (script.isCachable() || this.determineContentVersion(script) != null))
         {
-            this.scriptCacheLock.writeLock().unlock();
+            this.getCompiledScript(script);
+            precompiled = true;
         }
-        this.dynamicScriptCacheLock.writeLock().lock();
-        try
+        else
         {
-            this.dynamicScriptCache.clear();
+            precompiled = false;
         }
-        finally
+        return precompiled;
+    }
+
+    /**
+     * Removes any cached compiled scripts for the content of a specific node. Since cached node scripts are keyed by their content version,
+     * a stale entry can never be served after the content changed, so this operation only frees cache capacity early.
+     *
+     * @param node
+     *            the node for which to remove cached scripts
+     */
+    public void invalidateNodeScript(final NodeRef node)
+    {
+        ParameterCheck.mandatory("node", node);
+        this.invalidateVersionedScripts(node.toString());
+    }
+
+    protected void invalidateVersionedScripts(final String realPath)
+    {
+        if (this.cachedNodeScripts.remove(realPath))
         {
-            this.dynamicScriptCacheLock.writeLock().unlock();
+            final String keyPrefix = realPath + "@";
+            for (final String key : this.scriptCache.getKeys())
+            {
+                if (key.startsWith(keyPrefix))
+                {
+                    this.scriptCache.remove(key);
+                }
+            }
+            LOGGER.debug("Invalidated cached script versions for {}", realPath);
         }
     }
 
@@ -719,6 +801,45 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
         this.failoverToLessOptimization = failoverToLessOptimization;
     }
 
+    /**
+     * @param scriptCache
+     *            the scriptCache to set
+     */
+    public void setScriptCache(final ScriptCache scriptCache)
+    {
+        ParameterCheck.mandatory("scriptCache", scriptCache);
+        this.scriptCache = scriptCache;
+    }
+
+    /**
+     * @param dynamicScriptCache
+     *            the dynamicScriptCache to set
+     */
+    public void setDynamicScriptCache(final ScriptCache dynamicScriptCache)
+    {
+        ParameterCheck.mandatory("dynamicScriptCache", dynamicScriptCache);
+        this.dynamicScriptCache = dynamicScriptCache;
+    }
+
+    /**
+     * @param bytecodeCache
+     *            the bytecodeCache to set
+     */
+    public void setBytecodeCache(final PersistentBytecodeCache bytecodeCache)
+    {
+        ParameterCheck.mandatory("bytecodeCache", bytecodeCache);
+        this.bytecodeCache = bytecodeCache;
+    }
+
+    /**
+     * @param cacheNodeScripts
+     *            the cacheNodeScripts to set
+     */
+    public void setCacheNodeScripts(final boolean cacheNodeScripts)
+    {
+        this.cacheNodeScripts = cacheNodeScripts;
+    }
+
     /**
      * @param executeArbitraryScriptStringsAsSecure
      *            the executeArbitraryScriptStringsAsSecure to set
@@ -746,39 +867,96 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
 
     protected void updateLocationChainsBeforeExceution(final Context currentContext)
     {
-        final List<ReferenceScript> activeChain = this.activeScriptLocationChain.get(currentContext);
-        if (activeChain != null)
-        {
-            List<List<ReferenceScript>> recursionChains = this.recursionScriptLocationChains.get(currentContext);
-            if (recursionChains == null)
-            {
-                recursionChains = new LinkedList<List<ReferenceScript>>();
-                this.recursionScriptLocationChains.put(currentContext, recursionChains);
-            }
-
-            recursionChains.add(0, activeChain);
-        }
-        this.activeScriptLocationChain.put(currentContext, new LinkedList<ReferenceScript>());
+        // start a new chain, suspending any currently active chain (recursive execution)
+        this.setCallChain(currentContext, ScriptCallChain.begin(this.getCallChain(currentContext)));
     }
 
     protected void updateLocationChainsAfterReturning(final Context currentContext)
     {
-        this.activeScriptLocationChain.remove(currentContext);
-        final List<List<ReferenceScript>> recursionChains = this.recursionScriptLocationChains.get(currentContext);
-        if (recursionChains != null)
+        final ScriptCallChain activeChain = this.getCallChain(currentContext);
+        // entry is kept (instead of removed) so concurrent lookups by batch worker threads never see a structural modification
+        this.setCallChain(currentContext, activeChain != null ? activeChain.getSuspended() : null);
+    }
+
+    protected ScriptCallChain getCallChain(final Context currentContext)
+    {
+        final ScriptCallChain chain = currentContext != null ? (ScriptCallChain) currentContext.getThreadLocal(this.callChainKey) : null;
+        return chain;
+    }
+
+    protected void setCallChain(final Context currentContext, final ScriptCallChain chain)
+    {
+        currentContext.putThreadLocal(this.callChainKey, chain);
+    }
+
+    protected Script getCompiledScript(final ReferenceScript location)
+    {
+        Script script = null;
+        final String realPath = this.determineRealPath(location);
+
+        // store since it may be reset between cache-check and cache-put, and we don't want debug-enabled scripts cached
+        final boolean debuggerActive = this.debuggerActive;
+        final boolean dynamicScript = location instanceof DynamicScript;
+        // node scripts are not cachable by path, but by path + content version
+        final String contentVersion = this.determineContentVersion(location);
+        final boolean versionedScript = contentVersion != null;
+        final String cacheKey = versionedScript ? realPath + "@" + contentVersion : realPath;
+        final ScriptCache cache;
+        // test the cache for a pre-compiled script matching our path
+        if (this.compileScripts && !debuggerActive && (dynamicScript || versionedScript || location.isCachable()))
         {
-            final List<ReferenceScript> previousChain = recursionChains.remove(0);
-            if (recursionChains.isEmpty())
+            cache = dynamicScript ? this.dynamicScriptCache : this.scriptCache;
+            script = this.lookupScriptCache(cache, cacheKey);
+        }
+        else
+        {
+            cache = null;
+        }
+
+        if (script == null)
+        {
+            if (cache != null)
+            {
+                // only one thread should compile a specific script - all others wait and share the result
+                script = this.compilationCoordinator.compile(cacheKey, new ScriptCompilation()
+                {
+
+                    /**
+                     *
+                     * {@inheritDoc}
+                     */
+                    @Override
+                    public Script compile()
+                    {
+                        // another thread may have completed compilation between our cache lookup and obtaining the compilation slot
+                        // (peek to avoid counting the same miss twice)
+                        final Script cachedScript = cache.peek(cacheKey);
+                        if (cachedScript != null)
+                        {
+                            LOGGER.debug("Using script for {} compiled concurrently by another thread", realPath);
+                            return cachedScript;
+                        }
+
+                        return EnhancedRhinoScriptProcessor.this.compileAndCacheScript(location, realPath, cacheKey, cache,
+                                versionedScript);
+                    }
+                });
+            }
+            else
             {
-                this.recursionScriptLocationChains.remove(currentContext);
+                script = this.compileAndCacheScript(location, realPath, cacheKey, null, false);
             }
-            this.activeScriptLocationChain.put(currentContext, previousChain);
         }
+        else
+        {
+            LOGGER.debug("Using previously compiled script for {}", realPath);
+        }
+
+        return script;
     }
 
-    protected Script getCompiledScript(final ReferenceScript location)
+    protected String determineRealPath(final ReferenceScript location)
     {
-        Script script = null;
         String realPath = null;
 
         final Collection<ReferencePathType> supportedReferencePathTypes = location.getSupportedReferencePathTypes();
@@ -834,48 +1012,61 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
             }
         }
 
-        // store since it may be reset between cache-check and cache-put, and we don't want debug-enabled scripts cached
-        final boolean debuggerActive = this.debuggerActive;
-        final boolean dynamicScript = location instanceof DynamicScript;
-        // test the cache for a pre-compiled script matching our path
-        if (this.compileScripts && !debuggerActive && (dynamicScript || location.isCachable()))
+        return realPath;
+    }
+
+    protected Script compileAndCacheScript(final ReferenceScript location, final String realPath, final String cacheKey,
+            final ScriptCache cache, final boolean versionedScript)
+    {
+        LOGGER.debug("Resolving and compiling script path: {}", realPath);
+
+        final Script script;
+        final int sourceSize;
+        try
         {
-            script = this.lookupScriptCache(dynamicScript ? this.dynamicScriptCache : this.scriptCache,
-                    dynamicScript ? this.dynamicScriptCacheLock : this.scriptCacheLock, realPath);
+            final ByteArrayOutputStream os = new ByteArrayOutputStream();
+            FileCopyUtils.copy(location.getInputStream(), os); // both streams are closed
+            final byte[] bytes = os.toByteArray();
+            final String source = new String(bytes, "UTF-8");
+            sourceSize = source.length();
+            script = this.getCompiledScript(source, realPath);
         }
-
-        if (script == null)
+        catch (final IOException err)
         {
-            LOGGER.debug("Resolving and compiling script path: {}", realPath);
+            LOGGER.error("Failed to compile supplied script", err);
+            throw new ScriptException("Failed to compile supplied script: " + err.getMessage(), err);
+        }
 
-            try
-            {
-                final ByteArrayOutputStream os = new ByteArrayOutputStream();
-                FileCopyUtils.copy(location.getInputStream(), os); // both streams are closed
-                final byte[] bytes = os.toByteArray();
-                final String source = new String(bytes, "UTF-8");
-                script = this.getCompiledScript(source, realPath);
-            }
-            catch (final IOException err)
+        if (cache != null)
+        {
+            if (versionedScript)
             {
-                LOGGER.error("Failed to compile supplied script", err);
-                throw new ScriptException("Failed to compile supplied script: " + err.getMessage(), err);
+                // previous versions of the same node script will never be hit again
+                this.invalidateVersionedScripts(realPath);
+                this.cachedNodeScripts.add(realPath);
             }
+            this.updateScriptCache(cache, cacheKey, script, sourceSize);
+        }
 
-            if (this.compileScripts && !debuggerActive && (dynamicScript || location.isCachable()))
-            {
-                this.updateScriptCache(dynamicScript ? this.dynamicScriptCache : this.scriptCache,
-                        dynamicScript ? this.dynamicScriptCacheLock : this.scriptCacheLock, realPath, script);
-            }
+        LOGGER.debug("Compiled script for {}", realPath);
 
-            LOGGER.debug("Compiled script for {}", realPath);
+        return script;
+    }
+
+    protected String determineContentVersion(final ReferenceScript location)
+    {
+        final String contentVersion;
+        if (this.cacheNodeScripts && location instanceof ScriptLocationAdapter
+                && ((ScriptLocationAdapter) location).getScriptLocation() instanceof NodeScriptLocation)
+        {
+            final NodeScriptLocation nodeLocation = (NodeScriptLocation) ((ScriptLocationAdapter) location).getScriptLocation();
+            contentVersion = nodeLocation.getContentVersion();
         }
         else
         {
-            LOGGER.debug("Using previously compiled script for {}", realPath);
+            contentVersion = null;
         }
-
-        return script;
+        return contentVersion;
     }
 
     protected Script getCompiledScript(final String source, final String path)
@@ -903,7 +1094,7 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
                         try
                         {
                             cx.setOptimizationLevel(optimizationLevel--);
-                            bestEffortOptimizedScript = cx.compileString(resolvedSource, path, 1, null);
+                            bestEffortOptimizedScript = this.bytecodeCache.compileScript(cx, resolvedSource, path);
                         }
                         catch (final RuntimeException ex)
                         {
@@ -980,42 +1171,15 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
         return legacyNamePathResolvedScript;
     }
 
-    protected Script lookupScriptCache(final Map<String, Script> cache, final ReadWriteLock lock, final String key)
+    protected Script lookupScriptCache(final ScriptCache cache, final String key)
     {
-        Script script;
-        lock.readLock().lock();
-        try
-        {
-            script = cache.get(key);
-        }
-        finally
-        {
-            lock.readLock().unlock();
-        }
+        final Script script = cache.get(key);
         return script;
     }
 
-    protected void updateScriptCache(final Map<String, Script> cache, final ReadWriteLock lock, final String key, final Script script)
+    protected void updateScriptCache(final ScriptCache cache, final String key, final Script script, final int sourceSize)
     {
-        lock.writeLock().lock();
-        try
-        {
-            cache.put(key, script);
-
-            if (cache.size() > this.maxScriptCacheSize)
-            {
-                final Iterator<String> keyIterator = cache.keySet().iterator();
-                while (cache.size() > this.maxScriptCacheSize)
-                {
-                    final String keyToRemove = keyIterator.next();
-                    cache.remove(keyToRemove);
-                }
-            }
-        }
-        finally
-        {
-            lock.writeLock().unlock();
-        }
+        cache.put(key, script, sourceSize);
     }
 
     protected Object executeScriptImpl(final Script script, final Map<String, Object> model, final boolean secureScript,
@@ -1035,8 +1199,46 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
             cx.setWrapFactory(wrapFactory);
 
             final Scriptable scope;
-            if (this.shareScopes)
+            final LazyModelScope modelScope;
+            if (model != null)
+            {
+                // supplied object model is only converted / inserted into the root scope when accessed by the script
+                modelScope = new LazyModelScope(model, this.valueConverter)
+                {
+
+                    private static final long serialVersionUID = 1L;
+
+                    /**
+                     * {@inheritDoc}
+                     */
+                    @Override
+                    protected Object convertValueForScript(final String key, final Object value)
+                    {
+                        // set the root scope on appropriate objects
+                        // this is used to allow native JS object creation etc.
+                        if (value instanceof Scopeable)
+                        {
+                            ((Scopeable) value).setScope(this);
+                        }
+
+                        final Object jsObject = super.convertValueForScript(key, value);
+
+                        // repeat on resulting object (may have been converted into Scopeable)
+                        if (jsObject instanceof Scopeable)
+                        {
+                            ((Scopeable) jsObject).setScope(this);
+                        }
+                        return jsObject;
+                    }
+                };
+                modelScope.setPrototype(this.shareScopes ? (secureScript ? this.unrestrictedShareableScope : this.restrictedShareableScope)
+                        : this.forkScope(cx, secureScript));
+                modelScope.setParentScope(null);
+                scope = modelScope;
+            }
+            else if (this.shareScopes)
             {
+                modelScope = null;
                 final Scriptable sharedScope = secureScript ? this.unrestrictedShareableScope : this.restrictedShareableScope;
                 scope = cx.newObject(sharedScope);
                 scope.setPrototype(sharedScope);
@@ -1044,46 +1246,19 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
             }
             else
             {
-                scope = this.setupScope(cx, secureScript, false);
+                modelScope = null;
+                scope = this.forkScope(cx, secureScript);
             }
 
             wrapFactory.setScope(scope);
 
-            if (model != null)
-            {
-                // insert supplied object model into root of the default scope
-                for (final String key : model.keySet())
-                {
-                    final Object obj = model.get(key);
-
-                    // set the root scope on appropriate objects
-                    // this is used to allow native JS object creation etc.
-                    if (obj instanceof Scopeable)
-                    {
-                        ((Scopeable) obj).setScope(scope);
-                    }
-
-                    // convert/wrap each object to JavaScript compatible
-                    final Object jsObject = this.valueConverter.convertValueForScript(obj);
-
-                    // repeat on resulting object (may have been converted into Scopeable)
-                    if (jsObject instanceof Scopeable)
-                    {
-                        ((Scopeable) jsObject).setScope(scope);
-                    }
-
-                    // insert into the root scope ready for access by the script
-                    ScriptableObject.putProperty(scope, key, jsObject);
-                }
-            }
-
             // execute the script and return the result
             final Object scriptResult = this.executeScriptInScopeImpl(script, scope);
 
-            if (model != null)
+            if (modelScope != null)
             {
-                // convert/wrap each object to Java compatible (in case script objects leaked into model objects)
-                for (final String key : model.keySet())
+                // convert/wrap each accessed object to Java compatible (in case script objects leaked into model objects)
+                for (final String key : modelScope.getAccessedKeys())
                 {
                     final Object obj = model.get(key);
                     final Object javaObject = this.valueConverter.convertValueForJava(obj);
@@ -1132,25 +1307,59 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
                 cx.setOptimizationLevel(9);
             }
             // make sure scripts always have the relevant processor extensions available
-            for (final ProcessorExtension ex : this.processorExtensions.values())
+            final ProcessorExtensionBindings bindings = ProcessorExtensionBindings.lookup(scope);
+            final boolean outdatedBindings = bindings != null && bindings.getVersion() != this.processorExtensionsVersion.get();
+            if (outdatedBindings)
             {
-                if (!ScriptableObject.hasProperty(scope, ex.getExtensionName()))
+                // shared scopes may be in use by concurrent executions, so they are replaced for any subsequent executions
+                this.refreshProcessorExtensionBindings();
+            }
+
+            if (bindings != null)
+            {
+                // extensions are bound to the shared scope - only scopeable extensions need to know about the current scope
+                for (final Map.Entry<String, Object> scopeableObject : bindings.getScopeableObjects().entrySet())
                 {
-                    if (ex instanceof Scopeable)
+                    final Object jsObject = scopeableObject.getValue();
+                    if (ScriptableObject.getProperty(scope, scopeableObject.getKey()) == jsObject)
                     {
-                        ((Scopeable) ex).setScope(scope);
-                    }
+                        final ProcessorExtension ex = this.processorExtensions.get(scopeableObject.getKey());
+                        if (ex instanceof Scopeable)
+                        {
+                            ((Scopeable) ex).setScope(scope);
+                        }
 
-                    // convert/wrap each to JavaScript compatible
-                    final Object jsObject = this.valueConverter.convertValueForScript(ex);
+                        if (jsObject instanceof Scopeable)
+                        {
+                            ((Scopeable) jsObject).setScope(scope);
+                        }
+                    }
+                }
+            }
 
-                    if (jsObject instanceof Scopeable)
+            if (bindings == null || outdatedBindings)
+            {
+                // any extensions not bound to a shared scope are inserted into the scope of the execution
+                for (final ProcessorExtension ex : this.processorExtensions.values())
+                {
+                    if (!ScriptableObject.hasProperty(scope, ex.getExtensionName()))
                     {
-                        ((Scopeable) jsObject).setScope(scope);
-                    }
+                        if (ex instanceof Scopeable)
+                        {
+                            ((Scopeable) ex).setScope(scope);
+                        }
+
+                        // convert/wrap each to JavaScript compatible
+                        final Object jsObject = this.valueConverter.convertValueForScript(ex);
+
+                        if (jsObject instanceof Scopeable)
+                        {
+                            ((Scopeable) jsObject).setScope(scope);
+                        }
 
-                    // insert into the scope ready for access by the script
-                    ScriptableObject.putProperty(scope, ex.getExtensionName(), jsObject);
+                        // insert into the scope ready for access by the script
+                        ScriptableObject.putProperty(scope, ex.getExtensionName(), jsObject);
+                    }
                 }
             }
 
@@ -1166,7 +1375,152 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
         }
     }
 
+    /**
+     * Sets up a new shared scope with the currently registered processor extensions bound to it.
+     *
+     * @param trustworthyScript
+     *            {@code true} if the scope is set up for trustworthy scripts, {@code false} otherwise
+     * @return the shared scope
+     */
+    protected Scriptable setupShareableScope(final boolean trustworthyScript)
+    {
+        // may be called during script execution, so the wrap factory of the context must be restored
+        final Context cx = Context.enter();
+        final WrapFactory previousWrapFactory = cx.getWrapFactory();
+        try
+        {
+            cx.setWrapFactory(new DelegatingWrapFactory());
+            final Scriptable scope = this.setupScope(cx, trustworthyScript, true);
+            this.bindProcessorExtensions(ProcessorExtensionBindings.attach((ScriptableObject) scope));
+            return scope;
+        }
+        finally
+        {
+            cx.setWrapFactory(previousWrapFactory);
+            Context.exit();
+        }
+    }
+
+    /**
+     * Replaces the shared scopes that have been bound to processor extensions before the registration of additional processor extensions.
+     * Shared scopes may be in use by concurrent script executions, so they are never modified once they have been published. Scope
+     * templates are not affected as processor extensions are added to each scope forked from them.
+     */
+    protected void refreshProcessorExtensionBindings()
+    {
+        synchronized (this.scopeTemplateLock)
+        {
+            final int version = this.processorExtensionsVersion.get();
+            if (this.isBoundToOutdatedProcessorExtensions(this.restrictedShareableScope, version))
+            {
+                this.restrictedShareableScope = this.setupShareableScope(false);
+            }
+            if (this.isBoundToOutdatedProcessorExtensions(this.unrestrictedShareableScope, version))
+            {
+                this.unrestrictedShareableScope = this.setupShareableScope(true);
+            }
+        }
+    }
+
+    protected boolean isBoundToOutdatedProcessorExtensions(final Scriptable scope, final int version)
+    {
+        final ProcessorExtensionBindings bindings = scope != null ? ProcessorExtensionBindings.lookup(scope) : null;
+        final boolean outdated = bindings != null && bindings.getVersion() != version;
+        return outdated;
+    }
+
+    /**
+     * Converts the currently registered processor extensions and binds them to a new shared scope before it is published.
+     *
+     * @param bindings
+     *            the processor extension binding tracker of the shared scope
+     */
+    protected void bindProcessorExtensions(final ProcessorExtensionBindings bindings)
+    {
+        synchronized (bindings)
+        {
+            final int version = this.processorExtensionsVersion.get();
+            if (bindings.getVersion() != version)
+            {
+                final Map<String, Object> boundObjects = new LinkedHashMap<String, Object>();
+                final Map<String, Object> scopeableObjects = new LinkedHashMap<String, Object>();
+                for (final ProcessorExtension ex : this.processorExtensions.values())
+                {
+                    // convert/wrap each to JavaScript compatible
+                    final Object jsObject = this.valueConverter.convertValueForScript(ex);
+                    boundObjects.put(ex.getExtensionName(), jsObject);
+
+                    if (ex instanceof Scopeable || jsObject instanceof Scopeable)
+                    {
+                        scopeableObjects.put(ex.getExtensionName(), jsObject);
+                    }
+                }
+
+                bindings.bind(version, boundObjects, scopeableObjects);
+                LOGGER.debug("Bound {} processor extensions to shared scope {}", Integer.valueOf(boundObjects.size()), bindings.getScope());
+            }
+        }
+    }
+
+    /**
+     * Creates an isolated scope for a single script execution by forking the scope template of the specific variant. A forked scope
+     * inherits the standard objects and the contributions of {@link ImmutableScopeContributor immutable contributors} from the template,
+     * which are sealed in their entirety. All other contributions as well as processor extensions may hold mutable or scope-specific
+     * state, so they are added to each forked scope just like they were added to each individually set up scope before. Any modification
+     * by a script only affects its forked scope.
+     *
+     * @param executionContext
+     *            the current context
+     * @param trustworthyScript
+     *            {@code true} if the scope is created for a trustworthy script, {@code false} otherwise
+     * @return the forked scope
+     */
+    protected Scriptable forkScope(final Context executionContext, final boolean trustworthyScript)
+    {
+        Scriptable template = trustworthyScript ? this.unrestrictedScopeTemplate : this.restrictedScopeTemplate;
+        if (template == null)
+        {
+            synchronized (this.scopeTemplateLock)
+            {
+                template = trustworthyScript ? this.unrestrictedScopeTemplate : this.restrictedScopeTemplate;
+                if (template == null)
+                {
+                    template = this.setupStandardScope(executionContext, trustworthyScript, false);
+                    this.registeredContributors.contributeToTemplate(template, trustworthyScript);
+
+                    if (trustworthyScript)
+                    {
+                        this.unrestrictedScopeTemplate = template;
+                    }
+                    else
+                    {
+                        this.restrictedScopeTemplate = template;
+                    }
+                    LOGGER.debug("Built scope template for {} scripts", trustworthyScript ? "trustworthy" : "untrusted");
+                }
+            }
+        }
+
+        final Scriptable scope = executionContext.newObject(template);
+        scope.setPrototype(template);
+        scope.setParentScope(null);
+
+        this.registeredContributors.contributeToFork(scope, trustworthyScript);
+
+        return scope;
+    }
+
     protected Scriptable setupScope(final Context executionContext, final boolean trustworthyScript, final boolean mutableScope)
+    {
+        final Scriptable scope = this.setupStandardScope(executionContext, trustworthyScript, mutableScope);
+
+        // contributors are a copy-on-write snapshot so scope setup does not need to lock
+        this.registeredContributors.contributeToScope(scope, trustworthyScript, mutableScope);
+
+        return scope;
+    }
+
+    protected Scriptable setupStandardScope(final Context executionContext, final boolean trustworthyScript, final boolean mutableScope)
     {
         final Scriptable scope;
         if (trustworthyScript)
@@ -1183,14 +1537,6 @@ public class EnhancedRhinoScriptProcessor extends BaseProcessor implements Enhan
             scope.delete("java");
         }
 
-        synchronized (this.registeredContributors)
-        {
-            for (final ScopeContributor contributor : this.registeredContributors)
-            {
-                contributor.contributeToScope(scope, trustworthyScript, mutableScope);
-            }
-        }
-
         return scope;
     }
 }
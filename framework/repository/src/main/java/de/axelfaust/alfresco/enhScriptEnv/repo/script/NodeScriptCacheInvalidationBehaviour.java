@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.repo.script;
+
+import java.io.Serializable;
+import java.util.Map;
+
+import org.alfresco.model.ContentModel;
+import org.alfresco.repo.node.NodeServicePolicies.BeforeDeleteNodePolicy;
+import org.alfresco.repo.node.NodeServicePolicies.OnUpdatePropertiesPolicy;
+import org.alfresco.repo.policy.Behaviour.NotificationFrequency;
+import org.alfresco.repo.policy.JavaBehaviour;
+import org.alfresco.repo.policy.PolicyComponent;
+import org.alfresco.service.cmr.repository.NodeRef;
+import org.alfresco.service.namespace.QName;
+import org.alfresco.util.PropertyCheck;
+import org.springframework.beans.factory.InitializingBean;
+
+/**
+ * Behaviour to release cached compiled scripts of repository nodes as soon as the node is updated or deleted.
+ *
+ * @author Axel Faust
+ */
+public class NodeScriptCacheInvalidationBehaviour implements OnUpdatePropertiesPolicy, BeforeDeleteNodePolicy, InitializingBean
+{
+
+    protected PolicyComponent policyComponent;
+
+    protected EnhancedRhinoScriptProcessor scriptProcessor;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterPropertiesSet()
+    {
+        PropertyCheck.mandatory(this, "policyComponent", this.policyComponent);
+        PropertyCheck.mandatory(this, "scriptProcessor", this.scriptProcessor);
+
+        this.policyComponent.bindClassBehaviour(OnUpdatePropertiesPolicy.QNAME, ContentModel.TYPE_BASE, new JavaBehaviour(this,
+                "onUpdateProperties", NotificationFrequency.EVERY_EVENT));
+        this.policyComponent.bindClassBehaviour(BeforeDeleteNodePolicy.QNAME, ContentModel.TYPE_BASE, new JavaBehaviour(this,
+                "beforeDeleteNode", NotificationFrequency.EVERY_EVENT));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void onUpdateProperties(final NodeRef nodeRef, final Map<QName, Serializable> before, final Map<QName, Serializable> after)
+    {
+        this.scriptProcessor.invalidateNodeScript(nodeRef);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void beforeDeleteNode(final NodeRef nodeRef)
+    {
+        this.scriptProcessor.invalidateNodeScript(nodeRef);
+    }
+
+    /**
+     * @param policyComponent
+     *            the policyComponent to set
+     */
+    public final void setPolicyComponent(final PolicyComponent policyComponent)
+    {
+        this.policyComponent = policyComponent;
+    }
+
+    /**
+     * @param scriptProcessor
+     *            the scriptProcessor to set
+     */
+    public final void setScriptProcessor(final EnhancedRhinoScriptProcessor scriptProcessor)
+    {
+        this.scriptProcessor = scriptProcessor;
+    }
+}
@@ -119,6 +119,21 @@ public class NodeScriptLocation implements ScriptLocation
         return false;
     }
 
+    /**
+     * Determines an identifier for the current version of the script content. The identifier changes whenever the content of the script
+     * node is updated, and can thus be used to safely cache compiled variants of the script in spite of the location not being
+     * {@link #isCachable() cachable} in the general sense.
+     *
+     * @return the identifier for the current version of the script content
+     */
+    public String getContentVersion()
+    {
+        final ContentReader contentReader = getContentReader();
+        // content URL changes with every write to the content property
+        final String contentVersion = this.contentProp + contentReader.getContentUrl();
+        return contentVersion;
+    }
+
     /**
      * {@inheritDoc}
      */
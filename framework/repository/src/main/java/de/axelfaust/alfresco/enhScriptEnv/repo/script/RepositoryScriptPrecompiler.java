@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.repo.script;
+
+import org.alfresco.repo.jscript.ClasspathScriptLocation;
+import org.alfresco.service.cmr.admin.RepoUsage.LicenseMode;
+import org.alfresco.service.cmr.repository.ScriptLocation;
+import org.alfresco.service.descriptor.Descriptor;
+import org.alfresco.service.descriptor.DescriptorService;
+import org.alfresco.util.PropertyCheck;
+
+import de.axelfaust.alfresco.enhScriptEnv.common.script.cache.AbstractScriptPrecompiler;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.registry.AppliesForVersionCondition;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.registry.ScriptSelectionCondition;
+
+/**
+ * Precompiles registered and classpath scripts for the {@link EnhancedRhinoScriptProcessor enhanced Rhino script processor}, selecting the
+ * versions of registered scripts applicable to the current repository version and edition.
+ *
+ * @author Axel Faust
+ */
+public class RepositoryScriptPrecompiler extends AbstractScriptPrecompiler<ScriptLocation>
+{
+
+    protected EnhancedRhinoScriptProcessor scriptProcessor;
+
+    protected DescriptorService descriptorService;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterPropertiesSet()
+    {
+        super.afterPropertiesSet();
+
+        PropertyCheck.mandatory(this, "scriptProcessor", this.scriptProcessor);
+        PropertyCheck.mandatory(this, "descriptorService", this.descriptorService);
+    }
+
+    /**
+     * @param scriptProcessor
+     *            the scriptProcessor to set
+     */
+    public final void setScriptProcessor(final EnhancedRhinoScriptProcessor scriptProcessor)
+    {
+        this.scriptProcessor = scriptProcessor;
+    }
+
+    /**
+     * @param descriptorService
+     *            the descriptorService to set
+     */
+    public final void setDescriptorService(final DescriptorService descriptorService)
+    {
+        this.descriptorService = descriptorService;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected ScriptSelectionCondition getApplicableCondition()
+    {
+        final ScriptSelectionCondition condition;
+        final Descriptor serverDescriptor = this.descriptorService.getServerDescriptor();
+        if (serverDescriptor != null)
+        {
+            final LicenseMode licenseMode = serverDescriptor.getLicenseMode();
+            final boolean community = licenseMode != LicenseMode.ENTERPRISE && licenseMode != LicenseMode.TEAM;
+            condition = new AppliesForVersionCondition(serverDescriptor.getVersionNumber(), Boolean.valueOf(community));
+        }
+        else
+        {
+            condition = null;
+        }
+        return condition;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean precompileRegisteredScript(final ScriptLocation script)
+    {
+        return this.scriptProcessor.precompile(script);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean precompileClasspathScript(final String classpath)
+    {
+        return this.scriptProcessor.precompile(new ClasspathScriptLocation(classpath));
+    }
+}
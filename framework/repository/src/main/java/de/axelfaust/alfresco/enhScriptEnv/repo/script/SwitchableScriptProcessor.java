@@ -28,6 +28,7 @@ import org.alfresco.service.namespace.QName;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.EnhancedScriptProcessor;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.ReferenceScript;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.ScopeContributor;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.ScriptCallChain;
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.context.ApplicationContext;
@@ -339,6 +340,28 @@ public class SwitchableScriptProcessor implements ScriptProcessor, EnhancedScrip
         return result;
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ScriptCallChain getCurrentCallChain()
+    {
+        final ScriptProcessor scriptProcessor = this.processorByName.containsKey(this.activeScriptProcessor) ? this.processorByName
+                .get(this.activeScriptProcessor) : this.defaultScriptProcessor;
+
+        final ScriptCallChain result;
+        if (scriptProcessor instanceof EnhancedScriptProcessor<?>)
+        {
+            result = ((EnhancedScriptProcessor<?>) scriptProcessor).getCurrentCallChain();
+        }
+        else
+        {
+            result = null;
+        }
+
+        return result;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -354,6 +377,21 @@ public class SwitchableScriptProcessor implements ScriptProcessor, EnhancedScrip
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void releaseCallChain()
+    {
+        final ScriptProcessor scriptProcessor = this.processorByName.containsKey(this.activeScriptProcessor) ? this.processorByName
+                .get(this.activeScriptProcessor) : this.defaultScriptProcessor;
+
+        if (scriptProcessor instanceof EnhancedScriptProcessor<?>)
+        {
+            ((EnhancedScriptProcessor<?>) scriptProcessor).releaseCallChain();
+        }
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.repo.script.batch;
+
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+
+/**
+ * Retrying transaction helper that always executes callbacks in read-only transactions, delegating to a regularly configured helper. This
+ * allows using the Alfresco batch processor, which always requests read-write transactions, for batches that never write.
+ *
+ * @author Axel Faust
+ */
+public class ReadOnlyRetryingTransactionHelper extends RetryingTransactionHelper
+{
+
+    protected final RetryingTransactionHelper delegate;
+
+    public ReadOnlyRetryingTransactionHelper(final RetryingTransactionHelper delegate)
+    {
+        super();
+        if (delegate == null)
+        {
+            throw new IllegalArgumentException("delegate must not be null");
+        }
+        this.delegate = delegate;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <R> R doInTransaction(final RetryingTransactionCallback<R> cb)
+    {
+        return this.delegate.doInTransaction(cb, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <R> R doInTransaction(final RetryingTransactionCallback<R> cb, final boolean readOnly)
+    {
+        return this.delegate.doInTransaction(cb, true);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public <R> R doInTransaction(final RetryingTransactionCallback<R> cb, final boolean readOnly, final boolean requiresNew)
+    {
+        return this.delegate.doInTransaction(cb, true, requiresNew);
+    }
+}
@@ -13,11 +13,23 @@
  */
 package de.axelfaust.alfresco.enhScriptEnv.repo.script.batch;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.alfresco.repo.batch.BatchMonitor;
 import org.alfresco.repo.batch.BatchProcessWorkProvider;
 import org.alfresco.repo.batch.BatchProcessor;
+import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.transaction.RetryingTransactionHelper;
+import org.alfresco.repo.transaction.RetryingTransactionHelper.RetryingTransactionCallback;
 import org.alfresco.service.transaction.TransactionService;
 import org.alfresco.util.Pair;
 import org.alfresco.util.PropertyCheck;
@@ -26,8 +38,16 @@ import org.apache.commons.logging.LogFactory;
 import org.mozilla.javascript.Function;
 import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.AbstractExecuteBatchFunction;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.AdaptiveBatchTuner;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.ExecuteBatchOptions;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.ExecuteBatchReport;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.StateLockingDelegator;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.VirtualThreadTaskExecutor;
 import de.axelfaust.alfresco.enhScriptEnv.common.util.ScriptLoggerLog;
+import org.springframework.extensions.surf.util.I18NUtil;
 import org.springframework.transaction.PlatformTransactionManager;
 
 /**
@@ -36,8 +56,21 @@ import org.springframework.transaction.PlatformTransactionManager;
 public class RepositoryExecuteBatchFunction extends AbstractExecuteBatchFunction
 {
 
+    private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryExecuteBatchFunction.class);
+
     private static final int DEFAULT_MAX_THREADS = 2;
 
+    private static final int DEFAULT_STREAM_PAGE_SIZE = 1000;
+
+    private static final int DEFAULT_ADAPTIVE_MIN_BATCH_SIZE = 1;
+
+    private static final int DEFAULT_ADAPTIVE_MAX_BATCH_SIZE = 500;
+
+    private static final int DEFAULT_ADAPTIVE_MAX_READ_ONLY_BATCH_SIZE = 5000;
+
+    // each thread should process multiple batches per round so the measurement is not dominated by single outliers
+    private static final int ADAPTIVE_ROUND_BATCHES_PER_THREAD = 4;
+
     protected static class CallbackBatchProcessWorkProvider implements BatchProcessWorkProvider<Object>
     {
         private final RepositoryExecuteBatchFunction batchFunction;
@@ -118,12 +151,201 @@ public class RepositoryExecuteBatchFunction extends AbstractExecuteBatchFunction
         }
     }
 
+    protected static class IteratorBatchWorkProvider implements BatchProcessWorkProvider<Object>
+    {
+        private final Iterator<?> workItems;
+        private final int pageSize;
+        private final RetryingTransactionHelper txnHelper;
+        private BatchMonitor batchMonitor;
+        // estimate may be requested by worker threads for progress reporting
+        private volatile int fetched = 0;
+        private volatile boolean exhausted = false;
+        // permits for work items fetched but not yet processed - at most two pages are held in memory
+        private final Semaphore capacity;
+        // number of processed work items (successfully or not) for which permits have been released
+        private final AtomicInteger released = new AtomicInteger();
+
+        protected IteratorBatchWorkProvider(final Iterator<?> workItems, final int pageSize, final RetryingTransactionHelper txnHelper)
+        {
+            super();
+            this.workItems = workItems;
+            this.pageSize = pageSize;
+            this.txnHelper = txnHelper;
+            this.capacity = new Semaphore(2 * pageSize);
+        }
+
+        /**
+         * Sets the monitor of the batch processor consuming the work of this provider so backpressure can be applied based on the number of
+         * work items fetched but not yet processed. The worker of the batch processor must {@link #releaseCapacity() release capacity}
+         * after each batch.
+         *
+         * @param batchMonitor
+         *            the batchMonitor to set
+         */
+        protected void setBatchMonitor(final BatchMonitor batchMonitor)
+        {
+            this.batchMonitor = batchMonitor;
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public int getTotalEstimatedWorkSize()
+        {
+            // we never know the total size - any items not yet fetched are added as "one more page" to the estimate
+            return this.exhausted ? this.fetched : this.fetched + this.pageSize;
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public Collection<Object> getNextWork()
+        {
+            this.awaitCapacity();
+
+            // iterators may lazily load from the database, but a transaction must not be held while waiting for capacity
+            final List<Object> nextWork = this.txnHelper.doInTransaction(new RetryingTransactionCallback<List<Object>>()
+            {
+
+                /**
+                 *
+                 * {@inheritDoc}
+                 */
+                @Override
+                public List<Object> execute() throws Throwable
+                {
+                    return IteratorBatchWorkProvider.this.fetchNextPage();
+                }
+            }, true, false);
+            this.fetched += nextWork.size();
+            this.exhausted = !this.workItems.hasNext();
+
+            if (this.batchMonitor != null && nextWork.size() < this.pageSize)
+            {
+                this.capacity.release(this.pageSize - nextWork.size());
+            }
+
+            LOGGER.debug("Fetched {} work items for streamed batch (total of {} items)", nextWork.size(), this.fetched);
+            return nextWork;
+        }
+
+        protected List<Object> fetchNextPage()
+        {
+            final List<Object> nextWork = new ArrayList<Object>(this.pageSize);
+            while (nextWork.size() < this.pageSize && this.workItems.hasNext())
+            {
+                nextWork.add(this.workItems.next());
+            }
+            return nextWork;
+        }
+
+        protected void awaitCapacity()
+        {
+            if (this.batchMonitor != null)
+            {
+                // batch processor blocks on a queue of batches, but we want to bound the number of items held in memory
+                // so we only fetch the next page when at most one page of previously fetched items is still pending
+                try
+                {
+                    this.capacity.acquire(this.pageSize);
+                }
+                catch (final InterruptedException iex)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for pending work items to be processed", iex);
+                }
+            }
+        }
+
+        /**
+         * Releases the capacity held by work items that have been processed since the last call. The batch monitor is only updated once the
+         * transaction of a batch has completed, so this operation must be called after each batch.
+         */
+        protected void releaseCapacity()
+        {
+            if (this.batchMonitor != null)
+            {
+                final int processed = this.batchMonitor.getSuccessfullyProcessedEntries() + this.batchMonitor.getTotalErrors();
+                int released = this.released.get();
+                while (processed > released)
+                {
+                    if (this.released.compareAndSet(released, processed))
+                    {
+                        this.capacity.release(processed - released);
+                    }
+                    released = this.released.get();
+                }
+            }
+        }
+    }
+
+    protected static class CancellableBatchWorkProvider implements BatchProcessWorkProvider<Object>
+    {
+        private final BatchProcessWorkProvider<Object> workProvider;
+        private final ExecuteBatchReport report;
+
+        protected CancellableBatchWorkProvider(final BatchProcessWorkProvider<Object> workProvider, final ExecuteBatchReport report)
+        {
+            super();
+            this.workProvider = workProvider;
+            this.report = report;
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public int getTotalEstimatedWorkSize()
+        {
+            return this.workProvider.getTotalEstimatedWorkSize();
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public Collection<Object> getNextWork()
+        {
+            final Collection<Object> nextWork;
+            if (this.report.isCancelled())
+            {
+                LOGGER.debug("Batch execution has been cancelled - not fetching any more work");
+                nextWork = Collections.emptySet();
+            }
+            else
+            {
+                nextWork = this.workProvider.getNextWork();
+            }
+            return nextWork;
+        }
+    }
+
     protected TransactionService transactionService;
 
     protected PlatformTransactionManager transactionManager;
 
     protected int maxThreads = DEFAULT_MAX_THREADS;
 
+    protected int streamPageSize = DEFAULT_STREAM_PAGE_SIZE;
+
+    protected int adaptiveMinBatchSize = DEFAULT_ADAPTIVE_MIN_BATCH_SIZE;
+
+    protected int adaptiveMaxBatchSize = DEFAULT_ADAPTIVE_MAX_BATCH_SIZE;
+
+    protected int adaptiveMaxReadOnlyBatchSize = DEFAULT_ADAPTIVE_MAX_READ_ONLY_BATCH_SIZE;
+
+    protected double adaptiveMaxRetryRate = AdaptiveBatchTuner.DEFAULT_MAX_RETRY_RATE;
+
+    protected double adaptiveMaxLockWaitRatio = AdaptiveBatchTuner.DEFAULT_MAX_LOCK_WAIT_RATIO;
+
+    protected long adaptiveMaxBatchDuration = AdaptiveBatchTuner.DEFAULT_MAX_BATCH_DURATION;
+
     /**
      *
      * {@inheritDoc}
@@ -162,80 +384,470 @@ public class RepositoryExecuteBatchFunction extends AbstractExecuteBatchFunction
         this.maxThreads = maxThreads;
     }
 
+    /**
+     * @param streamPageSize
+     *            the number of work items to fetch at once from a work item iterator
+     */
+    public final void setStreamPageSize(final int streamPageSize)
+    {
+        this.streamPageSize = streamPageSize;
+    }
+
+    /**
+     * @param adaptiveMinBatchSize
+     *            the lower bound of the batch size of adaptively tuned batch executions
+     */
+    public final void setAdaptiveMinBatchSize(final int adaptiveMinBatchSize)
+    {
+        this.adaptiveMinBatchSize = adaptiveMinBatchSize;
+    }
+
+    /**
+     * @param adaptiveMaxBatchSize
+     *            the upper bound of the batch size of adaptively tuned batch executions
+     */
+    public final void setAdaptiveMaxBatchSize(final int adaptiveMaxBatchSize)
+    {
+        this.adaptiveMaxBatchSize = adaptiveMaxBatchSize;
+    }
+
+    /**
+     * @param adaptiveMaxReadOnlyBatchSize
+     *            the upper bound of the batch size of adaptively tuned read-only batch executions
+     */
+    public final void setAdaptiveMaxReadOnlyBatchSize(final int adaptiveMaxReadOnlyBatchSize)
+    {
+        this.adaptiveMaxReadOnlyBatchSize = adaptiveMaxReadOnlyBatchSize;
+    }
+
+    /**
+     * @param adaptiveMaxRetryRate
+     *            the ratio of transaction retries to batches above which adaptively tuned batch executions back off
+     */
+    public final void setAdaptiveMaxRetryRate(final double adaptiveMaxRetryRate)
+    {
+        this.adaptiveMaxRetryRate = adaptiveMaxRetryRate;
+    }
+
+    /**
+     * @param adaptiveMaxLockWaitRatio
+     *            the ratio of lock wait time to processing time above which adaptively tuned batch executions reduce their thread count
+     */
+    public final void setAdaptiveMaxLockWaitRatio(final double adaptiveMaxLockWaitRatio)
+    {
+        this.adaptiveMaxLockWaitRatio = adaptiveMaxLockWaitRatio;
+    }
+
+    /**
+     * @param adaptiveMaxBatchDuration
+     *            the average batch duration in milliseconds above which adaptively tuned batch executions reduce their batch size
+     */
+    public final void setAdaptiveMaxBatchDuration(final long adaptiveMaxBatchDuration)
+    {
+        this.adaptiveMaxBatchDuration = adaptiveMaxBatchDuration;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     protected void executeBatch(final Scriptable scope, final Scriptable thisObj, final Collection<Object> workItems,
             final Pair<Scriptable, Function> processCallback, final int threadCount, final int batchSize,
-            final Pair<Scriptable, Function> beforeProcessCallback, final Pair<Scriptable, Function> afterProcessCallback)
+            final Pair<Scriptable, Function> beforeProcessCallback, final Pair<Scriptable, Function> afterProcessCallback,
+            final ExecuteBatchOptions options, final ExecuteBatchReport report)
     {
-        // TODO: parameter for logging interval
+        this.processBatch(scope, thisObj, new CollectionBatchWorkProvider(workItems), processCallback, threadCount, batchSize,
+                beforeProcessCallback, afterProcessCallback, options, report);
+    }
 
-        final Log log;
-        if (ScriptableObject.hasProperty(scope, "logger"))
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void executeBatch(final Scriptable scope, final Scriptable thisObj, final Pair<Scriptable, Function> workProviderCallback,
+            final Pair<Scriptable, Function> processCallback, final int threadCount, final int batchSize,
+            final Pair<Scriptable, Function> beforeProcessCallback, final Pair<Scriptable, Function> afterProcessCallback,
+            final ExecuteBatchOptions options, final ExecuteBatchReport report)
+    {
+        this.processBatch(scope, thisObj, new CallbackBatchProcessWorkProvider(this, scope, workProviderCallback), processCallback,
+                threadCount, batchSize, beforeProcessCallback, afterProcessCallback, options, report);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected void executeBatch(final Scriptable scope, final Scriptable thisObj, final Iterator<?> workItems,
+            final Pair<Scriptable, Function> processCallback, final int threadCount, final int batchSize,
+            final Pair<Scriptable, Function> beforeProcessCallback, final Pair<Scriptable, Function> afterProcessCallback,
+            final ExecuteBatchOptions options, final ExecuteBatchReport report)
+    {
+        // full batches per page avoid fragmenting work into undersized transactions
+        final int effectiveBatchSize = Math.max(1, batchSize);
+        final int pageSize = Math.max(1, (this.streamPageSize + effectiveBatchSize - 1) / effectiveBatchSize) * effectiveBatchSize;
+
+        this.processBatch(scope, thisObj, new IteratorBatchWorkProvider(workItems, pageSize, this.getWorkProviderTransactionHelper()),
+                processCallback, threadCount, batchSize, beforeProcessCallback, afterProcessCallback, options, report);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected ExecuteBatchReport createReport()
+    {
+        return new RepositoryExecuteBatchReport();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected Callable<ExecuteBatchReport> prepareAsyncExecution(final BatchExecution batchExecution)
+    {
+        final Callable<ExecuteBatchReport> execution = super.prepareAsyncExecution(batchExecution);
+        final String fullyAuthenticatedUser = AuthenticationUtil.getFullyAuthenticatedUser();
+        final String runAsUser = AuthenticationUtil.getRunAsUser();
+        final Locale locale = I18NUtil.getLocale();
+        final Locale contentLocale = I18NUtil.getContentLocaleOrNull();
+
+        final Callable<ExecuteBatchReport> asyncExecution = new Callable<ExecuteBatchReport>()
         {
-            final Object object = ScriptableObject.getProperty(scope, "logger");
-            if (object instanceof Scriptable)
-            {
-                log = new ScriptLoggerLog((Scriptable) object, this.scriptProcessor);
-            }
-            else
+
+            /**
+             *
+             * {@inheritDoc}
+             */
+            @Override
+            public ExecuteBatchReport call() throws Exception
             {
-                log = LogFactory.getLog(RepositoryExecuteBatchFunction.class);
+                AuthenticationUtil.pushAuthentication();
+                try
+                {
+                    AuthenticationUtil.setFullyAuthenticatedUser(fullyAuthenticatedUser);
+                    if (runAsUser != null && !runAsUser.equals(fullyAuthenticatedUser))
+                    {
+                        AuthenticationUtil.setRunAsUser(runAsUser);
+                    }
+
+                    I18NUtil.setLocale(locale);
+                    if (contentLocale != null)
+                    {
+                        I18NUtil.setContentLocale(contentLocale);
+                    }
+
+                    // batches are always processed in new transactions and work is fetched in short transactions of its own
+                    // (see getWorkProviderTransactionHelper), so the execution as a whole must not hold a transaction
+                    final ExecuteBatchReport report = execution.call();
+                    return report;
+                }
+                finally
+                {
+                    AuthenticationUtil.clearCurrentSecurityContext();
+                    AuthenticationUtil.popAuthentication();
+
+                    I18NUtil.setLocale(null);
+                    I18NUtil.setContentLocale(null);
+                }
             }
+        };
+        return asyncExecution;
+    }
+
+    protected void processBatch(final Scriptable scope, final Scriptable thisObj, final BatchProcessWorkProvider<Object> workProvider,
+            final Pair<Scriptable, Function> processCallback, final int threadCount, final int batchSize,
+            final Pair<Scriptable, Function> beforeProcessCallback, final Pair<Scriptable, Function> afterProcessCallback,
+            final ExecuteBatchOptions options, final ExecuteBatchReport report)
+    {
+        final Log log = this.getBatchLog(scope);
+
+        // batch processor requires a positive interval, so disabling entry-based progress logging just means "practically never"
+        final int loggingInterval = options.getLoggingInterval() > 0 ? options.getLoggingInterval() : Integer.MAX_VALUE;
+
+        if (options.isIoBound())
+        {
+            this.processIoBoundBatch(scope, thisObj, workProvider, processCallback, threadCount, batchSize, beforeProcessCallback,
+                    afterProcessCallback, options, report, log);
+        }
+        else if (options.isAdaptive())
+        {
+            this.processAdaptiveBatch(scope, thisObj, workProvider, processCallback, threadCount, batchSize, beforeProcessCallback,
+                    afterProcessCallback, options, report, log, loggingInterval);
         }
         else
         {
-            log = LogFactory.getLog(RepositoryExecuteBatchFunction.class);
+            // maxThreads protects the database connection pool
+            final int effectiveThreadCount = Math.min(threadCount, this.maxThreads);
+            if (effectiveThreadCount < threadCount)
+            {
+                LOGGER.info("Requested thread count {} of batch execution exceeds the configured maximum - using {} threads", threadCount,
+                        effectiveThreadCount);
+            }
+            report.recordSettings(effectiveThreadCount, batchSize);
+
+            final BatchProcessor<Object> batchProcessor = new BatchProcessor<Object>("ScriptBatch",
+                    this.getRetryingTransactionHelper(options), new CancellableBatchWorkProvider(workProvider, report),
+                    effectiveThreadCount, batchSize, null, log, loggingInterval);
+            if (report instanceof RepositoryExecuteBatchReport)
+            {
+                ((RepositoryExecuteBatchReport) report).setBatchMonitor(batchProcessor);
+            }
+
+            final RepositoryExecuteBatchWorker worker = new RepositoryExecuteBatchWorker(this, scope, thisObj, processCallback,
+                    beforeProcessCallback, afterProcessCallback, report, options, log, this.transactionManager);
+            if (workProvider instanceof IteratorBatchWorkProvider)
+            {
+                ((IteratorBatchWorkProvider) workProvider).setBatchMonitor(batchProcessor);
+                worker.setStreamingWorkProvider((IteratorBatchWorkProvider) workProvider);
+            }
+            batchProcessor.process(worker, true);
         }
 
-        final BatchProcessor<Object> batchProcessor = new BatchProcessor<Object>("ScriptBatch",
-                this.transactionService.getRetryingTransactionHelper(), new CollectionBatchWorkProvider(workItems), Math.min(threadCount,
-                        this.maxThreads), batchSize, null, log, 10);
+        LOGGER.debug("Completed batch execution: {}", report);
+    }
+
+    /**
+     * Processes a batch execution in consecutive rounds, each using a separate batch processor with the thread count and batch size
+     * determined by an {@link AdaptiveBatchTuner tuner} from the measurements of the previous rounds. The thread count is bounded by
+     * {@link #setMaxThreads(int) maxThreads} so the tuning never exceeds the load the database connection pool has been sized for.
+     *
+     * Since the report is not bound to any single batch processor, item counts are based on the individual worker callbacks. Throughput is
+     * measured by the tuner based on the accumulated duration of the batches of a round, so starting the batch processor and the threads
+     * idling while the last batches of a round complete are not attributed to the settings being tuned.
+     */
+    protected void processAdaptiveBatch(final Scriptable scope, final Scriptable thisObj,
+            final BatchProcessWorkProvider<Object> workProvider, final Pair<Scriptable, Function> processCallback, final int threadCount,
+            final int batchSize, final Pair<Scriptable, Function> beforeProcessCallback,
+            final Pair<Scriptable, Function> afterProcessCallback, final ExecuteBatchOptions options, final ExecuteBatchReport report,
+            final Log log, final int loggingInterval)
+    {
+        final int minBatchSize = Math.max(1, this.adaptiveMinBatchSize);
+        // read-only batches hold no write locks, so larger batches don't increase contention
+        final int maxBatchSize = options.isReadOnly() ? this.adaptiveMaxReadOnlyBatchSize : this.adaptiveMaxBatchSize;
+        final AdaptiveBatchTuner tuner = new AdaptiveBatchTuner(1, Math.max(1, this.maxThreads), minBatchSize, Math.max(minBatchSize,
+                maxBatchSize), threadCount, batchSize);
+        tuner.setMaxRetryRate(this.adaptiveMaxRetryRate);
+        tuner.setMaxLockWaitRatio(this.adaptiveMaxLockWaitRatio);
+        tuner.setMaxBatchDuration(this.adaptiveMaxBatchDuration);
+
         final RepositoryExecuteBatchWorker worker = new RepositoryExecuteBatchWorker(this, scope, thisObj, processCallback,
-                beforeProcessCallback, afterProcessCallback, this.transactionManager);
-        batchProcessor.process(worker, true);
+                beforeProcessCallback, afterProcessCallback, report, options, log, this.transactionManager);
+        final BatchProcessWorkProvider<Object> cancellableWorkProvider = new CancellableBatchWorkProvider(workProvider, report);
+
+        Iterator<Object> pendingWork = Collections.<Object> emptySet().iterator();
+        boolean exhausted = false;
+        while (!exhausted)
+        {
+            final int roundThreadCount = tuner.getThreadCount();
+            final int roundBatchSize = tuner.getBatchSize();
+            final int roundSize = roundThreadCount * roundBatchSize * ADAPTIVE_ROUND_BATCHES_PER_THREAD;
+
+            final List<Object> roundWork = new ArrayList<Object>(roundSize);
+            while (roundWork.size() < roundSize && !exhausted)
+            {
+                if (pendingWork.hasNext())
+                {
+                    roundWork.add(pendingWork.next());
+                }
+                else
+                {
+                    final Collection<Object> nextWork = cancellableWorkProvider.getNextWork();
+                    pendingWork = nextWork.iterator();
+                    exhausted = nextWork.isEmpty();
+                }
+            }
 
-        // TODO: result / status handling
+            if (!roundWork.isEmpty())
+            {
+                report.recordDispatched(roundWork.size());
+                report.recordSettings(roundThreadCount, roundBatchSize);
+
+                final long processedBefore = report.getProcessed();
+                final long batchesBefore = report.getBatches();
+                final long batchDurationBefore = report.getTotalBatchDuration();
+                final long retriesBefore = report.getRetries();
+                // lock wait time is accumulated globally, so concurrent batch executions affect each other's measurements
+                // this is intended as any contention affects the throughput of this execution as well
+                final long lockWaitBefore = StateLockingDelegator.getAccumulatedLockWaitTime();
+                final long roundStart = System.currentTimeMillis();
+
+                final BatchProcessor<Object> batchProcessor = new BatchProcessor<Object>("ScriptBatch",
+                        this.getRetryingTransactionHelper(options), new CollectionBatchWorkProvider(roundWork),
+                        roundThreadCount, roundBatchSize, null, log, loggingInterval);
+                batchProcessor.process(worker, true);
+
+                tuner.recordRound(report.getProcessed() - processedBefore, System.currentTimeMillis() - roundStart, report.getBatches()
+                        - batchesBefore, report.getTotalBatchDuration() - batchDurationBefore, report.getRetries() - retriesBefore,
+                        StateLockingDelegator.getAccumulatedLockWaitTime() - lockWaitBefore);
+                LOGGER.debug("Completed round of {} items using {} threads and batch size {} - tuned to {}", roundWork.size(),
+                        roundThreadCount, roundBatchSize, tuner);
+            }
+        }
     }
 
     /**
-     * {@inheritDoc}
+     * Processes a batch execution using the {@link #setIoTaskExecutor(VirtualThreadTaskExecutor) executor for I/O-bound batches},
+     * submitting each batch as a task of its own. Processing of each batch mirrors the Alfresco batch processor, i.e. a batch is processed
+     * in a new transaction and each item of a failed batch is re-processed in a transaction of its own to isolate the failing items. The
+     * number of concurrently processed batches is bounded by the requested thread count and by the executor (for all I/O-bound batch
+     * executions combined) instead of {@link #setMaxThreads(int) maxThreads}.
      */
-    @Override
-    protected void executeBatch(final Scriptable scope, final Scriptable thisObj, final Pair<Scriptable, Function> workProviderCallback,
-            final Pair<Scriptable, Function> processCallback, final int threadCount, final int batchSize,
-            final Pair<Scriptable, Function> beforeProcessCallback, final Pair<Scriptable, Function> afterProcessCallback)
+    protected void processIoBoundBatch(final Scriptable scope, final Scriptable thisObj,
+            final BatchProcessWorkProvider<Object> workProvider, final Pair<Scriptable, Function> processCallback, final int threadCount,
+            final int batchSize, final Pair<Scriptable, Function> beforeProcessCallback,
+            final Pair<Scriptable, Function> afterProcessCallback, final ExecuteBatchOptions options, final ExecuteBatchReport report,
+            final Log log)
     {
-        // TODO: parameter for logging interval
+        final int concurrency = Math.max(1, Math.min(threadCount, this.ioTaskExecutor.getMaxConcurrency()));
+        final int effectiveBatchSize = Math.max(1, batchSize);
+        report.recordSettings(concurrency, effectiveBatchSize);
 
-        final Log log;
-        if (ScriptableObject.hasProperty(scope, "logger"))
+        final RepositoryExecuteBatchWorker worker = new RepositoryExecuteBatchWorker(this, scope, thisObj, processCallback,
+                beforeProcessCallback, afterProcessCallback, report, options, log, this.transactionManager);
+        final BatchProcessWorkProvider<Object> cancellableWorkProvider = new CancellableBatchWorkProvider(workProvider, report);
+        final RetryingTransactionHelper txnHelper = this.getRetryingTransactionHelper(options);
+
+        // permits bound the number of submitted batches - which also bounds the number of work items fetched but not yet processed
+        // submission additionally blocks while the executor is saturated by the batches of all I/O-bound batch executions
+        final Semaphore batchPermits = new Semaphore(concurrency);
+
+        Collection<Object> nextWork = cancellableWorkProvider.getNextWork();
+        while (!nextWork.isEmpty())
         {
-            final Object object = ScriptableObject.getProperty(scope, "logger");
-            if (object instanceof Scriptable)
+            final Iterator<Object> workItems = nextWork.iterator();
+            while (workItems.hasNext())
             {
-                log = new ScriptLoggerLog((Scriptable) object, this.scriptProcessor);
+                final List<Object> batch = new ArrayList<Object>(effectiveBatchSize);
+                while (batch.size() < effectiveBatchSize && workItems.hasNext())
+                {
+                    batch.add(workItems.next());
+                }
+                report.recordDispatched(batch.size());
+
+                this.acquirePermits(batchPermits, 1);
+                try
+                {
+                    this.ioTaskExecutor.submit(new Runnable()
+                    {
+
+                        /**
+                         *
+                         * {@inheritDoc}
+                         */
+                        @Override
+                        public void run()
+                        {
+                            try
+                            {
+                                RepositoryExecuteBatchFunction.this.processBatchTask(worker, txnHelper, batch, log);
+                            }
+                            finally
+                            {
+                                batchPermits.release();
+                            }
+                        }
+                    });
+                }
+                catch (final RejectedExecutionException reex)
+                {
+                    batchPermits.release();
+                    throw reex;
+                }
             }
-            else
+
+            nextWork = cancellableWorkProvider.getNextWork();
+        }
+
+        // all permits are only available again once all submitted batches have completed
+        this.acquirePermits(batchPermits, concurrency);
+        batchPermits.release(concurrency);
+    }
+
+    protected void processBatchTask(final RepositoryExecuteBatchWorker worker, final RetryingTransactionHelper txnHelper,
+            final List<Object> batch, final Log log)
+    {
+        final boolean succeeded = this.processInTransaction(worker, txnHelper, batch, log);
+        if (!succeeded && batch.size() > 1)
+        {
+            for (final Object entry : batch)
             {
-                log = LogFactory.getLog(RepositoryExecuteBatchFunction.class);
+                this.processInTransaction(worker, txnHelper, Collections.singletonList(entry), log);
             }
         }
-        else
+    }
+
+    protected boolean processInTransaction(final RepositoryExecuteBatchWorker worker, final RetryingTransactionHelper txnHelper,
+            final List<Object> entries, final Log log)
+    {
+        boolean succeeded = false;
+        try
         {
-            log = LogFactory.getLog(RepositoryExecuteBatchFunction.class);
+            try
+            {
+                worker.beforeProcess();
+                txnHelper.doInTransaction(new RetryingTransactionCallback<Void>()
+                {
+
+                    /**
+                     *
+                     * {@inheritDoc}
+                     */
+                    @Override
+                    public Void execute() throws Throwable
+                    {
+                        for (final Object entry : entries)
+                        {
+                            worker.process(entry);
+                        }
+                        return null;
+                    }
+                }, false, true);
+                succeeded = true;
+            }
+            finally
+            {
+                worker.afterProcess();
+            }
         }
+        catch (final Throwable ex)
+        {
+            // failures of individual items have already been recorded by the worker
+            if (entries.size() == 1 && log.isWarnEnabled())
+            {
+                log.warn("Failed to process " + worker.getIdentifier(entries.get(0)), ex);
+            }
+            else if (log.isDebugEnabled())
+            {
+                log.debug("Failed to process batch of " + entries.size() + " items - retrying items individually", ex);
+            }
+        }
+        return succeeded;
+    }
 
-        final BatchProcessor<Object> batchProcessor = new BatchProcessor<Object>("ScriptBatch",
-                this.transactionService.getRetryingTransactionHelper(), new CallbackBatchProcessWorkProvider(this, scope,
-                        workProviderCallback), Math.min(threadCount, this.maxThreads), batchSize, null, log, 10);
-        final RepositoryExecuteBatchWorker worker = new RepositoryExecuteBatchWorker(this, scope, thisObj, processCallback,
-                beforeProcessCallback, afterProcessCallback, this.transactionManager);
-        batchProcessor.process(worker, true);
+    /**
+     * Retrieves the transaction helper to use for processing the batches of a batch execution.
+     *
+     * @param options
+     *            the options of the batch execution
+     * @return the transaction helper - using read-only transactions if the batch execution is read-only
+     */
+    protected RetryingTransactionHelper getRetryingTransactionHelper(final ExecuteBatchOptions options)
+    {
+        final RetryingTransactionHelper txnHelper = this.transactionService.getRetryingTransactionHelper();
+        return options.isReadOnly() ? new ReadOnlyRetryingTransactionHelper(txnHelper) : txnHelper;
+    }
 
-        // TODO: result / status handling
+    protected void acquirePermits(final Semaphore permits, final int count)
+    {
+        try
+        {
+            permits.acquire(count);
+        }
+        catch (final InterruptedException iex)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for batches to be processed", iex);
+        }
     }
 
     /**
@@ -245,6 +857,59 @@ public class RepositoryExecuteBatchFunction extends AbstractExecuteBatchFunction
     @Override
     protected Collection<Object> doProvideNextWork(final Scriptable scope, final Pair<Scriptable, Function> workProviderCallback)
     {
-        return super.doProvideNextWork(scope, workProviderCallback);
+        final Collection<Object> nextWork = this.getWorkProviderTransactionHelper().doInTransaction(
+                new RetryingTransactionCallback<Collection<Object>>()
+                {
+
+                    /**
+                     *
+                     * {@inheritDoc}
+                     */
+                    @Override
+                    public Collection<Object> execute() throws Throwable
+                    {
+                        return RepositoryExecuteBatchFunction.super.doProvideNextWork(scope, workProviderCallback);
+                    }
+                }, true, false);
+        return nextWork;
+    }
+
+    /**
+     * Retrieves the transaction helper to use for fetching work items from a work provider callback or iterator. Work is fetched in a short
+     * read-only transaction of its own unless the calling thread already has an active transaction (synchronous batch execution). Since
+     * fetching work advances the state of the work provider, failed fetches are never retried.
+     *
+     * @return the transaction helper
+     */
+    protected RetryingTransactionHelper getWorkProviderTransactionHelper()
+    {
+        final RetryingTransactionHelper txnHelper = this.transactionService.getRetryingTransactionHelper();
+        txnHelper.setMaxRetries(0);
+        return txnHelper;
+    }
+
+    protected Log getBatchLog(final Scriptable scope)
+    {
+        final Log log;
+        if (ScriptableObject.hasProperty(scope, "logger"))
+        {
+            final Object object = ScriptableObject.getProperty(scope, "logger");
+            if (object instanceof Scriptable)
+            {
+                final ScriptLoggerLog scriptLoggerLog = new ScriptLoggerLog((Scriptable) object, this.scriptProcessor);
+                // enabled levels are not expected to change during a batch, so avoid calling into the script logger for each check
+                scriptLoggerLog.resolveEnabledLevels();
+                log = scriptLoggerLog;
+            }
+            else
+            {
+                log = LogFactory.getLog(RepositoryExecuteBatchFunction.class);
+            }
+        }
+        else
+        {
+            log = LogFactory.getLog(RepositoryExecuteBatchFunction.class);
+        }
+        return log;
     }
 }
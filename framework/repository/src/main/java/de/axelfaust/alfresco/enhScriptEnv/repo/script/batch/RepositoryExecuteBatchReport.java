@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.repo.script.batch;
+
+import org.alfresco.repo.batch.BatchMonitor;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.ExecuteBatchReport;
+
+/**
+ * Batch execution report that reports item counts as tracked by the {@link BatchMonitor monitor} of the Alfresco batch processor. Since the
+ * batch processor retries failed batches per item, its counts are more accurate than the ones derived from individual worker callbacks.
+ *
+ * @author Axel Faust
+ */
+public class RepositoryExecuteBatchReport extends ExecuteBatchReport
+{
+
+    protected volatile BatchMonitor batchMonitor;
+
+    /**
+     * Sets the monitor of the batch processor once the batch execution is started.
+     *
+     * @param batchMonitor
+     *            the batchMonitor to set
+     */
+    public void setBatchMonitor(final BatchMonitor batchMonitor)
+    {
+        this.batchMonitor = batchMonitor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getSucceeded()
+    {
+        final BatchMonitor batchMonitor = this.batchMonitor;
+        // skipped items are reported as processed successfully by the batch processor
+        final long succeeded = batchMonitor != null ? Math.max(0, batchMonitor.getSuccessfullyProcessedEntries() - this.getSkipped())
+                : super.getSucceeded();
+        return succeeded;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getFailed()
+    {
+        final BatchMonitor batchMonitor = this.batchMonitor;
+        final long failed = batchMonitor != null ? batchMonitor.getTotalErrors() : super.getFailed();
+        return failed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getEstimatedTotal()
+    {
+        final BatchMonitor batchMonitor = this.batchMonitor;
+        final long estimatedTotal = batchMonitor != null ? batchMonitor.getTotalResults() : super.getEstimatedTotal();
+        return estimatedTotal;
+    }
+
+    /**
+     * @return the identifier of the item that most recently failed
+     */
+    public String getLastErrorIdentifier()
+    {
+        final BatchMonitor batchMonitor = this.batchMonitor;
+        return batchMonitor != null ? batchMonitor.getLastErrorEntryId() : null;
+    }
+
+    /**
+     * @return the message of the most recent error
+     */
+    public String getLastError()
+    {
+        final BatchMonitor batchMonitor = this.batchMonitor;
+        return batchMonitor != null ? batchMonitor.getLastError() : null;
+    }
+}
@@ -18,7 +18,11 @@ import java.util.Locale;
 import org.alfresco.error.AlfrescoRuntimeException;
 import org.alfresco.repo.batch.BatchProcessor.BatchProcessWorker;
 import org.alfresco.repo.security.authentication.AuthenticationUtil;
+import org.alfresco.repo.transaction.AlfrescoTransactionSupport;
+import org.alfresco.repo.transaction.TransactionListener;
+import org.alfresco.repo.transaction.TransactionListenerAdapter;
 import org.alfresco.util.Pair;
+import org.apache.commons.logging.Log;
 import org.mozilla.javascript.BaseFunction;
 import org.mozilla.javascript.Context;
 import org.mozilla.javascript.Function;
@@ -28,6 +32,8 @@ import org.mozilla.javascript.Scriptable;
 import org.mozilla.javascript.ScriptableObject;
 import org.mozilla.javascript.WrappedException;
 import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.BaseExecuteBatchWorker;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.ExecuteBatchOptions;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.ExecuteBatchReport;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.extensions.surf.util.I18NUtil;
@@ -51,15 +57,54 @@ public class RepositoryExecuteBatchWorker extends BaseExecuteBatchWorker<Reposit
 
     protected final PlatformTransactionManager txnManager;
 
+    // outcome of the transaction of the current batch of a thread - batch results may only be published once committed
+    protected final ThreadLocal<Boolean> batchCommitted = new ThreadLocal<Boolean>();
+
+    protected final TransactionListener batchTransactionListener = new TransactionListenerAdapter()
+    {
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public void afterCommit()
+        {
+            RepositoryExecuteBatchWorker.this.batchCommitted.set(Boolean.TRUE);
+        }
+
+        /**
+         *
+         * {@inheritDoc}
+         */
+        @Override
+        public void afterRollback()
+        {
+            RepositoryExecuteBatchWorker.this.batchCommitted.set(Boolean.FALSE);
+        }
+    };
+
+    // provider streaming the work items in pages - needs to be signalled when items have been processed to fetch the next page
+    protected RepositoryExecuteBatchFunction.IteratorBatchWorkProvider streamingWorkProvider;
+
     protected RepositoryExecuteBatchWorker(final RepositoryExecuteBatchFunction batchFunction, final Scriptable parentScope,
             final Scriptable thisObj, final Pair<Scriptable, Function> processCallback,
             final Pair<Scriptable, Function> beforeProcessCallback, final Pair<Scriptable, Function> afterProcessCallback,
-            final PlatformTransactionManager txnManager)
+            final ExecuteBatchReport report, final ExecuteBatchOptions options, final Log log, final PlatformTransactionManager txnManager)
     {
-        super(batchFunction, parentScope, thisObj, processCallback, beforeProcessCallback, afterProcessCallback);
+        super(batchFunction, parentScope, thisObj, processCallback, beforeProcessCallback, afterProcessCallback, report, options, log);
         this.txnManager = txnManager;
     }
 
+    /**
+     * @param streamingWorkProvider
+     *            the streamingWorkProvider to set
+     */
+    protected void setStreamingWorkProvider(final RepositoryExecuteBatchFunction.IteratorBatchWorkProvider streamingWorkProvider)
+    {
+        this.streamingWorkProvider = streamingWorkProvider;
+    }
+
     /**
      * 
      * {@inheritDoc}
@@ -138,6 +183,8 @@ public class RepositoryExecuteBatchWorker extends BaseExecuteBatchWorker<Reposit
             I18NUtil.setContentLocale(this.contentLocale);
         }
 
+        this.batchCommitted.set(Boolean.FALSE);
+
         try
         {
             try
@@ -169,26 +216,7 @@ public class RepositoryExecuteBatchWorker extends BaseExecuteBatchWorker<Reposit
              * commits of partial changes from the batch. (rollback on any exception is the default behaviour of Alfresco
              * SpringAwareUserTransaction)
              */
-
-            final RuleBasedTransactionAttribute transactionAttribute = new RuleBasedTransactionAttribute();
-            transactionAttribute.setReadOnly(true);
-            transactionAttribute.setPropagationBehavior(TransactionDefinition.PROPAGATION_SUPPORTS);
-
-            // this never creates a new "real" transaction due to our propagation behavior
-            final TransactionStatus transaction = this.txnManager.getTransaction(transactionAttribute);
-            try
-            {
-                if (!transaction.isRollbackOnly())
-                {
-                    LOGGER.debug("Marking transaction as rollback-only due to exception during batch processing", ex);
-                    transaction.setRollbackOnly();
-                }
-            }
-            finally
-            {
-                // this never actually commits a "real" transaction - it just clears transaction synchronizations
-                this.txnManager.commit(transaction);
-            }
+            this.markRollbackOnly(ex, false);
 
             throw ex;
         }
@@ -201,6 +229,9 @@ public class RepositoryExecuteBatchWorker extends BaseExecuteBatchWorker<Reposit
     @Override
     public void process(final Object entry) throws Throwable
     {
+        // binding is idempotent within a transaction and needs to be repeated for each retry of the batch
+        AlfrescoTransactionSupport.bindListener(this.batchTransactionListener);
+
         try
         {
             try
@@ -232,17 +263,7 @@ public class RepositoryExecuteBatchWorker extends BaseExecuteBatchWorker<Reposit
              * commits of partial changes from the batch. (rollback on any exception is the default behaviour of Alfresco
              * SpringAwareUserTransaction)
              */
-
-            final RuleBasedTransactionAttribute transactionAttribute = new RuleBasedTransactionAttribute();
-            transactionAttribute.setReadOnly(true);
-            transactionAttribute.setPropagationBehavior(TransactionDefinition.PROPAGATION_MANDATORY);
-
-            final TransactionStatus transaction = this.txnManager.getTransaction(transactionAttribute);
-            if (!transaction.isRollbackOnly())
-            {
-                LOGGER.debug("Marking transaction as rollback-only due to exception during batch processing", ex);
-                transaction.setRollbackOnly();
-            }
+            this.markRollbackOnly(ex, true);
 
             throw ex;
         }
@@ -279,11 +300,17 @@ public class RepositoryExecuteBatchWorker extends BaseExecuteBatchWorker<Reposit
             finally
             {
                 // cleanup execution context
+                this.batchCommitted.remove();
                 AuthenticationUtil.clearCurrentSecurityContext();
                 AuthenticationUtil.popAuthentication();
 
                 I18NUtil.setLocale(null);
                 I18NUtil.setContentLocale(null);
+
+                if (this.streamingWorkProvider != null)
+                {
+                    this.streamingWorkProvider.releaseCapacity();
+                }
             }
         }
         catch (final Throwable ex)
@@ -295,29 +322,71 @@ public class RepositoryExecuteBatchWorker extends BaseExecuteBatchWorker<Reposit
              * commits of partial changes from the batch. (rollback on any exception is the default behaviour of Alfresco
              * SpringAwareUserTransaction)
              */
+            this.markRollbackOnly(ex, false);
 
+            throw ex;
+        }
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    protected boolean isBatchCompleted()
+    {
+        // a batch may also fail when its transaction is committed
+        return super.isBatchCompleted() && Boolean.TRUE.equals(this.batchCommitted.get());
+    }
+
+    /**
+     * Marks the transaction of the current batch as rollback-only after an exception during batch processing. Read-only batches can't
+     * have partial changes, so there is no need for this bookkeeping.
+     *
+     * @param ex
+     *            the exception that occurred
+     * @param inTransaction
+     *            {@code true} if the current thread is known to be in the transaction of the batch, {@code false} if a transaction may
+     *            or may not be active
+     */
+    protected void markRollbackOnly(final Throwable ex, final boolean inTransaction)
+    {
+        if (!this.options.isReadOnly())
+        {
             final RuleBasedTransactionAttribute transactionAttribute = new RuleBasedTransactionAttribute();
             transactionAttribute.setReadOnly(true);
-            transactionAttribute.setPropagationBehavior(TransactionDefinition.PROPAGATION_SUPPORTS);
 
-            // this never creates a new "real" transaction due to our propagation behavior
-            final TransactionStatus transaction = this.txnManager.getTransaction(transactionAttribute);
-            try
+            if (inTransaction)
             {
+                transactionAttribute.setPropagationBehavior(TransactionDefinition.PROPAGATION_MANDATORY);
+
+                final TransactionStatus transaction = this.txnManager.getTransaction(transactionAttribute);
                 if (!transaction.isRollbackOnly())
                 {
                     LOGGER.debug("Marking transaction as rollback-only due to exception during batch processing", ex);
                     transaction.setRollbackOnly();
                 }
             }
-            finally
+            else
             {
-                // this never actually commits a "real" transaction - it just clears transaction synchronizations
-                this.txnManager.commit(transaction);
-            }
+                transactionAttribute.setPropagationBehavior(TransactionDefinition.PROPAGATION_SUPPORTS);
 
-            throw ex;
+                // this never creates a new "real" transaction due to our propagation behavior
+                final TransactionStatus transaction = this.txnManager.getTransaction(transactionAttribute);
+                try
+                {
+                    if (!transaction.isRollbackOnly())
+                    {
+                        LOGGER.debug("Marking transaction as rollback-only due to exception during batch processing", ex);
+                        transaction.setRollbackOnly();
+                    }
+                }
+                finally
+                {
+                    // this never actually commits a "real" transaction - it just clears transaction synchronizations
+                    this.txnManager.commit(transaction);
+                }
+            }
         }
     }
-
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright 2016 Axel Faust
+ *
+ * Licensed under the Eclipse Public License (EPL), Version 1.0 (the "License"); you may not use
+ * this file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * https://www.eclipse.org/legal/epl-v10.html
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under the
+ * License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND,
+ * either express or implied. See the License for the specific language governing permissions
+ * and limitations under the License.
+ */
+package de.axelfaust.alfresco.enhScriptEnv.repo.web.scripts;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.alfresco.util.PropertyCheck;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.extensions.webscripts.DeclarativeWebScript;
+import org.springframework.extensions.webscripts.Status;
+import org.springframework.extensions.webscripts.WebScriptRequest;
+
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.AbstractExecuteBatchFunction;
+import de.axelfaust.alfresco.enhScriptEnv.common.script.batch.ExecuteBatchJob;
+
+/**
+ * Web script to query the status of asynchronous batch executions started via {@code executeBatchAsync}.
+ *
+ * @author Axel Faust
+ */
+public class ExecuteBatchStatusGet extends DeclarativeWebScript implements InitializingBean
+{
+
+    private AbstractExecuteBatchFunction batchFunction;
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    public void afterPropertiesSet()
+    {
+        PropertyCheck.mandatory(this, "batchFunction", this.batchFunction);
+    }
+
+    /**
+     *
+     * {@inheritDoc}
+     */
+    @Override
+    protected Map<String, Object> executeImpl(final WebScriptRequest req, final Status status)
+    {
+        // construct model
+        final Map<String, Object> model = new HashMap<String, Object>(7, 1.0f);
+
+        final String jobId = req.getParameter("jobId");
+        if (jobId != null && jobId.trim().length() > 0)
+        {
+            final ExecuteBatchJob job = this.batchFunction.getJob(jobId.trim());
+            if (job == null)
+            {
+                status.setCode(Status.STATUS_NOT_FOUND, "Batch execution " + jobId + " does not exist (anymore)");
+                status.setRedirect(true);
+            }
+            else
+            {
+                model.put("job", job);
+            }
+        }
+        else
+        {
+            model.put("jobs", this.batchFunction.getJobs());
+        }
+
+        return model;
+    }
+
+    /**
+     * @param batchFunction
+     *            the batchFunction to set
+     */
+    public final void setBatchFunction(final AbstractExecuteBatchFunction batchFunction)
+    {
+        this.batchFunction = batchFunction;
+    }
+
+}
@@ -0,0 +1,35 @@
+<#macro renderJob job>
+<#assign report = job.report />
+{
+    "id" : "${job.id?json_string}",
+    "done" : ${job.done?string},
+    "cancelled" : ${job.cancelled?string},
+    <#if job.error??>"error" : "${job.error?json_string}",</#if>
+    "progress" : ${job.progress?c},
+    "estimatedRemainingTime" : ${job.estimatedRemainingTime?c},
+    "startTime" : ${report.startTime?c},
+    "endTime" : ${report.endTime?c},
+    "totalDuration" : ${report.totalDuration?c},
+    "estimatedTotal" : ${report.estimatedTotal?c},
+    "processed" : ${report.processed?c},
+    "succeeded" : ${report.succeeded?c},
+    "failed" : ${report.failed?c},
+    "skipped" : ${report.skipped?c},
+    "retries" : ${report.retries?c},
+    "batches" : ${report.batches?c},
+    "threadCount" : ${report.threadCount?c},
+    "batchSize" : ${report.batchSize?c},
+    "averageBatchDuration" : ${report.averageBatchDuration?c},
+    "minBatchDuration" : ${report.minBatchDuration?c},
+    "maxBatchDuration" : ${report.maxBatchDuration?c},
+    "throughput" : ${report.throughput?c},
+    "errors" : [<#list report.errorIdentifiers as errorIdentifier>"${errorIdentifier?json_string}"<#if errorIdentifier_has_next>, </#if></#list>]
+}
+</#macro>
+<#if job??>
+<@renderJob job />
+<#else>
+{
+    "jobs" : [<#list jobs as job><@renderJob job /><#if job_has_next>,</#if></#list>]
+}
+</#if>